@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+/**
+ * This example compares the throughput of a server whose handler blocks, like on a database call,
+ * when the messages are decoded by the fixed number of workers and when they are decoded on virtual
+ * threads.
+ * <p>
+ * Usage: BlockingHandlerBenchmark [connections] [messages per connection] [blocking time in ms]
+ * <p>
+ * The virtual threads are only measured on Java 21 or newer.
+ */
+public class BlockingHandlerBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int messages = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    long blockMillis = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+    System.out.println(
+        connections + " connections, " + messages + " messages each, handler blocks for "
+            + blockMillis + " ms");
+    run(false, connections, messages, blockMillis, 8887);
+    try {
+      run(true, connections, messages, blockMillis, 8888);
+    } catch (UnsupportedOperationException e) {
+      System.out.println("virtual threads: " + e.getMessage());
+    }
+  }
+
+  private static void run(boolean virtualThreads, int connections, int messages,
+      final long blockMillis, int port) throws Exception {
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        try {
+          // simulates a blocking call like JDBC or HTTP
+          Thread.sleep(blockMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        conn.send(message);
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+        ex.printStackTrace();
+      }
+
+      @Override
+      public void onStart() {
+      }
+    };
+    server.setUseVirtualThreads(virtualThreads);
+    server.setReuseAddr(true);
+    server.start();
+
+    final CountDownLatch replies = new CountDownLatch(connections * messages);
+    List<WebSocketClient> clients = new ArrayList<>(connections);
+    for (int i = 0; i < connections; i++) {
+      WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+          replies.countDown();
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+          ex.printStackTrace();
+        }
+      };
+      client.connectBlocking();
+      clients.add(client);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      for (WebSocketClient client : clients) {
+        client.send("ping");
+      }
+    }
+    boolean completed = replies.await(10, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - start;
+
+    String mode = virtualThreads ? "virtual threads" : "platform workers";
+    if (completed) {
+      System.out.println(mode + ": " + (connections * messages * 1000000000L / elapsed)
+          + " messages/s in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+    } else {
+      System.out.println(mode + ": timed out");
+    }
+    for (WebSocketClient client : clients) {
+      client.closeBlocking();
+    }
+    server.stop();
+  }
+}
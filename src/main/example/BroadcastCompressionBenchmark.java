@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.java_websocket.PreparedMessage;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+/**
+ * This example measures a broadcast to many clients using permessage-deflate. With context
+ * takeover every message is compressed once per client. With server_no_context_takeover the
+ * compressed frames do not depend on the connection, so every message is compressed only once and
+ * the frames are shared by all clients.
+ * <p>
+ * Usage: BroadcastCompressionBenchmark [clients] [messages] [message size in bytes]
+ */
+public class BroadcastCompressionBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int messages = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int messageSize = args.length > 2 ? Integer.parseInt(args[2]) : 8192;
+
+    System.out.println(clients + " clients, " + messages + " messages of " + messageSize
+        + " bytes");
+    run(clients, messages, messageSize, false, 8887);
+    run(clients, messages, messageSize, true, 8888);
+  }
+
+  private static void run(int clientCount, int messages, int messageSize,
+      boolean serverNoContextTakeover, int port) throws Exception {
+    final CountDownLatch received = new CountDownLatch(clientCount * messages);
+    final CountDownLatch started = new CountDownLatch(1);
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port),
+        Collections.<Draft>singletonList(new Draft_6455(new PerMessageDeflateExtension()))) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+        ex.printStackTrace();
+      }
+
+      @Override
+      public void onStart() {
+        started.countDown();
+      }
+    };
+    server.setReuseAddr(true);
+    server.start();
+    started.await();
+
+    List<WebSocketClient> clients = new ArrayList<>();
+    for (int i = 0; i < clientCount; i++) {
+      PerMessageDeflateExtension extension = new PerMessageDeflateExtension();
+      extension.setServerNoContextTakeover(serverNoContextTakeover);
+      WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port),
+          new Draft_6455(extension)) {
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+          received.countDown();
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+          ex.printStackTrace();
+        }
+      };
+      client.connectBlocking();
+      clients.add(client);
+    }
+
+    String text = createMessage(messageSize);
+    long broadcastNanos = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      long broadcastStart = System.nanoTime();
+      server.broadcast(new PreparedMessage(text));
+      broadcastNanos += System.nanoTime() - broadcastStart;
+    }
+    boolean completed = received.await(10, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - start;
+
+    String mode = serverNoContextTakeover ? "compress once (server_no_context_takeover)"
+        : "compress per connection";
+    if (completed) {
+      System.out.println(mode + ": " + TimeUnit.NANOSECONDS.toMillis(broadcastNanos)
+          + " ms in broadcast, " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms until received");
+    } else {
+      System.out.println(mode + ": timed out");
+    }
+    for (WebSocketClient client : clients) {
+      client.closeBlocking();
+    }
+    server.stop();
+  }
+
+  private static String createMessage(int size) {
+    StringBuilder builder = new StringBuilder(size + 64);
+    for (int i = 0; builder.length() < size; i++) {
+      builder.append("{\"id\":").append(i).append(",\"price\":").append(i * 31 % 1000)
+          .append("},");
+    }
+    return builder.substring(0, size);
+  }
+}
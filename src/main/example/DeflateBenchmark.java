@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.TextFrame;
+
+/**
+ * This example measures the permessage-deflate extension: the memory held by idle connections
+ * with and without context takeover, and the throughput of compressing and decompressing
+ * messages.
+ * <p>
+ * The memory of the zlib streams is native memory, so it is measured as the growth of the resident
+ * set size of the process, which is only available on Linux.
+ * <p>
+ * Usage: DeflateBenchmark [connections] [messages] [message size in bytes]
+ */
+public class DeflateBenchmark {
+
+  private static final String NO_CONTEXT_TAKEOVER = "permessage-deflate; "
+      + "client_no_context_takeover; server_no_context_takeover";
+
+  public static void main(String[] args) throws Exception {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int messages = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+    int messageSize = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+    byte[] message = createMessage(messageSize);
+
+    System.out.println("Memory per idle connection");
+    idleMemory(connections, message, "permessage-deflate");
+    idleMemory(connections, message, NO_CONTEXT_TAKEOVER);
+
+    System.out.println(messages + " messages of " + messageSize + " bytes");
+    throughput(messages, message, "permessage-deflate");
+    throughput(messages, message, NO_CONTEXT_TAKEOVER);
+  }
+
+  private static void idleMemory(int connections, byte[] message, String offer)
+      throws Exception {
+    List<PerMessageDeflateExtension> extensions = new ArrayList<>();
+    long before = getResidentSetSize();
+    for (int i = 0; i < connections; i++) {
+      PerMessageDeflateExtension extension = createExtension(offer);
+      // one message in each direction, afterwards the connection is idle
+      roundTrip(extension, message);
+      extensions.add(extension);
+    }
+    long after = getResidentSetSize();
+    if (before < 0 || after < 0) {
+      System.out.println(offer + ": resident set size not available");
+    } else {
+      System.out.println(offer + ": " + (after - before) / connections / 1024 + " KiB");
+    }
+    extensions.clear();
+    System.gc();
+  }
+
+  private static void throughput(int messages, byte[] message, String offer) throws Exception {
+    PerMessageDeflateExtension extension = createExtension(offer);
+    for (int i = 0; i < messages / 10; i++) {
+      roundTrip(extension, message);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      roundTrip(extension, message);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%s: %.1f MB/s%n", offer,
+        (double) messages * message.length / seconds / 1e6);
+  }
+
+  private static PerMessageDeflateExtension createExtension(String offer) {
+    PerMessageDeflateExtension extension = new PerMessageDeflateExtension();
+    extension.acceptProvidedExtensionAsServer(offer);
+    return extension;
+  }
+
+  private static void roundTrip(PerMessageDeflateExtension extension, byte[] message)
+      throws InvalidDataException {
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(message));
+    extension.encodeFrame(frame);
+    extension.decodeFrame(frame);
+  }
+
+  private static byte[] createMessage(int size) {
+    StringBuilder builder = new StringBuilder(size + 64);
+    for (int i = 0; builder.length() < size; i++) {
+      builder.append("{\"id\":").append(i).append(",\"name\":\"item").append(i % 97)
+          .append("\",\"price\":").append(i * 31 % 1000).append("},");
+    }
+    return builder.substring(0, size).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static long getResidentSetSize() {
+    try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (IOException e) {
+      // not available
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.Handshakedata;
+
+/**
+ * This example measures how many opening handshakes a server side connection accepts per second.
+ * The request of a browser is decoded without a network, once as a whole and once split into
+ * small reads, as it may arrive from a slow client.
+ * <p>
+ * Usage: HandshakeBenchmark [handshakes] [bytes per read]
+ */
+public class HandshakeBenchmark {
+
+  private static final String REQUEST = "GET /chat?room=1 HTTP/1.1\r\n"
+      + "Host: example.com:8080\r\n"
+      + "Connection: Upgrade\r\n"
+      + "Pragma: no-cache\r\n"
+      + "Cache-Control: no-cache\r\n"
+      + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
+      + "Chrome/120.0.0.0 Safari/537.36\r\n"
+      + "Upgrade: websocket\r\n"
+      + "Origin: https://example.com\r\n"
+      + "Sec-WebSocket-Version: 13\r\n"
+      + "Accept-Encoding: gzip, deflate, br\r\n"
+      + "Accept-Language: en-US,en;q=0.9\r\n"
+      + "Cookie: session=abcdef0123456789; theme=dark\r\n"
+      + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+      + "Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits\r\n"
+      + "\r\n";
+
+  public static void main(String[] args) {
+    int handshakes = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int chunk = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+    byte[] request = REQUEST.getBytes(StandardCharsets.US_ASCII);
+    System.out.println(handshakes + " handshakes of " + request.length + " bytes");
+    for (int round = 0; round < 3; round++) {
+      run(request, handshakes, request.length);
+      run(request, handshakes, chunk);
+    }
+  }
+
+  private static void run(byte[] request, int handshakes, int chunk) {
+    Listener listener = new Listener();
+    List<Draft> drafts = Collections.<Draft>singletonList(new Draft_6455());
+    long start = System.nanoTime();
+    for (int i = 0; i < handshakes; i++) {
+      WebSocketImpl conn = new WebSocketImpl(listener, drafts);
+      for (int offset = 0; offset < request.length; offset += chunk) {
+        conn.decode(ByteBuffer.wrap(request, offset, Math.min(chunk, request.length - offset)));
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.println((chunk >= request.length ? "whole request" : chunk + " bytes per read")
+        + ": " + handshakes * TimeUnit.SECONDS.toNanos(1) / elapsed + " handshakes/s, "
+        + listener.opened + " opened");
+  }
+
+  private static class Listener extends WebSocketAdapter {
+
+    private int opened;
+
+    @Override
+    public void onWebsocketOpen(WebSocket conn, Handshakedata handshake) {
+      opened++;
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, String message) {
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, ByteBuffer blob) {
+    }
+
+    @Override
+    public void onWebsocketClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onWebsocketClosing(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onWebsocketCloseInitiated(WebSocket conn, int code, String reason) {
+    }
+
+    @Override
+    public void onWebsocketError(WebSocket conn, Exception ex) {
+      ex.printStackTrace();
+    }
+
+    @Override
+    public void onWriteDemand(WebSocket conn) {
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress(WebSocket conn) {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress(WebSocket conn) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+/**
+ * This example measures how fast a client sends small messages, once with every frame written and
+ * flushed by itself and once with the frames coalesced by the write thread.
+ * <p>
+ * Usage: SmallMessageBenchmark [messages] [message size in bytes] [coalescing limit in bytes]
+ */
+public class SmallMessageBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int messageSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int limit = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+
+    System.out.println(messages + " messages of " + messageSize + " bytes");
+    run(messages, messageSize, 0, 8887);
+    run(messages, messageSize, limit, 8888);
+  }
+
+  private static void run(int messages, int messageSize, int coalescingLimit, int port)
+      throws Exception {
+    final CountDownLatch received = new CountDownLatch(messages);
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, ByteBuffer message) {
+        received.countDown();
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+        ex.printStackTrace();
+      }
+
+      @Override
+      public void onStart() {
+      }
+    };
+    server.setReuseAddr(true);
+    server.start();
+
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+        ex.printStackTrace();
+      }
+    };
+    client.setWriteCoalescingLimit(coalescingLimit);
+    client.connectBlocking();
+
+    byte[] payload = new byte[messageSize];
+    long start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      client.send(payload);
+    }
+    boolean completed = received.await(10, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - start;
+
+    String mode = coalescingLimit == 0 ? "flush per frame" : "coalescing " + coalescingLimit;
+    if (completed) {
+      System.out.println(mode + ": " + (messages * 1000000000L / elapsed) + " messages/s in "
+          + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+    } else {
+      System.out.println(mode + ": timed out");
+    }
+    client.closeBlocking();
+    server.stop();
+  }
+}
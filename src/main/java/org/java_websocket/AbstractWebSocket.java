@@ -27,12 +27,10 @@ package org.java_websocket;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import org.java_websocket.enums.BackpressurePolicy;
 import org.java_websocket.framing.CloseFrame;
-import org.java_websocket.util.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,24 +62,42 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
   private boolean reuseAddr;
 
   /**
-   * Attribute for a service that triggers lost connection checking
+   * Attribute for a wheel shared with other endpoints, which runs the heartbeats instead of a
+   * wheel of this endpoint
    *
-   * @since 1.4.1
+   * @since 1.6.1
    */
-  private ScheduledExecutorService connectionLostCheckerService;
+  private HeartbeatWheel heartbeatWheel;
+
   /**
-   * Attribute for a task that checks for lost connections
+   * Attribute for the wheel of this endpoint, if no wheel is shared
    *
-   * @since 1.4.1
+   * @since 1.6.1
    */
-  private ScheduledFuture<?> connectionLostCheckerFuture;
+  private HeartbeatWheel ownHeartbeatWheel;
 
   /**
    * Attribute for the lost connection check interval in nanoseconds
    *
    * @since 1.3.4
    */
-  private long connectionLostTimeout = TimeUnit.SECONDS.toNanos(60);
+  private volatile long connectionLostTimeout = TimeUnit.SECONDS.toNanos(60);
+
+  /**
+   * Attribute for the time in nanoseconds without a received data frame, after which a connection
+   * is closed (zero means no timeout)
+   *
+   * @since 1.6.1
+   */
+  private volatile long readIdleTimeout = 0;
+
+  /**
+   * Attribute for the time in nanoseconds without a sent data frame, after which a connection is
+   * closed (zero means no timeout)
+   *
+   * @since 1.6.1
+   */
+  private volatile long writeIdleTimeout = 0;
 
   /**
    * Attribute to keep track if the WebSocket Server/Client is running/connected
@@ -109,6 +125,34 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
    */
   private int receiveBufferSize = 0;
 
+  /**
+   * The outbound byte budget of every connection (zero means unbounded)
+   *
+   * @since 1.6.1
+   */
+  private long maxOutboundBytes = 0;
+
+  /**
+   * The policy for messages which do not fit into the outbound byte budget
+   *
+   * @since 1.6.1
+   */
+  private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+  /**
+   * The maximum size of a received handshake header in bytes
+   *
+   * @since 1.6.1
+   */
+  private int maxHandshakeSize = WebSocketImpl.DEFAULT_MAX_HANDSHAKE_SIZE;
+
+  /**
+   * The maximum number of fields of a received handshake header
+   *
+   * @since 1.6.1
+   */
+  private int maxHandshakeFields = WebSocketImpl.DEFAULT_MAX_HANDSHAKE_FIELDS;
+
   /**
    * Used for internal buffer allocations when the socket buffer size is not specified.
    */
@@ -136,13 +180,7 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
   public void setConnectionLostTimeout(int connectionLostTimeout) {
     synchronized (syncConnectionLost) {
       this.connectionLostTimeout = TimeUnit.SECONDS.toNanos(connectionLostTimeout);
-      if (this.connectionLostTimeout <= 0) {
-        log.trace("Connection lost timer stopped");
-        cancelConnectionLostTimer();
-        return;
-      }
-      if (this.websocketRunning) {
-        log.trace("Connection lost timer restarted");
+      if (this.connectionLostTimeout > 0 && this.websocketRunning) {
         //Reset all the pings
         try {
           ArrayList<WebSocket> connections = new ArrayList<>(getConnections());
@@ -156,11 +194,91 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
         } catch (Exception e) {
           log.error("Exception during connection lost restart", e);
         }
+      }
+      updateHeartbeats();
+    }
+  }
+
+  /**
+   * Get the time without a received data frame, after which a connection is closed. Default is 0,
+   * i.e. no timeout.
+   *
+   * @return the timeout in seconds
+   * @since 1.6.1
+   */
+  public int getReadIdleTimeout() {
+    return (int) TimeUnit.NANOSECONDS.toSeconds(readIdleTimeout);
+  }
+
+  /**
+   * Set the time without a received data frame, e.g. a text or binary message, after which a
+   * connection is closed with {@link CloseFrame#GOING_AWAY}. Control frames like pongs do not reset
+   * the timeout. A value lower or equal 0 disables the timeout.
+   *
+   * @param readIdleTimeout the timeout in seconds
+   * @since 1.6.1
+   */
+  public void setReadIdleTimeout(int readIdleTimeout) {
+    synchronized (syncConnectionLost) {
+      this.readIdleTimeout = TimeUnit.SECONDS.toNanos(Math.max(readIdleTimeout, 0));
+      updateHeartbeats();
+    }
+  }
+
+  /**
+   * Get the time without a sent data frame, after which a connection is closed. Default is 0,
+   * i.e. no timeout.
+   *
+   * @return the timeout in seconds
+   * @since 1.6.1
+   */
+  public int getWriteIdleTimeout() {
+    return (int) TimeUnit.NANOSECONDS.toSeconds(writeIdleTimeout);
+  }
+
+  /**
+   * Set the time without a sent data frame, e.g. a text or binary message, after which a
+   * connection is closed with {@link CloseFrame#GOING_AWAY}. Control frames like pings do not
+   * reset the timeout. A value lower or equal 0 disables the timeout.
+   *
+   * @param writeIdleTimeout the timeout in seconds
+   * @since 1.6.1
+   */
+  public void setWriteIdleTimeout(int writeIdleTimeout) {
+    synchronized (syncConnectionLost) {
+      this.writeIdleTimeout = TimeUnit.SECONDS.toNanos(Math.max(writeIdleTimeout, 0));
+      updateHeartbeats();
+    }
+  }
+
+  /**
+   * Set a wheel for the heartbeats, e.g. to share a single thread between many endpoints. Without
+   * a wheel, every endpoint starts a wheel of its own. The wheel is not stopped by this endpoint.
+   *
+   * @param heartbeatWheel the wheel to use, null to use a wheel of this endpoint
+   * @since 1.6.1
+   */
+  public void setHeartbeatWheel(HeartbeatWheel heartbeatWheel) {
+    synchronized (syncConnectionLost) {
+      this.heartbeatWheel = heartbeatWheel;
+      if (this.websocketRunning && isHeartbeatEnabled()) {
         restartConnectionLostTimer();
       }
     }
   }
 
+  /**
+   * Returns the wheel for the heartbeats.
+   *
+   * @return the wheel or null, if the heartbeats run on a wheel of this endpoint
+   * @since 1.6.1
+   */
+  public HeartbeatWheel getHeartbeatWheel() {
+    synchronized (syncConnectionLost) {
+      return heartbeatWheel;
+    }
+  }
+
   /**
    * Stop the connection lost timer
    *
@@ -168,7 +286,7 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
    */
   protected void stopConnectionLostTimer() {
     synchronized (syncConnectionLost) {
-      if (connectionLostCheckerService != null || connectionLostCheckerFuture != null) {
+      if (this.websocketRunning) {
         this.websocketRunning = false;
         log.trace("Connection lost timer stopped");
         cancelConnectionLostTimer();
@@ -183,16 +301,67 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
    */
   protected void startConnectionLostTimer() {
     synchronized (syncConnectionLost) {
-      if (this.connectionLostTimeout <= 0) {
+      this.websocketRunning = true;
+      if (!isHeartbeatEnabled()) {
         log.trace("Connection lost timer deactivated");
         return;
       }
       log.trace("Connection lost timer started");
-      this.websocketRunning = true;
       restartConnectionLostTimer();
     }
   }
 
+  /**
+   * Start the heartbeat of a connection opened while the connection lost timer is running
+   *
+   * @param conn the opened connection
+   * @since 1.6.1
+   */
+  protected void startConnectionLostDetection(WebSocket conn) {
+    synchronized (syncConnectionLost) {
+      if (this.websocketRunning && isHeartbeatEnabled()) {
+        startHeartbeat(conn, getActiveHeartbeatWheel());
+      }
+    }
+  }
+
+  /**
+   * Returns whether any of the lost connection check and the idle timeouts is enabled
+   *
+   * @return true, if the connections need a heartbeat
+   */
+  private boolean isHeartbeatEnabled() {
+    return connectionLostTimeout > 0 || readIdleTimeout > 0 || writeIdleTimeout > 0;
+  }
+
+  /**
+   * Start or stop the heartbeats after a changed timeout
+   */
+  private void updateHeartbeats() {
+    if (!isHeartbeatEnabled()) {
+      log.trace("Connection lost timer stopped");
+      cancelConnectionLostTimer();
+    } else if (this.websocketRunning) {
+      log.trace("Connection lost timer restarted");
+      restartConnectionLostTimer();
+    }
+  }
+
+  /**
+   * Returns the wheel running the heartbeats, creating the wheel of this endpoint if required
+   *
+   * @return the shared wheel or the wheel of this endpoint
+   */
+  private HeartbeatWheel getActiveHeartbeatWheel() {
+    if (heartbeatWheel != null) {
+      return heartbeatWheel;
+    }
+    if (ownHeartbeatWheel == null) {
+      ownHeartbeatWheel = new HeartbeatWheel(daemon);
+    }
+    return ownHeartbeatWheel;
+  }
+
   /**
    * This methods allows the reset of the connection lost timer in case of a changed parameter
    *
@@ -200,37 +369,34 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
    */
   private void restartConnectionLostTimer() {
     cancelConnectionLostTimer();
-    connectionLostCheckerService = Executors
-        .newSingleThreadScheduledExecutor(new NamedThreadFactory("WebSocketConnectionLostChecker", daemon));
-    Runnable connectionLostChecker = new Runnable() {
-
-      /**
-       * Keep the connections in a separate list to not cause deadlocks
-       */
-      private ArrayList<WebSocket> connections = new ArrayList<>();
-
-      @Override
-      public void run() {
-        connections.clear();
-        try {
-          connections.addAll(getConnections());
-          long minimumPongTime;
-          synchronized (syncConnectionLost) {
-            minimumPongTime = (long) (System.nanoTime() - (connectionLostTimeout * 1.5));
-          }
-          for (WebSocket conn : connections) {
-            executeConnectionLostDetection(conn, minimumPongTime);
-          }
-        } catch (Exception e) {
-          //Ignore this exception
-        }
-        connections.clear();
+    HeartbeatWheel wheel = getActiveHeartbeatWheel();
+    try {
+      for (WebSocket conn : new ArrayList<>(getConnections())) {
+        startHeartbeat(conn, wheel);
       }
-    };
+    } catch (Exception e) {
+      log.error("Exception during connection lost restart", e);
+    }
+  }
 
-    connectionLostCheckerFuture = connectionLostCheckerService
-        .scheduleAtFixedRate(connectionLostChecker, connectionLostTimeout, connectionLostTimeout,
-            TimeUnit.NANOSECONDS);
+  /**
+   * Start the heartbeat of a connection, replacing its previous heartbeat
+   *
+   * @param conn  the connection
+   * @param wheel the wheel to run the heartbeat on
+   */
+  private void startHeartbeat(WebSocket conn, HeartbeatWheel wheel) {
+    if (!(conn instanceof WebSocketImpl)) {
+      return;
+    }
+    WebSocketImpl webSocketImpl = (WebSocketImpl) conn;
+    Heartbeat previous = webSocketImpl.getHeartbeat();
+    if (previous != null) {
+      previous.cancel();
+    }
+    Heartbeat heartbeat = new Heartbeat(webSocketImpl, wheel);
+    webSocketImpl.setHeartbeat(heartbeat);
+    heartbeat.start();
   }
 
   /**
@@ -273,13 +439,139 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
    * @since 1.3.4
    */
   private void cancelConnectionLostTimer() {
-    if (connectionLostCheckerService != null) {
-      connectionLostCheckerService.shutdownNow();
-      connectionLostCheckerService = null;
+    try {
+      for (WebSocket conn : new ArrayList<>(getConnections())) {
+        if (conn instanceof WebSocketImpl) {
+          Heartbeat heartbeat = ((WebSocketImpl) conn).getHeartbeat();
+          if (heartbeat != null) {
+            heartbeat.cancel();
+          }
+        }
+      }
+    } catch (Exception e) {
+      log.error("Exception during connection lost stop", e);
+    }
+    if (ownHeartbeatWheel != null) {
+      ownHeartbeatWheel.stop();
+      ownHeartbeatWheel = null;
+    }
+  }
+
+  /**
+   * The heartbeat of a single connection. It pings the connection once per lost connection check
+   * interval, starting at a random offset to spread the pings of all connections over the
+   * interval, and closes the connection when it is lost or idle for too long.
+   *
+   * @since 1.6.1
+   */
+  class Heartbeat implements Runnable {
+
+    /**
+     * The connection
+     */
+    private final WebSocketImpl webSocketImpl;
+
+    /**
+     * The wheel running this heartbeat
+     */
+    private final HeartbeatWheel wheel;
+
+    /**
+     * The time of the next ping, in nanoTime
+     */
+    private long nextPing;
+
+    /**
+     * The scheduled run of this heartbeat
+     */
+    private HeartbeatWheel.Timeout timeout;
+
+    /**
+     * Whether this heartbeat was cancelled
+     */
+    private boolean cancelled = false;
+
+    Heartbeat(WebSocketImpl webSocketImpl, HeartbeatWheel wheel) {
+      this.webSocketImpl = webSocketImpl;
+      this.wheel = wheel;
     }
-    if (connectionLostCheckerFuture != null) {
-      connectionLostCheckerFuture.cancel(false);
-      connectionLostCheckerFuture = null;
+
+    /**
+     * Schedule the first run of this heartbeat
+     */
+    void start() {
+      long now = System.nanoTime();
+      long interval = connectionLostTimeout;
+      nextPing = now + (interval > 0 ? ThreadLocalRandom.current().nextLong(interval) + 1 : 0);
+      schedule(now);
+    }
+
+    /**
+     * Cancel this heartbeat
+     */
+    synchronized void cancel() {
+      cancelled = true;
+      if (timeout != null) {
+        timeout.cancel();
+        timeout = null;
+      }
+    }
+
+    @Override
+    public void run() {
+      if (isCancelled() || !webSocketImpl.isOpen()) {
+        return;
+      }
+      long now = System.nanoTime();
+      long readIdle = readIdleTimeout;
+      if (readIdle > 0 && now - webSocketImpl.getLastDataRead() >= readIdle) {
+        log.trace("Closing connection due to read idle timeout: {}", webSocketImpl);
+        webSocketImpl.close(CloseFrame.GOING_AWAY, "Read idle timeout");
+        return;
+      }
+      long writeIdle = writeIdleTimeout;
+      if (writeIdle > 0 && now - webSocketImpl.getLastDataWritten() >= writeIdle) {
+        log.trace("Closing connection due to write idle timeout: {}", webSocketImpl);
+        webSocketImpl.close(CloseFrame.GOING_AWAY, "Write idle timeout");
+        return;
+      }
+      long interval = connectionLostTimeout;
+      if (interval > 0 && now - nextPing >= 0) {
+        executeConnectionLostDetection(webSocketImpl, (long) (now - (interval * 1.5)));
+        nextPing = now + interval;
+      }
+      if (webSocketImpl.isOpen()) {
+        schedule(now);
+      }
+    }
+
+    /**
+     * Schedule the next run at the earliest of the next ping and the idle deadlines
+     *
+     * @param now the current time in nanoTime
+     */
+    private void schedule(long now) {
+      long next = connectionLostTimeout > 0 ? nextPing : Long.MAX_VALUE;
+      long readIdle = readIdleTimeout;
+      if (readIdle > 0) {
+        next = Math.min(next, webSocketImpl.getLastDataRead() + readIdle);
+      }
+      long writeIdle = writeIdleTimeout;
+      if (writeIdle > 0) {
+        next = Math.min(next, webSocketImpl.getLastDataWritten() + writeIdle);
+      }
+      if (next == Long.MAX_VALUE) {
+        return;
+      }
+      synchronized (this) {
+        if (!cancelled) {
+          timeout = wheel.schedule(this, next - now);
+        }
+      }
+    }
+
+    private synchronized boolean isCancelled() {
+      return cancelled;
     }
   }
 
@@ -373,4 +665,129 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
     this.receiveBufferSize = receiveBufferSize;
   }
 
+  /**
+   * Returns the outbound byte budget of the connections (or zero, if not explicitly set).
+   *
+   * @return the maximum number of queued bytes per connection
+   * @see #setMaxOutboundBytes(long)
+   * @since 1.6.1
+   */
+  public long getMaxOutboundBytes() {
+    return maxOutboundBytes;
+  }
+
+  /**
+   * Sets the outbound byte budget of new connections, the maximum number of bytes queued for
+   * sending per connection. Messages which do not fit into the budget are handled according to the
+   * {@link #setBackpressurePolicy(BackpressurePolicy) backpressure policy}. Control frames are
+   * always queued, but count towards the budget.
+   * If this is not explicitly set (or set to zero), the queued bytes are unbounded.
+   *
+   * @param maxOutboundBytes the maximum number of queued bytes per connection
+   * @throws IllegalArgumentException if the budget is negative
+   * @since 1.6.1
+   */
+  public void setMaxOutboundBytes(long maxOutboundBytes) {
+    if (maxOutboundBytes < 0) {
+      throw new IllegalArgumentException("maxOutboundBytes < 0");
+    }
+    this.maxOutboundBytes = maxOutboundBytes;
+  }
+
+  /**
+   * Returns whether the current thread runs an event loop of this endpoint, i.e. reads or writes
+   * the channels of its connections. Such a thread never waits for the outbound byte budget of a
+   * connection, since only an event loop can free it.
+   *
+   * @return true, if the current thread must not block
+   * @since 1.6.1
+   */
+  protected boolean isEventLoopThread() {
+    return false;
+  }
+
+  /**
+   * Returns the policy for messages which do not fit into the outbound byte budget.
+   *
+   * @return the backpressure policy
+   * @see #setMaxOutboundBytes(long)
+   * @since 1.6.1
+   */
+  public BackpressurePolicy getBackpressurePolicy() {
+    return backpressurePolicy;
+  }
+
+  /**
+   * Sets the policy for messages of new connections which do not fit into the outbound byte
+   * budget. Default is {@link BackpressurePolicy#BLOCK}. With {@link BackpressurePolicy#BLOCK} a
+   * message sent from an event loop thread, e.g. in a callback or by a published message, is
+   * queued without waiting.
+   *
+   * @param backpressurePolicy the backpressure policy
+   * @throws IllegalArgumentException if the policy is null
+   * @see #setMaxOutboundBytes(long)
+   * @since 1.6.1
+   */
+  public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+    if (backpressurePolicy == null) {
+      throw new IllegalArgumentException("backpressurePolicy == null");
+    }
+    this.backpressurePolicy = backpressurePolicy;
+  }
+
+  /**
+   * Returns the maximum size of a received handshake header.
+   *
+   * @return the maximum size in bytes
+   * @see #setMaxHandshakeSize(int)
+   * @since 1.6.1
+   */
+  public int getMaxHandshakeSize() {
+    return maxHandshakeSize;
+  }
+
+  /**
+   * Sets the maximum size of the handshake header received by new connections, including the
+   * request or status line. A connection whose handshake exceeds it is closed, a server responds
+   * with 431 Request Header Fields Too Large. Default is
+   * {@link WebSocketImpl#DEFAULT_MAX_HANDSHAKE_SIZE}.
+   *
+   * @param maxHandshakeSize the maximum size in bytes
+   * @throws IllegalArgumentException if the size is less than 1
+   * @since 1.6.1
+   */
+  public void setMaxHandshakeSize(int maxHandshakeSize) {
+    if (maxHandshakeSize < 1) {
+      throw new IllegalArgumentException("maxHandshakeSize < 1");
+    }
+    this.maxHandshakeSize = maxHandshakeSize;
+  }
+
+  /**
+   * Returns the maximum number of fields of a received handshake header.
+   *
+   * @return the maximum number of fields
+   * @see #setMaxHandshakeFields(int)
+   * @since 1.6.1
+   */
+  public int getMaxHandshakeFields() {
+    return maxHandshakeFields;
+  }
+
+  /**
+   * Sets the maximum number of fields of the handshake header received by new connections. A
+   * connection whose handshake exceeds it is closed like for {@link #setMaxHandshakeSize(int)}.
+   * Default is {@link WebSocketImpl#DEFAULT_MAX_HANDSHAKE_FIELDS}.
+   *
+   * @param maxHandshakeFields the maximum number of fields
+   * @throws IllegalArgumentException if the number is negative
+   * @since 1.6.1
+   */
+  public void setMaxHandshakeFields(int maxHandshakeFields) {
+    if (maxHandshakeFields < 0) {
+      throw new IllegalArgumentException("maxHandshakeFields < 0");
+    }
+    this.maxHandshakeFields = maxHandshakeFields;
+  }
+
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.java_websocket;
+
+import java.nio.ByteBuffer;
+import org.java_websocket.exceptions.LimitExceededException;
+
+/**
+ * Collects the bytes of a received handshake until the empty line which ends its http header.
+ * <p>
+ * Every byte is scanned only once, even if the header is received in many parts, and the header
+ * is limited in size and in the number of fields. A header received at once is not copied.
+ */
+final class HandshakeReader {
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  /**
+   * The maximum size of the header in bytes, including the empty line
+   */
+  private final int maxSize;
+
+  /**
+   * The maximum number of header fields, not counting the request or status line
+   */
+  private final int maxFields;
+
+  /**
+   * The bytes of the incomplete header received so far
+   */
+  private byte[] bytes;
+
+  /**
+   * The number of bytes received so far
+   */
+  private int length;
+
+  /**
+   * The number of complete lines received so far, including the request or status line
+   */
+  private int lines;
+
+  /**
+   * The number of bytes of the current line received so far
+   */
+  private int lineLength;
+
+  /**
+   * Attribute, if the last received byte is a CR
+   */
+  private boolean cr;
+
+  HandshakeReader(int maxSize, int maxFields) {
+    this.maxSize = maxSize;
+    this.maxFields = maxFields;
+  }
+
+  /**
+   * Read the bytes of the header from the buffer. The position of the buffer is moved behind the
+   * consumed bytes, so the remaining bytes follow the header.
+   *
+   * @param buf the received bytes
+   * @return the complete header, or null if more bytes are needed
+   * @throws LimitExceededException if the header exceeds the size or the number of fields
+   */
+  ByteBuffer read(ByteBuffer buf) throws LimitExceededException {
+    int end = scan(buf);
+    if (end < 0) {
+      append(buf, buf.limit());
+      return null;
+    }
+    if (length == 0) {
+      ByteBuffer header = buf.duplicate();
+      header.limit(end);
+      buf.position(end);
+      return header.slice();
+    }
+    append(buf, end);
+    ByteBuffer header = ByteBuffer.wrap(bytes, 0, length);
+    bytes = null;
+    length = 0;
+    return header;
+  }
+
+  /**
+   * Scan the remaining bytes of the buffer for the end of the header
+   *
+   * @param buf the received bytes
+   * @return the index behind the header, or -1 if it does not end in the buffer
+   * @throws LimitExceededException if the header exceeds the size or the number of fields
+   */
+  private int scan(ByteBuffer buf) throws LimitExceededException {
+    int start = buf.position();
+    int limit = buf.limit();
+    if (limit - start > maxSize - length) {
+      // only the bytes up to the end of the header count towards the limit
+      limit = start + maxSize - length;
+    }
+    for (int i = start; i < limit; i++) {
+      byte b = buf.get(i);
+      if (b == LF && cr) {
+        if (lineLength == 1) {
+          lines = 0;
+          lineLength = 0;
+          cr = false;
+          return i + 1;
+        }
+        // the first line is the request or status line
+        if (lines++ > maxFields) {
+          throw new LimitExceededException("Too many handshake fields", maxFields);
+        }
+        lineLength = 0;
+        cr = false;
+      } else {
+        lineLength++;
+        cr = b == CR;
+      }
+    }
+    if (limit < buf.limit()) {
+      throw new LimitExceededException("Handshake too large", maxSize);
+    }
+    return -1;
+  }
+
+  /**
+   * Append the bytes of the buffer up to the end index and move its position there
+   */
+  private void append(ByteBuffer buf, int end) {
+    int count = end - buf.position();
+    if (bytes == null || bytes.length < length + count) {
+      byte[] grown = new byte[Math.min(maxSize, Math.max(length + count, length * 2))];
+      if (bytes != null) {
+        System.arraycopy(bytes, 0, grown, 0, length);
+      }
+      bytes = grown;
+    }
+    buf.get(bytes, length, count);
+    length += count;
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel running the heartbeats of connections, i.e. the pings of the lost
+ * connection detection and the idle timeouts.
+ * <p>
+ * Every connection has a timeout of its own on the wheel, instead of a periodic task pinging all
+ * connections of an endpoint at the same instant. Scheduling and cancelling a timeout takes
+ * constant time; a single thread advances the wheel every tick and runs the expired timeouts of
+ * the current bucket. A wheel may be shared by many endpoints with {@link
+ * AbstractWebSocket#setHeartbeatWheel(HeartbeatWheel)}.
+ *
+ * @since 1.6.1
+ */
+public class HeartbeatWheel {
+
+  /**
+   * The default duration of a tick in milliseconds
+   */
+  private static final long DEFAULT_TICK_DURATION = 100;
+
+  /**
+   * The default number of buckets of the wheel
+   */
+  private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+  /**
+   * The number of the last created wheel, used to name its thread
+   */
+  private static final AtomicInteger wheelNumber = new AtomicInteger();
+
+  /**
+   * Logger instance
+   */
+  private final Logger log = LoggerFactory.getLogger(HeartbeatWheel.class);
+
+  /**
+   * The duration of a tick in nanoseconds
+   */
+  private final long tickDuration;
+
+  /**
+   * The buckets of the wheel, only accessed by the wheel thread
+   */
+  private final ArrayList<Timeout>[] wheel;
+
+  /**
+   * The mask to get the bucket of a tick
+   */
+  private final int mask;
+
+  /**
+   * The timeouts not yet added to their bucket
+   */
+  private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The thread advancing the wheel
+   */
+  private final Thread workerThread;
+
+  /**
+   * The time the wheel was started, in nanoTime
+   */
+  private volatile long startTime;
+
+  /**
+   * The state of the wheel, 0 = created, 1 = started, 2 = stopped
+   */
+  private int state = 0;
+
+  /**
+   * Create a wheel with a tick of 100 milliseconds and 512 buckets
+   *
+   * @param daemon whether the thread of the wheel is a daemon thread
+   */
+  public HeartbeatWheel(boolean daemon) {
+    this(DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL, daemon);
+  }
+
+  /**
+   * Create a wheel
+   *
+   * @param tickDuration  the duration of a tick, i.e. the precision of the timeouts
+   * @param unit          the unit of the tick duration
+   * @param ticksPerWheel the number of buckets, rounded up to a power of two
+   * @param daemon        whether the thread of the wheel is a daemon thread
+   * @throws IllegalArgumentException if the tick duration or the number of buckets is not
+   *                                  positive
+   */
+  public HeartbeatWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, boolean daemon) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("tickDuration must be positive");
+    }
+    if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+      throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+    }
+    int buckets = Integer.highestOneBit(ticksPerWheel);
+    if (buckets < ticksPerWheel) {
+      buckets <<= 1;
+    }
+    this.tickDuration = unit.toNanos(tickDuration);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ArrayList<Timeout>[] bucketArray = new ArrayList[buckets];
+    for (int i = 0; i < buckets; i++) {
+      bucketArray[i] = new ArrayList<>();
+    }
+    this.wheel = bucketArray;
+    this.mask = buckets - 1;
+    this.workerThread = new Thread(new Worker(),
+        "WebSocketConnectionLostChecker-" + wheelNumber.incrementAndGet());
+    this.workerThread.setDaemon(daemon);
+  }
+
+  /**
+   * Schedule a task on this wheel. The thread of the wheel is started with the first task.
+   *
+   * @param task  the task, which should not block since it runs on the thread of the wheel
+   * @param delay the delay in nanoseconds
+   * @return the timeout of the task
+   */
+  Timeout schedule(Runnable task, long delay) {
+    start();
+    Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(delay, 0));
+    pendingTimeouts.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Start the thread of the wheel, if not already started
+   */
+  private synchronized void start() {
+    if (state == 0) {
+      startTime = System.nanoTime();
+      state = 1;
+      workerThread.start();
+    }
+  }
+
+  /**
+   * Stop the thread of this wheel. The pending timeouts are discarded.
+   */
+  public synchronized void stop() {
+    if (state == 1) {
+      workerThread.interrupt();
+    }
+    state = 2;
+  }
+
+  /**
+   * Returns whether this wheel is stopped.
+   *
+   * @return true, if the wheel is stopped
+   */
+  public synchronized boolean isStopped() {
+    return state == 2;
+  }
+
+  /**
+   * The loop of the wheel thread
+   */
+  private class Worker implements Runnable {
+
+    /**
+     * The current tick
+     */
+    private long tick = 0;
+
+    @Override
+    public void run() {
+      try {
+        while (!isStopped()) {
+          long deadline = startTime + (tick + 1) * tickDuration;
+          long sleep = deadline - System.nanoTime();
+          if (sleep > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+          }
+          transferPendingTimeouts();
+          expireTimeouts(wheel[(int) (tick & mask)]);
+          tick++;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (ArrayList<Timeout> bucket : wheel) {
+        bucket.clear();
+      }
+      pendingTimeouts.clear();
+    }
+
+    /**
+     * Add the pending timeouts to their buckets
+     */
+    private void transferPendingTimeouts() {
+      Timeout timeout;
+      while ((timeout = pendingTimeouts.poll()) != null) {
+        if (timeout.cancelled) {
+          continue;
+        }
+        long ticks = Math.max(timeout.deadline - startTime, 0) / tickDuration;
+        timeout.remainingRounds = (ticks - tick) / wheel.length;
+        wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+      }
+    }
+
+    /**
+     * Run the expired timeouts of a bucket and remove them together with the cancelled ones
+     *
+     * @param bucket the bucket of the current tick
+     */
+    private void expireTimeouts(ArrayList<Timeout> bucket) {
+      int size = bucket.size();
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        Timeout timeout = bucket.get(i);
+        if (timeout.cancelled) {
+          continue;
+        }
+        if (timeout.remainingRounds > 0) {
+          timeout.remainingRounds--;
+          bucket.set(kept++, timeout);
+          continue;
+        }
+        try {
+          timeout.task.run();
+        } catch (RuntimeException e) {
+          log.error("Exception during heartbeat", e);
+        }
+      }
+      bucket.subList(kept, size).clear();
+    }
+  }
+
+  /**
+   * A task scheduled on the wheel
+   */
+  static class Timeout {
+
+    /**
+     * The task to run
+     */
+    private final Runnable task;
+
+    /**
+     * The time the task is due, in nanoTime
+     */
+    private final long deadline;
+
+    /**
+     * The remaining revolutions of the wheel, only accessed by the wheel thread
+     */
+    private long remainingRounds;
+
+    /**
+     * Whether the task was cancelled
+     */
+    private volatile boolean cancelled = false;
+
+    Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancel the task. It is removed from the wheel when its bucket is visited the next time.
+     */
+    void cancel() {
+      cancelled = true;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+
+/**
+ * An OutputStream, which sends one text or binary message as a sequence of fragments, so a large
+ * message never has to be held in memory as a whole.
+ * <p>
+ * The written bytes are collected until a fragment is full or the stream is flushed, and are sent
+ * using {@link WebSocket#sendFragmentedFrame(Opcode, ByteBuffer, boolean)}. Closing the stream
+ * sends the last fragment and completes the message. The bytes of a text message have to be utf8
+ * encoded. No other message may be sent on the connection until the stream is closed.
+ * <p>
+ * Fragments are subject to the outbound byte budget of the connection. With
+ * <code>BackpressurePolicy.BLOCK</code> a write waits until the connection drained.
+ *
+ * @since 1.6.1
+ */
+public class MessageOutputStream extends OutputStream {
+
+  /**
+   * The default size of a fragment
+   */
+  public static final int DEFAULT_FRAGMENT_SIZE = 16384;
+
+  /**
+   * The connection the message is sent on
+   */
+  private final WebSocket conn;
+
+  /**
+   * The opcode of the message
+   */
+  private final Opcode opcode;
+
+  /**
+   * The size of a fragment
+   */
+  private final int fragmentSize;
+
+  /**
+   * The bytes of the next fragment, a new array is used after a fragment was sent
+   */
+  private byte[] buffer;
+
+  /**
+   * The number of bytes in the buffer
+   */
+  private int count;
+
+  /**
+   * Attribute, if the stream is closed
+   */
+  private boolean closed;
+
+  /**
+   * Create a stream for a message with fragments of the default size
+   *
+   * @param conn   the connection to send the message on
+   * @param opcode the opcode of the message, either <code>Opcode.TEXT</code> or
+   *               <code>Opcode.BINARY</code>
+   * @throws IllegalArgumentException if the connection is null or the opcode is not valid
+   */
+  public MessageOutputStream(WebSocket conn, Opcode opcode) {
+    this(conn, opcode, DEFAULT_FRAGMENT_SIZE);
+  }
+
+  /**
+   * Create a stream for a message
+   *
+   * @param conn         the connection to send the message on
+   * @param opcode       the opcode of the message, either <code>Opcode.TEXT</code> or
+   *                     <code>Opcode.BINARY</code>
+   * @param fragmentSize the maximum size of a fragment
+   * @throws IllegalArgumentException if the connection is null, the opcode is not valid or the
+   *                                  fragment size is smaller than 1
+   */
+  public MessageOutputStream(WebSocket conn, Opcode opcode, int fragmentSize) {
+    if (conn == null) {
+      throw new IllegalArgumentException("conn must not be null");
+    }
+    if (opcode != Opcode.TEXT && opcode != Opcode.BINARY) {
+      throw new IllegalArgumentException("Only Opcode.BINARY or Opcode.TEXT are allowed");
+    }
+    if (fragmentSize < 1) {
+      throw new IllegalArgumentException("fragmentSize must be at least 1");
+    }
+    this.conn = conn;
+    this.opcode = opcode;
+    this.fragmentSize = fragmentSize;
+    this.buffer = new byte[fragmentSize];
+  }
+
+  @Override
+  public synchronized void write(int b) throws IOException {
+    ensureOpen();
+    if (count == fragmentSize) {
+      sendFragment(false);
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new IndexOutOfBoundsException();
+    }
+    ensureOpen();
+    while (len > 0) {
+      if (count == fragmentSize) {
+        sendFragment(false);
+      }
+      int n = Math.min(len, fragmentSize - count);
+      System.arraycopy(b, off, buffer, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Send the written bytes as a fragment, if there are any
+   *
+   * @throws IOException if the stream is closed or the connection is not open
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    ensureOpen();
+    if (count > 0) {
+      sendFragment(false);
+    }
+  }
+
+  /**
+   * Send the last fragment, which completes the message. Closing a closed stream has no effect.
+   *
+   * @throws IOException if the connection is not open
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    sendFragment(true);
+  }
+
+  /**
+   * Getter for the opcode of the message
+   *
+   * @return the opcode
+   */
+  public Opcode getOpcode() {
+    return opcode;
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private void sendFragment(boolean fin) throws IOException {
+    ByteBuffer fragment = ByteBuffer.wrap(buffer, 0, count);
+    // the queued frame keeps the array until it is written
+    buffer = fin ? null : new byte[fragmentSize];
+    count = 0;
+    try {
+      conn.sendFragmentedFrame(opcode, fragment, fin);
+    } catch (WebsocketNotConnectedException e) {
+      throw new IOException("Connection is not open", e);
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.enums.BackpressurePolicy;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.util.Charsetfunctions;
+
+/**
+ * A message which is prepared once and can be sent many times, e.g. to every connection of a
+ * broadcast.
+ * <p>
+ * For every draft which {@link Draft#isFrameEncodingShareable() allows it}, the message is
+ * translated into its wire bytes only once. Every connection with an equal draft enqueues a
+ * read-only view of these bytes. They are translated with a copy of the draft of the first
+ * connection, see {@link Draft#copyNegotiatedInstance()}, so the state of that connection is not
+ * touched. For all other drafts the frames are translated for every send.
+ * <p>
+ * The content of the message must not be modified after creating the prepared message.
+ *
+ * @see WebSocket#send(PreparedMessage)
+ * @since 1.6.1
+ */
+public class PreparedMessage {
+
+  /**
+   * Attribute for the payload of the message
+   */
+  private final ByteBuffer payload;
+
+  /**
+   * Attribute whether the message is a text message
+   */
+  private final boolean text;
+
+  /**
+   * Attribute for the wire bytes of the message, per draft
+   */
+  private final Map<Draft, ByteBuffer> encodedFrames = new ConcurrentHashMap<>();
+
+  /**
+   * Attribute for the conflation key of the message
+   */
+  private volatile Object conflationKey;
+
+  /**
+   * Attribute whether the wire bytes are encoded into direct buffers
+   */
+  private volatile boolean direct;
+
+  /**
+   * Prepare a text message
+   *
+   * @param text the text of the message
+   * @throws IllegalArgumentException the text is null
+   */
+  public PreparedMessage(String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("Cannot prepare 'null' data.");
+    }
+    this.payload = ByteBuffer.wrap(Charsetfunctions.utf8Bytes(text));
+    this.text = true;
+  }
+
+  /**
+   * Prepare a binary message
+   *
+   * @param bytes the binary data of the message
+   * @throws IllegalArgumentException the data is null
+   */
+  public PreparedMessage(ByteBuffer bytes) {
+    if (bytes == null) {
+      throw new IllegalArgumentException("Cannot prepare 'null' data.");
+    }
+    this.payload = bytes.duplicate();
+    this.text = false;
+  }
+
+  /**
+   * Prepare a binary message
+   *
+   * @param bytes the binary data of the message
+   * @throws IllegalArgumentException the data is null
+   */
+  public PreparedMessage(byte[] bytes) {
+    this(bytes == null ? null : ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Returns whether this message is a text message
+   *
+   * @return true, if this message is a text message
+   */
+  public boolean isText() {
+    return text;
+  }
+
+  /**
+   * Returns the conflation key of this message
+   *
+   * @return the conflation key, may be null
+   */
+  public Object getConflationKey() {
+    return conflationKey;
+  }
+
+  /**
+   * Set the conflation key of this message. With {@link BackpressurePolicy#CONFLATE} a message
+   * which does not fit into the outbound byte budget replaces the queued messages with an equal
+   * key.
+   *
+   * @param conflationKey the conflation key, may be null
+   */
+  public void setConflationKey(Object conflationKey) {
+    this.conflationKey = conflationKey;
+  }
+
+  /**
+   * Returns whether the wire bytes of this message are encoded into direct buffers
+   *
+   * @return true, if direct buffers are used
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Set whether the wire bytes of this message are encoded into direct buffers. Direct buffers are
+   * not copied by the channels again, but are expensive to allocate, so they only pay off for a
+   * message which is sent many times, e.g. a snapshot sent to every new connection. The setting
+   * applies to the drafts the message is not encoded for yet.
+   *
+   * @param direct true, to use direct buffers, false to use heap buffers (default)
+   */
+  public void setDirect(boolean direct) {
+    this.direct = direct;
+  }
+
+  /**
+   * Get the wire bytes of this message for the draft
+   *
+   * @param draft the draft of the connection
+   * @return a read-only view of the wire bytes, or null if the draft does not allow to share them
+   */
+  ByteBuffer getEncodedFrames(Draft draft) {
+    if (!draft.isFrameEncodingShareable()) {
+      return null;
+    }
+    ByteBuffer encoded = encodedFrames.get(draft);
+    if (encoded == null) {
+      // the connection may use its draft meanwhile, e.g. the compressor of its extension
+      Draft encoder = draft.copyNegotiatedInstance();
+      encoded = encode(encoder);
+      ByteBuffer previous = encodedFrames.putIfAbsent(encoder, encoded);
+      if (previous != null) {
+        encoded = previous;
+      }
+    }
+    return encoded.asReadOnlyBuffer();
+  }
+
+  /**
+   * Create the frames of this message, which have to be translated for every send
+   *
+   * @param mask true, if the frames should be masked
+   * @return the frames of this message
+   */
+  List<Framedata> createFrames(boolean mask) {
+    DataFrame frame = text ? new TextFrame() : new BinaryFrame();
+    frame.setPayload(payload.duplicate());
+    frame.setTransferemasked(mask);
+    return Collections.singletonList((Framedata) frame);
+  }
+
+  /**
+   * Translate this message into a single buffer
+   *
+   * @param draft the draft to translate the message with
+   * @return the wire bytes
+   */
+  private ByteBuffer encode(Draft draft) {
+    List<ByteBuffer> buffers = new ArrayList<>();
+    for (Framedata frame : createFrames(false)) {
+      draft.createBinaryFrame(frame, buffers);
+    }
+    int size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    ByteBuffer encoded = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    for (ByteBuffer buffer : buffers) {
+      encoded.put(buffer);
+    }
+    encoded.flip();
+    return encoded;
+  }
+}
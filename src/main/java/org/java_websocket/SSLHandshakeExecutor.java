@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.java_websocket.util.NamedThreadFactory;
+
+/**
+ * A bounded executor for the delegated tasks of the {@link javax.net.ssl.SSLEngine}s, i.e. the
+ * expensive key exchange and certificate work of the TLS handshakes.
+ * <p>
+ * The tasks run on a fixed number of threads, by default one per processor. A task never runs on
+ * the submitting thread, which is usually a selector thread: the queue of the tasks is unbounded,
+ * its length may be limited by the number of handshakes with tasks instead. A {@link
+ * SSLSocketChannel2} using this executor re-arms its selection key as soon as its tasks are done,
+ * instead of polling for their completion.
+ * <p>
+ * A handshake is counted while its delegated tasks are queued or running, not while it waits for
+ * the peer, so idle connections do not hold a slot. A channel submitting tasks while {@link
+ * #getMaxHandshakes()} handshakes have tasks is closed with an IOException, so a reconnect storm
+ * neither floods the queue nor delays the handshakes already admitted. By default there is no
+ * limit.
+ * <p>
+ * The counters of this class allow to monitor the handshake latency and the queue.
+ *
+ * @since 1.6.1
+ */
+public class SSLHandshakeExecutor extends ThreadPoolExecutor {
+
+  /**
+   * The time in seconds an idle thread is kept
+   */
+  private static final long KEEP_ALIVE_TIME = 60;
+
+  /**
+   * The maximum number of handshakes with delegated tasks queued or running
+   */
+  private final int maxHandshakes;
+
+  private final AtomicInteger activeHandshakes = new AtomicInteger();
+  private final AtomicLong completedHandshakes = new AtomicLong();
+  private final AtomicLong failedHandshakes = new AtomicLong();
+  private final AtomicLong rejectedHandshakes = new AtomicLong();
+  private final AtomicLong handshakeNanos = new AtomicLong();
+  private final AtomicLong maxHandshakeNanos = new AtomicLong();
+  private final AtomicLong executedTasks = new AtomicLong();
+  private final AtomicLong taskDelayNanos = new AtomicLong();
+
+  /**
+   * Create an executor with a thread per processor and no limit on the handshakes
+   */
+  public SSLHandshakeExecutor() {
+    this(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Create an executor
+   *
+   * @param threadCount   the number of threads running the delegated tasks
+   * @param maxHandshakes the maximum number of handshakes with delegated tasks queued or running
+   * @throws IllegalArgumentException if the thread count or the maximum number of handshakes is
+   *                                  smaller than 1
+   */
+  public SSLHandshakeExecutor(int threadCount, int maxHandshakes) {
+    super(threadCount, threadCount, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory("WebSocketSSLHandshake", true));
+    if (maxHandshakes < 1) {
+      throw new IllegalArgumentException("maxHandshakes must be greater than 0");
+    }
+    this.maxHandshakes = maxHandshakes;
+    allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    final long submitted = System.nanoTime();
+    super.execute(new Runnable() {
+      @Override
+      public void run() {
+        taskDelayNanos.addAndGet(System.nanoTime() - submitted);
+        executedTasks.incrementAndGet();
+        command.run();
+      }
+    });
+  }
+
+  /**
+   * Admit the delegated tasks of a handshake, unless the maximum number of handshakes has tasks
+   *
+   * @return true, if the tasks may be submitted
+   */
+  boolean beginTasks() {
+    while (true) {
+      int active = activeHandshakes.get();
+      if (active >= maxHandshakes) {
+        rejectedHandshakes.incrementAndGet();
+        return false;
+      }
+      if (activeHandshakes.compareAndSet(active, active + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Record that the admitted tasks of a handshake are done
+   */
+  void endTasks() {
+    activeHandshakes.decrementAndGet();
+  }
+
+  /**
+   * Record the end of a handshake
+   *
+   * @param startNanos the time the handshake started at
+   * @param completed  true, if the handshake completed, false if the connection was closed before
+   */
+  void endHandshake(long startNanos, boolean completed) {
+    if (!completed) {
+      failedHandshakes.incrementAndGet();
+      return;
+    }
+    long duration = System.nanoTime() - startNanos;
+    completedHandshakes.incrementAndGet();
+    handshakeNanos.addAndGet(duration);
+    long max;
+    do {
+      max = maxHandshakeNanos.get();
+    } while (duration > max && !maxHandshakeNanos.compareAndSet(max, duration));
+  }
+
+  /**
+   * Getter for the maximum number of handshakes with delegated tasks queued or running
+   *
+   * @return the maximum number of handshakes
+   */
+  public int getMaxHandshakes() {
+    return maxHandshakes;
+  }
+
+  /**
+   * Getter for the number of handshakes with delegated tasks queued or running
+   *
+   * @return the number of admitted handshakes, whose tasks are not done yet
+   */
+  public int getActiveHandshakes() {
+    return activeHandshakes.get();
+  }
+
+  /**
+   * Getter for the number of completed handshakes
+   *
+   * @return the number of completed handshakes
+   */
+  public long getCompletedHandshakes() {
+    return completedHandshakes.get();
+  }
+
+  /**
+   * Getter for the number of handshakes which did not complete, e.g. since the connection was
+   * closed
+   *
+   * @return the number of failed handshakes
+   */
+  public long getFailedHandshakes() {
+    return failedHandshakes.get();
+  }
+
+  /**
+   * Getter for the number of handshakes which were rejected, since the maximum number of
+   * handshakes had delegated tasks
+   *
+   * @return the number of rejected handshakes
+   */
+  public long getRejectedHandshakes() {
+    return rejectedHandshakes.get();
+  }
+
+  /**
+   * Getter for the average duration of the completed handshakes, from the creation of the channel
+   * until the handshake finished
+   *
+   * @param unit the unit of the result
+   * @return the average duration, 0 if no handshake completed yet
+   */
+  public long getAverageHandshakeTime(TimeUnit unit) {
+    long count = completedHandshakes.get();
+    return count == 0 ? 0 : unit.convert(handshakeNanos.get() / count, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Getter for the longest duration of a completed handshake
+   *
+   * @param unit the unit of the result
+   * @return the maximum duration, 0 if no handshake completed yet
+   */
+  public long getMaxHandshakeTime(TimeUnit unit) {
+    return unit.convert(maxHandshakeNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Getter for the number of delegated tasks waiting for a thread
+   *
+   * @return the size of the task queue
+   */
+  public int getQueuedTasks() {
+    return getQueue().size();
+  }
+
+  /**
+   * Getter for the average time a delegated task waited until it started
+   *
+   * @param unit the unit of the result
+   * @return the average delay, 0 if no task was executed yet
+   */
+  public long getAverageTaskDelay(TimeUnit unit) {
+    long count = executedTasks.get();
+    return count == 0 ? 0 : unit.convert(taskDelayNanos.get() / count, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "SSLHandshakeExecutor{threads=" + getCorePoolSize() + ", maxHandshakes="
+        + maxHandshakes + ", activeHandshakes=" + activeHandshakes + ", queuedTasks="
+        + getQueuedTasks() + ", completedHandshakes=" + completedHandshakes
+        + ", rejectedHandshakes=" + rejectedHandshakes + '}';
+  }
+}
@@ -31,6 +31,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
@@ -40,6 +41,9 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
@@ -47,11 +51,24 @@ import javax.net.ssl.SSLEngineResult.Status;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSession;
 import org.java_websocket.interfaces.ISSLChannel;
+import org.java_websocket.util.ByteBufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Implements the relevant portions of the SocketChannel interface with the SSLEngine wrapper.
+ * <p>
+ * If a {@link ByteBufferPool} is passed to the constructor, the buffers for the encrypted and
+ * decrypted data are leased from the pool for a read or a write only and given back as soon as
+ * they are drained. An idle connection then does not hold any buffer, instead of about two
+ * packets and an application buffer of the session. The pool should hand out direct buffers, as
+ * the {@link SSLEngine} and the socket operate on them without copying. If the pool is exhausted,
+ * heap buffers are allocated for the operation instead.
+ * <p>
+ * The delegated tasks of the engine run on the executor passed to the constructor. While they
+ * run, the channel does not ask for writes, as soon as they are done it re-arms the write interest
+ * of its selection key, so the selector neither polls nor blocks on the handshake. With a {@link
+ * SSLHandshakeExecutor} the number of handshakes in progress is limited as well.
  */
 public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLChannel {
 
@@ -105,8 +122,59 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
    **/
   protected int bufferallocations = 0;
 
+  /**
+   * The pool the buffers are leased from, null if the buffers are allocated per connection
+   */
+  private final ByteBufferPool bufferPool;
+
+  /**
+   * The size of the buffers for the encrypted data, as required by the current session
+   */
+  private int packetBufferSize;
+
+  /**
+   * The size of the buffer for the decrypted data, as required by the current session
+   */
+  private int applicationBufferSize;
+
+  /**
+   * The executor if it limits and records the handshakes, null otherwise
+   */
+  private final SSLHandshakeExecutor handshakeExecutor;
+
+  /**
+   * The number of delegated tasks which are submitted, but not done yet
+   */
+  private final AtomicInteger pendingTasks = new AtomicInteger();
+
+  /**
+   * The time the handshake started at
+   */
+  private final long handshakeStart = System.nanoTime();
+
+  /**
+   * True, while the handshake recorded by the {@link #handshakeExecutor} is in progress
+   */
+  private final AtomicBoolean handshakeInProgress = new AtomicBoolean();
+
   public SSLSocketChannel2(SocketChannel channel, SSLEngine sslEngine, ExecutorService exec,
       SelectionKey key) throws IOException {
+    this(channel, sslEngine, exec, key, null);
+  }
+
+  /**
+   * Create a channel which leases its buffers from a pool
+   *
+   * @param channel    the underlying channel
+   * @param sslEngine  the engine for the connection
+   * @param exec       the executor for the delegated tasks of the engine
+   * @param key        the key of the underlying channel, may be null
+   * @param bufferPool the pool to lease the buffers from, null to allocate them per connection
+   * @throws IOException if the handshake could not be started
+   * @since 1.6.1
+   */
+  public SSLSocketChannel2(SocketChannel channel, SSLEngine sslEngine, ExecutorService exec,
+      SelectionKey key, ByteBufferPool bufferPool) throws IOException {
     if (channel == null || sslEngine == null || exec == null) {
       throw new IllegalArgumentException("parameter must not be null");
     }
@@ -114,6 +182,11 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
     this.socketChannel = channel;
     this.sslEngine = sslEngine;
     this.exec = exec;
+    this.bufferPool = bufferPool;
+    this.handshakeExecutor =
+        exec instanceof SSLHandshakeExecutor ? (SSLHandshakeExecutor) exec : null;
+    // the handshake is admitted once it has delegated tasks, an idle connection holds no slot
+    handshakeInProgress.set(handshakeExecutor != null);
 
     readEngineResult = writeEngineResult = new SSLEngineResult(Status.BUFFER_UNDERFLOW,
         sslEngine.getHandshakeStatus(), 0, 0); // init to prevent NPEs
@@ -124,9 +197,16 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
       this.selectionKey = key;
     }
     createBuffers(sslEngine.getSession());
-    // kick off handshake
-    socketChannel.write(wrap(emptybuffer));// initializes res
-    processHandshake(false);
+    try {
+      // kick off handshake
+      socketChannel.write(wrap(emptybuffer));// initializes res
+      processHandshake(false);
+    } catch (IOException e) {
+      endHandshake(false);
+      throw e;
+    } finally {
+      releaseBuffers(false);
+    }
   }
 
   private void consumeFutureUninterruptible(Future<?> f) {
@@ -168,6 +248,7 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
     }
 
     if (isReading && sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_UNWRAP) {
+      leaseReadBuffers();
       if (!isBlocking() || readEngineResult.getStatus() == Status.BUFFER_UNDERFLOW) {
         inCrypt.compact();
         int read = socketChannel.read(inCrypt);
@@ -199,6 +280,7 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
   }
 
   private synchronized ByteBuffer wrap(ByteBuffer b) throws SSLException {
+    outCrypt = lease(outCrypt, packetBufferSize);
     outCrypt.compact();
     writeEngineResult = sslEngine.wrap(b, outCrypt);
     outCrypt.flip();
@@ -218,6 +300,8 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
       } catch (IOException e) {
         //Not really interesting
       }
+      // close gave the buffers back, they are released again after this read
+      leaseReadBuffers();
     }
     do {
       rem = inData.remaining();
@@ -228,11 +312,70 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
     return inData;
   }
 
-  protected void consumeDelegatedTasks() {
+  /**
+   * Submit the delegated tasks of the engine to the executor
+   *
+   * @throws IOException if the executor rejects a task, e.g. because it is shut down or too many
+   *                     handshakes have tasks. The task does not run on the calling thread, which
+   *                     is usually a selector thread, the handshake fails instead.
+   */
+  protected void consumeDelegatedTasks() throws IOException {
     Runnable task;
     while ((task = sslEngine.getDelegatedTask()) != null) {
-      tasks.add(exec.submit(task));
-      // task.run();
+      if (pendingTasks.getAndIncrement() == 0 && handshakeExecutor != null
+          && !handshakeExecutor.beginTasks()) {
+        pendingTasks.decrementAndGet();
+        throw new IOException("Too many TLS handshakes in progress");
+      }
+      try {
+        tasks.add(exec.submit(new DelegatedTask(task)));
+      } catch (RejectedExecutionException e) {
+        taskDone();
+        throw new IOException("delegated task of the TLS handshake rejected", e);
+      }
+    }
+  }
+
+  /**
+   * Called as a submitted delegated task is done, gives back the slot of the handshake at the
+   * executor as soon as no task is left
+   *
+   * @return true, if no task is left
+   */
+  private boolean taskDone() {
+    if (pendingTasks.decrementAndGet() != 0) {
+      return false;
+    }
+    if (handshakeExecutor != null) {
+      handshakeExecutor.endTasks();
+    }
+    return true;
+  }
+
+  /**
+   * Called as soon as all submitted delegated tasks are done, to continue the handshake
+   */
+  private void onDelegatedTasksDone() {
+    SelectionKey key = selectionKey;
+    if (key == null) {
+      return;
+    }
+    try {
+      key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      key.selector().wakeup();
+    } catch (CancelledKeyException e) {
+      // the channel was closed meanwhile
+    }
+  }
+
+  /**
+   * Record the end of the handshake at the executor, if the executor records the handshakes
+   *
+   * @param completed true, if the handshake completed
+   */
+  private void endHandshake(boolean completed) {
+    if (handshakeInProgress.get() && handshakeInProgress.compareAndSet(true, false)) {
+      handshakeExecutor.endHandshake(handshakeStart, completed);
     }
   }
 
@@ -240,7 +383,19 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
     saveCryptedData(); // save any remaining data in inCrypt
     int netBufferMax = session.getPacketBufferSize();
     int appBufferMax = Math.max(session.getApplicationBufferSize(), netBufferMax);
-
+    packetBufferSize = netBufferMax;
+    applicationBufferSize = appBufferMax;
+
+    if (bufferPool != null) {
+      // pending bytes, e.g. a partially written handshake message, are kept. The drained buffers
+      // are leased with the new sizes as soon as they are needed again
+      inData = resize(inData, appBufferMax);
+      outCrypt = resize(outCrypt, netBufferMax);
+      inCrypt = resize(inCrypt, netBufferMax);
+      releaseBuffers(false);
+      bufferallocations++;
+      return;
+    }
     if (inData == null) {
       inData = ByteBuffer.allocate(appBufferMax);
       outCrypt = ByteBuffer.allocate(netBufferMax);
@@ -271,21 +426,24 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
     bufferallocations++;
   }
 
-  public int write(ByteBuffer src) throws IOException {
-    if (!isHandShakeComplete()) {
-      processHandshake(false);
-      return 0;
-    }
-    // assert(bufferallocations > 1); // see #190
-    // if(bufferallocations <= 1) {
-    //   createBuffers(sslEngine.getSession());
-    // }
-    int num = socketChannel.write(wrap(src));
-    if (writeEngineResult.getStatus() == SSLEngineResult.Status.CLOSED) {
-      throw new EOFException("Connection is closed");
+  public synchronized int write(ByteBuffer src) throws IOException {
+    try {
+      if (!isHandShakeComplete()) {
+        processHandshake(false);
+        return 0;
+      }
+      // assert(bufferallocations > 1); // see #190
+      // if(bufferallocations <= 1) {
+      //   createBuffers(sslEngine.getSession());
+      // }
+      int num = socketChannel.write(wrap(src));
+      if (writeEngineResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+        throw new EOFException("Connection is closed");
+      }
+      return num;
+    } finally {
+      releaseBuffers(false);
     }
-    return num;
-
   }
 
   /**
@@ -294,62 +452,67 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
    *
    * @return the number of bytes read.
    **/
-  public int read(ByteBuffer dst) throws IOException {
-    tryRestoreCryptedData();
-    while (true) {
-      if (!dst.hasRemaining()) {
-        return 0;
-      }
-      if (!isHandShakeComplete()) {
-        if (isBlocking()) {
-          while (!isHandShakeComplete()) {
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    try {
+      leaseReadBuffers();
+      tryRestoreCryptedData();
+      while (true) {
+        if (!dst.hasRemaining()) {
+          return 0;
+        }
+        if (!isHandShakeComplete()) {
+          if (isBlocking()) {
+            while (!isHandShakeComplete()) {
+              processHandshake(true);
+            }
+          } else {
             processHandshake(true);
-          }
-        } else {
-          processHandshake(true);
-          if (!isHandShakeComplete()) {
-            return 0;
+            if (!isHandShakeComplete()) {
+              return 0;
+            }
           }
         }
-      }
-      // assert(bufferallocations > 1); // see #190
-      // if (bufferallocations <= 1) {
-      //   createBuffers(sslEngine.getSession());
-      // }
-
-      /* 1. When "dst" is smaller than "inData" readRemaining will fill "dst" with data decoded in a previous read call.
-       * 2. When "inCrypt" contains more data than "inData" has remaining space, unwrap has to be called on more time(readRemaining)
-       */
-      int purged = readRemaining(dst);
-      if (purged != 0) {
-        return purged;
-      }
+        // assert(bufferallocations > 1); // see #190
+        // if (bufferallocations <= 1) {
+        //   createBuffers(sslEngine.getSession());
+        // }
+
+        /* 1. When "dst" is smaller than "inData" readRemaining will fill "dst" with data decoded in a previous read call.
+         * 2. When "inCrypt" contains more data than "inData" has remaining space, unwrap has to be called on more time(readRemaining)
+         */
+        int purged = readRemaining(dst);
+        if (purged != 0) {
+          return purged;
+        }
 
-      /* We only continue when we really need more data from the network.
-       * Thats the case if inData is empty or inCrypt holds to less data than necessary for decryption
-       */
-      assert (inData.position() == 0);
-      inData.clear();
+        /* We only continue when we really need more data from the network.
+         * Thats the case if inData is empty or inCrypt holds to less data than necessary for decryption
+         */
+        assert (inData.position() == 0);
+        inData.clear();
 
-      if (!inCrypt.hasRemaining()) {
-        inCrypt.clear();
-      } else {
-        inCrypt.compact();
-      }
+        if (!inCrypt.hasRemaining()) {
+          inCrypt.clear();
+        } else {
+          inCrypt.compact();
+        }
 
-      if (isBlocking() || readEngineResult.getStatus() == Status.BUFFER_UNDERFLOW) {
-        if (socketChannel.read(inCrypt) == -1) {
-          return -1;
+        if (isBlocking() || readEngineResult.getStatus() == Status.BUFFER_UNDERFLOW) {
+          if (socketChannel.read(inCrypt) == -1) {
+            return -1;
+          }
         }
-      }
-      inCrypt.flip();
-      unwrap();
+        inCrypt.flip();
+        unwrap();
 
-      int transferred = transfereTo(inData, dst);
-      if (transferred == 0 && isBlocking()) {
-        continue;
+        int transferred = transfereTo(inData, dst);
+        if (transferred == 0 && isBlocking()) {
+          continue;
+        }
+        return transferred;
       }
-      return transferred;
+    } finally {
+      releaseBuffers(false);
     }
   }
 
@@ -357,6 +520,7 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
    * {@link #read(ByteBuffer)} may not be to leave all buffers(inData, inCrypt)
    **/
   private int readRemaining(ByteBuffer dst) throws SSLException {
+    leaseReadBuffers();
     if (inData.hasRemaining()) {
       return transfereTo(inData, dst);
     }
@@ -382,7 +546,8 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
     return socketChannel.isConnected();
   }
 
-  public void close() throws IOException {
+  public synchronized void close() throws IOException {
+    endHandshake(false);
     sslEngine.closeOutbound();
     sslEngine.getSession().invalidate();
     try {
@@ -390,14 +555,22 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
         socketChannel.write(wrap(emptybuffer));
       }
     } finally { // in case socketChannel.write produce exception - channel will never close
-      socketChannel.close();
+      try {
+        socketChannel.close();
+      } finally {
+        releaseBuffers(true);
+      }
     }
   }
 
   private boolean isHandShakeComplete() {
     HandshakeStatus status = sslEngine.getHandshakeStatus();
-    return status == SSLEngineResult.HandshakeStatus.FINISHED
+    boolean complete = status == SSLEngineResult.HandshakeStatus.FINISHED
         || status == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING;
+    if (complete) {
+      endHandshake(true);
+    }
+    return complete;
   }
 
   public SelectableChannel configureBlocking(boolean b) throws IOException {
@@ -426,26 +599,41 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
   }
 
   @Override
-  public boolean isNeedWrite() {
-    return outCrypt.hasRemaining()
-        || !isHandShakeComplete(); // FIXME this condition can cause high cpu load during handshaking when network is slow
+  public synchronized boolean isNeedWrite() {
+    return (outCrypt != null && outCrypt.hasRemaining()) || (!isHandShakeComplete()
+        && pendingTasks.get() == 0); // FIXME this condition can cause high cpu load during handshaking when network is slow
   }
 
   @Override
-  public void writeMore() throws IOException {
-    write(outCrypt);
+  public synchronized void writeMore() throws IOException {
+    if (!isHandShakeComplete()) {
+      write(emptybuffer);
+      return;
+    }
+    // flush the encrypted data a previous write left, instead of wrapping it again
+    if (outCrypt != null && outCrypt.hasRemaining()) {
+      try {
+        socketChannel.write(outCrypt);
+      } finally {
+        releaseBuffers(false);
+      }
+    }
   }
 
   @Override
-  public boolean isNeedRead() {
-    return saveCryptData != null || inData.hasRemaining() || (inCrypt.hasRemaining()
-        && readEngineResult.getStatus() != Status.BUFFER_UNDERFLOW
+  public synchronized boolean isNeedRead() {
+    return saveCryptData != null || (inData != null && inData.hasRemaining()) || (inCrypt != null
+        && inCrypt.hasRemaining() && readEngineResult.getStatus() != Status.BUFFER_UNDERFLOW
         && readEngineResult.getStatus() != Status.CLOSED);
   }
 
   @Override
-  public int readMore(ByteBuffer dst) throws SSLException {
-    return readRemaining(dst);
+  public synchronized int readMore(ByteBuffer dst) throws SSLException {
+    try {
+      return readRemaining(dst);
+    } finally {
+      releaseBuffers(false);
+    }
   }
 
   private int transfereTo(ByteBuffer from, ByteBuffer to) {
@@ -476,6 +664,123 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, ISSLC
   }
 
 
+  /**
+   * Lease the buffers for a read, if they were given back after the previous read
+   */
+  private void leaseReadBuffers() {
+    inData = lease(inData, applicationBufferSize);
+    inCrypt = lease(inCrypt, packetBufferSize);
+  }
+
+  /**
+   * Lease a buffer from the pool, unless the buffer is still leased
+   *
+   * @param buffer the current buffer, may be null
+   * @param size   the minimum size of the buffer
+   * @return the current buffer or a new, empty buffer ready to be read from
+   */
+  private ByteBuffer lease(ByteBuffer buffer, int size) {
+    if (buffer != null) {
+      return buffer;
+    }
+    if (bufferPool != null) {
+      try {
+        buffer = bufferPool.acquire(size);
+      } catch (IllegalArgumentException e) {
+        // the session requires larger buffers than the pool provides
+        log.trace("Buffer of {} bytes exceeds the pool", size);
+      }
+    }
+    if (buffer == null) {
+      buffer = ByteBuffer.allocate(size);
+    }
+    buffer.clear();
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Move the pending bytes of a leased buffer into a buffer of the given size, if the buffer is too
+   * small
+   *
+   * @param buffer the current buffer ready to be read from, may be null
+   * @param size   the minimum size of the buffer
+   * @return the current buffer, if it is large enough or drained, otherwise a new buffer holding
+   * its pending bytes
+   */
+  private ByteBuffer resize(ByteBuffer buffer, int size) {
+    if (buffer == null || !buffer.hasRemaining() || buffer.capacity() >= size) {
+      return buffer;
+    }
+    ByteBuffer resized = lease(null, size);
+    resized.clear();
+    resized.put(buffer);
+    resized.flip();
+    release(buffer);
+    return resized;
+  }
+
+  /**
+   * Give the buffers back to the pool, if they are drained
+   *
+   * @param all true, if the buffers should be given back even if they are not drained
+   */
+  private synchronized void releaseBuffers(boolean all) {
+    if (bufferPool == null) {
+      return;
+    }
+    if (!socketChannel.isOpen()) {
+      all = true;
+    }
+    if (inData != null && (all || !inData.hasRemaining())) {
+      release(inData);
+      inData = null;
+    }
+    if (inCrypt != null && (all || !inCrypt.hasRemaining())) {
+      release(inCrypt);
+      inCrypt = null;
+    }
+    if (outCrypt != null && (all || !outCrypt.hasRemaining())) {
+      release(outCrypt);
+      outCrypt = null;
+    }
+  }
+
+  /**
+   * Give a buffer back to the pool. Heap buffers were allocated as the pool was exhausted, so they
+   * are left to the garbage collector.
+   *
+   * @param buffer the buffer to give back
+   */
+  private void release(ByteBuffer buffer) {
+    if (buffer.isDirect()) {
+      bufferPool.release(buffer);
+    }
+  }
+
+  /**
+   * A delegated task of the engine, which continues the handshake when the last task is done
+   */
+  private class DelegatedTask implements Runnable {
+
+    private final Runnable task;
+
+    DelegatedTask(Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      try {
+        task.run();
+      } finally {
+        if (taskDone()) {
+          onDelegatedTasksDone();
+        }
+      }
+    }
+  }
+
   // to avoid complexities with inCrypt, extra unwrapped data after SSL handshake will be saved off in a byte array
   // and the inserted back on first read
   private byte[] saveCryptData = null;
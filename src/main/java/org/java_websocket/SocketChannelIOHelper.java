@@ -28,10 +28,29 @@ package org.java_websocket;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 import org.java_websocket.enums.Role;
 
 public class SocketChannelIOHelper {
 
+  /**
+   * The maximum number of buffers written by a single gathering write
+   */
+  private static final int MAX_GATHERED_BUFFERS = 64;
+
+  /**
+   * The array of the buffers to gather, reused by every thread
+   */
+  private static final ThreadLocal<ByteBuffer[]> GATHERED_BUFFERS =
+      new ThreadLocal<ByteBuffer[]>() {
+    @Override
+    protected ByteBuffer[] initialValue() {
+      return new ByteBuffer[MAX_GATHERED_BUFFERS];
+    }
+  };
+
   private SocketChannelIOHelper() {
     throw new IllegalStateException("Utility class");
   }
@@ -80,31 +99,67 @@ public class SocketChannelIOHelper {
    * @throws IOException May be thrown by {@link WrappedByteChannel#writeMore()}
    */
   public static boolean batch(WebSocketImpl ws, ByteChannel sockchannel) throws IOException {
+    return batch(ws, sockchannel, 0, null);
+  }
+
+  /**
+   * Returns whether the whole outQueue has been flushed. At most about the given number of bytes
+   * are written, the remaining bytes are left for the next batch, so a connection with a deep
+   * outQueue does not monopolise the writing thread.
+   *
+   * @param ws          The WebSocketImpl associated with the channels
+   * @param sockchannel The channel to write to
+   * @param maxBytes    The maximum number of bytes to write, 0 for no limit
+   * @param written     The counter the number of written bytes is added to, may be null
+   * @return returns Whether there is more data to write
+   * @throws IOException May be thrown by {@link WrappedByteChannel#writeMore()}
+   * @since 1.6.1
+   */
+  public static boolean batch(WebSocketImpl ws, ByteChannel sockchannel, long maxBytes,
+      AtomicLong written) throws IOException {
     if (ws == null) {
       return false;
     }
-    ByteBuffer buffer = ws.outQueue.peek();
+    ws.writeThread = Thread.currentThread();
     WrappedByteChannel c = null;
-
-    if (buffer == null) {
-      if (sockchannel instanceof WrappedByteChannel) {
-        c = (WrappedByteChannel) sockchannel;
-        if (c.isNeedWrite()) {
-          c.writeMore();
-        }
-      }
-    } else {
-      do {
-        // FIXME writing as much as possible is unfair!!
-        /*int written = */
-        sockchannel.write(buffer);
-        if (buffer.remaining() > 0) {
-          return false;
+    try {
+      // the queued messages must not be dropped while they are written
+      synchronized (ws.getSynchronizeWriteObject()) {
+        ByteBuffer buffer = ws.outQueue.peek();
+        if (buffer == null) {
+          if (sockchannel instanceof WrappedByteChannel) {
+            c = (WrappedByteChannel) sockchannel;
+            if (c.isNeedWrite()) {
+              c.writeMore();
+            }
+          }
+        } else if (sockchannel instanceof GatheringByteChannel) {
+          if (!gather(ws, (GatheringByteChannel) sockchannel,
+              maxBytes > 0 ? maxBytes : Long.MAX_VALUE, written)) {
+            return false;
+          }
         } else {
-          ws.outQueue.poll(); // Buffer finished. Remove it.
-          buffer = ws.outQueue.peek();
+          long left = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+          do {
+            int count = sockchannel.write(buffer);
+            left -= count;
+            if (written != null) {
+              written.addAndGet(count);
+            }
+            if (buffer.remaining() > 0) {
+              return false;
+            } else {
+              ws.outQueue.poll(); // Buffer finished. Remove it.
+              buffer = ws.outQueue.peek();
+            }
+            if (left <= 0 && buffer != null) {
+              return false; // leave the rest for the next batch
+            }
+          } while (buffer != null);
         }
-      } while (buffer != null);
+      }
+    } finally {
+      ws.notifyWritability();
     }
 
     if (ws.outQueue.isEmpty() && ws.isFlushAndClose() && ws.getDraft() != null
@@ -113,4 +168,73 @@ public class SocketChannelIOHelper {
     }
     return c == null || !((WrappedByteChannel) sockchannel).isNeedWrite();
   }
+
+  /**
+   * Write the outQueue with gathering writes, so the headers and payloads of the frames do not have
+   * to be copied into a single buffer
+   *
+   * @param ws          The WebSocketImpl associated with the channels
+   * @param sockchannel The channel to write to
+   * @param maxBytes    The maximum number of bytes to write
+   * @param written     The counter the number of written bytes is added to, may be null
+   * @return returns Whether the whole outQueue has been written
+   * @throws IOException May be thrown by the channel
+   */
+  private static boolean gather(WebSocketImpl ws, GatheringByteChannel sockchannel,
+      long maxBytes, AtomicLong written) throws IOException {
+    ByteBuffer[] buffers = GATHERED_BUFFERS.get();
+    int filled = 0;
+    long left = maxBytes;
+    try {
+      while (true) {
+        int count = 0;
+        long bytes = 0;
+        ByteBuffer limited = null;
+        int limit = 0;
+        for (ByteBuffer buffer : ws.outQueue) {
+          if (bytes + buffer.remaining() > left) {
+            // only a part of this buffer fits, the rest is left for the next batch
+            limited = buffer;
+            limit = buffer.limit();
+            buffer.limit(buffer.position() + (int) (left - bytes));
+            buffers[count++] = buffer;
+            break;
+          }
+          buffers[count++] = buffer;
+          bytes += buffer.remaining();
+          if (count == buffers.length) {
+            break;
+          }
+        }
+        filled = Math.max(filled, count);
+        if (count == 0) {
+          return true;
+        }
+        long bytesWritten;
+        try {
+          bytesWritten = sockchannel.write(buffers, 0, count);
+        } finally {
+          if (limited != null) {
+            limited.limit(limit);
+          }
+        }
+        left -= bytesWritten;
+        if (written != null) {
+          written.addAndGet(bytesWritten);
+        }
+        for (int i = 0; i < count; i++) {
+          if (buffers[i].hasRemaining()) {
+            return false;
+          }
+          ws.outQueue.poll(); // Buffer finished. Remove it.
+        }
+        if (left <= 0) {
+          return ws.outQueue.isEmpty(); // leave the rest for the next batch
+        }
+      }
+    } finally {
+      // do not keep the written buffers alive
+      Arrays.fill(buffers, 0, filled, null);
+    }
+  }
 }
@@ -76,6 +76,19 @@ public interface WebSocket {
    */
   void send(String text);
 
+  /**
+   * Send Text data to the other end, e.g. from a StringBuilder without converting it into a String
+   * first.
+   * <p>
+   * The text is encoded before this method returns, so it may be modified afterwards.
+   *
+   * @param text the text data to send
+   * @throws IllegalArgumentException       the text is null
+   * @throws WebsocketNotConnectedException websocket is not yet connected
+   * @since 1.6.1
+   */
+  void send(CharSequence text);
+
   /**
    * Send Binary data (plain bytes) to the other end.
    *
@@ -85,6 +98,19 @@ public interface WebSocket {
    */
   void send(ByteBuffer bytes);
 
+  /**
+   * Send Binary data (plain bytes) to the other end without copying it, if the draft allows it.
+   * <p>
+   * In contrast to {@link #send(ByteBuffer)} unmasked frames share the content of the buffer, so
+   * the content must not be modified until it is written.
+   *
+   * @param bytes the binary data to send
+   * @throws IllegalArgumentException       the data is null
+   * @throws WebsocketNotConnectedException websocket is not yet connected
+   * @since 1.6.1
+   */
+  void sendShared(ByteBuffer bytes);
+
   /**
    * Send Binary data (plain bytes) to the other end.
    *
@@ -94,6 +120,19 @@ public interface WebSocket {
    */
   void send(byte[] bytes);
 
+  /**
+   * Send a prepared message to the other end.
+   * <p>
+   * The wire bytes of the message are shared with every other connection using an equal draft,
+   * if the draft allows it.
+   *
+   * @param message the prepared message to send
+   * @throws IllegalArgumentException       the message is null
+   * @throws WebsocketNotConnectedException websocket is not yet connected
+   * @since 1.6.1
+   */
+  void send(PreparedMessage message);
+
   /**
    * Send a frame to the other end
    *
@@ -129,6 +168,16 @@ public interface WebSocket {
    **/
   void sendFragmentedFrame(Opcode op, ByteBuffer buffer, boolean fin);
 
+  /**
+   * Checks if the queued bytes of the websocket fit into its outbound byte budget. Producers
+   * should stop sending while the websocket is not writable.
+   *
+   * @return true, if the websocket is writable
+   * @see WebSocketListener#onWebsocketWritabilityChanged(WebSocket, boolean)
+   * @since 1.6.1
+   */
+  boolean isWritable();
+
   /**
    * Checks if the websocket has buffered data
    *
@@ -25,7 +25,9 @@
 
 package org.java_websocket;
 
+import java.nio.ByteBuffer;
 import org.java_websocket.drafts.Draft;
+import org.java_websocket.enums.Opcode;
 import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.framing.Framedata;
 import org.java_websocket.framing.PingFrame;
@@ -34,6 +36,7 @@ import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.HandshakeImpl1Server;
 import org.java_websocket.handshake.ServerHandshake;
 import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.util.CompositeByteBuffer;
 
 /**
  * This class default implements all methods of the WebSocketListener that can be overridden
@@ -95,6 +98,58 @@ public abstract class WebSocketAdapter implements WebSocketListener {
     //To overwrite
   }
 
+  /**
+   * This default implementation copies the fragments into one buffer and passes it to
+   * <code>onWebsocketMessage(WebSocket, ByteBuffer)</code>. Go ahead and overwrite it.
+   *
+   * @see org.java_websocket.WebSocketListener#onWebsocketMessage(WebSocket, CompositeByteBuffer)
+   */
+  @Override
+  public void onWebsocketMessage(WebSocket conn, CompositeByteBuffer message) {
+    onWebsocketMessage(conn, message.toByteBuffer());
+  }
+
+  /**
+   * This default implementation receives every fragmented message in one piece. Go ahead and
+   * overwrite it.
+   *
+   * @see org.java_websocket.WebSocketListener#onWebsocketMessageStart(WebSocket, Opcode)
+   */
+  @Override
+  public boolean onWebsocketMessageStart(WebSocket conn, Opcode opcode) {
+    return false;
+  }
+
+  /**
+   * This default implementation does not do anything. Go ahead and overwrite it.
+   *
+   * @see org.java_websocket.WebSocketListener#onWebsocketMessageFragment(WebSocket, ByteBuffer)
+   */
+  @Override
+  public void onWebsocketMessageFragment(WebSocket conn, ByteBuffer fragment) {
+    //To overwrite
+  }
+
+  /**
+   * This default implementation does not do anything. Go ahead and overwrite it.
+   *
+   * @see org.java_websocket.WebSocketListener#onWebsocketMessageEnd(WebSocket)
+   */
+  @Override
+  public void onWebsocketMessageEnd(WebSocket conn) {
+    //To overwrite
+  }
+
+  /**
+   * This default implementation does not do anything. Go ahead and overwrite it.
+   *
+   * @see org.java_websocket.WebSocketListener#onWebsocketWritabilityChanged(WebSocket, boolean)
+   */
+  @Override
+  public void onWebsocketWritabilityChanged(WebSocket conn, boolean writable) {
+    //To overwrite
+  }
+
   /**
    * Default implementation for onPreparePing, returns a (cached) PingFrame that has no application
    * data.
@@ -30,15 +30,20 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.SelectionKey;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLSession;
 import org.java_websocket.drafts.Draft;
 import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.BackpressurePolicy;
 import org.java_websocket.enums.CloseHandshakeType;
 import org.java_websocket.enums.HandshakeState;
 import org.java_websocket.enums.Opcode;
@@ -50,6 +55,7 @@ import org.java_websocket.exceptions.InvalidHandshakeException;
 import org.java_websocket.exceptions.LimitExceededException;
 import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
 import org.java_websocket.framing.Framedata;
 import org.java_websocket.framing.PingFrame;
 import org.java_websocket.handshake.ClientHandshake;
@@ -60,6 +66,7 @@ import org.java_websocket.handshake.ServerHandshakeBuilder;
 import org.java_websocket.interfaces.ISSLChannel;
 import org.java_websocket.protocols.IProtocol;
 import org.java_websocket.server.WebSocketServer.WebSocketWorker;
+import org.java_websocket.util.ByteBufferUtils;
 import org.java_websocket.util.Charsetfunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -85,6 +92,20 @@ public class WebSocketImpl implements WebSocket {
    */
   public static final int DEFAULT_WSS_PORT = 443;
 
+  /**
+   * The default maximum size of a received handshake header in bytes
+   *
+   * @since 1.6.1
+   */
+  public static final int DEFAULT_MAX_HANDSHAKE_SIZE = 16384;
+
+  /**
+   * The default maximum number of fields of a received handshake header
+   *
+   * @since 1.6.1
+   */
+  public static final int DEFAULT_MAX_HANDSHAKE_FIELDS = 100;
+
   /**
    * Logger instance
    *
@@ -142,9 +163,19 @@ public class WebSocketImpl implements WebSocket {
   private Role role;
 
   /**
-   * the bytes of an incomplete received handshake
+   * collects the bytes of the received handshake, created with the first bytes
+   */
+  private HandshakeReader handshakeReader;
+
+  /**
+   * The maximum size of a received handshake header in bytes
+   */
+  private int maxHandshakeSize = DEFAULT_MAX_HANDSHAKE_SIZE;
+
+  /**
+   * The maximum number of fields of a received handshake header
    */
-  private ByteBuffer tmpHandshakeBytes = ByteBuffer.allocate(0);
+  private int maxHandshakeFields = DEFAULT_MAX_HANDSHAKE_FIELDS;
 
   /**
    * stores the handshake sent by this websocket ( Role.CLIENT only )
@@ -162,6 +193,27 @@ public class WebSocketImpl implements WebSocket {
    */
   private long lastPong = System.nanoTime();
 
+  /**
+   * Attribute, when the last data frame was received
+   *
+   * @since 1.6.1
+   */
+  private volatile long lastDataRead = System.nanoTime();
+
+  /**
+   * Attribute, when the last data frame was sent
+   *
+   * @since 1.6.1
+   */
+  private volatile long lastDataWritten = System.nanoTime();
+
+  /**
+   * The heartbeat of this connection, if the connection lost timer is running
+   *
+   * @since 1.6.1
+   */
+  private volatile AbstractWebSocket.Heartbeat heartbeat;
+
   /**
    * Attribut to synchronize the write
    */
@@ -174,6 +226,46 @@ public class WebSocketImpl implements WebSocket {
    */
   private Object attachment;
 
+  /**
+   * The messages in the outQueue, oldest first. Guarded by synchronizeWriteObject.
+   */
+  private final Deque<OutboundMessage> outboundMessages = new ArrayDeque<>();
+
+  /**
+   * The number of bytes of the messages in the outQueue. Guarded by synchronizeWriteObject.
+   */
+  private long outboundBytes = 0;
+
+  /**
+   * The outbound byte budget, zero means unbounded
+   */
+  private volatile long maxOutboundBytes = 0;
+
+  /**
+   * The policy for messages which do not fit into the outbound byte budget
+   */
+  private volatile BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+  /**
+   * Whether the queued bytes fit into the outbound byte budget
+   */
+  private volatile boolean writable = true;
+
+  /**
+   * The writability the listener was notified about last
+   */
+  private boolean notifiedWritable = true;
+
+  /**
+   * Attribute to synchronize the notifications about the writability
+   */
+  private final Object synchronizeWritabilityObject = new Object();
+
+  /**
+   * The thread which writes the outQueue to the channel, it must never wait for the outQueue
+   */
+  volatile Thread writeThread;
+
   /**
    * Creates a websocket with server role
    *
@@ -203,7 +295,7 @@ public class WebSocketImpl implements WebSocket {
     if (listener == null || (draft == null && role == Role.SERVER)) {
       throw new IllegalArgumentException("parameters must not be null");
     }
-    this.outQueue = new LinkedBlockingQueue<>();
+    this.outQueue = new OutboundQueue();
     inQueue = new LinkedBlockingQueue<>();
     this.wsl = listener;
     this.role = Role.CLIENT;
@@ -222,21 +314,17 @@ public class WebSocketImpl implements WebSocket {
     if (log.isTraceEnabled()) {
       log.trace("process({}): ({})", socketBuffer.remaining(),
               (socketBuffer.remaining() > 1000 ? "too big to display"
-                      : new String(socketBuffer.array(), socketBuffer.position(), socketBuffer.remaining())));
+                      : new String(ByteBufferUtils.getRemainingBytes(socketBuffer))));
     }
     if (readyState != ReadyState.NOT_YET_CONNECTED) {
       if (readyState == ReadyState.OPEN) {
         decodeFrames(socketBuffer);
       }
     } else {
-      if (decodeHandshake(socketBuffer) && (!isClosing() && !isClosed())) {
-        assert (tmpHandshakeBytes.hasRemaining() != socketBuffer.hasRemaining() || !socketBuffer
-            .hasRemaining()); // the buffers will never have remaining bytes at the same time
-        if (socketBuffer.hasRemaining()) {
-          decodeFrames(socketBuffer);
-        } else if (tmpHandshakeBytes.hasRemaining()) {
-          decodeFrames(tmpHandshakeBytes);
-        }
+      // the handshake is consumed from the buffer, the remaining bytes are frames
+      if (decodeHandshake(socketBuffer) && (!isClosing() && !isClosed())
+          && socketBuffer.hasRemaining()) {
+        decodeFrames(socketBuffer);
       }
     }
   }
@@ -246,21 +334,24 @@ public class WebSocketImpl implements WebSocket {
    * be never the case.
    **/
   private boolean decodeHandshake(ByteBuffer socketBufferNew) {
+    if (handshakeReader == null) {
+      handshakeReader = new HandshakeReader(maxHandshakeSize, maxHandshakeFields);
+    }
     ByteBuffer socketBuffer;
-    if (tmpHandshakeBytes.capacity() == 0) {
-      socketBuffer = socketBufferNew;
-    } else {
-      if (tmpHandshakeBytes.remaining() < socketBufferNew.remaining()) {
-        ByteBuffer buf = ByteBuffer
-            .allocate(tmpHandshakeBytes.capacity() + socketBufferNew.remaining());
-        tmpHandshakeBytes.flip();
-        buf.put(tmpHandshakeBytes);
-        tmpHandshakeBytes = buf;
+    try {
+      socketBuffer = handshakeReader.read(socketBufferNew);
+    } catch (LimitExceededException e) {
+      log.trace("Closing due to a too large handshake", e);
+      if (role == Role.SERVER) {
+        closeConnectionDueToWrongHandshake(e);
+      } else {
+        close(e);
       }
-
-      tmpHandshakeBytes.put(socketBufferNew);
-      tmpHandshakeBytes.flip();
-      socketBuffer = tmpHandshakeBytes;
+      return false;
+    }
+    if (socketBuffer == null) {
+      // the header is incomplete
+      return false;
     }
     socketBuffer.mark();
     try {
@@ -368,22 +459,9 @@ public class WebSocketImpl implements WebSocket {
         close(e);
       }
     } catch (IncompleteHandshakeException e) {
-      if (tmpHandshakeBytes.capacity() == 0) {
-        socketBuffer.reset();
-        int newsize = e.getPreferredSize();
-        if (newsize == 0) {
-          newsize = socketBuffer.capacity() + 16;
-        } else {
-          assert (e.getPreferredSize() >= socketBuffer.remaining());
-        }
-        tmpHandshakeBytes = ByteBuffer.allocate(newsize);
-
-        tmpHandshakeBytes.put(socketBufferNew);
-        // tmpHandshakeBytes.flip();
-      } else {
-        tmpHandshakeBytes.position(tmpHandshakeBytes.limit());
-        tmpHandshakeBytes.limit(tmpHandshakeBytes.capacity());
-      }
+      // the header is complete, so the draft expects more than the http header
+      log.trace("Closing due to an incomplete handshake", e);
+      close(CloseFrame.PROTOCOL_ERROR, "incomplete handshake");
     }
     return false;
   }
@@ -394,6 +472,9 @@ public class WebSocketImpl implements WebSocket {
       frames = draft.translateFrame(socketBuffer);
       for (Framedata f : frames) {
         log.trace("matched frame: {}", f);
+        if (f instanceof DataFrame) {
+          lastDataRead = System.nanoTime();
+        }
         draft.processFrame(this, f);
       }
     } catch (LimitExceededException e) {
@@ -424,7 +505,8 @@ public class WebSocketImpl implements WebSocket {
    * @param exception the InvalidDataException causing this problem
    */
   private void closeConnectionDueToWrongHandshake(InvalidDataException exception) {
-    write(generateHttpResponseDueToError(404));
+    write(generateHttpResponseDueToError(
+        exception instanceof LimitExceededException ? 431 : 404));
     flushAndClose(exception.getCloseCode(), exception.getMessage(), false);
   }
 
@@ -450,6 +532,9 @@ public class WebSocketImpl implements WebSocket {
       case 404:
         errorCodeDescription = "404 WebSocket Upgrade Failure";
         break;
+      case 431:
+        errorCodeDescription = "431 Request Header Fields Too Large";
+        break;
       case 500:
       default:
         errorCodeDescription = "500 Internal Server Error";
@@ -501,7 +586,7 @@ public class WebSocketImpl implements WebSocket {
         flushAndClose(CloseFrame.NEVER_CONNECTED, message, false);
       }
       readyState = ReadyState.CLOSING;
-      tmpHandshakeBytes = null;
+      handshakeReader = null;
       return;
     }
   }
@@ -564,6 +649,14 @@ public class WebSocketImpl implements WebSocket {
     }
     handshakerequest = null;
     readyState = ReadyState.CLOSED;
+    AbstractWebSocket.Heartbeat currentHeartbeat = heartbeat;
+    if (currentHeartbeat != null) {
+      currentHeartbeat.cancel();
+    }
+    synchronized (synchronizeWriteObject) {
+      // senders waiting for the outbound byte budget
+      synchronizeWriteObject.notifyAll();
+    }
   }
 
   protected void closeConnection(int code, boolean remote) {
@@ -639,10 +732,22 @@ public class WebSocketImpl implements WebSocket {
    */
   @Override
   public void send(String text) {
+    send((CharSequence) text);
+  }
+
+  /**
+   * Send Text data to the other end.
+   *
+   * @throws IllegalArgumentException       the text is null
+   * @throws WebsocketNotConnectedException websocket is not yet connected
+   */
+  @Override
+  public void send(CharSequence text) {
     if (text == null) {
       throw new IllegalArgumentException("Cannot send 'null' data to a WebSocketImpl.");
     }
-    send(draft.createFrames(text, role == Role.CLIENT));
+    // the payload is encoded into a new array, so the frames may share it
+    send(draft.createFrames(text, role == Role.CLIENT), null, true);
   }
 
   /**
@@ -664,7 +769,54 @@ public class WebSocketImpl implements WebSocket {
     send(ByteBuffer.wrap(bytes));
   }
 
+  /**
+   * Send Binary data (plain bytes) to the other end without copying it, if the draft allows it.
+   *
+   * @throws IllegalArgumentException       the data is null
+   * @throws WebsocketNotConnectedException websocket is not yet connected
+   */
+  @Override
+  public void sendShared(ByteBuffer bytes) {
+    if (bytes == null) {
+      throw new IllegalArgumentException("Cannot send 'null' data to a WebSocketImpl.");
+    }
+    send(draft.createFrames(bytes, role == Role.CLIENT), null, true);
+  }
+
+  /**
+   * Send a prepared message to the other end.
+   *
+   * @throws IllegalArgumentException       the message is null
+   * @throws WebsocketNotConnectedException websocket is not yet connected
+   */
+  @Override
+  public void send(PreparedMessage message) {
+    if (message == null) {
+      throw new IllegalArgumentException("Cannot send 'null' data to a WebSocketImpl.");
+    }
+    if (!isOpen()) {
+      throw new WebsocketNotConnectedException();
+    }
+    ByteBuffer encoded = message.getEncodedFrames(draft);
+    if (encoded == null) {
+      send(message.createFrames(role == Role.CLIENT), message.getConflationKey(), true);
+    } else {
+      write(Collections.singletonList(encoded), true, true, message.getConflationKey());
+    }
+  }
+
   private void send(Collection<Framedata> frames) {
+    send(frames, null, false);
+  }
+
+  /**
+   * Send the frames, applying the backpressure policy if they contain data
+   *
+   * @param frames        the frames to send
+   * @param conflationKey the conflation key of the frames, may be null
+   * @param shared        whether the written buffers may share the payloads of the frames
+   */
+  private void send(Collection<Framedata> frames, Object conflationKey, boolean shared) {
     if (!isOpen()) {
       throw new WebsocketNotConnectedException();
     }
@@ -672,11 +824,25 @@ public class WebSocketImpl implements WebSocket {
       throw new IllegalArgumentException();
     }
     ArrayList<ByteBuffer> outgoingFrames = new ArrayList<>();
+    boolean data = !frames.isEmpty();
+    Framedata first = null;
+    Framedata last = null;
     for (Framedata f : frames) {
       log.trace("send frame: {}", f);
-      outgoingFrames.add(draft.createBinaryFrame(f));
+      if (shared) {
+        draft.createBinaryFrame(f, outgoingFrames);
+      } else {
+        outgoingFrames.add(draft.createBinaryFrame(f));
+      }
+      data &= f instanceof DataFrame;
+      if (first == null) {
+        first = f;
+      }
+      last = f;
     }
-    write(outgoingFrames);
+    // only complete messages can be dropped, otherwise the fragments would not match anymore
+    boolean droppable = data && first.getOpcode() != Opcode.CONTINUOUS && last.isFin();
+    write(outgoingFrames, data, droppable, conflationKey);
   }
 
   @Override
@@ -704,6 +870,109 @@ public class WebSocketImpl implements WebSocket {
     sendFrame(pingFrame);
   }
 
+  @Override
+  public boolean isWritable() {
+    return writable;
+  }
+
+  /**
+   * Returns the outbound byte budget of this websocket.
+   *
+   * @return the maximum number of queued bytes, zero if unbounded
+   * @since 1.6.1
+   */
+  public long getMaxOutboundBytes() {
+    return maxOutboundBytes;
+  }
+
+  /**
+   * Sets the outbound byte budget of this websocket.
+   *
+   * @param maxOutboundBytes the maximum number of queued bytes, zero if unbounded
+   * @see AbstractWebSocket#setMaxOutboundBytes(long)
+   * @since 1.6.1
+   */
+  public void setMaxOutboundBytes(long maxOutboundBytes) {
+    if (maxOutboundBytes < 0) {
+      throw new IllegalArgumentException("maxOutboundBytes < 0");
+    }
+    this.maxOutboundBytes = maxOutboundBytes;
+  }
+
+  /**
+   * Returns the maximum size of a received handshake header of this websocket.
+   *
+   * @return the maximum size in bytes
+   * @since 1.6.1
+   */
+  public int getMaxHandshakeSize() {
+    return maxHandshakeSize;
+  }
+
+  /**
+   * Sets the maximum size of a received handshake header of this websocket. It has to be set
+   * before the first bytes of the handshake are received.
+   *
+   * @param maxHandshakeSize the maximum size in bytes
+   * @see AbstractWebSocket#setMaxHandshakeSize(int)
+   * @since 1.6.1
+   */
+  public void setMaxHandshakeSize(int maxHandshakeSize) {
+    if (maxHandshakeSize < 1) {
+      throw new IllegalArgumentException("maxHandshakeSize < 1");
+    }
+    this.maxHandshakeSize = maxHandshakeSize;
+  }
+
+  /**
+   * Returns the maximum number of fields of a received handshake header of this websocket.
+   *
+   * @return the maximum number of fields
+   * @since 1.6.1
+   */
+  public int getMaxHandshakeFields() {
+    return maxHandshakeFields;
+  }
+
+  /**
+   * Sets the maximum number of fields of a received handshake header of this websocket. It has to
+   * be set before the first bytes of the handshake are received.
+   *
+   * @param maxHandshakeFields the maximum number of fields
+   * @see AbstractWebSocket#setMaxHandshakeFields(int)
+   * @since 1.6.1
+   */
+  public void setMaxHandshakeFields(int maxHandshakeFields) {
+    if (maxHandshakeFields < 0) {
+      throw new IllegalArgumentException("maxHandshakeFields < 0");
+    }
+    this.maxHandshakeFields = maxHandshakeFields;
+  }
+
+  /**
+   * Returns the policy for messages which do not fit into the outbound byte budget.
+   *
+   * @return the backpressure policy
+   * @since 1.6.1
+   */
+  public BackpressurePolicy getBackpressurePolicy() {
+    return backpressurePolicy;
+  }
+
+  /**
+   * Sets the policy for messages which do not fit into the outbound byte budget.
+   *
+   * @param backpressurePolicy the backpressure policy
+   * @see AbstractWebSocket#setBackpressurePolicy(BackpressurePolicy)
+   * @since 1.6.1
+   */
+  public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+    if (backpressurePolicy == null) {
+      throw new IllegalArgumentException("backpressurePolicy == null");
+    }
+    this.backpressurePolicy = backpressurePolicy;
+  }
+
   @Override
   public boolean hasBufferedData() {
     return !this.outQueue.isEmpty();
@@ -734,11 +1003,21 @@ public class WebSocketImpl implements WebSocket {
   }
 
   private void write(ByteBuffer buf) {
-    log.trace("write({}): {}", buf.remaining(),
-        buf.remaining() > 1000 ? "too big to display" : new String(buf.array()));
+    write(Collections.singletonList(buf));
+  }
 
+  /**
+   * Add the buffer to the outQueue without signaling the write demand
+   *
+   * @param buf the buffer to write
+   */
+  private void enqueue(ByteBuffer buf) {
+    if (log.isTraceEnabled()) {
+      log.trace("write({}): {}", buf.remaining(),
+          buf.remaining() > 1000 ? "too big to display"
+              : new String(ByteBufferUtils.getRemainingBytes(buf)));
+    }
     outQueue.add(buf);
-    wsl.onWriteDemand(this);
   }
 
   /**
@@ -747,11 +1026,212 @@ public class WebSocketImpl implements WebSocket {
    * @param bufs the list of bytebuffer
    */
   private void write(List<ByteBuffer> bufs) {
+    write(bufs, false, false, null);
+  }
+
+  /**
+   * Write a message into the outgoing queue. The backpressure policy is applied to messages
+   * containing data, if they do not fit into the outbound byte budget.
+   *
+   * @param bufs          the buffers of the message
+   * @param data          true, if the message contains data frames only
+   * @param droppable     true, if the message may be dropped
+   * @param conflationKey the conflation key of the message, may be null
+   */
+  private void write(List<ByteBuffer> bufs, boolean data, boolean droppable,
+      Object conflationKey) {
+    if (bufs.isEmpty()) {
+      return;
+    }
+    if (data) {
+      lastDataWritten = System.nanoTime();
+    }
+    OutboundMessage message = new OutboundMessage(bufs, droppable, conflationKey);
+    BackpressurePolicy policy = backpressurePolicy;
+    boolean dropped = false;
+    synchronized (synchronizeWriteObject) {
+      long max = maxOutboundBytes;
+      if (data && max > 0 && outboundBytes + message.bytes > max) {
+        writable = false;
+        switch (policy) {
+          case BLOCK:
+            awaitOutboundBytes(message.bytes, max);
+            break;
+          case DROP_NEWEST:
+            dropped = droppable;
+            break;
+          case CONFLATE:
+            dropConflated(conflationKey);
+            dropOldest(message.bytes, max);
+            break;
+          case DROP_OLDEST:
+            dropOldest(message.bytes, max);
+            break;
+          default:
+            dropped = true;
+            break;
+        }
+      }
+      if (!dropped) {
+        for (ByteBuffer b : bufs) {
+          enqueue(b);
+        }
+        outboundMessages.addLast(message);
+        outboundBytes += message.bytes;
+        if (max > 0 && outboundBytes > max) {
+          writable = false;
+        }
+        wsl.onWriteDemand(this);
+      }
+    }
+    notifyWritability();
+    if (policy == BackpressurePolicy.CLOSE_POLICY_VALIDATION && dropped) {
+      close(CloseFrame.POLICY_VALIDATION, "Outbound byte budget exceeded");
+    } else if (policy == BackpressurePolicy.CLOSE_TRY_AGAIN_LATER && dropped) {
+      close(CloseFrame.TRY_AGAIN_LATER, "Outbound byte budget exceeded");
+    } else if (dropped) {
+      log.trace("Dropped message because the outbound byte budget is exceeded: {}", this);
+    }
+  }
+
+  /**
+   * Wait until the message fits into the outbound byte budget. Must be called while holding
+   * synchronizeWriteObject. An event loop thread does not wait, since it might be the only one to
+   * write the outQueue.
+   *
+   * @param bytes the size of the message
+   * @param max   the outbound byte budget
+   */
+  private void awaitOutboundBytes(long bytes, long max) {
+    // the thread writing the outQueue would wait for itself
+    if (Thread.currentThread() == writeThread || (wsl instanceof AbstractWebSocket
+        && ((AbstractWebSocket) wsl).isEventLoopThread())) {
+      return;
+    }
+    while (outboundBytes > 0 && outboundBytes + bytes > max && readyState != ReadyState.CLOSED) {
+      try {
+        synchronizeWriteObject.wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Drop the oldest queued messages until the message fits into the outbound byte budget. Must be
+   * called while holding synchronizeWriteObject.
+   *
+   * @param bytes the size of the message
+   * @param max   the outbound byte budget
+   */
+  private void dropOldest(long bytes, long max) {
+    Iterator<OutboundMessage> it = outboundMessages.iterator();
+    if (it.hasNext()) {
+      // the oldest message may be partially written already
+      it.next();
+    }
+    while (it.hasNext() && outboundBytes + bytes > max) {
+      OutboundMessage queued = it.next();
+      if (queued.droppable) {
+        it.remove();
+        dropQueued(queued);
+      }
+    }
+  }
+
+  /**
+   * Drop the queued messages with the same conflation key. Must be called while holding
+   * synchronizeWriteObject.
+   *
+   * @param conflationKey the conflation key, may be null
+   */
+  private void dropConflated(Object conflationKey) {
+    if (conflationKey == null) {
+      return;
+    }
+    Iterator<OutboundMessage> it = outboundMessages.iterator();
+    if (it.hasNext()) {
+      // the oldest message may be partially written already
+      it.next();
+    }
+    while (it.hasNext()) {
+      OutboundMessage queued = it.next();
+      if (queued.droppable && conflationKey.equals(queued.conflationKey)) {
+        it.remove();
+        dropQueued(queued);
+      }
+    }
+  }
+
+  /**
+   * Remove the buffers of a message from the outQueue. Must be called while holding
+   * synchronizeWriteObject.
+   *
+   * @param queued the message, which is already removed from the outboundMessages
+   */
+  private void dropQueued(OutboundMessage queued) {
+    outboundBytes -= queued.bytes;
+    int remaining = queued.buffers.length;
+    Iterator<ByteBuffer> it = outQueue.iterator();
+    while (remaining > 0 && it.hasNext()) {
+      ByteBuffer b = it.next();
+      for (ByteBuffer buffer : queued.buffers) {
+        if (buffer == b) {
+          it.remove();
+          remaining--;
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Account a buffer removed from the outQueue by the writing thread
+   *
+   * @param buf the removed buffer
+   */
+  private void dequeued(ByteBuffer buf) {
     synchronized (synchronizeWriteObject) {
-      for (ByteBuffer b : bufs) {
-        write(b);
+      OutboundMessage head = outboundMessages.peekFirst();
+      if (head == null || head.buffers[head.buffers.length - 1] != buf) {
+        return;
+      }
+      outboundMessages.pollFirst();
+      outboundBytes -= head.bytes;
+      if (!writable && outboundBytes <= maxOutboundBytes / 2) {
+        writable = true;
       }
+      synchronizeWriteObject.notifyAll();
     }
+    notifyWritability();
+  }
+
+  /**
+   * Notify the listener, if the writability changed since the last notification. While the calling
+   * thread holds synchronizeWriteObject the notification is left to a later call, since the
+   * listener may send by itself.
+   */
+  void notifyWritability() {
+    if (Thread.holdsLock(synchronizeWriteObject)) {
+      return;
+    }
+    synchronized (synchronizeWritabilityObject) {
+      boolean current = writable;
+      if (current != notifiedWritable) {
+        notifiedWritable = current;
+        wsl.onWebsocketWritabilityChanged(this, current);
+      }
+    }
+  }
+
+  /**
+   * Get the object writing threads have to synchronize on while they write the outQueue
+   *
+   * @return the object to synchronize on
+   */
+  Object getSynchronizeWriteObject() {
+    return synchronizeWriteObject;
   }
 
   private void open(Handshakedata d) {
@@ -850,6 +1330,46 @@ public class WebSocketImpl implements WebSocket {
     this.lastPong = System.nanoTime();
   }
 
+  /**
+   * Getter for the last data frame received
+   *
+   * @return the timestamp for the last received data frame
+   * @since 1.6.1
+   */
+  long getLastDataRead() {
+    return lastDataRead;
+  }
+
+  /**
+   * Getter for the last data frame sent
+   *
+   * @return the timestamp for the last sent data frame
+   * @since 1.6.1
+   */
+  long getLastDataWritten() {
+    return lastDataWritten;
+  }
+
+  /**
+   * Getter for the heartbeat of this connection
+   *
+   * @return the heartbeat or null, if the connection lost timer is not running
+   * @since 1.6.1
+   */
+  AbstractWebSocket.Heartbeat getHeartbeat() {
+    return heartbeat;
+  }
+
+  /**
+   * Setter for the heartbeat of this connection
+   *
+   * @param heartbeat the heartbeat
+   * @since 1.6.1
+   */
+  void setHeartbeat(AbstractWebSocket.Heartbeat heartbeat) {
+    this.heartbeat = heartbeat;
+  }
+
   /**
    * Getter for the websocket listener
    *
@@ -911,5 +1431,83 @@ public class WebSocketImpl implements WebSocket {
     this.workerThread = workerThread;
   }
 
+  /**
+   * A message in the outQueue, used to account the queued bytes
+   */
+  private static final class OutboundMessage {
+
+    /**
+     * The buffers of the message
+     */
+    private final ByteBuffer[] buffers;
+
+    /**
+     * The size of the message in bytes
+     */
+    private final long bytes;
+
+    /**
+     * Whether the message may be dropped
+     */
+    private final boolean droppable;
+
+    /**
+     * The conflation key of the message, may be null
+     */
+    private final Object conflationKey;
+
+    OutboundMessage(List<ByteBuffer> buffers, boolean droppable, Object conflationKey) {
+      this.buffers = buffers.toArray(new ByteBuffer[0]);
+      long size = 0;
+      for (ByteBuffer buffer : this.buffers) {
+        size += buffer.remaining();
+      }
+      this.bytes = size;
+      this.droppable = droppable;
+      this.conflationKey = conflationKey;
+    }
+  }
+
+  /**
+   * The outQueue, which accounts the buffers removed by the writing thread
+   */
+  private final class OutboundQueue extends LinkedBlockingQueue<ByteBuffer> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public ByteBuffer poll() {
+      ByteBuffer buf = super.poll();
+      if (buf != null) {
+        dequeued(buf);
+      }
+      return buf;
+    }
 
+    @Override
+    public ByteBuffer poll(long timeout, TimeUnit unit) throws InterruptedException {
+      ByteBuffer buf = super.poll(timeout, unit);
+      if (buf != null) {
+        dequeued(buf);
+      }
+      return buf;
+    }
+
+    @Override
+    public ByteBuffer take() throws InterruptedException {
+      ByteBuffer buf = super.take();
+      dequeued(buf);
+      return buf;
+    }
+
+    @Override
+    public void clear() {
+      synchronized (synchronizeWriteObject) {
+        super.clear();
+        outboundMessages.clear();
+        outboundBytes = 0;
+        synchronizeWriteObject.notifyAll();
+      }
+    }
+  }
 }
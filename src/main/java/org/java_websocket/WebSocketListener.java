@@ -28,6 +28,7 @@ package org.java_websocket;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import org.java_websocket.drafts.Draft;
+import org.java_websocket.enums.Opcode;
 import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.framing.Framedata;
@@ -36,6 +37,7 @@ import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.Handshakedata;
 import org.java_websocket.handshake.ServerHandshake;
 import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.util.CompositeByteBuffer;
 
 /**
  * Implemented by <code>WebSocketClient</code> and <code>WebSocketServer</code>. The methods within are
@@ -99,6 +101,55 @@ public interface WebSocketListener {
    */
   void onWebsocketMessage(WebSocket conn, ByteBuffer blob);
 
+  /**
+   * Called when an entire binary message has been received in several fragments. The fragments
+   * are passed on as they were received, without copying them into one buffer.
+   *
+   * @param conn    The <code>WebSocket</code> instance this event is occurring on.
+   * @param message The fragments of the binary message that was received.
+   * @since 1.6.1
+   */
+  void onWebsocketMessage(WebSocket conn, CompositeByteBuffer message);
+
+  /**
+   * Called when the first fragment of a fragmented text or binary message has been received. The
+   * listener decides whether it receives the message in one piece through
+   * <code>onWebsocketMessage</code>, or each fragment as it arrives through
+   * <code>onWebsocketMessageFragment</code> and <code>onWebsocketMessageEnd</code>. Streamed
+   * messages are never collected in memory, so the maximum frame size of the draft does not limit
+   * their total size.
+   *
+   * @param conn   The <code>WebSocket</code> instance this event is occurring on.
+   * @param opcode The opcode of the message, either <code>Opcode.TEXT</code> or
+   *               <code>Opcode.BINARY</code>
+   * @return true, to stream the message, false to receive it in one piece
+   * @since 1.6.1
+   */
+  boolean onWebsocketMessageStart(WebSocket conn, Opcode opcode);
+
+  /**
+   * Called for every fragment of a streamed message, including the first and the last one. The
+   * fragments of a text message contain utf8 encoded bytes, a character may be split between two
+   * fragments. The received bytes are validated, an invalid text message closes the connection
+   * before its invalid fragment is passed on.
+   *
+   * @param conn     The <code>WebSocket</code> instance this event is occurring on.
+   * @param fragment The payload of the fragment
+   * @see #onWebsocketMessageStart(WebSocket, Opcode)
+   * @since 1.6.1
+   */
+  void onWebsocketMessageFragment(WebSocket conn, ByteBuffer fragment);
+
+  /**
+   * Called after the last fragment of a streamed message has been received. If the connection
+   * closes before, only <code>onWebsocketClose</code> is called.
+   *
+   * @param conn The <code>WebSocket</code> instance this event is occurring on.
+   * @see #onWebsocketMessageStart(WebSocket, Opcode)
+   * @since 1.6.1
+   */
+  void onWebsocketMessageEnd(WebSocket conn);
+
   /**
    * Called after <var>onHandshakeReceived</var> returns <var>true</var>. Indicates that a complete
    * WebSocket connection has been established, and we are ready to send/receive data.
@@ -175,6 +226,19 @@ public interface WebSocketListener {
    **/
   void onWebsocketPong(WebSocket conn, Framedata f);
 
+  /**
+   * Called when the writability of the connection changed. A connection is not writable anymore as
+   * soon as its queued bytes exceed its outbound byte budget, and gets writable again as soon as
+   * the queued bytes dropped to half of the budget.
+   *
+   * @param conn     The <code>WebSocket</code> instance this event is occurring on.
+   * @param writable true, if the connection is writable again
+   * @see WebSocket#isWritable()
+   * @see AbstractWebSocket#setMaxOutboundBytes(long)
+   * @since 1.6.1
+   */
+  void onWebsocketWritabilityChanged(WebSocket conn, boolean writable);
+
   /**
    * This method is used to inform the selector thread that there is data queued to be written to
    * the socket.
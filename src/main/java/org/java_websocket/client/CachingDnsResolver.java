@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DnsResolver} which caches the addresses of another resolver per host, so that many
+ * clients connecting to the same upstream need a single lookup. Failed lookups are not cached.
+ * <p>
+ * The number of cached hosts is limited. If the cache is full, the expired addresses are removed,
+ * then the address which expires first.
+ *
+ * @since 1.6.1
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+  /**
+   * The default maximum number of cached hosts
+   */
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  /**
+   * The resolver doing the actual lookups
+   */
+  private final DnsResolver delegate;
+
+  /**
+   * The time in nanoseconds an address is cached
+   */
+  private final long ttl;
+
+  /**
+   * The maximum number of cached hosts
+   */
+  private final int maxSize;
+
+  /**
+   * The cached addresses by host
+   */
+  private final ConcurrentMap<String, CachedAddress> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Create a cache for the lookups of the operating system
+   *
+   * @param ttl  the time an address is cached
+   * @param unit the unit of the time
+   */
+  public CachingDnsResolver(long ttl, TimeUnit unit) {
+    this(new DnsResolver() {
+      @Override
+      public InetAddress resolve(URI uri) throws UnknownHostException {
+        return InetAddress.getByName(uri.getHost());
+      }
+    }, ttl, unit);
+  }
+
+  /**
+   * Create a cache for the lookups of the given resolver
+   *
+   * @param delegate the resolver doing the actual lookups
+   * @param ttl      the time an address is cached
+   * @param unit     the unit of the time
+   */
+  public CachingDnsResolver(DnsResolver delegate, long ttl, TimeUnit unit) {
+    this(delegate, ttl, unit, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Create a cache for the lookups of the given resolver
+   *
+   * @param delegate the resolver doing the actual lookups
+   * @param ttl      the time an address is cached
+   * @param unit     the unit of the time
+   * @param maxSize  the maximum number of cached hosts
+   */
+  public CachingDnsResolver(DnsResolver delegate, long ttl, TimeUnit unit, int maxSize) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate must not be null");
+    }
+    if (ttl < 0) {
+      throw new IllegalArgumentException("ttl < 0");
+    }
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize < 1");
+    }
+    this.delegate = delegate;
+    this.ttl = unit.toNanos(ttl);
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public InetAddress resolve(URI uri) throws UnknownHostException {
+    String host = uri.getHost();
+    long now = System.nanoTime();
+    CachedAddress cached = host == null ? null : cache.get(host);
+    if (cached != null && cached.expires - now > 0) {
+      return cached.address;
+    }
+    InetAddress address = delegate.resolve(uri);
+    if (host != null && address != null) {
+      if (cached == null && cache.size() >= maxSize) {
+        evict(now);
+      }
+      cache.put(host, new CachedAddress(address, now + ttl));
+    }
+    return address;
+  }
+
+  /**
+   * Make room for another host, by removing the expired addresses or else the address which
+   * expires first
+   *
+   * @param now the current time in nanoseconds
+   */
+  private void evict(long now) {
+    Map.Entry<String, CachedAddress> first = null;
+    boolean removed = false;
+    for (Iterator<Map.Entry<String, CachedAddress>> it = cache.entrySet().iterator();
+        it.hasNext(); ) {
+      Map.Entry<String, CachedAddress> entry = it.next();
+      long expires = entry.getValue().expires;
+      if (expires - now <= 0) {
+        it.remove();
+        removed = true;
+      } else if (first == null || expires - first.getValue().expires < 0) {
+        first = entry;
+      }
+    }
+    if (!removed && first != null) {
+      cache.remove(first.getKey(), first.getValue());
+    }
+  }
+
+  /**
+   * Getter for the number of cached hosts, including the expired ones which were not removed yet
+   *
+   * @return the number of cached hosts
+   */
+  public int size() {
+    return cache.size();
+  }
+
+  /**
+   * Getter for the maximum number of cached hosts
+   *
+   * @return the maximum number of cached hosts
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Remove all cached addresses
+   */
+  public void clear() {
+    cache.clear();
+  }
+
+  /**
+   * An address with the time it expires
+   */
+  private static class CachedAddress {
+
+    private final InetAddress address;
+
+    private final long expires;
+
+    CachedAddress(InetAddress address, long expires) {
+      this.address = address;
+      this.expires = expires;
+    }
+  }
+}
@@ -0,0 +1,732 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import org.java_websocket.SSLHandshakeExecutor;
+import org.java_websocket.SSLSocketChannel2;
+import org.java_websocket.SocketChannelIOHelper;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WrappedByteChannel;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.SlabByteBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small number of event loops, which handle the connections of many {@link WebSocketClient}s.
+ * <p>
+ * Without a group every client uses a blocking socket and two threads of its own. A client with a
+ * group set via {@link WebSocketClient#setEventLoopGroup(ClientEventLoopGroup)} instead gets a
+ * non-blocking channel, which one of the event loops of the group connects, reads from and writes
+ * to. The reads use buffers leased from a pool shared by all loops, the writes are gathered from
+ * the outQueue by the {@link SocketChannelIOHelper}. The TLS buffers of secure connections are
+ * leased from the same pool.
+ * <p>
+ * The callbacks of the clients are called by the event loops, so a callback blocking for a long
+ * time delays all other connections of its loop.
+ * <p>
+ * Connections through a proxy or a custom socket are not supported by the event loops. The TLS
+ * connections use the {@link #setSSLContext(SSLContext) SSLContext} of this group. The connection
+ * lost timer of a client still runs on a thread of its own, unless it is disabled via {@link
+ * WebSocketClient#setConnectionLostTimeout(int)}.
+ *
+ * @since 1.6.1
+ */
+public class ClientEventLoopGroup {
+
+  /**
+   * The maximum size of a single read buffer
+   */
+  private static final int MAX_READ_BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * The limit of the pool the read buffers are leased from
+   */
+  private static final long DEFAULT_BUFFER_POOL_SIZE = 16L * 1024 * 1024;
+
+  /**
+   * The time in milliseconds after which a read is retried, if it could not be completed
+   */
+  private static final int READ_RETRY_TIMEOUT = 10;
+
+  /**
+   * Logger instance
+   */
+  private final Logger log = LoggerFactory.getLogger(ClientEventLoopGroup.class);
+
+  /**
+   * The event loops of this group
+   */
+  private final List<EventLoop> loops;
+
+  /**
+   * The number of connections assigned to an event loop so far, to spread them over the loops
+   */
+  private final AtomicInteger loopInvokes = new AtomicInteger();
+
+  /**
+   * The pool the buffers for every read are leased from
+   */
+  private final ByteBufferPool bufferPool;
+
+  /**
+   * Whether this group was shut down
+   */
+  private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+  /**
+   * The context for the TLS connections, the default context if null
+   */
+  private volatile SSLContext sslContext;
+
+  /**
+   * The executor running the delegated tasks of the TLS connections, created on first use
+   */
+  private ExecutorService sslExecutor;
+
+  /**
+   * Create a group with the given number of event loops, which are no daemon threads
+   *
+   * @param threadCount the number of event loops
+   * @throws IOException if a selector could not be opened
+   */
+  public ClientEventLoopGroup(int threadCount) throws IOException {
+    this(threadCount, false);
+  }
+
+  /**
+   * Create a group with the given number of event loops
+   *
+   * @param threadCount the number of event loops
+   * @param daemon      whether the event loops are daemon threads
+   * @throws IOException if a selector could not be opened
+   */
+  public ClientEventLoopGroup(int threadCount, boolean daemon) throws IOException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("threadCount < 1");
+    }
+    bufferPool = new SlabByteBufferPool(MAX_READ_BUFFER_SIZE, DEFAULT_BUFFER_POOL_SIZE);
+    List<EventLoop> eventLoops = new ArrayList<>(threadCount);
+    try {
+      for (int i = 0; i < threadCount; i++) {
+        eventLoops.add(new EventLoop(Selector.open()));
+      }
+    } catch (IOException e) {
+      for (EventLoop loop : eventLoops) {
+        loop.selector.close();
+      }
+      throw e;
+    }
+    loops = Collections.unmodifiableList(eventLoops);
+    for (EventLoop loop : loops) {
+      loop.setDaemon(daemon);
+      loop.start();
+    }
+  }
+
+  /**
+   * Set the context for the TLS connections of the clients of this group.
+   *
+   * @param sslContext the context, null for the default context
+   */
+  public void setSSLContext(SSLContext sslContext) {
+    this.sslContext = sslContext;
+  }
+
+  /**
+   * Returns the context for the TLS connections of the clients of this group.
+   *
+   * @return the context or null, if the default context is used
+   */
+  public SSLContext getSSLContext() {
+    return sslContext;
+  }
+
+  /**
+   * Returns the number of event loops of this group.
+   *
+   * @return the number of event loops
+   */
+  public int getThreadCount() {
+    return loops.size();
+  }
+
+  /**
+   * Returns whether this group was shut down.
+   *
+   * @return true, if {@link #shutdown()} was called
+   */
+  public boolean isShutdown() {
+    return shutdown.get();
+  }
+
+  /**
+   * Stop the event loops of this group. The connections still open are closed with {@link
+   * CloseFrame#GOING_AWAY} without a closing handshake.
+   *
+   * @throws InterruptedException if interrupted while waiting for the event loops to stop
+   */
+  public void shutdown() throws InterruptedException {
+    if (!shutdown.compareAndSet(false, true)) {
+      return;
+    }
+    for (EventLoop loop : loops) {
+      loop.selector.wakeup();
+    }
+    Thread current = Thread.currentThread();
+    for (EventLoop loop : loops) {
+      if (loop != current) {
+        loop.join();
+      }
+    }
+    synchronized (this) {
+      if (sslExecutor != null) {
+        sslExecutor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Start to connect the client. The address is resolved by the calling thread, even if the client
+   * has no dns resolver, the connection is established by one of the event loops.
+   *
+   * @param client the client to connect
+   * @param engine the engine of the client
+   */
+  void connect(WebSocketClient client, WebSocketImpl engine) {
+    if (shutdown.get()) {
+      throw new IllegalStateException("The event loop group is shut down");
+    }
+    SocketChannel channel = null;
+    try {
+      InetSocketAddress address = client.resolveAddress();
+      if (address.isUnresolved()) {
+        // without a dns resolver the host is left to the proxy of a socket, which a channel lacks
+        address = new InetSocketAddress(address.getHostString(), address.getPort());
+        if (address.isUnresolved()) {
+          throw new UnknownHostException(address.getHostString());
+        }
+      }
+      channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      Socket socket = channel.socket();
+      socket.setTcpNoDelay(client.isTcpNoDelay());
+      socket.setReuseAddress(client.isReuseAddr());
+      if (client.getReceiveBufferSize() > 0) {
+        socket.setReceiveBufferSize(client.getReceiveBufferSize());
+      }
+      client.setEventLoopSocket(socket);
+      engine.setChannel(channel);
+      boolean connected = channel.connect(address);
+      int connectTimeout = client.getConnectTimeout();
+      long deadline = connectTimeout > 0
+          ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeout) : 0;
+      EventLoop loop =
+          loops.get((loopInvokes.getAndIncrement() & Integer.MAX_VALUE) % loops.size());
+      loop.register(new ClientConnection(client, engine, connected, deadline));
+    } catch (Exception e) {
+      if (channel != null && engine.getChannel() != channel) {
+        try {
+          channel.close();
+        } catch (IOException ex) {
+          log.trace("Exception during channel.close()", ex);
+        }
+      }
+      client.onWebsocketError(engine, e);
+      engine.closeConnection(CloseFrame.NEVER_CONNECTED, e.getMessage());
+    }
+  }
+
+  /**
+   * Make the event loop of the engine write its outQueue
+   *
+   * @param engine the engine with outgoing data
+   */
+  void onWriteDemand(WebSocketImpl engine) {
+    SelectionKey key = engine.getSelectionKey();
+    if (key == null) {
+      // not registered yet, there is no outgoing data before the connection is established
+      return;
+    }
+    try {
+      if ((key.interestOps() & SelectionKey.OP_CONNECT) == 0) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+    } catch (CancelledKeyException e) {
+      // the thread which cancels key is responsible for possible cleanup
+      engine.outQueue.clear();
+    }
+    if (!inEventLoop()) {
+      key.selector().wakeup();
+    }
+  }
+
+  /**
+   * Returns whether the calling thread is an event loop of this group
+   *
+   * @return true, if called by an event loop of this group
+   */
+  boolean inEventLoop() {
+    return loops.contains(Thread.currentThread());
+  }
+
+  /**
+   * Returns the executor for the delegated tasks of the TLS connections
+   *
+   * @return the executor
+   */
+  private synchronized ExecutorService getSSLExecutor() {
+    if (sslExecutor == null) {
+      sslExecutor = new SSLHandshakeExecutor();
+    }
+    return sslExecutor;
+  }
+
+  /**
+   * Returns the context for the TLS connections
+   *
+   * @return the configured or the default context
+   * @throws NoSuchAlgorithmException if there is no default context
+   */
+  private SSLContext getContext() throws NoSuchAlgorithmException {
+    SSLContext context = sslContext;
+    return context != null ? context : SSLContext.getDefault();
+  }
+
+  /**
+   * The state of a connection handled by an event loop
+   */
+  private static class ClientConnection {
+
+    private final WebSocketClient client;
+
+    private final WebSocketImpl engine;
+
+    /**
+     * Whether the channel was connected immediately
+     */
+    private final boolean connected;
+
+    /**
+     * The time the connection has to be established by, 0 for no timeout
+     */
+    private final long deadline;
+
+    ClientConnection(WebSocketClient client, WebSocketImpl engine, boolean connected,
+        long deadline) {
+      this.client = client;
+      this.engine = engine;
+      this.connected = connected;
+      this.deadline = deadline;
+    }
+  }
+
+  /**
+   * A thread handling the connects, reads and writes of the connections registered on its
+   * selector
+   */
+  private class EventLoop extends Thread {
+
+    private final Selector selector;
+
+    /**
+     * The connections waiting to be registered on the selector
+     */
+    private final Queue<ClientConnection> registrations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The connections with a timeout, which are not yet connected
+     */
+    private final List<ClientConnection> connecting = new ArrayList<>();
+
+    /**
+     * The connections which require an additional read, e.g. since their TLS channel has buffered
+     * data or no buffer was available
+     */
+    private final List<ClientConnection> additionalReads = new ArrayList<>();
+
+    EventLoop(Selector selector) {
+      this.selector = selector;
+      setName("WebSocketClientEventLoop-" + getId());
+    }
+
+    /**
+     * Queue the connection to be registered on the selector of this loop
+     *
+     * @param conn the connection
+     */
+    void register(ClientConnection conn) {
+      registrations.add(conn);
+      selector.wakeup();
+      if (shutdown.get() && registrations.remove(conn)) {
+        // the loop may have stopped before the connection was queued
+        conn.engine.closeConnection(CloseFrame.NEVER_CONNECTED,
+            "The event loop group is shut down");
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!shutdown.get()) {
+          doRegistrations();
+          selector.select(nextTimeout());
+          Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+          while (i.hasNext()) {
+            SelectionKey key = i.next();
+            i.remove();
+            doSelected(key, (ClientConnection) key.attachment());
+          }
+          doAdditionalReads();
+          doConnectTimeouts();
+        }
+      } catch (IOException | ClosedSelectorException e) {
+        log.error("Event loop {} failed", getName(), e);
+      } finally {
+        doShutdown();
+      }
+    }
+
+    /**
+     * Handle a selected key
+     *
+     * @param key  the selected key
+     * @param conn the connection of the key
+     */
+    private void doSelected(SelectionKey key, ClientConnection conn) {
+      try {
+        if (!key.isValid()) {
+          return;
+        }
+        if (key.isConnectable()) {
+          doConnect(key, conn);
+          return;
+        }
+        if (key.isReadable()) {
+          doRead(conn);
+        }
+        if (key.isValid() && key.isWritable()) {
+          doWrite(key, conn);
+        }
+      } catch (CancelledKeyException e) {
+        // the connection was closed by another thread
+      } catch (IOException | RuntimeException e) {
+        handleException(conn, e);
+      }
+    }
+
+    /**
+     * Close the connection after an error during read or write
+     *
+     * @param conn the connection
+     * @param e    the error
+     */
+    private void handleException(ClientConnection conn, Exception e) {
+      if (e instanceof IOException) {
+        if (e instanceof SSLException) {
+          conn.client.onError(e);
+        }
+        conn.engine.eot();
+      } else {
+        // this catch case covers internal errors only and indicates a bug in this websocket implementation
+        conn.client.onError(e);
+        conn.engine.closeConnection(CloseFrame.ABNORMAL_CLOSE, e.getMessage());
+      }
+    }
+
+    /**
+     * Register the queued connections on the selector
+     */
+    private void doRegistrations() {
+      ClientConnection conn;
+      while ((conn = registrations.poll()) != null) {
+        try {
+          SocketChannel channel = (SocketChannel) conn.engine.getChannel();
+          SelectionKey key = channel.register(selector,
+              conn.connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, conn);
+          conn.engine.setSelectionKey(key);
+          if (conn.connected) {
+            doOpen(key, conn);
+          } else if (conn.deadline != 0) {
+            connecting.add(conn);
+          }
+        } catch (Exception e) {
+          doConnectFailed(conn, e);
+        }
+      }
+    }
+
+    /**
+     * Finish the connect of a connection
+     *
+     * @param key  the key of the connection
+     * @param conn the connection
+     */
+    private void doConnect(SelectionKey key, ClientConnection conn) {
+      try {
+        if (((SocketChannel) key.channel()).finishConnect()) {
+          connecting.remove(conn);
+          doOpen(key, conn);
+        }
+      } catch (Exception e) {
+        doConnectFailed(conn, e);
+      }
+    }
+
+    /**
+     * Start the TLS and the opening handshake of a connected channel
+     *
+     * @param key  the key of the connection
+     * @param conn the connection
+     * @throws Exception if the handshake could not be started
+     */
+    private void doOpen(SelectionKey key, ClientConnection conn) throws Exception {
+      connecting.remove(conn);
+      key.interestOps(SelectionKey.OP_READ);
+      if (conn.client.isSecure()) {
+        conn.engine.setChannel(new SSLSocketChannel2((SocketChannel) key.channel(),
+            conn.client.createSSLEngine(getContext()), getSSLExecutor(), key, bufferPool));
+      }
+      conn.client.sendHandshake();
+    }
+
+    /**
+     * Report a connection which could not be established
+     *
+     * @param conn the connection
+     * @param e    the cause
+     */
+    private void doConnectFailed(ClientConnection conn, Exception e) {
+      connecting.remove(conn);
+      conn.client.onWebsocketError(conn.engine, e);
+      conn.engine.closeConnection(CloseFrame.NEVER_CONNECTED, e.getMessage());
+    }
+
+    /**
+     * Read from the channel of the connection and decode the data
+     *
+     * @param conn the connection
+     * @throws IOException if an error happened during read
+     */
+    private void doRead(ClientConnection conn) throws IOException {
+      ByteBuffer buf = bufferPool
+          .acquire(Math.min(conn.client.getReadBufferSize(), MAX_READ_BUFFER_SIZE));
+      if (buf == null) {
+        // the pool is exhausted, retry after the next select
+        addAdditionalRead(conn);
+        return;
+      }
+      try {
+        ByteChannel channel = conn.engine.getChannel();
+        if (SocketChannelIOHelper.read(buf, conn.engine, channel)) {
+          conn.engine.decode(buf);
+        }
+        if (!channel.isOpen()) {
+          // the TLS channel closes itself as soon as the peer closed the TLS session
+          conn.engine.eot();
+        } else if (channel instanceof WrappedByteChannel && ((WrappedByteChannel) channel)
+            .isNeedRead()) {
+          addAdditionalRead(conn);
+        }
+      } finally {
+        bufferPool.release(buf);
+      }
+    }
+
+    /**
+     * Remember the connection to read from it after the next select, even if its channel has no new
+     * data
+     *
+     * @param conn the connection
+     */
+    private void addAdditionalRead(ClientConnection conn) {
+      if (!additionalReads.contains(conn)) {
+        additionalReads.add(conn);
+      }
+    }
+
+    /**
+     * Retry the reads of the connections, which require an additional read
+     */
+    private void doAdditionalReads() {
+      if (additionalReads.isEmpty()) {
+        return;
+      }
+      List<ClientConnection> retries = new ArrayList<>(additionalReads);
+      additionalReads.clear();
+      for (ClientConnection conn : retries) {
+        ByteChannel channel = conn.engine.getChannel();
+        if (!channel.isOpen()) {
+          continue;
+        }
+        try {
+          if (channel instanceof WrappedByteChannel && ((WrappedByteChannel) channel)
+              .isNeedRead()) {
+            doReadMore(conn, (WrappedByteChannel) channel);
+          } else {
+            doRead(conn);
+          }
+        } catch (IOException | RuntimeException e) {
+          handleException(conn, e);
+        }
+      }
+    }
+
+    /**
+     * Decode the data buffered by the channel of the connection
+     *
+     * @param conn    the connection
+     * @param channel the channel of the connection
+     * @throws IOException if an error happened during read
+     */
+    private void doReadMore(ClientConnection conn, WrappedByteChannel channel)
+        throws IOException {
+      ByteBuffer buf = bufferPool
+          .acquire(Math.min(conn.client.getReadBufferSize(), MAX_READ_BUFFER_SIZE));
+      if (buf == null) {
+        addAdditionalRead(conn);
+        return;
+      }
+      try {
+        boolean more = SocketChannelIOHelper.readMore(buf, conn.engine, channel);
+        if (buf.hasRemaining()) {
+          conn.engine.decode(buf);
+        }
+        if (!channel.isOpen()) {
+          conn.engine.eot();
+        } else if (more) {
+          addAdditionalRead(conn);
+        }
+      } finally {
+        bufferPool.release(buf);
+      }
+    }
+
+    /**
+     * Write the outQueue of the connection
+     *
+     * @param key  the key of the connection
+     * @param conn the connection
+     * @throws IOException if an error happened during write
+     */
+    private void doWrite(SelectionKey key, ClientConnection conn) throws IOException {
+      if (SocketChannelIOHelper.batch(conn.engine, conn.engine.getChannel()) && key.isValid()) {
+        key.interestOps(SelectionKey.OP_READ);
+        ByteChannel channel = conn.engine.getChannel();
+        if (!conn.engine.outQueue.isEmpty() || (channel instanceof WrappedByteChannel
+            && ((WrappedByteChannel) channel).isNeedWrite())) {
+          // queued by another thread or a TLS task completed after the batch was flushed
+          key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+      }
+    }
+
+    /**
+     * Returns the time until the next connect timeout
+     *
+     * @return the time in milliseconds, 0 if there is no pending timeout
+     */
+    private long nextTimeout() {
+      long next = additionalReads.isEmpty() ? 0 : READ_RETRY_TIMEOUT;
+      long now = System.nanoTime();
+      for (ClientConnection conn : connecting) {
+        long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(conn.deadline - now));
+        if (next == 0 || remaining < next) {
+          next = remaining;
+        }
+      }
+      return next;
+    }
+
+    /**
+     * Close the connections which were not established in time
+     */
+    private void doConnectTimeouts() {
+      if (connecting.isEmpty()) {
+        return;
+      }
+      long now = System.nanoTime();
+      Iterator<ClientConnection> i = connecting.iterator();
+      while (i.hasNext()) {
+        ClientConnection conn = i.next();
+        if (conn.deadline - now <= 0) {
+          i.remove();
+          doConnectFailed(conn, new SocketTimeoutException("connect timed out"));
+        }
+      }
+    }
+
+    /**
+     * Close all connections of this loop and its selector
+     */
+    private void doShutdown() {
+      ClientConnection conn;
+      while ((conn = registrations.poll()) != null) {
+        conn.engine.closeConnection(CloseFrame.NEVER_CONNECTED,
+            "The event loop group is shut down");
+      }
+      try {
+        for (SelectionKey key : selector.keys()) {
+          ((ClientConnection) key.attachment()).engine
+              .closeConnection(CloseFrame.GOING_AWAY, "The event loop group is shut down");
+        }
+      } catch (ClosedSelectorException e) {
+        // nothing left to close
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        log.error("IOException during selector.close", e);
+      }
+    }
+  }
+}
@@ -45,12 +45,15 @@ import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import org.java_websocket.AbstractWebSocket;
+import org.java_websocket.PreparedMessage;
 import org.java_websocket.WebSocket;
 import org.java_websocket.WebSocketImpl;
 import org.java_websocket.drafts.Draft;
@@ -64,6 +67,8 @@ import org.java_websocket.handshake.HandshakeImpl1Client;
 import org.java_websocket.handshake.Handshakedata;
 import org.java_websocket.handshake.ServerHandshake;
 import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.util.ByteBufferUtils;
+import org.java_websocket.util.CompositeByteBuffer;
 
 /**
  * A subclass must implement at least <var>onOpen</var>, <var>onClose</var>, and
@@ -148,6 +153,35 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
    */
   private DnsResolver dnsResolver = null;
 
+  /**
+   * The event loops handling the connection of this client, or null if this client uses a
+   * blocking socket and threads of its own
+   *
+   * @since 1.6.1
+   */
+  private ClientEventLoopGroup eventLoopGroup = null;
+
+  /**
+   * The default maximum number of bytes the write thread coalesces into a single write, which
+   * matches the maximum payload of a TLS record
+   */
+  private static final int DEFAULT_WRITE_COALESCING_LIMIT = 16384;
+
+  /**
+   * Attribute for the maximum number of bytes the write thread coalesces into a single write, 0
+   * means every frame is written and flushed by itself
+   *
+   * @since 1.6.1
+   */
+  private volatile int writeCoalescingLimit = DEFAULT_WRITE_COALESCING_LIMIT;
+
+  /**
+   * The pool managing the reconnects of this client, if any
+   *
+   * @since 1.6.1
+   */
+  private volatile WebSocketClientPool pool = null;
+
   /**
    * Constructs a WebSocketClient instance and sets it to the connect to the specified URI. The
    * channel does not attampt to connect automatically. The connection will be established once you
@@ -304,6 +338,67 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     this.dnsResolver = dnsResolver;
   }
 
+  /**
+   * Let the connection of this client be handled by the given event loops instead of threads of
+   * its own. This method must be called before <code>connect</code>.
+   * <p>
+   * Connections through a proxy or a socket set via {@link #setSocketFactory(SocketFactory)} are
+   * not supported by the event loops.
+   *
+   * @param eventLoopGroup the event loops to use, null to use a blocking socket and threads of
+   *                       this client
+   * @throws IllegalStateException if the client is already connected
+   * @since 1.6.1
+   */
+  public void setEventLoopGroup(ClientEventLoopGroup eventLoopGroup) {
+    if (connectReadThread != null || engine.getChannel() != null) {
+      throw new IllegalStateException("Cannot set the event loop group after connect");
+    }
+    this.eventLoopGroup = eventLoopGroup;
+  }
+
+  /**
+   * Returns the event loops handling the connection of this client.
+   *
+   * @return the event loop group or null, if this client uses threads of its own
+   * @since 1.6.1
+   */
+  public ClientEventLoopGroup getEventLoopGroup() {
+    return eventLoopGroup;
+  }
+
+  /**
+   * Set the maximum number of bytes the write thread coalesces into a single write.
+   * <p>
+   * The write thread copies the frames which are queued at the same time into one buffer of this
+   * size and flushes the stream once they are all written. A burst of small messages then needs a
+   * few writes and, over TLS, a few records instead of one per message. Frames larger than the
+   * limit are written directly. This setting has no effect on a client using an {@link
+   * #setEventLoopGroup(ClientEventLoopGroup) event loop group}, which writes with gathering writes.
+   *
+   * @param writeCoalescingLimit the maximum number of bytes per write, 0 to write and flush every
+   *                             frame by itself
+   * @throws IllegalArgumentException if the limit is negative
+   * @since 1.6.1
+   */
+  public void setWriteCoalescingLimit(int writeCoalescingLimit) {
+    if (writeCoalescingLimit < 0) {
+      throw new IllegalArgumentException("writeCoalescingLimit < 0");
+    }
+    this.writeCoalescingLimit = writeCoalescingLimit;
+  }
+
+  /**
+   * Returns the maximum number of bytes the write thread coalesces into a single write.
+   *
+   * @return the coalescing limit, 0 if every frame is written by itself
+   * @see #setWriteCoalescingLimit(int)
+   * @since 1.6.1
+   */
+  public int getWriteCoalescingLimit() {
+    return writeCoalescingLimit;
+  }
+
   /**
    * Reinitiates the websocket connection. This method does not block.
    *
@@ -349,7 +444,8 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
    */
   private void reset() {
     Thread current = Thread.currentThread();
-    if (current == writeThread || current == connectReadThread) {
+    if (current == writeThread || current == connectReadThread || (eventLoopGroup != null
+        && eventLoopGroup.inEventLoop())) {
       throw new IllegalStateException(
           "You cannot initialize a reconnect out of the websocket thread. Use reconnect in another thread to ensure a successful cleanup.");
     }
@@ -390,9 +486,21 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
    * Initiates the websocket connection. This method does not block.
    */
   public void connect() {
-    if (connectReadThread != null) {
+    if (connectReadThread != null || engine.getChannel() != null) {
       throw new IllegalStateException("WebSocketClient objects are not reuseable");
     }
+    if (eventLoopGroup != null) {
+      if (proxy != Proxy.NO_PROXY || socketFactory != null || socket != null) {
+        throw new IllegalStateException(
+            "Proxies and custom sockets are not supported by the event loop group");
+      }
+      engine.setMaxOutboundBytes(getMaxOutboundBytes());
+      engine.setBackpressurePolicy(getBackpressurePolicy());
+      engine.setMaxHandshakeSize(getMaxHandshakeSize());
+      engine.setMaxHandshakeFields(getMaxHandshakeFields());
+      eventLoopGroup.connect(this, engine);
+      return;
+    }
     connectReadThread = new Thread(this);
     connectReadThread.setDaemon(isDaemon());
     connectReadThread.setName("WebSocketConnectReadThread-" + connectReadThread.getId());
@@ -436,7 +544,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
    * the connection is closed use <code>closeBlocking</code>
    */
   public void close() {
-    if (writeThread != null) {
+    if (writeThread != null || engine.getChannel() != null) {
       engine.close(CloseFrame.NORMAL);
     }
   }
@@ -460,6 +568,17 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     engine.send(text);
   }
 
+  /**
+   * Sends <var>text</var> to the connected websocket server, without converting it into a String
+   * first.
+   *
+   * @param text The text which will be transmitted.
+   */
+  @Override
+  public void send(CharSequence text) {
+    engine.send(text);
+  }
+
   /**
    * Sends binary <var> data</var> to the connected webSocket server.
    *
@@ -469,6 +588,16 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     engine.send(data);
   }
 
+  /**
+   * Sends a prepared message to the connected webSocket server.
+   *
+   * @param message The prepared message to send to the WebSocket server.
+   */
+  @Override
+  public void send(PreparedMessage message) {
+    engine.send(message);
+  }
+
   @Override
   public <T> T getAttachment() {
     return engine.getAttachment();
@@ -484,6 +613,18 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     return Collections.singletonList((WebSocket) engine);
   }
 
+  /**
+   * Returns whether the current thread is a loop of the {@link #getEventLoopGroup() event loop
+   * group} of this client
+   *
+   * @return true, if the current thread must not block
+   * @since 1.6.1
+   */
+  @Override
+  protected boolean isEventLoopThread() {
+    return eventLoopGroup != null && eventLoopGroup.inEventLoop();
+  }
+
   @Override
   public void sendPing() {
     engine.sendPing();
@@ -500,10 +641,13 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
       if (receiveBufferSize > 0) {
         socket.setReceiveBufferSize(receiveBufferSize);
       }
+      engine.setMaxOutboundBytes(getMaxOutboundBytes());
+      engine.setBackpressurePolicy(getBackpressurePolicy());
+      engine.setMaxHandshakeSize(getMaxHandshakeSize());
+      engine.setMaxHandshakeFields(getMaxHandshakeFields());
 
       if (!socket.isConnected()) {
-        InetSocketAddress addr = dnsResolver == null ? InetSocketAddress.createUnresolved(uri.getHost(), getPort()) : new InetSocketAddress(dnsResolver.resolve(uri), this.getPort());
-        socket.connect(addr, connectTimeout);
+        socket.connect(resolveAddress(), connectTimeout);
       }
 
       // if the socket is set by others we don't apply any TLS wrapper
@@ -550,8 +694,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     writeThread.setDaemon(isDaemon());
     writeThread.start();
 
-    int receiveBufferSize = getReceiveBufferSize();
-    byte[] rawbuffer = new byte[receiveBufferSize > 0 ? receiveBufferSize : DEFAULT_READ_BUFFER_SIZE];
+    byte[] rawbuffer = new byte[getReadBufferSize()];
     int readBytes;
 
     try {
@@ -568,6 +711,79 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     }
   }
 
+  /**
+   * Resolve the address to connect to
+   *
+   * @return the address of the uri, unresolved if there is no dns resolver
+   * @throws UnknownHostException if the dns resolver could not resolve the host
+   */
+  InetSocketAddress resolveAddress() throws UnknownHostException {
+    return dnsResolver == null ? InetSocketAddress.createUnresolved(uri.getHost(), getPort())
+        : new InetSocketAddress(dnsResolver.resolve(uri), this.getPort());
+  }
+
+  /**
+   * Get the size of the buffers used for every read
+   *
+   * @return the receive buffer size if set, otherwise the default size
+   */
+  int getReadBufferSize() {
+    int receiveBufferSize = getReceiveBufferSize();
+    return receiveBufferSize > 0 ? receiveBufferSize : DEFAULT_READ_BUFFER_SIZE;
+  }
+
+  /**
+   * Getter for the connect timeout
+   *
+   * @return the connect timeout in milliseconds, 0 for no timeout
+   */
+  int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * Returns whether the uri requires a TLS connection
+   *
+   * @return true, if the scheme of the uri is wss
+   */
+  boolean isSecure() {
+    return "wss".equals(uri.getScheme());
+  }
+
+  /**
+   * Set the pool managing the reconnects of this client
+   *
+   * @param pool the pool or null, if the client was removed from its pool
+   */
+  void setPool(WebSocketClientPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Set the socket of the channel created by the event loop group
+   *
+   * @param socket the socket of the channel
+   */
+  void setEventLoopSocket(Socket socket) {
+    this.socket = socket;
+  }
+
+  /**
+   * Create the engine for a TLS connection handled by the event loop group
+   *
+   * @param sslContext the context to create the engine with
+   * @return the engine in client mode, with the parameters of {@link
+   * #onSetSSLParameters(SSLParameters)}
+   */
+  SSLEngine createSSLEngine(SSLContext sslContext) {
+    SSLEngine sslEngine = sslContext.createSSLEngine(uri.getHost(), getPort());
+    sslEngine.setUseClientMode(true);
+    SSLParameters sslParameters = sslEngine.getSSLParameters();
+    onSetSSLParameters(sslParameters);
+    sslEngine.setSSLParameters(sslParameters);
+    return sslEngine;
+  }
+
   private void upgradeSocketToSSL()
       throws NoSuchAlgorithmException, KeyManagementException, IOException {
     SSLSocketFactory factory;
@@ -632,7 +848,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
    *
    * @throws InvalidHandshakeException a invalid handshake was created
    */
-  private void sendHandshake() throws InvalidHandshakeException {
+  void sendHandshake() throws InvalidHandshakeException {
     String path;
     String part1 = uri.getRawPath();
     String part2 = uri.getRawQuery();
@@ -681,6 +897,11 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     onMessage(blob);
   }
 
+  @Override
+  public final void onWebsocketMessage(WebSocket conn, CompositeByteBuffer message) {
+    onMessage(message);
+  }
+
   /**
    * Calls subclass' implementation of <var>onOpen</var>.
    */
@@ -689,6 +910,10 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     startConnectionLostTimer();
     onOpen((ServerHandshake) handshake);
     connectLatch.countDown();
+    WebSocketClientPool currentPool = pool;
+    if (currentPool != null) {
+      currentPool.onOpen(this);
+    }
   }
 
   /**
@@ -703,6 +928,10 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     onClose(code, reason, remote);
     connectLatch.countDown();
     closeLatch.countDown();
+    WebSocketClientPool currentPool = pool;
+    if (currentPool != null) {
+      currentPool.onClose(this, code, remote);
+    }
   }
 
   /**
@@ -715,7 +944,10 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 
   @Override
   public final void onWriteDemand(WebSocket conn) {
-    // nothing to do
+    // the write thread waits for the outQueue by itself
+    if (eventLoopGroup != null && conn == engine) {
+      eventLoopGroup.onWriteDemand(engine);
+    }
   }
 
   @Override
@@ -823,11 +1055,30 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     //To overwrite
   }
 
+  /**
+   * Callback for binary messages received from the remote host in several fragments. Overwrite it
+   * to read the fragments without copying them, e.g. with {@link CompositeByteBuffer#writeTo}.
+   * <p>
+   * By default the fragments are copied into one buffer, which is passed to {@link
+   * #onMessage(ByteBuffer)}.
+   *
+   * @param message The fragments of the binary message that was received.
+   * @since 1.6.1
+   **/
+  public void onMessage(CompositeByteBuffer message) {
+    onMessage(message.toByteBuffer());
+  }
+
 
   private class WebsocketWriteThread implements Runnable {
 
     private final WebSocketClient webSocketClient;
 
+    /**
+     * The buffer the queued frames are coalesced in, reused for every write
+     */
+    private byte[] coalescingBuffer;
+
     WebsocketWriteThread(WebSocketClient webSocketClient) {
       this.webSocketClient = webSocketClient;
     }
@@ -852,19 +1103,72 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     private void runWriteData() throws IOException {
       try {
         while (!Thread.interrupted()) {
-          ByteBuffer buffer = engine.outQueue.take();
-          ostream.write(buffer.array(), 0, buffer.limit());
-          ostream.flush();
+          writeQueued(engine.outQueue.take());
         }
       } catch (InterruptedException e) {
-        for (ByteBuffer buffer : engine.outQueue) {
-          ostream.write(buffer.array(), 0, buffer.limit());
-          ostream.flush();
+        // write everything queued before the interrupt, e.g. a close frame
+        ByteBuffer buffer;
+        while ((buffer = engine.outQueue.poll()) != null) {
+          writeQueued(buffer);
         }
         Thread.currentThread().interrupt();
       }
     }
 
+    /**
+     * Write the buffer and all buffers queued behind it, coalesced into as few writes as the
+     * coalescing limit allows, and flush the outstream once
+     *
+     * @param first the buffer taken from the outQueue
+     * @throws IOException if write or flush did not work
+     */
+    private void writeQueued(ByteBuffer first) throws IOException {
+      int limit = writeCoalescingLimit;
+      if (limit == 0) {
+        writeBuffer(first);
+        ostream.flush();
+        return;
+      }
+      if (coalescingBuffer == null || coalescingBuffer.length != limit) {
+        coalescingBuffer = new byte[limit];
+      }
+      int position = 0;
+      ByteBuffer buffer = first;
+      do {
+        int remaining = buffer.remaining();
+        if (position + remaining > limit && position > 0) {
+          ostream.write(coalescingBuffer, 0, position);
+          position = 0;
+        }
+        if (remaining > limit) {
+          writeBuffer(buffer);
+        } else {
+          buffer.get(coalescingBuffer, position, remaining);
+          position += remaining;
+        }
+        buffer = engine.outQueue.poll();
+      } while (buffer != null);
+      if (position > 0) {
+        ostream.write(coalescingBuffer, 0, position);
+      }
+      ostream.flush();
+    }
+
+    /**
+     * Write the remaining bytes of the buffer into the outstream
+     *
+     * @param buffer the buffer to write
+     * @throws IOException if write did not work
+     */
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+      if (buffer.hasArray()) {
+        ostream.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+            buffer.remaining());
+      } else {
+        ostream.write(ByteBufferUtils.getRemainingBytes(buffer));
+      }
+    }
+
     /**
      * Closing the socket
      */
@@ -942,6 +1246,11 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     return engine.isClosing();
   }
 
+  @Override
+  public boolean isWritable() {
+    return engine.isWritable();
+  }
+
   @Override
   public boolean hasBufferedData() {
     return engine.hasBufferedData();
@@ -967,6 +1276,11 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
     engine.send(bytes);
   }
 
+  @Override
+  public void sendShared(ByteBuffer bytes) {
+    engine.sendShared(bytes);
+  }
+
   @Override
   public void sendFrame(Framedata framedata) {
     engine.sendFrame(framedata);
@@ -994,7 +1308,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 
   @Override
   public boolean hasSSLSupport() {
-    return socket instanceof SSLSocket;
+    return socket instanceof SSLSocket || engine.hasSSLSupport();
   }
 
   @Override
@@ -1003,6 +1317,9 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
       throw new IllegalArgumentException(
           "This websocket uses ws instead of wss. No SSLSession available.");
     }
+    if (engine.hasSSLSupport()) {
+      return engine.getSSLSession();
+    }
     return ((SSLSocket)socket).getSession();
   }
 
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import org.java_websocket.HeartbeatWheel;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of {@link WebSocketClient}s, e.g. to the same upstream, which share their resources.
+ * <p>
+ * The clients added to a pool share
+ * <ul>
+ *   <li>the event loops of a {@link ClientEventLoopGroup} instead of two threads per client</li>
+ *   <li>a {@link CachingDnsResolver}, so the upstream is looked up once per cache period</li>
+ *   <li>the SSLContext of the event loop group, whose session cache lets the clients resume the
+ *   TLS sessions of each other</li>
+ *   <li>a single {@link HeartbeatWheel} for the lost connection checks and idle timeouts</li>
+ *   <li>a single scheduler for the reconnects</li>
+ * </ul>
+ * <p>
+ * A client which loses its connection is reconnected with {@link WebSocketClient#reconnect()}
+ * after an exponentially growing delay with jitter, so that many clients losing the same upstream
+ * do not reconnect all at once. The delay starts again at the initial delay as soon as the client
+ * is open again. A client closed locally with {@link CloseFrame#NORMAL} or {@link
+ * CloseFrame#GOING_AWAY} is not reconnected.
+ *
+ * @since 1.6.1
+ */
+public class WebSocketClientPool {
+
+  /**
+   * The default delay before the first reconnect in milliseconds
+   */
+  private static final long DEFAULT_INITIAL_RECONNECT_DELAY = 1000;
+
+  /**
+   * The default maximum delay between two reconnects in milliseconds
+   */
+  private static final long DEFAULT_MAX_RECONNECT_DELAY = 60000;
+
+  /**
+   * The default time a resolved address is cached in seconds
+   */
+  private static final long DEFAULT_DNS_CACHE_TTL = 30;
+
+  /**
+   * Logger instance
+   */
+  private final Logger log = LoggerFactory.getLogger(WebSocketClientPool.class);
+
+  /**
+   * The event loops of the clients
+   */
+  private final ClientEventLoopGroup eventLoopGroup;
+
+  /**
+   * Whether the event loops were created by this pool and are shut down with it
+   */
+  private final boolean ownEventLoopGroup;
+
+  /**
+   * The scheduler for the reconnects
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * The wheel for the heartbeats of the clients
+   */
+  private final HeartbeatWheel heartbeatWheel;
+
+  /**
+   * The resolver shared by the clients
+   */
+  private final CachingDnsResolver dnsResolver;
+
+  /**
+   * The clients of this pool with their reconnect state
+   */
+  private final Map<WebSocketClient, ReconnectState> clients = new ConcurrentHashMap<>();
+
+  /**
+   * The delay before the first reconnect in nanoseconds
+   */
+  private volatile long initialReconnectDelay = TimeUnit.MILLISECONDS
+      .toNanos(DEFAULT_INITIAL_RECONNECT_DELAY);
+
+  /**
+   * The maximum delay between two reconnects in nanoseconds
+   */
+  private volatile long maxReconnectDelay = TimeUnit.MILLISECONDS
+      .toNanos(DEFAULT_MAX_RECONNECT_DELAY);
+
+  /**
+   * Whether this pool is closed
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * Create a pool with event loops of its own
+   *
+   * @param threadCount the number of event loops
+   * @throws IOException if the event loops could not be created
+   */
+  public WebSocketClientPool(int threadCount) throws IOException {
+    this(new ClientEventLoopGroup(threadCount, true), true);
+  }
+
+  /**
+   * Create a pool using the given event loops, which are not shut down by this pool
+   *
+   * @param eventLoopGroup the event loops for the clients
+   */
+  public WebSocketClientPool(ClientEventLoopGroup eventLoopGroup) {
+    this(eventLoopGroup, false);
+  }
+
+  private WebSocketClientPool(ClientEventLoopGroup eventLoopGroup, boolean ownEventLoopGroup) {
+    if (eventLoopGroup == null) {
+      throw new IllegalArgumentException("eventLoopGroup must not be null");
+    }
+    this.eventLoopGroup = eventLoopGroup;
+    this.ownEventLoopGroup = ownEventLoopGroup;
+    this.scheduler = Executors
+        .newSingleThreadScheduledExecutor(new NamedThreadFactory("WebSocketClientPool", true));
+    this.heartbeatWheel = new HeartbeatWheel(true);
+    this.dnsResolver = new CachingDnsResolver(DEFAULT_DNS_CACHE_TTL, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Set the context for the TLS connections of the clients. Its session cache is shared by all
+   * clients of this pool.
+   *
+   * @param sslContext the context, null for the default context
+   */
+  public void setSSLContext(SSLContext sslContext) {
+    eventLoopGroup.setSSLContext(sslContext);
+  }
+
+  /**
+   * Set the delays between the reconnects of a client which lost its connection. The delay doubles
+   * with every failed attempt up to the maximum delay. The actual delay is chosen randomly between
+   * the half and the full delay.
+   *
+   * @param initialDelay the delay before the first reconnect
+   * @param maxDelay     the maximum delay between two reconnects
+   * @param unit         the unit of the delays
+   * @throws IllegalArgumentException if the initial delay is not positive or greater than the
+   *                                  maximum delay
+   */
+  public void setReconnectDelay(long initialDelay, long maxDelay, TimeUnit unit) {
+    if (initialDelay <= 0 || maxDelay < initialDelay) {
+      throw new IllegalArgumentException("0 < initialDelay <= maxDelay required");
+    }
+    this.initialReconnectDelay = unit.toNanos(initialDelay);
+    this.maxReconnectDelay = unit.toNanos(maxDelay);
+  }
+
+  /**
+   * Returns the resolver shared by the clients.
+   *
+   * @return the caching resolver
+   */
+  public CachingDnsResolver getDnsResolver() {
+    return dnsResolver;
+  }
+
+  /**
+   * Returns the event loops of the clients.
+   *
+   * @return the event loop group
+   */
+  public ClientEventLoopGroup getEventLoopGroup() {
+    return eventLoopGroup;
+  }
+
+  /**
+   * Returns the clients of this pool.
+   *
+   * @return an unmodifiable copy of the clients
+   */
+  public Collection<WebSocketClient> getClients() {
+    return Collections.unmodifiableCollection(new ArrayList<>(clients.keySet()));
+  }
+
+  /**
+   * Add a client to this pool. This method must be called before the client is connected.
+   *
+   * @param client the client to add
+   * @throws IllegalStateException if the pool is closed or the client is already connected
+   */
+  public void add(WebSocketClient client) {
+    if (closed) {
+      throw new IllegalStateException("The pool is closed");
+    }
+    client.setEventLoopGroup(eventLoopGroup);
+    client.setDnsResolver(dnsResolver);
+    client.setHeartbeatWheel(heartbeatWheel);
+    clients.put(client, new ReconnectState());
+    client.setPool(this);
+  }
+
+  /**
+   * Remove a client from this pool. The client keeps its connection, but is no longer
+   * reconnected.
+   *
+   * @param client the client to remove
+   * @return true, if the client was part of this pool
+   */
+  public boolean remove(WebSocketClient client) {
+    ReconnectState state = clients.remove(client);
+    if (state == null) {
+      return false;
+    }
+    state.cancel();
+    client.setPool(null);
+    client.setHeartbeatWheel(null);
+    return true;
+  }
+
+  /**
+   * Close the connections of all clients and stop the reconnects. The event loops are shut down,
+   * if they were created by this pool.
+   *
+   * @throws InterruptedException if interrupted while waiting for the event loops to stop
+   */
+  public void close() throws InterruptedException {
+    closed = true;
+    for (Map.Entry<WebSocketClient, ReconnectState> entry : clients.entrySet()) {
+      entry.getValue().cancel();
+      entry.getKey().setPool(null);
+      entry.getKey().close();
+    }
+    clients.clear();
+    scheduler.shutdownNow();
+    heartbeatWheel.stop();
+    if (ownEventLoopGroup) {
+      eventLoopGroup.shutdown();
+    }
+  }
+
+  /**
+   * Called as soon as a client of this pool is open
+   *
+   * @param client the client
+   */
+  void onOpen(WebSocketClient client) {
+    ReconnectState state = clients.get(client);
+    if (state != null) {
+      state.attempts = 0;
+    }
+  }
+
+  /**
+   * Called as soon as the connection of a client of this pool is closed, to schedule its
+   * reconnect
+   *
+   * @param client the client
+   * @param code   the close code
+   * @param remote whether the remote endpoint closed the connection
+   */
+  void onClose(final WebSocketClient client, int code, boolean remote) {
+    final ReconnectState state = clients.get(client);
+    if (closed || state == null || (!remote && (code == CloseFrame.NORMAL
+        || code == CloseFrame.GOING_AWAY))) {
+      return;
+    }
+    long delay = nextReconnectDelay(state.attempts++);
+    log.trace("Reconnecting {} in {} ms", client.getURI(), TimeUnit.NANOSECONDS.toMillis(delay));
+    synchronized (state) {
+      state.future = scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (closed || clients.get(client) != state) {
+            return;
+          }
+          try {
+            client.reconnect();
+          } catch (RuntimeException e) {
+            log.error("Reconnect of {} failed", client.getURI(), e);
+          }
+        }
+      }, delay, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Returns the delay before the next reconnect
+   *
+   * @param attempt the number of reconnects since the client was open the last time
+   * @return the delay in nanoseconds, between the half and the full exponential delay
+   */
+  private long nextReconnectDelay(int attempt) {
+    long initial = initialReconnectDelay;
+    long max = maxReconnectDelay;
+    long delay = attempt >= 62 || initial << attempt >>> attempt != initial ? max
+        : Math.min(max, initial << attempt);
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  /**
+   * The reconnect state of a single client
+   */
+  private static class ReconnectState {
+
+    /**
+     * The number of reconnects since the client was open the last time
+     */
+    private volatile int attempts = 0;
+
+    /**
+     * The scheduled reconnect, if any
+     */
+    private ScheduledFuture<?> future;
+
+    synchronized void cancel() {
+      if (future != null) {
+        future.cancel(false);
+        future = null;
+      }
+    }
+  }
+}
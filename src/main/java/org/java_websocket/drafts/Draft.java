@@ -67,24 +67,29 @@ public abstract class Draft {
 
   protected Opcode continuousFrameType = null;
 
-  public static ByteBuffer readLine(ByteBuffer buf) {
-    ByteBuffer sbuf = ByteBuffer.allocate(buf.remaining());
-    byte prev;
-    byte cur = '0';
-    while (buf.hasRemaining()) {
-      prev = cur;
-      cur = buf.get();
-      sbuf.put(cur);
-      if (prev == (byte) '\r' && cur == (byte) '\n') {
-        sbuf.limit(sbuf.position() - 2);
-        sbuf.position(0);
-        return sbuf;
+  /**
+   * Names of http fields, which are shared by all parsed handshakes instead of creating a string
+   * per handshake, if the received name matches exactly
+   */
+  private static final String[] WELL_KNOWN_FIELD_NAMES = {"Host", "Upgrade", "Connection",
+      "Origin", "User-Agent", "Cookie", "Pragma", "Cache-Control", "Accept-Encoding",
+      "Accept-Language", "Sec-WebSocket-Key", "Sec-WebSocket-Version", "Sec-WebSocket-Extensions",
+      "Sec-WebSocket-Protocol", "Sec-WebSocket-Accept", "Authorization", "Date", "Server",
+      "Content-Length"};
 
-      }
+  public static ByteBuffer readLine(ByteBuffer buf) {
+    int end = indexOfLineEnd(buf, buf.position());
+    if (end < 0) {
+      return null;
     }
-    // ensure that there wont be any bytes skipped
-    buf.position(buf.position() - sbuf.position());
-    return null;
+    ByteBuffer sbuf = ByteBuffer.allocate(end - buf.position());
+    int limit = buf.limit();
+    buf.limit(end);
+    sbuf.put(buf);
+    buf.limit(limit);
+    buf.position(end + 2);
+    sbuf.flip();
+    return sbuf;
   }
 
   public static String readStringLine(ByteBuffer buf) {
@@ -92,6 +97,33 @@ public abstract class Draft {
     return b == null ? null : Charsetfunctions.stringAscii(b.array(), 0, b.limit());
   }
 
+  /**
+   * Find the next CRLF in the buffer
+   *
+   * @param buf   the buffer
+   * @param start the index to start searching at
+   * @return the index of the CR, or -1 if there is no complete line
+   */
+  private static int indexOfLineEnd(ByteBuffer buf, int start) {
+    for (int i = start; i < buf.limit() - 1; i++) {
+      if (buf.get(i) == (byte) '\r' && buf.get(i + 1) == (byte) '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Translate the http header of a handshake in a single pass over its bytes, creating a string
+   * only for the request or status line and for the name, if it is not well known, and the value
+   * of every field.
+   *
+   * @param buf  the bytes of the handshake, the position is moved behind the header
+   * @param role the role of the receiving endpoint
+   * @return the translated handshake
+   * @throws InvalidHandshakeException   if the header is not valid
+   * @throws IncompleteHandshakeException if the header is not complete
+   */
   public static HandshakeBuilder translateHandshakeHttp(ByteBuffer buf, Role role)
       throws InvalidHandshakeException {
     HandshakeBuilder handshake;
@@ -110,27 +142,76 @@ public abstract class Draft {
     } else {
       handshake = translateHandshakeHttpServer(firstLineTokens, line);
     }
-    line = readStringLine(buf);
-    while (line != null && line.length() > 0) {
-      String[] pair = line.split(":", 2);
-      if (pair.length != 2) {
+    int start = buf.position();
+    int end = indexOfLineEnd(buf, start);
+    while (end > start) {
+      int colon = start;
+      while (colon < end && buf.get(colon) != (byte) ':') {
+        colon++;
+      }
+      if (colon == end) {
         throw new InvalidHandshakeException("not an http header");
       }
+      String name = fieldName(buf, start, colon);
+      int valueStart = colon + 1;
+      while (valueStart < end && buf.get(valueStart) == (byte) ' ') {
+        valueStart++;
+      }
+      String value = asciiString(buf, valueStart, end);
       // If the handshake contains already a specific key, append the new value
-      if (handshake.hasFieldValue(pair[0])) {
-        handshake.put(pair[0],
-            handshake.getFieldValue(pair[0]) + "; " + pair[1].replaceFirst("^ +", ""));
+      if (handshake.hasFieldValue(name)) {
+        handshake.put(name, handshake.getFieldValue(name) + "; " + value);
       } else {
-        handshake.put(pair[0], pair[1].replaceFirst("^ +", ""));
+        handshake.put(name, value);
       }
-      line = readStringLine(buf);
+      start = end + 2;
+      end = indexOfLineEnd(buf, start);
     }
-    if (line == null) {
+    if (end < 0) {
+      buf.position(start);
       throw new IncompleteHandshakeException();
     }
+    buf.position(end + 2);
     return handshake;
   }
 
+  /**
+   * Get the name of a field, a well known name if it matches exactly
+   *
+   * @param buf   the bytes of the handshake
+   * @param start the index of the name
+   * @param end   the index behind the name
+   * @return the name
+   */
+  private static String fieldName(ByteBuffer buf, int start, int end) {
+    for (String known : WELL_KNOWN_FIELD_NAMES) {
+      if (known.length() == end - start && matches(buf, start, known)) {
+        return known;
+      }
+    }
+    return asciiString(buf, start, end);
+  }
+
+  private static boolean matches(ByteBuffer buf, int start, String ascii) {
+    for (int i = 0; i < ascii.length(); i++) {
+      if (buf.get(start + i) != (byte) ascii.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String asciiString(ByteBuffer buf, int start, int end) {
+    if (buf.hasArray()) {
+      return Charsetfunctions.stringAscii(buf.array(), buf.arrayOffset() + start, end - start);
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buf.get(start + i);
+    }
+    return Charsetfunctions.stringAscii(bytes);
+  }
+
   /**
    * Checking the handshake for the role as server
    *
@@ -192,10 +273,53 @@ public abstract class Draft {
 
   public abstract ByteBuffer createBinaryFrame(Framedata framedata);
 
+  /**
+   * Translate the frame into buffers, which have to be written in the given order.
+   * <p>
+   * In contrast to {@link #createBinaryFrame(Framedata)} the buffers may share the content of the
+   * payload, so the payload must not be modified until the buffers are written. This default
+   * implementation adds the single buffer created by {@link #createBinaryFrame(Framedata)}.
+   *
+   * @param framedata the frame to translate
+   * @param buffers   the list to add the buffers to
+   * @since 1.6.1
+   */
+  public void createBinaryFrame(Framedata framedata, List<ByteBuffer> buffers) {
+    buffers.add(createBinaryFrame(framedata));
+  }
+
+  /**
+   * Returns whether the frames translated by this draft do not depend on the state of the
+   * connection, so the same wire bytes may be sent to every connection with an equal draft.
+   * <p>
+   * This default implementation returns false.
+   *
+   * @return true, if the translated frames can be shared between connections
+   * @since 1.6.1
+   */
+  public boolean isFrameEncodingShareable() {
+    return false;
+  }
+
   public abstract List<Framedata> createFrames(ByteBuffer binary, boolean mask);
 
   public abstract List<Framedata> createFrames(String text, boolean mask);
 
+  /**
+   * Create the frames for a text message, without converting the text into a String first if the
+   * draft supports it.
+   * <p>
+   * This default implementation calls {@link #createFrames(String, boolean)}.
+   *
+   * @param text the text of the message
+   * @param mask true, if the frames should be masked
+   * @return the frames of the message
+   * @since 1.6.1
+   */
+  public List<Framedata> createFrames(CharSequence text, boolean mask) {
+    return createFrames(text.toString(), mask);
+  }
+
 
   /**
    * Handle the frame specific to the draft
@@ -315,6 +439,23 @@ public abstract class Draft {
    */
   public abstract Draft copyInstance();
 
+  /**
+   * Create a copy of this draft in its state after the handshake, i.e. with the role and the
+   * negotiated parameters of this draft. The copy translates frames to the same wire bytes as this
+   * draft, without sharing a state with it, so it may translate {@link #isFrameEncodingShareable()
+   * shareable} frames while the connection of this draft uses it.
+   * <p>
+   * This default implementation returns {@link #copyInstance()} with the role of this draft.
+   *
+   * @return a copy of the negotiated draft
+   * @since 1.6.1
+   */
+  public Draft copyNegotiatedInstance() {
+    Draft copy = copyInstance();
+    copy.role = role;
+    return copy;
+  }
+
   public Handshakedata translateHandshake(ByteBuffer buf) throws InvalidHandshakeException {
     return translateHandshakeHttp(buf, role);
   }
@@ -25,7 +25,6 @@
 
 package org.java_websocket.drafts;
 
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -34,7 +33,6 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -65,7 +63,10 @@ import org.java_websocket.handshake.ServerHandshakeBuilder;
 import org.java_websocket.protocols.IProtocol;
 import org.java_websocket.protocols.Protocol;
 import org.java_websocket.util.Base64;
+import org.java_websocket.util.ByteBufferUtils;
 import org.java_websocket.util.Charsetfunctions;
+import org.java_websocket.util.CompositeByteBuffer;
+import org.java_websocket.util.Utf8Decoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,6 +106,11 @@ public class Draft_6455 extends Draft {
    */
   private static final String CONNECTION = "Connection";
 
+  /**
+   * The size of the blocks the headers of the outgoing frames are sliced from
+   */
+  private static final int HEADER_BLOCK_SIZE = 1024;
+
   /**
    * Logger instance
    *
@@ -152,6 +158,26 @@ public class Draft_6455 extends Draft {
    */
   private final List<ByteBuffer> byteBufferList;
 
+  /**
+   * Attribute for the total size of the payloads in the bytebuffer list
+   */
+  private long byteBufferListSize;
+
+  /**
+   * Attribute for the decoder of the current fragmented text message
+   */
+  private final Utf8Decoder textDecoder = new Utf8Decoder();
+
+  /**
+   * Attribute, if the current continuous frame is streamed to the listener instead of collected
+   */
+  private boolean streamingMessage;
+
+  /**
+   * Attribute for the utf8 validation state of the current streamed text message
+   */
+  private int streamingUtf8State;
+
   /**
    * Attribute for the current incomplete frame
    */
@@ -162,6 +188,11 @@ public class Draft_6455 extends Draft {
    */
   private final SecureRandom reuseableRandom = new SecureRandom();
 
+  /**
+   * Attribute for the block the headers of the outgoing frames are sliced from
+   */
+  private ByteBuffer headerBlock;
+
   /**
    * Attribute for the maximum allowed size of a frame
    *
@@ -464,23 +495,113 @@ public class Draft_6455 extends Draft {
     return new Draft_6455(newExtensions, newProtocols, maxFrameSize);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The copy uses a copy of the negotiated extension and protocol.
+   */
+  @Override
+  public Draft copyNegotiatedInstance() {
+    Draft_6455 copy = (Draft_6455) super.copyNegotiatedInstance();
+    copy.negotiatedExtension = negotiatedExtension.copyInstance();
+    copy.protocol = protocol != null ? protocol.copyInstance() : null;
+    return copy;
+  }
+
   @Override
   public ByteBuffer createBinaryFrame(Framedata framedata) {
+    encodeFrame(framedata);
+    return createByteBufferFromFramedata(framedata);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Unmasked frames are translated into a header, sliced from a block shared by all headers of this
+   * draft, and a view of the payload. Masked frames are translated into a single buffer.
+   */
+  @Override
+  public void createBinaryFrame(Framedata framedata, List<ByteBuffer> buffers) {
+    encodeFrame(framedata);
+    if (role == Role.CLIENT) {
+      buffers.add(createByteBufferFromFramedata(framedata));
+      return;
+    }
+    ByteBuffer mes = framedata.getPayloadData();
+    ByteBuffer header = sliceHeader(getHeaderSize(mes, false));
+    putHeader(header, framedata, mes, false);
+    header.flip();
+    buffers.add(header);
+    if (mes.hasRemaining()) {
+      buffers.add(mes.duplicate());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Frames are shareable if they are not masked and the negotiated extension encodes every message
+   * on its own, see {@link DefaultExtension#isEncodingShareable()}. E.g. a compression extension
+   * may keep a context per connection.
+   */
+  @Override
+  public boolean isFrameEncodingShareable() {
+    IExtension extension = getExtension();
+    return role == Role.SERVER && extension instanceof DefaultExtension
+        && ((DefaultExtension) extension).isEncodingShareable();
+  }
+
+  /**
+   * Encode the frame with the negotiated extension
+   *
+   * @param framedata the frame to encode
+   */
+  private void encodeFrame(Framedata framedata) {
     getExtension().encodeFrame(framedata);
     if (log.isTraceEnabled()) {
       log.trace("afterEnconding({}): {}", framedata.getPayloadData().remaining(),
           (framedata.getPayloadData().remaining() > 1000 ? "too big to display"
-              : new String(framedata.getPayloadData().array())));
+              : new String(ByteBufferUtils.getRemainingBytes(framedata.getPayloadData()))));
     }
-    return createByteBufferFromFramedata(framedata);
   }
 
   private ByteBuffer createByteBufferFromFramedata(Framedata framedata) {
     ByteBuffer mes = framedata.getPayloadData();
     boolean mask = role == Role.CLIENT;
+    ByteBuffer buf = ByteBuffer.allocate(getHeaderSize(mes, mask) + mes.remaining());
+    int maskkey = putHeader(buf, framedata, mes, mask);
+    int payloadstart = buf.position();
+    buf.put(mes.duplicate());
+    if (mask) {
+      applyMask(buf, payloadstart, buf.position(), maskkey);
+    }
+    assert (buf.remaining() == 0) : buf.remaining();
+    buf.flip();
+    return buf;
+  }
+
+  /**
+   * Get the size of the header of a frame
+   *
+   * @param mes  the payload of the frame
+   * @param mask true, if the frame is masked
+   * @return the size of the header in bytes
+   */
+  private int getHeaderSize(ByteBuffer mes, boolean mask) {
     int sizebytes = getSizeBytes(mes);
-    ByteBuffer buf = ByteBuffer.allocate(
-        1 + (sizebytes > 1 ? sizebytes + 1 : sizebytes) + (mask ? 4 : 0) + mes.remaining());
+    return 1 + (sizebytes > 1 ? sizebytes + 1 : sizebytes) + (mask ? 4 : 0);
+  }
+
+  /**
+   * Put the header of a frame into the buffer
+   *
+   * @param buf       the buffer to put the header into
+   * @param framedata the frame
+   * @param mes       the payload of the frame
+   * @param mask      true, if the frame is masked
+   * @return the masking key, if the frame is masked
+   */
+  private int putHeader(ByteBuffer buf, Framedata framedata, ByteBuffer mes, boolean mask) {
     byte optcode = fromOpcode(framedata.getOpcode());
     byte one = (byte) (framedata.isFin() ? -128 : 0);
     one |= optcode;
@@ -494,39 +615,64 @@ public class Draft_6455 extends Draft {
       one |= getRSVByte(3);
     }
     buf.put(one);
-    byte[] payloadlengthbytes = toByteArray(mes.remaining(), sizebytes);
-    assert (payloadlengthbytes.length == sizebytes);
-
+    int sizebytes = getSizeBytes(mes);
     if (sizebytes == 1) {
-      buf.put((byte) (payloadlengthbytes[0] | getMaskByte(mask)));
+      buf.put((byte) (mes.remaining() | getMaskByte(mask)));
     } else if (sizebytes == 2) {
       buf.put((byte) ((byte) 126 | getMaskByte(mask)));
-      buf.put(payloadlengthbytes);
+      buf.putShort((short) mes.remaining());
     } else if (sizebytes == 8) {
       buf.put((byte) ((byte) 127 | getMaskByte(mask)));
-      buf.put(payloadlengthbytes);
+      buf.putLong(mes.remaining());
     } else {
       throw new IllegalStateException("Size representation not supported/specified");
     }
+    int maskkey = 0;
     if (mask) {
-      ByteBuffer maskkey = ByteBuffer.allocate(4);
-      maskkey.putInt(reuseableRandom.nextInt());
-      buf.put(maskkey.array());
-      for (int i = 0; mes.hasRemaining(); i++) {
-        buf.put((byte) (mes.get() ^ maskkey.get(i % 4)));
-      }
-    } else {
-      buf.put(mes);
-      //Reset the position of the bytebuffer e.g. for additional use
-      mes.flip();
+      maskkey = reuseableRandom.nextInt();
+      buf.putInt(maskkey);
     }
-    assert (buf.remaining() == 0) : buf.remaining();
-    buf.flip();
-    return buf;
+    return maskkey;
+  }
+
+  /**
+   * Slice the buffer for a header from the current header block
+   *
+   * @param size the size of the header
+   * @return the empty header buffer
+   */
+  private synchronized ByteBuffer sliceHeader(int size) {
+    if (headerBlock == null || headerBlock.remaining() < size) {
+      // the sliced headers may be still queued, so the block can not be reused
+      headerBlock = ByteBuffer.allocate(HEADER_BLOCK_SIZE);
+    }
+    ByteBuffer header = headerBlock.slice();
+    header.limit(size);
+    headerBlock.position(headerBlock.position() + size);
+    return header;
   }
 
   private Framedata translateSingleFrame(ByteBuffer buffer)
       throws IncompleteException, InvalidDataException {
+    return translateSingleFrame(buffer, true);
+  }
+
+  /**
+   * Translate a single frame from the buffer.
+   * <p>
+   * The payload of the frame is not copied but a slice of the buffer, which is unmasked in place.
+   * Such a payload is only valid as long as the buffer is not reused, so every payload outliving
+   * the processing of the frame has to be retained via {@link FramedataImpl1#retainPayload()}.
+   *
+   * @param buffer         the buffer to read from
+   * @param transientInput true, if the buffer is reused after the decoding (e.g. a read buffer),
+   *                       false if it is owned by the frame from now on
+   * @return the translated frame
+   * @throws IncompleteException  if the buffer does not contain the whole frame
+   * @throws InvalidDataException if the frame is not valid
+   */
+  private Framedata translateSingleFrame(ByteBuffer buffer, boolean transientInput)
+      throws IncompleteException, InvalidDataException {
     if (buffer == null) {
       throw new IllegalArgumentException();
     }
@@ -554,16 +700,25 @@ public class Draft_6455 extends Draft {
     realpacketsize += payloadlength;
     translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
 
-    ByteBuffer payload = ByteBuffer.allocate(checkAlloc(payloadlength));
+    int maskkey = 0;
     if (mask) {
-      byte[] maskskey = new byte[4];
-      buffer.get(maskskey);
-      for (int i = 0; i < payloadlength; i++) {
-        payload.put((byte) (buffer.get(/*payloadstart + i*/) ^ maskskey[i % 4]));
-      }
-    } else {
-      payload.put(buffer.array(), buffer.position(), payload.limit());
-      buffer.position(buffer.position() + payload.limit());
+      maskkey = ((buffer.get() & 0xFF) << 24) | ((buffer.get() & 0xFF) << 16)
+          | ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+    }
+    ByteBuffer payload = buffer.slice();
+    payload.limit(checkAlloc(payloadlength));
+    buffer.position(buffer.position() + payloadlength);
+    boolean payloadView = transientInput;
+    if (mask && payload.isReadOnly()) {
+      // the payload cannot be unmasked in place
+      ByteBuffer copy = ByteBuffer.allocate(payloadlength);
+      copy.put(payload);
+      copy.flip();
+      payload = copy;
+      payloadView = false;
+    }
+    if (mask) {
+      applyMask(payload, 0, payload.limit(), maskkey);
     }
 
     FramedataImpl1 frame = FramedataImpl1.get(optcode);
@@ -571,8 +726,11 @@ public class Draft_6455 extends Draft {
     frame.setRSV1(rsv1);
     frame.setRSV2(rsv2);
     frame.setRSV3(rsv3);
-    payload.flip();
-    frame.setPayload(payload);
+    if (payloadView) {
+      frame.setPayloadView(payload);
+    } else {
+      frame.setPayload(payload);
+    }
     if (frame.getOpcode() != Opcode.CONTINUOUS) {
       // Prioritize the negotiated extension
       if (frame.isRSV1() || frame.isRSV2() || frame.isRSV3()) {
@@ -590,12 +748,38 @@ public class Draft_6455 extends Draft {
     if (log.isTraceEnabled()) {
       log.trace("afterDecoding({}): {}", frame.getPayloadData().remaining(),
           (frame.getPayloadData().remaining() > 1000 ? "too big to display"
-              : new String(frame.getPayloadData().array())));
+              : new String(ByteBufferUtils.getRemainingBytes(frame.getPayloadData()))));
+    }
+    // text is validated by processFrame while it is decoded
+    if (frame.getOpcode() != Opcode.TEXT) {
+      frame.isValid();
     }
-    frame.isValid();
     return frame;
   }
 
+  /**
+   * Mask or unmask the payload in place, eight bytes at a time
+   *
+   * @param payload the buffer containing the payload, in big-endian byte order
+   * @param start   the index of the first byte of the payload
+   * @param end     the index after the last byte of the payload
+   * @param maskkey the masking key
+   */
+  private static void applyMask(ByteBuffer payload, int start, int end, int maskkey) {
+    long longmask = ((long) maskkey << 32) | (maskkey & 0xFFFFFFFFL);
+    int i = start;
+    for (; i + 8 <= end; i += 8) {
+      payload.putLong(i, payload.getLong(i) ^ longmask);
+    }
+    if (i + 4 <= end) {
+      payload.putInt(i, payload.getInt(i) ^ maskkey);
+      i += 4;
+    }
+    for (int shift = 24; i < end; i++, shift -= 8) {
+      payload.put(i, (byte) (payload.get(i) ^ (maskkey >> shift)));
+    }
+  }
+
   /**
    * Translate the buffer depending when it has an extended payload length (126 or 127)
    *
@@ -621,18 +805,14 @@ public class Draft_6455 extends Draft {
     if (payloadlength == 126) {
       realpacketsize += 2; // additional length bytes
       translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
-      byte[] sizebytes = new byte[3];
-      sizebytes[1] = buffer.get(/*1 + 1*/);
-      sizebytes[2] = buffer.get(/*1 + 2*/);
-      payloadlength = new BigInteger(sizebytes).intValue();
+      payloadlength = ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
     } else {
       realpacketsize += 8; // additional length bytes
       translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
-      byte[] bytes = new byte[8];
+      long length = 0;
       for (int i = 0; i < 8; i++) {
-        bytes[i] = buffer.get(/*1 + i*/);
+        length = (length << 8) | (buffer.get() & 0xFF);
       }
-      long length = new BigInteger(bytes).longValue();
       translateSingleFrameCheckLengthLimit(length);
       payloadlength = (int) length;
     }
@@ -723,7 +903,7 @@ public class Draft_6455 extends Draft {
   @Override
   public List<Framedata> translateFrame(ByteBuffer buffer) throws InvalidDataException {
     while (true) {
-      List<Framedata> frames = new LinkedList<>();
+      List<Framedata> frames = Collections.emptyList();
       Framedata cur;
       if (incompleteframe != null) {
         // complete an incomplete frame
@@ -735,14 +915,12 @@ public class Draft_6455 extends Draft {
 
           if (expectedNextByteCount > availableNextByteCount) {
             // did not receive enough bytes to complete the frame
-            incompleteframe.put(buffer.array(), buffer.position(), availableNextByteCount);
-            buffer.position(buffer.position() + availableNextByteCount);
+            ByteBufferUtils.transferByteBuffer(buffer, incompleteframe, availableNextByteCount);
             return Collections.emptyList();
           }
-          incompleteframe.put(buffer.array(), buffer.position(), expectedNextByteCount);
-          buffer.position(buffer.position() + expectedNextByteCount);
-          cur = translateSingleFrame((ByteBuffer) incompleteframe.duplicate().position(0));
-          frames.add(cur);
+          ByteBufferUtils.transferByteBuffer(buffer, incompleteframe, expectedNextByteCount);
+          cur = translateSingleFrame((ByteBuffer) incompleteframe.duplicate().position(0), false);
+          frames = addFrame(frames, cur);
           incompleteframe = null;
         } catch (IncompleteException e) {
           // extending as much as suggested
@@ -760,7 +938,7 @@ public class Draft_6455 extends Draft {
         buffer.mark();
         try {
           cur = translateSingleFrame(buffer);
-          frames.add(cur);
+          frames = addFrame(frames, cur);
         } catch (IncompleteException e) {
           // remember the incomplete data
           buffer.reset();
@@ -774,6 +952,27 @@ public class Draft_6455 extends Draft {
     }
   }
 
+  /**
+   * Add a frame to the translated frames, without allocating a list for a single frame
+   *
+   * @param frames the frames translated so far
+   * @param frame  the frame to add
+   * @return the list containing all frames
+   */
+  private static List<Framedata> addFrame(List<Framedata> frames, Framedata frame) {
+    if (frames.isEmpty()) {
+      return Collections.singletonList(frame);
+    }
+    if (frames.size() == 1) {
+      List<Framedata> list = new ArrayList<>();
+      list.add(frames.get(0));
+      list.add(frame);
+      return list;
+    }
+    frames.add(frame);
+    return frames;
+  }
+
   @Override
   public List<Framedata> createFrames(ByteBuffer binary, boolean mask) {
     BinaryFrame curframe = new BinaryFrame();
@@ -789,20 +988,24 @@ public class Draft_6455 extends Draft {
 
   @Override
   public List<Framedata> createFrames(String text, boolean mask) {
+    return createFrames((CharSequence) text, mask);
+  }
+
+  @Override
+  public List<Framedata> createFrames(CharSequence text, boolean mask) {
     TextFrame curframe = new TextFrame();
+    // unpaired surrogates are replaced while encoding, so the payload is not scanned for valid utf8
     curframe.setPayload(ByteBuffer.wrap(Charsetfunctions.utf8Bytes(text)));
     curframe.setTransferemasked(mask);
-    try {
-      curframe.isValid();
-    } catch (InvalidDataException e) {
-      throw new NotSendableException(e);
-    }
     return Collections.singletonList((Framedata) curframe);
   }
 
   @Override
   public void reset() {
     incompleteframe = null;
+    currentContinuousFrame = null;
+    streamingMessage = false;
+    clearBufferList();
     if (negotiatedExtension != null) {
       negotiatedExtension.reset();
     }
@@ -841,15 +1044,6 @@ public class Draft_6455 extends Draft {
     return Base64.encodeBytes(sh1.digest(acc.getBytes()));
   }
 
-  private byte[] toByteArray(long val, int bytecount) {
-    byte[] buffer = new byte[bytecount];
-    int highest = 8 * bytecount - 8;
-    for (int i = 0; i < bytecount; i++) {
-      buffer[i] = (byte) (val >>> (highest - 8 * i));
-    }
-    return buffer;
-  }
-
 
   private byte fromOpcode(Opcode opcode) {
     if (opcode == Opcode.CONTINUOUS) {
@@ -896,9 +1090,11 @@ public class Draft_6455 extends Draft {
     if (curop == Opcode.CLOSING) {
       processFrameClosing(webSocketImpl, frame);
     } else if (curop == Opcode.PING) {
+      retainPayload(frame);
       webSocketImpl.getWebSocketListener().onWebsocketPing(webSocketImpl, frame);
     } else if (curop == Opcode.PONG) {
       webSocketImpl.updateLastPong();
+      retainPayload(frame);
       webSocketImpl.getWebSocketListener().onWebsocketPong(webSocketImpl, frame);
     } else if (!frame.isFin() || curop == Opcode.CONTINUOUS) {
       processFrameContinuousAndNonFin(webSocketImpl, frame, curop);
@@ -928,22 +1124,68 @@ public class Draft_6455 extends Draft {
   private void processFrameContinuousAndNonFin(WebSocketImpl webSocketImpl, Framedata frame,
       Opcode curop) throws InvalidDataException {
     if (curop != Opcode.CONTINUOUS) {
-      processFrameIsNotFin(frame);
+      processFrameIsNotFin(webSocketImpl, frame);
     } else if (frame.isFin()) {
       processFrameIsFin(webSocketImpl, frame);
     } else if (currentContinuousFrame == null) {
       log.error("Protocol error: Continuous frame sequence was not started.");
       throw new InvalidDataException(CloseFrame.PROTOCOL_ERROR,
           "Continuous frame sequence was not started.");
+    } else if (streamingMessage) {
+      processFrameFragment(webSocketImpl, frame);
+    } else {
+      addFragment(frame);
     }
-    //Check if the whole payload is valid utf8, when the opcode indicates a text
-    if (curop == Opcode.TEXT && !Charsetfunctions.isValidUTF8(frame.getPayloadData())) {
-      log.error("Protocol error: Payload is not UTF8");
-      throw new InvalidDataException(CloseFrame.NO_UTF8);
+  }
+
+  /**
+   * Add a fragment to the current continuous frame. Text is decoded right away, so its fragments
+   * are neither kept nor scanned again.
+   *
+   * @param frame the frame
+   * @throws InvalidDataException if the size limit is exceeded or the text is not valid utf8
+   */
+  private void addFragment(Framedata frame) throws InvalidDataException {
+    if (currentContinuousFrame.getOpcode() == Opcode.TEXT) {
+      ByteBuffer payload = frame.getPayloadData();
+      synchronized (byteBufferList) {
+        byteBufferListSize += payload.remaining();
+      }
+      checkBufferLimit();
+      if (!textDecoder.decode(payload)) {
+        log.error("Protocol error: Payload is not UTF8");
+        throw new InvalidDataException(CloseFrame.NO_UTF8);
+      }
+    } else {
+      // the fragments are passed on as they are, so they have to outlive the read buffer
+      addToBufferList(retainPayload(frame));
+      checkBufferLimit();
+    }
+  }
+
+  /**
+   * Pass a fragment of the current streamed message to the listener
+   *
+   * @param webSocketImpl the websocket impl
+   * @param frame         the frame
+   * @throws InvalidDataException if a text message is not valid utf8
+   */
+  private void processFrameFragment(WebSocketImpl webSocketImpl, Framedata frame)
+      throws InvalidDataException {
+    if (currentContinuousFrame.getOpcode() == Opcode.TEXT) {
+      streamingUtf8State = Charsetfunctions
+          .validateUTF8(frame.getPayloadData(), streamingUtf8State);
+      if (streamingUtf8State == Charsetfunctions.UTF8_REJECT || (frame.isFin()
+          && streamingUtf8State != Charsetfunctions.UTF8_ACCEPT)) {
+        log.error("Protocol error: Payload is not UTF8");
+        throw new InvalidDataException(CloseFrame.NO_UTF8);
+      }
     }
-    //Checking if the current continuous frame contains a correct payload with the other frames combined
-    if (curop == Opcode.CONTINUOUS && currentContinuousFrame != null) {
-      addToBufferList(frame.getPayloadData());
+    try {
+      webSocketImpl.getWebSocketListener()
+          .onWebsocketMessageFragment(webSocketImpl, retainPayload(frame));
+    } catch (RuntimeException e) {
+      logRuntimeException(webSocketImpl, e);
     }
   }
 
@@ -956,12 +1198,25 @@ public class Draft_6455 extends Draft {
   private void processFrameBinary(WebSocketImpl webSocketImpl, Framedata frame) {
     try {
       webSocketImpl.getWebSocketListener()
-          .onWebsocketMessage(webSocketImpl, frame.getPayloadData());
+          .onWebsocketMessage(webSocketImpl, retainPayload(frame));
     } catch (RuntimeException e) {
       logRuntimeException(webSocketImpl, e);
     }
   }
 
+  /**
+   * Retain the payload of a frame, which is passed to the listener or kept after the processing
+   *
+   * @param frame the frame
+   * @return the payload, which is not a view of the read buffer anymore
+   */
+  private ByteBuffer retainPayload(Framedata frame) {
+    if (frame instanceof FramedataImpl1) {
+      ((FramedataImpl1) frame).retainPayload();
+    }
+    return frame.getPayloadData();
+  }
+
   /**
    * Log the runtime exception to the specific WebSocketImpl
    *
@@ -1003,23 +1258,37 @@ public class Draft_6455 extends Draft {
       throw new InvalidDataException(CloseFrame.PROTOCOL_ERROR,
           "Continuous frame sequence was not started.");
     }
-    addToBufferList(frame.getPayloadData());
-    checkBufferLimit();
+    if (streamingMessage) {
+      processFrameFragment(webSocketImpl, frame);
+      currentContinuousFrame = null;
+      streamingMessage = false;
+      try {
+        webSocketImpl.getWebSocketListener().onWebsocketMessageEnd(webSocketImpl);
+      } catch (RuntimeException e) {
+        logRuntimeException(webSocketImpl, e);
+      }
+      return;
+    }
+    addFragment(frame);
     if (currentContinuousFrame.getOpcode() == Opcode.TEXT) {
-      ((FramedataImpl1) currentContinuousFrame).setPayload(getPayloadFromByteBufferList());
-      ((FramedataImpl1) currentContinuousFrame).isValid();
+      if (!textDecoder.isComplete()) {
+        log.error("Protocol error: Payload is not UTF8");
+        throw new InvalidDataException(CloseFrame.NO_UTF8);
+      }
+      String message = textDecoder.getString();
       try {
-        webSocketImpl.getWebSocketListener().onWebsocketMessage(webSocketImpl,
-            Charsetfunctions.stringUtf8(currentContinuousFrame.getPayloadData()));
+        webSocketImpl.getWebSocketListener().onWebsocketMessage(webSocketImpl, message);
       } catch (RuntimeException e) {
         logRuntimeException(webSocketImpl, e);
       }
     } else if (currentContinuousFrame.getOpcode() == Opcode.BINARY) {
-      ((FramedataImpl1) currentContinuousFrame).setPayload(getPayloadFromByteBufferList());
       ((FramedataImpl1) currentContinuousFrame).isValid();
+      CompositeByteBuffer payload;
+      synchronized (byteBufferList) {
+        payload = new CompositeByteBuffer(byteBufferList);
+      }
       try {
-        webSocketImpl.getWebSocketListener()
-            .onWebsocketMessage(webSocketImpl, currentContinuousFrame.getPayloadData());
+        webSocketImpl.getWebSocketListener().onWebsocketMessage(webSocketImpl, payload);
       } catch (RuntimeException e) {
         logRuntimeException(webSocketImpl, e);
       }
@@ -1031,18 +1300,31 @@ public class Draft_6455 extends Draft {
   /**
    * Process the frame if it is not the last frame
    *
-   * @param frame the frame
+   * @param webSocketImpl the websocket impl
+   * @param frame         the frame
    * @throws InvalidDataException if there is a protocol error
    */
-  private void processFrameIsNotFin(Framedata frame) throws InvalidDataException {
+  private void processFrameIsNotFin(WebSocketImpl webSocketImpl, Framedata frame)
+      throws InvalidDataException {
     if (currentContinuousFrame != null) {
       log.trace("Protocol error: Previous continuous frame sequence not completed.");
       throw new InvalidDataException(CloseFrame.PROTOCOL_ERROR,
           "Previous continuous frame sequence not completed.");
     }
     currentContinuousFrame = frame;
-    addToBufferList(frame.getPayloadData());
-    checkBufferLimit();
+    try {
+      streamingMessage = webSocketImpl.getWebSocketListener()
+          .onWebsocketMessageStart(webSocketImpl, frame.getOpcode());
+    } catch (RuntimeException e) {
+      logRuntimeException(webSocketImpl, e);
+      streamingMessage = false;
+    }
+    if (streamingMessage) {
+      streamingUtf8State = Charsetfunctions.UTF8_ACCEPT;
+      processFrameFragment(webSocketImpl, frame);
+      return;
+    }
+    addFragment(frame);
   }
 
   /**
@@ -1078,6 +1360,8 @@ public class Draft_6455 extends Draft {
   private void clearBufferList() {
     synchronized (byteBufferList) {
       byteBufferList.clear();
+      byteBufferListSize = 0;
+      textDecoder.reset();
     }
   }
 
@@ -1089,6 +1373,7 @@ public class Draft_6455 extends Draft {
   private void addToBufferList(ByteBuffer payloadData) {
     synchronized (byteBufferList) {
       byteBufferList.add(payloadData);
+      byteBufferListSize += payloadData.remaining();
     }
   }
 
@@ -1153,43 +1438,15 @@ public class Draft_6455 extends Draft {
     return result;
   }
 
-  /**
-   * Method to generate a full bytebuffer out of all the fragmented frame payload
-   *
-   * @return a bytebuffer containing all the data
-   * @throws LimitExceededException will be thrown when the totalSize is bigger then
-   *                                Integer.MAX_VALUE due to not being able to allocate more
-   */
-  private ByteBuffer getPayloadFromByteBufferList() throws LimitExceededException {
-    long totalSize = 0;
-    ByteBuffer resultingByteBuffer;
-    synchronized (byteBufferList) {
-      for (ByteBuffer buffer : byteBufferList) {
-        totalSize += buffer.limit();
-      }
-      checkBufferLimit();
-      resultingByteBuffer = ByteBuffer.allocate((int) totalSize);
-      for (ByteBuffer buffer : byteBufferList) {
-        resultingByteBuffer.put(buffer);
-      }
-    }
-    resultingByteBuffer.flip();
-    return resultingByteBuffer;
-  }
-
   /**
    * Get the current size of the resulting bytebuffer in the bytebuffer list
    *
    * @return the size as long (to not get an integer overflow)
    */
   private long getByteBufferListSize() {
-    long totalSize = 0;
     synchronized (byteBufferList) {
-      for (ByteBuffer buffer : byteBufferList) {
-        totalSize += buffer.limit();
-      }
+      return byteBufferListSize;
     }
-    return totalSize;
   }
 
   private class TranslatedPayloadMetaData {
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.enums;
+
+/**
+ * Enum which represents what happens to a message which does not fit into the outbound byte
+ * budget of a websocket
+ *
+ * @since 1.6.1
+ */
+public enum BackpressurePolicy {
+  /**
+   * The sending thread waits until the queued bytes fit into the budget, e.g. a worker replying
+   * from onMessage. A thread which writes the connections, e.g. a selector thread, does not wait
+   * but queues the message anyway, since the budget may only be freed by such a thread.
+   */
+  BLOCK,
+  /**
+   * The oldest queued messages are dropped until the message fits into the budget
+   */
+  DROP_OLDEST,
+  /**
+   * The message is dropped
+   */
+  DROP_NEWEST,
+  /**
+   * The queued messages with the same conflation key are dropped, if the message still does not
+   * fit into the budget the oldest queued messages are dropped
+   */
+  CONFLATE,
+  /**
+   * The message is dropped and the connection is closed with {@link
+   * org.java_websocket.framing.CloseFrame#POLICY_VALIDATION}
+   */
+  CLOSE_POLICY_VALIDATION,
+  /**
+   * The message is dropped and the connection is closed with {@link
+   * org.java_websocket.framing.CloseFrame#TRY_AGAIN_LATER}
+   */
+  CLOSE_TRY_AGAIN_LATER
+}
@@ -86,6 +86,20 @@ public class DefaultExtension implements IExtension {
     //Nothing to do here. No internal stats.
   }
 
+  /**
+   * Returns whether this extension encodes every message independent of the previous messages
+   * and of the connection, so the encoded frames may be shared by all connections with an equal
+   * extension, e.g. for a broadcast.
+   * <p>
+   * This implementation returns true for this class only, as subclasses may keep a state.
+   *
+   * @return true, if the encoded frames can be shared between connections
+   * @since 1.6.1
+   */
+  public boolean isEncodingShareable() {
+    return getClass().equals(DefaultExtension.class);
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName();
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.extensions.permessage_deflate;
+
+import java.util.zip.Deflater;
+import org.java_websocket.enums.Opcode;
+
+/**
+ * The adaptive compression state of a single connection, see {@link AdaptiveCompressionPolicy}
+ *
+ * @since 1.6.1
+ */
+class AdaptiveCompression {
+
+  /**
+   * The weight of a new sample in the moving averages
+   */
+  private static final double SAMPLE_WEIGHT = 0.125;
+
+  /**
+   * The level of zlib used for {@link Deflater#DEFAULT_COMPRESSION}
+   */
+  private static final int ZLIB_DEFAULT_LEVEL = 6;
+
+  /**
+   * The number of samples at a level before the level is changed again
+   */
+  private static final int MIN_SAMPLES = 8;
+
+  private final AdaptiveCompressionPolicy policy;
+
+  /**
+   * The configured level, the upper bound of the adaptive level
+   */
+  private final int maxLevel;
+
+  /**
+   * The moving average of the ratio per message type, text and binary, NaN before the first
+   * sample
+   */
+  private final double[] ratio = {Double.NaN, Double.NaN};
+
+  /**
+   * The number of skipped messages since the last sample per message type
+   */
+  private final int[] skipped = new int[2];
+
+  /**
+   * The moving average of the nanoseconds per byte at the current level, NaN before the first
+   * sample
+   */
+  private double nanosPerByte = Double.NaN;
+
+  /**
+   * The number of samples at the current level
+   */
+  private int samples;
+
+  private int level;
+  private long compressedMessages;
+  private long skippedMessages;
+
+  AdaptiveCompression(AdaptiveCompressionPolicy policy, int level) {
+    this.policy = policy;
+    this.maxLevel = level == Deflater.DEFAULT_COMPRESSION ? ZLIB_DEFAULT_LEVEL : level;
+    this.level = maxLevel;
+  }
+
+  /**
+   * Decide whether to compress a message
+   *
+   * @param opcode the opcode of the first frame
+   * @return true, if the message should be compressed
+   */
+  boolean shouldCompress(Opcode opcode) {
+    int type = opcode == Opcode.BINARY ? 1 : 0;
+    if (ratio[type] > policy.getSkipRatio() && ++skipped[type] < policy.getProbeInterval()) {
+      skippedMessages++;
+      policy.onSkipped();
+      return false;
+    }
+    skipped[type] = 0;
+    return true;
+  }
+
+  /**
+   * Record a compressed message and adapt the level to its CPU cost
+   *
+   * @param opcode       the opcode of the first frame
+   * @param uncompressed the number of uncompressed bytes
+   * @param compressed   the number of compressed bytes
+   * @param nanos        the time spent compressing
+   */
+  void onCompressed(Opcode opcode, long uncompressed, long compressed, long nanos) {
+    compressedMessages++;
+    policy.onCompressed();
+    if (uncompressed == 0) {
+      return;
+    }
+    int type = opcode == Opcode.BINARY ? 1 : 0;
+    ratio[type] = average(ratio[type], (double) compressed / uncompressed);
+    nanosPerByte = average(nanosPerByte, (double) nanos / uncompressed);
+    if (++samples < MIN_SAMPLES) {
+      return;
+    }
+    double budget = policy.getMaxNanosPerByte();
+    if (nanosPerByte > budget && level > policy.getMinLevel()) {
+      setLevel(level - 1);
+      policy.onLevelDecreased();
+    } else if (nanosPerByte < budget / 2 && level < maxLevel) {
+      setLevel(level + 1);
+      policy.onLevelIncreased();
+    }
+  }
+
+  private void setLevel(int level) {
+    this.level = level;
+    nanosPerByte = Double.NaN;
+    samples = 0;
+  }
+
+  private static double average(double average, double sample) {
+    return Double.isNaN(average) ? sample : average + (sample - average) * SAMPLE_WEIGHT;
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  double getRatio(Opcode opcode) {
+    return ratio[opcode == Opcode.BINARY ? 1 : 0];
+  }
+
+  long getCompressedMessages() {
+    return compressedMessages;
+  }
+
+  long getSkippedMessages() {
+    return skippedMessages;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.extensions.permessage_deflate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * The configuration of the adaptive compression of {@link PerMessageDeflateExtension}, set with
+ * {@link PerMessageDeflateExtension#setAdaptiveCompressionPolicy(AdaptiveCompressionPolicy)}.
+ * <p>
+ * Every connection samples the achieved ratio and the CPU time per byte of its compressed
+ * messages, separately for text and binary messages. A message type whose ratio is above the skip
+ * ratio, e.g. binary messages which are already compressed, is sent uncompressed; every probe
+ * interval a single message is compressed to sample the ratio again. If compressing takes longer
+ * than the CPU budget per byte, the compression level of the connection is lowered step by step,
+ * and raised again up to the configured level once the cost drops below half of the budget.
+ * <p>
+ * A policy is shared by all connections using it and counts their decisions.
+ *
+ * @since 1.6.1
+ */
+public class AdaptiveCompressionPolicy {
+
+  /**
+   * The default ratio above which a message type is not compressed
+   */
+  public static final double DEFAULT_SKIP_RATIO = 0.9;
+
+  /**
+   * The default number of skipped messages after which a message is compressed again
+   */
+  public static final int DEFAULT_PROBE_INTERVAL = 64;
+
+  /**
+   * The default CPU budget in nanoseconds per uncompressed byte
+   */
+  public static final double DEFAULT_MAX_NANOS_PER_BYTE = 20;
+
+  private volatile double skipRatio = DEFAULT_SKIP_RATIO;
+  private volatile int probeInterval = DEFAULT_PROBE_INTERVAL;
+  private volatile double maxNanosPerByte = DEFAULT_MAX_NANOS_PER_BYTE;
+  private volatile int minLevel = Deflater.BEST_SPEED;
+
+  private final AtomicLong compressedMessages = new AtomicLong();
+  private final AtomicLong skippedMessages = new AtomicLong();
+  private final AtomicLong levelDecreases = new AtomicLong();
+  private final AtomicLong levelIncreases = new AtomicLong();
+
+  /**
+   * Getter for the ratio of compressed to uncompressed bytes above which a message type is sent
+   * uncompressed
+   *
+   * @return the skip ratio
+   */
+  public double getSkipRatio() {
+    return skipRatio;
+  }
+
+  /**
+   * Set the ratio of compressed to uncompressed bytes above which a message type is sent
+   * uncompressed.
+   *
+   * @param skipRatio the ratio, greater than 0
+   * @throws IllegalArgumentException if the ratio is not greater than 0
+   */
+  public void setSkipRatio(double skipRatio) {
+    if (!(skipRatio > 0)) {
+      throw new IllegalArgumentException("skipRatio must be greater than 0");
+    }
+    this.skipRatio = skipRatio;
+  }
+
+  /**
+   * Getter for the number of skipped messages of a type after which a message is compressed again
+   *
+   * @return the probe interval
+   */
+  public int getProbeInterval() {
+    return probeInterval;
+  }
+
+  /**
+   * Set the number of skipped messages of a type after which a message is compressed again to
+   * sample the ratio.
+   *
+   * @param probeInterval the number of messages, at least 1
+   * @throws IllegalArgumentException if the interval is lower than 1
+   */
+  public void setProbeInterval(int probeInterval) {
+    if (probeInterval < 1) {
+      throw new IllegalArgumentException("probeInterval must be at least 1");
+    }
+    this.probeInterval = probeInterval;
+  }
+
+  /**
+   * Getter for the CPU budget for compressing a byte, above which the compression level is lowered
+   *
+   * @return the budget in nanoseconds per uncompressed byte
+   */
+  public double getMaxNanosPerByte() {
+    return maxNanosPerByte;
+  }
+
+  /**
+   * Set the CPU budget for compressing a byte, above which the compression level is lowered.
+   *
+   * @param maxNanosPerByte the budget in nanoseconds per uncompressed byte, greater than 0
+   * @throws IllegalArgumentException if the budget is not greater than 0
+   */
+  public void setMaxNanosPerByte(double maxNanosPerByte) {
+    if (!(maxNanosPerByte > 0)) {
+      throw new IllegalArgumentException("maxNanosPerByte must be greater than 0");
+    }
+    this.maxNanosPerByte = maxNanosPerByte;
+  }
+
+  /**
+   * Getter for the lowest compression level used under CPU pressure
+   *
+   * @return the minimum compression level
+   */
+  public int getMinLevel() {
+    return minLevel;
+  }
+
+  /**
+   * Set the lowest compression level used under CPU pressure. Default is {@link
+   * Deflater#BEST_SPEED}.
+   *
+   * @param minLevel the level between {@link Deflater#NO_COMPRESSION} and {@link
+   *                 Deflater#BEST_COMPRESSION}
+   * @throws IllegalArgumentException if the level is out of range
+   */
+  public void setMinLevel(int minLevel) {
+    if (minLevel < Deflater.NO_COMPRESSION || minLevel > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("minLevel out of range");
+    }
+    this.minLevel = minLevel;
+  }
+
+  /**
+   * Returns the number of messages compressed by all connections using this policy.
+   *
+   * @return the number of compressed messages
+   */
+  public long getCompressedMessages() {
+    return compressedMessages.get();
+  }
+
+  /**
+   * Returns the number of messages above the threshold sent uncompressed by all connections using
+   * this policy, since compression did not pay off for their type.
+   *
+   * @return the number of skipped messages
+   */
+  public long getSkippedMessages() {
+    return skippedMessages.get();
+  }
+
+  /**
+   * Returns how often a connection lowered its compression level due to CPU pressure.
+   *
+   * @return the number of level decreases
+   */
+  public long getLevelDecreases() {
+    return levelDecreases.get();
+  }
+
+  /**
+   * Returns how often a connection raised its compression level again.
+   *
+   * @return the number of level increases
+   */
+  public long getLevelIncreases() {
+    return levelIncreases.get();
+  }
+
+  void onCompressed() {
+    compressedMessages.incrementAndGet();
+  }
+
+  void onSkipped() {
+    skippedMessages.incrementAndGet();
+  }
+
+  void onLevelDecreased() {
+    levelDecreases.incrementAndGet();
+  }
+
+  void onLevelIncreased() {
+    levelIncreases.incrementAndGet();
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.extensions.permessage_deflate;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A bounded pool of raw {@link Deflater}s and {@link Inflater}s and of the output buffers they
+ * write into.
+ * <p>
+ * Every zlib stream holds a few hundred kilobytes of native memory. A {@link
+ * PerMessageDeflateExtension} without context takeover in a direction starts every message with an
+ * empty window, so it borrows the stream from this pool for the duration of a single message
+ * instead of holding a stream per connection. At most {@code maxIdle} streams of each kind are kept
+ * idle, further returned streams are ended.
+ * <p>
+ * The output of every message is written into a buffer leased from this pool and copied once into
+ * a payload of the exact size.
+ *
+ * @since 1.6.1
+ */
+public class CompressorPool {
+
+  /**
+   * The default number of idle streams of each kind
+   */
+  public static final int DEFAULT_MAX_IDLE = 64;
+
+  /**
+   * The size of the pooled output buffers
+   */
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The pool used by default
+   */
+  private static final CompressorPool DEFAULT = new CompressorPool(DEFAULT_MAX_IDLE);
+
+  /**
+   * The maximum number of idle streams of each kind
+   */
+  private final int maxIdle;
+
+  /**
+   * The idle deflaters
+   */
+  private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The idle inflaters
+   */
+  private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The idle output buffers
+   */
+  private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The number of idle deflaters
+   */
+  private final AtomicInteger idleDeflaters = new AtomicInteger();
+
+  /**
+   * The number of idle inflaters
+   */
+  private final AtomicInteger idleInflaters = new AtomicInteger();
+
+  /**
+   * The number of idle output buffers
+   */
+  private final AtomicInteger idleBuffers = new AtomicInteger();
+
+  /**
+   * Create a pool
+   *
+   * @param maxIdle the maximum number of idle streams of each kind
+   * @throws IllegalArgumentException if maxIdle is negative
+   */
+  public CompressorPool(int maxIdle) {
+    if (maxIdle < 0) {
+      throw new IllegalArgumentException("maxIdle must not be negative");
+    }
+    this.maxIdle = maxIdle;
+  }
+
+  /**
+   * Returns the pool shared by all extensions by default.
+   *
+   * @return the default pool
+   */
+  public static CompressorPool getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Borrow a raw deflater
+   *
+   * @param level the compression level
+   * @return an idle deflater or a new one
+   */
+  Deflater acquireDeflater(int level) {
+    Deflater deflater = deflaters.poll();
+    if (deflater == null) {
+      return new Deflater(level, true);
+    }
+    idleDeflaters.decrementAndGet();
+    deflater.setLevel(level);
+    return deflater;
+  }
+
+  /**
+   * Return a deflater borrowed from this pool
+   *
+   * @param deflater the deflater
+   */
+  void releaseDeflater(Deflater deflater) {
+    if (idleDeflaters.incrementAndGet() > maxIdle) {
+      idleDeflaters.decrementAndGet();
+      deflater.end();
+      return;
+    }
+    deflater.reset();
+    deflaters.offer(deflater);
+  }
+
+  /**
+   * Borrow a raw inflater
+   *
+   * @return an idle inflater or a new one
+   */
+  Inflater acquireInflater() {
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) {
+      return new Inflater(true);
+    }
+    idleInflaters.decrementAndGet();
+    return inflater;
+  }
+
+  /**
+   * Return an inflater borrowed from this pool
+   *
+   * @param inflater the inflater
+   */
+  void releaseInflater(Inflater inflater) {
+    if (idleInflaters.incrementAndGet() > maxIdle) {
+      idleInflaters.decrementAndGet();
+      inflater.end();
+      return;
+    }
+    inflater.reset();
+    inflaters.offer(inflater);
+  }
+
+  /**
+   * Lease an output buffer. Buffers larger than {@link #BUFFER_SIZE} are not pooled.
+   *
+   * @param minCapacity the minimum size of the buffer
+   * @return a buffer of at least the requested size
+   */
+  byte[] acquireBuffer(int minCapacity) {
+    if (minCapacity > BUFFER_SIZE) {
+      return new byte[minCapacity];
+    }
+    byte[] buffer = buffers.poll();
+    if (buffer == null) {
+      return new byte[BUFFER_SIZE];
+    }
+    idleBuffers.decrementAndGet();
+    return buffer;
+  }
+
+  /**
+   * Give an output buffer back to this pool
+   *
+   * @param buffer the buffer leased by {@link #acquireBuffer(int)}
+   */
+  void releaseBuffer(byte[] buffer) {
+    if (buffer.length != BUFFER_SIZE) {
+      return;
+    }
+    if (idleBuffers.incrementAndGet() > maxIdle) {
+      idleBuffers.decrementAndGet();
+      return;
+    }
+    buffers.offer(buffer);
+  }
+
+  /**
+   * Returns the maximum number of idle streams of each kind.
+   *
+   * @return the maximum number of idle streams
+   */
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /**
+   * Returns the number of idle deflaters.
+   *
+   * @return the number of idle deflaters
+   */
+  public int getIdleDeflaters() {
+    return idleDeflaters.get();
+  }
+
+  /**
+   * Returns the number of idle inflaters.
+   *
+   * @return the number of idle inflaters
+   */
+  public int getIdleInflaters() {
+    return idleInflaters.get();
+  }
+
+  /**
+   * Returns the number of idle output buffers.
+   *
+   * @return the number of idle output buffers
+   */
+  public int getIdleBuffers() {
+    return idleBuffers.get();
+  }
+}
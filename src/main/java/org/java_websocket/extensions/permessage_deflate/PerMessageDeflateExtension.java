@@ -31,7 +31,6 @@ import static java.util.zip.Deflater.NO_FLUSH;
 import static java.util.zip.Deflater.SYNC_FLUSH;
 import static org.java_websocket.extensions.ExtensionRequestData.parseExtensionRequest;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Map;
@@ -39,6 +38,7 @@ import java.util.Optional;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
+import org.java_websocket.enums.Opcode;
 import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.exceptions.InvalidFrameException;
 import org.java_websocket.extensions.CompressionExtension;
@@ -79,12 +79,21 @@ public class PerMessageDeflateExtension extends CompressionExtension {
   // RFC 7692 empty uncompressed DEFLATE block to be used when out of uncompressed data
   public static final byte[] EMPTY_UNCOMPRESSED_DEFLATE_BLOCK = new byte[] {0x00};
 
-  private static final int TRANSFER_CHUNK_SIZE = 8192;
-
   private final int compressionLevel;
   private final int maxFragmentSize;
-  private final Deflater compressor;
-  private final Inflater decompressor;
+  // created on the first message, or borrowed from the pool per message without context takeover
+  private Deflater compressor;
+  private Inflater decompressor;
+  private CompressorPool compressorPool;
+  private AdaptiveCompressionPolicy adaptiveCompressionPolicy;
+  private AdaptiveCompression adaptiveCompression;
+  // the level the compressor of this connection was created with or set to
+  private int compressorLevel;
+  // the type and statistics of the message currently compressed, for the adaptive compression
+  private Opcode messageOpcode;
+  private long messageUncompressedBytes;
+  private long messageCompressedBytes;
+  private long messageCompressionNanos;
 
   private int compressionThreshold;
   private boolean clientNoContextTakeover;
@@ -117,8 +126,7 @@ public class PerMessageDeflateExtension extends CompressionExtension {
   public PerMessageDeflateExtension(int compressionLevel, int maxFragmentSize) {
     this.compressionLevel = compressionLevel;
     this.maxFragmentSize = maxFragmentSize;
-    compressor = new Deflater(compressionLevel, true);
-    decompressor = new Inflater(true);
+    compressorPool = CompressorPool.getDefault();
     compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
     clientNoContextTakeover = DEFAULT_CLIENT_NO_CONTEXT_TAKEOVER;
     serverNoContextTakeover = DEFAULT_SERVER_NO_CONTEXT_TAKEOVER;
@@ -148,6 +156,98 @@ public class PerMessageDeflateExtension extends CompressionExtension {
     this.compressionThreshold = threshold;
   }
 
+  /**
+   * Returns the pool the compressor and decompressor are borrowed from without context takeover.
+   *
+   * @return the pool
+   * @since 1.6.1
+   */
+  public CompressorPool getCompressorPool() {
+    return compressorPool;
+  }
+
+  /**
+   * Set the pool the compressor and decompressor are borrowed from for a single message, if the
+   * context takeover is disabled for the direction. Default is {@link
+   * CompressorPool#getDefault()}.
+   *
+   * @param compressorPool the pool
+   * @since 1.6.1
+   */
+  public void setCompressorPool(CompressorPool compressorPool) {
+    if (compressorPool == null) {
+      throw new IllegalArgumentException("compressorPool must not be null");
+    }
+    this.compressorPool = compressorPool;
+  }
+
+  /**
+   * Returns the policy adapting the compression to the payloads and the CPU cost.
+   *
+   * @return the policy or null, if the compression is not adaptive
+   * @since 1.6.1
+   */
+  public AdaptiveCompressionPolicy getAdaptiveCompressionPolicy() {
+    return adaptiveCompressionPolicy;
+  }
+
+  /**
+   * Set a policy to skip compressing message types which do not compress well and to lower the
+   * compression level under CPU pressure. Default is null, i.e. every message above the threshold
+   * is compressed at the configured level.
+   *
+   * @param adaptiveCompressionPolicy the policy, shared by all connections, or null
+   * @since 1.6.1
+   */
+  public void setAdaptiveCompressionPolicy(AdaptiveCompressionPolicy adaptiveCompressionPolicy) {
+    this.adaptiveCompressionPolicy = adaptiveCompressionPolicy;
+    this.adaptiveCompression = null;
+  }
+
+  /**
+   * Returns the level the next message is compressed with, which is lowered by the adaptive
+   * compression under CPU pressure.
+   *
+   * @return the current compression level
+   * @since 1.6.1
+   */
+  public int getCurrentCompressionLevel() {
+    return adaptiveCompression != null ? adaptiveCompression.getLevel() : compressionLevel;
+  }
+
+  /**
+   * Returns the number of messages compressed by this connection.
+   *
+   * @return the number of compressed messages, 0 if the compression is not adaptive
+   * @since 1.6.1
+   */
+  public long getCompressedMessages() {
+    return adaptiveCompression != null ? adaptiveCompression.getCompressedMessages() : 0;
+  }
+
+  /**
+   * Returns the number of messages above the threshold the adaptive compression of this
+   * connection sent uncompressed.
+   *
+   * @return the number of skipped messages, 0 if the compression is not adaptive
+   * @since 1.6.1
+   */
+  public long getSkippedMessages() {
+    return adaptiveCompression != null ? adaptiveCompression.getSkippedMessages() : 0;
+  }
+
+  /**
+   * Returns the moving average of the ratio of compressed to uncompressed bytes of the outgoing
+   * messages of a type, as sampled by the adaptive compression.
+   *
+   * @param opcode {@link Opcode#TEXT} or {@link Opcode#BINARY}
+   * @return the ratio or NaN, if no message of the type was sampled
+   * @since 1.6.1
+   */
+  public double getCompressionRatio(Opcode opcode) {
+    return adaptiveCompression != null ? adaptiveCompression.getRatio(opcode) : Double.NaN;
+  }
+
   public boolean isClientNoContextTakeover() {
     return clientNoContextTakeover;
   }
@@ -209,6 +309,10 @@ public class PerMessageDeflateExtension extends CompressionExtension {
     // check the RFC 7692 compression marker RSV1 whether to start decompressing
     if (inputFrame.isRSV1()) {
       isDecompressing = true;
+      if (decompressor == null) {
+        decompressor =
+            isDecompressorResetAllowed ? compressorPool.acquireInflater() : new Inflater(true);
+      }
     }
 
     if (!isDecompressing) {
@@ -219,9 +323,9 @@ public class PerMessageDeflateExtension extends CompressionExtension {
     DataFrame dataFrame = (DataFrame) inputFrame;
     ByteBuffer payload = dataFrame.getPayloadData();
     compressedBytes += payload.remaining();
-    byte[] decompressed = decompress(payload, dataFrame.isFin());
-    decompressedBytes += decompressed.length;
-    dataFrame.setPayload(ByteBuffer.wrap(decompressed));
+    ByteBuffer decompressed = decompress(payload, dataFrame.isFin());
+    decompressedBytes += decompressed.remaining();
+    dataFrame.setPayload(decompressed);
 
     // payload is no longer compressed, clear the RFC 7692 compression marker RSV1
     if (!(dataFrame instanceof ContinuousFrame)) {
@@ -235,48 +339,61 @@ public class PerMessageDeflateExtension extends CompressionExtension {
       // extension parameter, the server|client MAY decompress each new message with an empty
       // LZ77 sliding window.
       if (isDecompressorResetAllowed) {
-        decompressor.reset();
+        // the pool resets the decompressor
+        compressorPool.releaseInflater(decompressor);
+        decompressor = null;
       }
     }
   }
 
-  private byte[] decompress(ByteBuffer buffer, boolean isFinal) throws InvalidDataException {
-    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+  private ByteBuffer decompress(ByteBuffer buffer, boolean isFinal)
+      throws InvalidDataException {
+    // inflate into a pooled buffer, which grows if it is too small. The grown copies are not
+    // pooled, the leased buffer is given back. The compressed length is untrusted, so it does not
+    // size the buffer
+    byte[] leased = compressorPool.acquireBuffer(CompressorPool.BUFFER_SIZE);
+    byte[] decompressed = leased;
+    int length = 0;
+    // RFC 7692: Append empty deflate block to the tail end of the payload of the message
+    boolean isTailAppended = !isFinal;
     try {
-      decompress(buffer, decompressed);
-      // RFC 7692: Append empty deflate block to the tail end of the payload of the message
-      if (isFinal) {
-        decompress(ByteBuffer.wrap(EMPTY_DEFLATE_BLOCK), decompressed);
+      setInput(decompressor, buffer);
+      while (!decompressor.finished()) {
+        if (length == decompressed.length) {
+          decompressed = Arrays.copyOf(decompressed, getGrownSize(length));
+        }
+        int inflated = decompressor.inflate(decompressed, length, decompressed.length - length);
+        if (inflated > 0) {
+          length += inflated;
+          if (maxFragmentSize > 0 && maxFragmentSize < length) {
+            throw new DataFormatException(
+                "Inflated fragment size exceeds limit of " + maxFragmentSize + " bytes");
+          }
+        } else if (!isTailAppended) {
+          decompressor.setInput(EMPTY_DEFLATE_BLOCK);
+          isTailAppended = true;
+        } else {
+          break;
+        }
       }
+      return ByteBuffer.wrap(Arrays.copyOf(decompressed, length));
     } catch (DataFormatException e) {
       throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, e.getMessage());
+    } finally {
+      compressorPool.releaseBuffer(leased);
     }
-    return decompressed.toByteArray();
   }
 
-  private void decompress(ByteBuffer buffer, ByteArrayOutputStream decompressed)
-      throws DataFormatException {
-    if (buffer.hasArray()) {
-      decompressor.setInput(
-          buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
-    } else {
-      byte[] input = new byte[buffer.remaining()];
-      buffer.duplicate().get(input);
-      decompressor.setInput(input);
-    }
-    byte[] chunk = new byte[TRANSFER_CHUNK_SIZE];
-    while (!decompressor.finished()) {
-      int length = decompressor.inflate(chunk);
-      if (length > 0) {
-        decompressed.write(chunk, 0, length);
-        if (maxFragmentSize > 0 && maxFragmentSize < decompressed.size()) {
-          throw new DataFormatException(
-              "Inflated fragment size exceeds limit of " + maxFragmentSize + " bytes");
-        }
-      } else {
-        break;
-      }
-    }
+  /**
+   * Returns the size of the grown output buffer of the decompression, which is just large enough to
+   * detect a fragment exceeding the maximum fragment size
+   *
+   * @param length the size of the full buffer
+   * @return the new size
+   */
+  private int getGrownSize(int length) {
+    long limit = maxFragmentSize > 0 ? maxFragmentSize + 1L : Integer.MAX_VALUE - 8;
+    return (int) Math.min(length * 2L, Math.max(limit, length + 1L));
   }
 
   @Override
@@ -291,9 +408,16 @@ public class PerMessageDeflateExtension extends CompressionExtension {
       return;
     }
 
-    // check the threshold whether to start compressing
-    if (inputFrame.getPayloadData().remaining() >= compressionThreshold) {
-      isCompressing = true;
+    // check the threshold and the adaptive compression whether to start compressing
+    if (!isCompressing && inputFrame.getPayloadData().remaining() >= compressionThreshold) {
+      if (adaptiveCompressionPolicy != null && adaptiveCompression == null) {
+        adaptiveCompression = new AdaptiveCompression(adaptiveCompressionPolicy, compressionLevel);
+      }
+      if (adaptiveCompression != null
+          && !adaptiveCompression.shouldCompress(inputFrame.getOpcode())) {
+        return;
+      }
+      startCompressing(inputFrame.getOpcode());
     }
 
     if (!isCompressing) {
@@ -303,10 +427,14 @@ public class PerMessageDeflateExtension extends CompressionExtension {
     // compress the frame payload
     DataFrame dataFrame = (DataFrame) inputFrame;
     ByteBuffer payload = dataFrame.getPayloadData();
-    decompressedBytes += payload.remaining();
-    byte[] compressed = compress(payload, dataFrame.isFin());
-    compressedBytes += compressed.length;
-    dataFrame.setPayload(ByteBuffer.wrap(compressed));
+    long start = adaptiveCompression != null ? System.nanoTime() : 0;
+    messageUncompressedBytes += payload.remaining();
+    ByteBuffer compressed = compress(payload, dataFrame.isFin());
+    messageCompressedBytes += compressed.remaining();
+    if (adaptiveCompression != null) {
+      messageCompressionNanos += System.nanoTime() - start;
+    }
+    dataFrame.setPayload(compressed);
 
     // payload is compressed now, set the RFC 7692 compression marker RSV1
     if (!(dataFrame instanceof ContinuousFrame)) {
@@ -316,60 +444,130 @@ public class PerMessageDeflateExtension extends CompressionExtension {
     // stop compressing after the final fragment
     if (dataFrame.isFin()) {
       isCompressing = false;
+      decompressedBytes += messageUncompressedBytes;
+      compressedBytes += messageCompressedBytes;
+      if (adaptiveCompression != null) {
+        adaptiveCompression.onCompressed(messageOpcode, messageUncompressedBytes,
+            messageCompressedBytes, messageCompressionNanos);
+      }
       // RFC 7692: If the "agreed parameters" contain the "client|server_no_context_takeover"
       // extension parameter, the client|server MUST start compressing each new message with an
       // empty LZ77 sliding window.
       if (isCompressorResetRequired) {
-        compressor.reset();
+        // the pool resets the compressor
+        compressorPool.releaseDeflater(compressor);
+        compressor = null;
       }
     }
   }
 
-  private byte[] compress(ByteBuffer buffer, boolean isFinal) {
+  /**
+   * Start compressing a message, with the compressor of this connection or a compressor of the
+   * pool
+   *
+   * @param opcode the opcode of the first frame
+   */
+  private void startCompressing(Opcode opcode) {
+    isCompressing = true;
+    messageOpcode = opcode;
+    messageUncompressedBytes = 0;
+    messageCompressedBytes = 0;
+    messageCompressionNanos = 0;
+    int level = getCurrentCompressionLevel();
+    if (compressor == null) {
+      compressor = isCompressorResetRequired ? compressorPool.acquireDeflater(level)
+          : new Deflater(level, true);
+    } else if (level != compressorLevel) {
+      // takes effect with the next deflate call, the previous message was flushed completely
+      compressor.setLevel(level);
+    }
+    compressorLevel = level;
+  }
+
+  private ByteBuffer compress(ByteBuffer buffer, boolean isFinal) {
     // RFC 7692: Generate an empty fragment if the buffer for uncompressed data buffer is empty.
     if (!buffer.hasRemaining() && isFinal) {
-      return EMPTY_UNCOMPRESSED_DEFLATE_BLOCK;
+      return ByteBuffer.wrap(EMPTY_UNCOMPRESSED_DEFLATE_BLOCK);
+    }
+    // deflate into a pooled buffer, large enough for incompressible input. The grown copies are not
+    // pooled, the leased buffer is given back even if the compressor fails
+    byte[] leased = compressorPool.acquireBuffer(getCompressBound(buffer.remaining()));
+    byte[] compressed = leased;
+    int length = 0;
+    try {
+      setInput(compressor, buffer);
+      // RFC 7692 prefers the compressor output not to have the BFINAL bit set, so instead of
+      // calling finish(), deflate with NO_FLUSH until the input is exhausted, then deflate with
+      // SYNC_FLUSH until the output is no longer filled completely.
+      while (!compressor.needsInput()) {
+        if (length == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        int deflated = compressor.deflate(compressed, length, compressed.length - length,
+            NO_FLUSH);
+        if (deflated == 0) {
+          break;
+        }
+        length += deflated;
+      }
+      while (true) {
+        if (length == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        int available = compressed.length - length;
+        int deflated = compressor.deflate(compressed, length, available, SYNC_FLUSH);
+        length += deflated;
+        if (deflated < available) {
+          break;
+        }
+      }
+      // RFC 7692: Remove the empty deflate block from the tail end of the payload of the message
+      if (isFinal && hasTail(compressed, length, EMPTY_DEFLATE_BLOCK)) {
+        length -= EMPTY_DEFLATE_BLOCK.length;
+      }
+      return ByteBuffer.wrap(Arrays.copyOf(compressed, length));
+    } finally {
+      compressorPool.releaseBuffer(leased);
     }
+  }
+
+  /**
+   * Returns the maximum size of the deflated input, i.e. the bound of zlib for raw deflate
+   * including the stored blocks of incompressible input and the final sync flush
+   *
+   * @param inputLength the length of the input
+   * @return the size of the output buffer
+   */
+  private static int getCompressBound(int inputLength) {
+    long bound = (long) inputLength + (inputLength >> 12) + (inputLength >> 14)
+        + (inputLength >> 25) + 16;
+    return (int) Math.min(bound, Integer.MAX_VALUE - 8);
+  }
+
+  private static void setInput(Deflater deflater, ByteBuffer buffer) {
     if (buffer.hasArray()) {
-      compressor.setInput(
+      deflater.setInput(
           buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
     } else {
       byte[] input = new byte[buffer.remaining()];
       buffer.duplicate().get(input);
-      compressor.setInput(input);
-    }
-    // RFC 7692 prefers the compressor output not to have the BFINAL bit set, so instead of calling
-    // finish(), deflate with NO_FLUSH until the input is exhausted, then deflate with SYNC_FLUSH
-    // until the output runs dry.
-    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
-    byte[] chunk = new byte[TRANSFER_CHUNK_SIZE];
-    while (!compressor.needsInput()) {
-      int length = compressor.deflate(chunk, 0, chunk.length, NO_FLUSH);
-      if (length > 0) {
-        compressed.write(chunk, 0, length);
-      } else {
-        break;
-      }
-    }
-    while (!compressor.finished()) {
-      int length = compressor.deflate(chunk, 0, chunk.length, SYNC_FLUSH);
-      if (length > 0) {
-        compressed.write(chunk, 0, length);
-      } else {
-        break;
-      }
+      deflater.setInput(input);
     }
-    return isFinal
-        ? removeTail(compressed.toByteArray(), EMPTY_DEFLATE_BLOCK)
-        : compressed.toByteArray();
   }
 
-  private byte[] removeTail(byte[] input, byte[] tail) {
-    return hasTail(input, tail) ? Arrays.copyOf(input, input.length - tail.length) : input;
+  private static void setInput(Inflater inflater, ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      inflater.setInput(
+          buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else {
+      byte[] input = new byte[buffer.remaining()];
+      buffer.duplicate().get(input);
+      inflater.setInput(input);
+    }
   }
 
-  private boolean hasTail(byte[] input, byte[] tail) {
-    int offset = input.length - tail.length;
+  private boolean hasTail(byte[] input, int length, byte[] tail) {
+    int offset = length - tail.length;
     if (offset < 0) {
       return false;
     }
@@ -567,21 +765,91 @@ public class PerMessageDeflateExtension extends CompressionExtension {
     clone.setServerNoContextTakeover(isServerNoContextTakeover());
     clone.clientMaxWindowBits = clientMaxWindowBits;
     clone.serverMaxWindowBits = serverMaxWindowBits;
+    clone.isCompressorResetRequired = isCompressorResetRequired;
+    clone.isDecompressorResetAllowed = isDecompressorResetAllowed;
     clone.setThreshold(getThreshold());
+    clone.setCompressorPool(getCompressorPool());
+    clone.setAdaptiveCompressionPolicy(getAdaptiveCompressionPolicy());
     return clone;
   }
 
   @Override
   public void reset() {
     super.reset();
+    // a message may be in progress, the pooled compressors are given back, the others are ended
+    if (compressor != null) {
+      if (isCompressorResetRequired) {
+        compressorPool.releaseDeflater(compressor);
+      } else {
+        compressor.end();
+      }
+      compressor = null;
+    }
+    if (decompressor != null) {
+      if (isDecompressorResetAllowed) {
+        compressorPool.releaseInflater(decompressor);
+      } else {
+        decompressor.end();
+      }
+      decompressor = null;
+    }
     isCompressing = false;
     isDecompressing = false;
     compressedBytes = 0;
     decompressedBytes = 0;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Messages are encoded independently, if the compressor is reset after every message, i.e. the
+   * context takeover is disabled for outgoing messages, and the compression is not adaptive. The
+   * encoded frames only depend on the configuration of this extension then, so e.g. a broadcast
+   * is compressed once for all connections with an equal extension.
+   *
+   * @since 1.6.1
+   */
+  @Override
+  public boolean isEncodingShareable() {
+    return isCompressorResetRequired && adaptiveCompressionPolicy == null;
+  }
+
   @Override
   public String toString() {
     return EXTENSION_COMMON_NAME;
   }
+
+  @Override
+  public int hashCode() {
+    int result = getClass().hashCode();
+    result = 31 * result + compressionLevel;
+    result = 31 * result + maxFragmentSize;
+    result = 31 * result + compressionThreshold;
+    result = 31 * result + (clientNoContextTakeover ? 1 : 0);
+    result = 31 * result + (serverNoContextTakeover ? 1 : 0);
+    result = 31 * result + clientMaxWindowBits;
+    result = 31 * result + serverMaxWindowBits;
+    result = 31 * result + (isCompressorResetRequired ? 1 : 0);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    PerMessageDeflateExtension that = (PerMessageDeflateExtension) o;
+    return compressionLevel == that.compressionLevel
+        && maxFragmentSize == that.maxFragmentSize
+        && compressionThreshold == that.compressionThreshold
+        && clientNoContextTakeover == that.clientNoContextTakeover
+        && serverNoContextTakeover == that.serverNoContextTakeover
+        && clientMaxWindowBits == that.clientMaxWindowBits
+        && serverMaxWindowBits == that.serverMaxWindowBits
+        && isCompressorResetRequired == that.isCompressorResetRequired
+        && adaptiveCompressionPolicy == that.adaptiveCompressionPolicy;
+  }
 }
@@ -49,6 +49,12 @@ public abstract class FramedataImpl1 implements Framedata {
    */
   private ByteBuffer unmaskedpayload;
 
+  /**
+   * Indicates that the payload is only a view of a buffer, which is reused after the frame was
+   * processed
+   */
+  private boolean payloadView;
+
   /**
    * Defines whether the "Payload data" is masked.
    */
@@ -145,6 +151,7 @@ public abstract class FramedataImpl1 implements Framedata {
         tmp.put(unmaskedpayload);
         tmp.put(b);
         unmaskedpayload = tmp;
+        payloadView = false;
 
       } else {
         unmaskedpayload.put(b);
@@ -162,7 +169,7 @@ public abstract class FramedataImpl1 implements Framedata {
         + ", rsv2:" + isRSV2() + ", rsv3:" + isRSV3() + ", payload length:[pos:" + unmaskedpayload
         .position() + ", len:" + unmaskedpayload.remaining() + "], payload:" + (
         unmaskedpayload.remaining() > 1000 ? "(too big to display)"
-            : new String(unmaskedpayload.array())) + '}';
+            : new String(ByteBufferUtils.getRemainingBytes(unmaskedpayload))) + '}';
   }
 
   /**
@@ -172,6 +179,49 @@ public abstract class FramedataImpl1 implements Framedata {
    */
   public void setPayload(ByteBuffer payload) {
     this.unmaskedpayload = payload;
+    this.payloadView = false;
+  }
+
+  /**
+   * Set the payload of this frame to a view of a buffer, which is reused after the frame was
+   * processed (e.g. the buffer a frame was decoded from).
+   * <p>
+   * The payload has to be retained via {@link #retainPayload()} before it is kept any longer.
+   *
+   * @param payload the view which is to set
+   * @since 1.6.1
+   */
+  public void setPayloadView(ByteBuffer payload) {
+    setPayload(payload);
+    this.payloadView = unmaskedpayload == payload;
+  }
+
+  /**
+   * Check if the payload of this frame is only a view of a buffer, which is reused after the frame
+   * was processed
+   *
+   * @return true, if the payload has to be retained before it is kept any longer
+   * @since 1.6.1
+   */
+  public boolean isPayloadView() {
+    return payloadView;
+  }
+
+  /**
+   * Copy the payload of this frame, if it is only a view of a buffer which is reused after the
+   * frame was processed, so it can be kept any longer
+   *
+   * @since 1.6.1
+   */
+  public void retainPayload() {
+    if (!payloadView) {
+      return;
+    }
+    ByteBuffer copy = ByteBuffer.allocate(unmaskedpayload.remaining());
+    copy.put(unmaskedpayload.duplicate());
+    copy.flip();
+    unmaskedpayload = copy;
+    payloadView = false;
   }
 
   /**
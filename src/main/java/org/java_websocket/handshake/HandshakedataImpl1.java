@@ -25,9 +25,10 @@
 
 package org.java_websocket.handshake;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.TreeMap;
+import java.util.List;
 
 /**
  * Implementation of a handshake builder
@@ -40,29 +41,39 @@ public class HandshakedataImpl1 implements HandshakeBuilder {
   private byte[] content;
 
   /**
-   * Attribute for the http fields and values
+   * Attribute for the names of the http fields. A handshake has only a few fields, so they are
+   * searched linearly, which is faster than a case-insensitive map.
    */
-  private TreeMap<String, String> map;
+  private final List<String> names;
+
+  /**
+   * Attribute for the values of the http fields, at the index of their name
+   */
+  private final List<String> values;
 
   /**
    * Constructor for handshake implementation
    */
   public HandshakedataImpl1() {
-    map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    names = new ArrayList<>();
+    values = new ArrayList<>();
   }
 
   @Override
   public Iterator<String> iterateHttpFields() {
-    return Collections.unmodifiableSet(map.keySet()).iterator();// Safety first
+    // sorted case-insensitively, e.g. for the order of the fields of a created handshake
+    List<String> sorted = new ArrayList<>(names);
+    Collections.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+    return Collections.unmodifiableList(sorted).iterator();// Safety first
   }
 
   @Override
   public String getFieldValue(String name) {
-    String s = map.get(name);
-    if (s == null) {
+    int index = indexOf(name);
+    if (index < 0) {
       return "";
     }
-    return s;
+    return values.get(index);
   }
 
   @Override
@@ -77,11 +88,34 @@ public class HandshakedataImpl1 implements HandshakeBuilder {
 
   @Override
   public void put(String name, String value) {
-    map.put(name, value);
+    int index = indexOf(name);
+    if (index < 0) {
+      names.add(name);
+      values.add(value);
+    } else {
+      // the name keeps the case it was put with first
+      values.set(index, value);
+    }
   }
 
   @Override
   public boolean hasFieldValue(String name) {
-    return map.containsKey(name);
+    return indexOf(name) >= 0;
+  }
+
+  /**
+   * Find the field with the name, ignoring the case
+   *
+   * @param name the name of the field
+   * @return the index of the field, or -1 if there is none
+   */
+  private int indexOf(String name) {
+    for (int i = 0; i < names.size(); i++) {
+      // well known names are usually the same instance
+      if (names.get(i).equalsIgnoreCase(name)) {
+        return i;
+      }
+    }
+    return -1;
   }
 }
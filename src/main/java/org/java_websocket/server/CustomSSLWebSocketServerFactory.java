@@ -30,9 +30,9 @@ import java.nio.channels.ByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import org.java_websocket.SSLHandshakeExecutor;
 import org.java_websocket.SSLSocketChannel2;
 
 /**
@@ -62,7 +62,7 @@ public class CustomSSLWebSocketServerFactory extends DefaultSSLWebSocketServerFa
    */
   public CustomSSLWebSocketServerFactory(SSLContext sslContext, String[] enabledProtocols,
       String[] enabledCiphersuites) {
-    this(sslContext, Executors.newSingleThreadScheduledExecutor(), enabledProtocols,
+    this(sslContext, new SSLHandshakeExecutor(), enabledProtocols,
         enabledCiphersuites);
   }
 
@@ -94,7 +94,7 @@ public class CustomSSLWebSocketServerFactory extends DefaultSSLWebSocketServerFa
       e.setEnabledCipherSuites(enabledCiphersuites);
     }
     e.setUseClientMode(false);
-    return new SSLSocketChannel2(channel, e, exec, key);
+    return new SSLSocketChannel2(channel, e, exec, key, bufferPool);
   }
 
 }
\ No newline at end of file
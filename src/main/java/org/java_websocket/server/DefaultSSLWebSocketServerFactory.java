@@ -33,22 +33,36 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import org.java_websocket.SSLHandshakeExecutor;
 import org.java_websocket.SSLSocketChannel2;
 import org.java_websocket.WebSocketAdapter;
 import org.java_websocket.WebSocketImpl;
 import org.java_websocket.WebSocketServerFactory;
 import org.java_websocket.drafts.Draft;
+import org.java_websocket.util.ByteBufferPool;
 
 public class DefaultSSLWebSocketServerFactory implements WebSocketServerFactory {
 
   protected SSLContext sslcontext;
   protected ExecutorService exec;
 
+  /**
+   * The pool the channels lease their buffers from, null to allocate them per connection
+   *
+   * @since 1.6.1
+   */
+  protected volatile ByteBufferPool bufferPool;
+
+  /**
+   * Create a factory running the delegated tasks of the TLS handshakes on a {@link
+   * SSLHandshakeExecutor} with a thread per processor and no limit on the handshakes
+   *
+   * @param sslContext the context of the TLS connections
+   */
   public DefaultSSLWebSocketServerFactory(SSLContext sslContext) {
-    this(sslContext, Executors.newSingleThreadScheduledExecutor());
+    this(sslContext, new SSLHandshakeExecutor());
   }
 
   public DefaultSSLWebSocketServerFactory(SSLContext sslContext, ExecutorService exec) {
@@ -72,7 +86,31 @@ public class DefaultSSLWebSocketServerFactory implements WebSocketServerFactory
     ciphers.remove("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256");
     e.setEnabledCipherSuites(ciphers.toArray(new String[ciphers.size()]));
     e.setUseClientMode(false);
-    return new SSLSocketChannel2(channel, e, exec, key);
+    return new SSLSocketChannel2(channel, e, exec, key, bufferPool);
+  }
+
+  /**
+   * Set the pool the TLS channels lease their buffers from while a read or write is in progress.
+   * <p>
+   * If no pool is set, a {@link WebSocketServer} using this factory passes its {@link
+   * WebSocketServer#getByteBufferPool() buffer pool} on start.
+   *
+   * @param bufferPool the pool to use, null to allocate the buffers per connection
+   * @see SSLSocketChannel2
+   * @since 1.6.1
+   */
+  public void setByteBufferPool(ByteBufferPool bufferPool) {
+    this.bufferPool = bufferPool;
+  }
+
+  /**
+   * Returns the pool the TLS channels lease their buffers from
+   *
+   * @return the pool, or null if the buffers are allocated per connection
+   * @since 1.6.1
+   */
+  public ByteBufferPool getByteBufferPool() {
+    return bufferPool;
   }
 
   @Override
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.server;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a single listening channel of a {@link WebSocketServer}
+ *
+ * @see WebSocketServer#getListenerStats()
+ * @since 1.6.1
+ */
+public final class ListenerStats {
+
+  /**
+   * The index of the listener, 0 is the listener of the selectorthread
+   */
+  private final int index;
+
+  /**
+   * The local address the listener is bound to
+   */
+  private final InetSocketAddress localAddress;
+
+  /**
+   * The number of connections accepted by this listener
+   */
+  private final AtomicLong acceptedConnections = new AtomicLong();
+
+  /**
+   * The number of connections rejected by {@link WebSocketServer#onConnect}
+   */
+  private final AtomicLong rejectedConnections = new AtomicLong();
+
+  ListenerStats(int index, InetSocketAddress localAddress) {
+    this.index = index;
+    this.localAddress = localAddress;
+  }
+
+  void incrementAcceptedConnections() {
+    acceptedConnections.incrementAndGet();
+  }
+
+  void incrementRejectedConnections() {
+    rejectedConnections.incrementAndGet();
+  }
+
+  /**
+   * Getter for the index of the listener
+   *
+   * @return the index, 0 for the listener of the selectorthread
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Getter for the local address of the listener
+   *
+   * @return the address the listener is bound to
+   */
+  public InetSocketAddress getLocalAddress() {
+    return localAddress;
+  }
+
+  /**
+   * Getter for the number of accepted connections
+   *
+   * @return the number of connections accepted by this listener
+   */
+  public long getAcceptedConnections() {
+    return acceptedConnections.get();
+  }
+
+  /**
+   * Getter for the number of rejected connections
+   *
+   * @return the number of connections rejected by this listener
+   */
+  public long getRejectedConnections() {
+    return rejectedConnections.get();
+  }
+
+  @Override
+  public String toString() {
+    return "ListenerStats{index=" + index + ", localAddress=" + localAddress
+        + ", acceptedConnections=" + acceptedConnections + ", rejectedConnections="
+        + rejectedConnections + '}';
+  }
+}
@@ -30,10 +30,10 @@ import java.nio.channels.ByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLParameters;
+import org.java_websocket.SSLHandshakeExecutor;
 import org.java_websocket.SSLSocketChannel2;
 
 /**
@@ -51,7 +51,7 @@ public class SSLParametersWebSocketServerFactory extends DefaultSSLWebSocketServ
    * @param sslParameters - can not be <code>null</code>
    */
   public SSLParametersWebSocketServerFactory(SSLContext sslContext, SSLParameters sslParameters) {
-    this(sslContext, Executors.newSingleThreadScheduledExecutor(), sslParameters);
+    this(sslContext, new SSLHandshakeExecutor(), sslParameters);
   }
 
   /**
@@ -76,6 +76,6 @@ public class SSLParametersWebSocketServerFactory extends DefaultSSLWebSocketServ
     SSLEngine e = sslcontext.createSSLEngine();
     e.setUseClientMode(false);
     e.setSSLParameters(sslParameters);
-    return new SSLSocketChannel2(channel, e, exec, key);
+    return new SSLSocketChannel2(channel, e, exec, key, bufferPool);
   }
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.server;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.java_websocket.PreparedMessage;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+
+/**
+ * Topic based publish/subscribe for the connections of a {@link WebSocketServer}.
+ * <p>
+ * The subscribers of every topic are striped by the selector handling their reads and writes. A
+ * published message is encoded only once per draft and handed over to every selector thread,
+ * which enqueues it for its own subscribers. So publishing is split across the selector threads
+ * (see {@link WebSocketServer#setSelectorThreadCount(int)}) and does not block the publisher.
+ * <p>
+ * Since the messages are enqueued asynchronously, there is no order between a published message
+ * and a message sent directly to a subscriber. The messages published by a single thread arrive
+ * in the order they were published.
+ * <p>
+ * Closed connections are unsubscribed from all their topics automatically.
+ *
+ * @see WebSocketServer#getTopicRegistry()
+ * @since 1.6.1
+ */
+public class TopicRegistry {
+
+  /**
+   * The server the subscribers are connected to
+   */
+  private final WebSocketServer server;
+
+  /**
+   * The subscribers of every topic, striped by their selector
+   */
+  private final Map<String, Map<Selector, Set<WebSocket>>> topics = new ConcurrentHashMap<>();
+
+  /**
+   * The topics of every subscriber
+   */
+  private final Map<WebSocket, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+  TopicRegistry(WebSocketServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Subscribe a connection to a topic
+   *
+   * @param conn  the connection of the server
+   * @param topic the topic to subscribe to
+   * @return true, if the connection was not already subscribed to the topic
+   * @throws IllegalArgumentException       the connection or topic is null
+   * @throws WebsocketNotConnectedException the connection is not open
+   */
+  public synchronized boolean subscribe(WebSocket conn, String topic) {
+    if (!(conn instanceof WebSocketImpl) || topic == null) {
+      throw new IllegalArgumentException();
+    }
+    // closed connections would never be unsubscribed again
+    SelectionKey key = ((WebSocketImpl) conn).getSelectionKey();
+    if (!conn.isOpen() || key == null || !key.isValid()) {
+      throw new WebsocketNotConnectedException();
+    }
+    Set<String> connTopics = subscriptions.get(conn);
+    if (connTopics == null) {
+      connTopics = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+      subscriptions.put(conn, connTopics);
+    }
+    if (!connTopics.add(topic)) {
+      return false;
+    }
+    Map<Selector, Set<WebSocket>> stripes = topics.get(topic);
+    if (stripes == null) {
+      stripes = new ConcurrentHashMap<>();
+      topics.put(topic, stripes);
+    }
+    Set<WebSocket> stripe = stripes.get(key.selector());
+    if (stripe == null) {
+      stripe = Collections.newSetFromMap(new ConcurrentHashMap<WebSocket, Boolean>());
+      stripes.put(key.selector(), stripe);
+    }
+    stripe.add(conn);
+    return true;
+  }
+
+  /**
+   * Unsubscribe a connection from a topic
+   *
+   * @param conn  the connection of the server
+   * @param topic the topic to unsubscribe from
+   * @return true, if the connection was subscribed to the topic
+   */
+  public synchronized boolean unsubscribe(WebSocket conn, String topic) {
+    Set<String> connTopics = subscriptions.get(conn);
+    if (connTopics == null || !connTopics.remove(topic)) {
+      return false;
+    }
+    if (connTopics.isEmpty()) {
+      subscriptions.remove(conn);
+    }
+    Map<Selector, Set<WebSocket>> stripes = topics.get(topic);
+    for (Set<WebSocket> stripe : stripes.values()) {
+      stripe.remove(conn);
+    }
+    // topics without subscribers are removed, so the number of topics does not grow endless
+    boolean empty = true;
+    for (Set<WebSocket> stripe : stripes.values()) {
+      empty &= stripe.isEmpty();
+    }
+    if (empty) {
+      topics.remove(topic);
+    }
+    return true;
+  }
+
+  /**
+   * Unsubscribe a connection from all its topics
+   *
+   * @param conn the connection of the server
+   */
+  synchronized void unsubscribeAll(WebSocket conn) {
+    Set<String> connTopics = subscriptions.get(conn);
+    if (connTopics == null) {
+      return;
+    }
+    for (String topic : new HashSet<>(connTopics)) {
+      unsubscribe(conn, topic);
+    }
+  }
+
+  /**
+   * Get the topics a connection is subscribed to
+   *
+   * @param conn the connection of the server
+   * @return an unmodifiable set of the topics
+   */
+  public Set<String> getTopics(WebSocket conn) {
+    Set<String> connTopics = subscriptions.get(conn);
+    if (connTopics == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(connTopics);
+  }
+
+  /**
+   * Get all topics with at least one subscriber
+   *
+   * @return an unmodifiable set of the topics
+   */
+  public Set<String> getTopics() {
+    return Collections.unmodifiableSet(topics.keySet());
+  }
+
+  /**
+   * Get the number of subscribers of a topic
+   *
+   * @param topic the topic
+   * @return the number of subscribers
+   */
+  public int getSubscriberCount(String topic) {
+    Map<Selector, Set<WebSocket>> stripes = topics.get(topic);
+    if (stripes == null) {
+      return 0;
+    }
+    int count = 0;
+    for (Set<WebSocket> stripe : stripes.values()) {
+      count += stripe.size();
+    }
+    return count;
+  }
+
+  /**
+   * Send a text to all subscribers of a topic
+   *
+   * @param topic the topic to publish to
+   * @param text  the text to send to the subscribers
+   */
+  public void publish(String topic, String text) {
+    publish(topic, new PreparedMessage(text));
+  }
+
+  /**
+   * Send a byte array to all subscribers of a topic
+   *
+   * @param topic the topic to publish to
+   * @param data  the data to send to the subscribers
+   */
+  public void publish(String topic, byte[] data) {
+    publish(topic, new PreparedMessage(data));
+  }
+
+  /**
+   * Send a ByteBuffer to all subscribers of a topic
+   *
+   * @param topic the topic to publish to
+   * @param data  the data to send to the subscribers
+   */
+  public void publish(String topic, ByteBuffer data) {
+    publish(topic, new PreparedMessage(data));
+  }
+
+  /**
+   * Send a prepared message to all subscribers of a topic
+   *
+   * @param topic   the topic to publish to
+   * @param message the message to send to the subscribers
+   * @throws IllegalArgumentException the topic or message is null
+   */
+  public void publish(String topic, final PreparedMessage message) {
+    if (topic == null || message == null) {
+      throw new IllegalArgumentException();
+    }
+    Map<Selector, Set<WebSocket>> stripes = topics.get(topic);
+    if (stripes == null) {
+      return;
+    }
+    for (Map.Entry<Selector, Set<WebSocket>> entry : stripes.entrySet()) {
+      final Set<WebSocket> stripe = entry.getValue();
+      server.execute(entry.getKey(), new Runnable() {
+        @Override
+        public void run() {
+          for (WebSocket conn : stripe) {
+            try {
+              conn.send(message);
+            } catch (WebsocketNotConnectedException e) {
+              //Ignore this exception in this case
+            }
+          }
+        }
+      });
+    }
+  }
+}
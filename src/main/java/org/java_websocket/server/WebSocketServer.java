@@ -30,6 +30,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketOption;
 import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedByInterruptException;
@@ -41,19 +42,24 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.java_websocket.AbstractWebSocket;
+import org.java_websocket.PreparedMessage;
 import org.java_websocket.SocketChannelIOHelper;
 import org.java_websocket.WebSocket;
 import org.java_websocket.WebSocketFactory;
@@ -64,9 +70,11 @@ import org.java_websocket.drafts.Draft;
 import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.java_websocket.exceptions.WrappedIOException;
 import org.java_websocket.framing.CloseFrame;
-import org.java_websocket.framing.Framedata;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.Handshakedata;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.CompositeByteBuffer;
+import org.java_websocket.util.SlabByteBufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +87,22 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 
   private static final int AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
 
+  /**
+   * The default limit of the buffer pool created for the reads of this server
+   */
+  private static final long DEFAULT_BUFFER_POOL_SIZE = 16L * 1024 * 1024;
+
+  /**
+   * The time in milliseconds after which a read is retried, if no buffer was available
+   */
+  private static final int BUFFER_RETRY_TIMEOUT = 10;
+
+  /**
+   * The maximum number of buffers a worker decodes for one connection before it moves on to the
+   * next queued connection
+   */
+  private static final int DECODE_BATCH_SIZE = 16;
+
   /**
    * Logger instance
    *
@@ -116,9 +140,26 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
   protected List<WebSocketWorker> decoders;
 
   private List<WebSocketImpl> iqueue;
-  private BlockingQueue<ByteBuffer> buffers;
+
+  /**
+   * The keys of the selectorthread whose reads are paused, since no buffer was available
+   */
+  private List<SelectionKey> pausedReads;
   private int queueinvokes = 0;
-  private final AtomicInteger queuesize = new AtomicInteger(0);
+
+  /**
+   * The connections which are queued on or decoded by a worker. A connection is scheduled at most
+   * once, so its buffers are decoded by one worker at a time and in the order they were read.
+   */
+  private final Set<WebSocketImpl> scheduled = Collections
+      .newSetFromMap(new ConcurrentHashMap<WebSocketImpl, Boolean>());
+
+  /**
+   * The pool the buffers for every read are leased from
+   *
+   * @since 1.6.1
+   */
+  private ByteBufferPool bufferPool;
 
   private WebSocketServerFactory wsf = new DefaultWebSocketServerFactory();
 
@@ -130,6 +171,86 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
    */
   private int maxPendingConnections = -1;
 
+  /**
+   * Attribute for the number of additional selector threads which handle the reads and writes of
+   * the accepted connections. A value of 0 means that the selectorthread does everything itself.
+   *
+   * @since 1.6.1
+   */
+  private int selectorThreadCount = 0;
+
+  /**
+   * The selector loops the accepted connections are distributed to, if any
+   *
+   * @since 1.6.1
+   */
+  private volatile List<SelectorLoop> selectorLoops = Collections.emptyList();
+
+  /**
+   * Counter used to distribute the accepted connections over the selector loops
+   */
+  private int selectorLoopInvokes = 0;
+
+  /**
+   * Attribute for the number of channels listening on the address of this server. Every listener
+   * besides the one of the selectorthread gets its own selector thread.
+   *
+   * @since 1.6.1
+   */
+  private int listenerCount = 1;
+
+  /**
+   * The factory for the virtual threads which decode the incoming data, or null if the data is
+   * decoded by the {@link WebSocketWorker}s
+   *
+   * @since 1.6.1
+   */
+  private ThreadFactory virtualThreadFactory;
+
+  /**
+   * The selector loops owning the additional listening channels, if any
+   *
+   * @since 1.6.1
+   */
+  private volatile List<SelectorLoop> listenerLoops = Collections.emptyList();
+
+  /**
+   * The statistics of all listening channels
+   *
+   * @since 1.6.1
+   */
+  private volatile List<ListenerStats> listenerStats = Collections.emptyList();
+
+  /**
+   * The default maximum number of bytes written to a single connection per selector pass
+   */
+  private static final int DEFAULT_WRITE_QUANTUM = 256 * 1024;
+
+  /**
+   * Attribute for the maximum number of bytes written to a single connection per selector pass, 0
+   * means no limit
+   *
+   * @since 1.6.1
+   */
+  private volatile int writeQuantum = DEFAULT_WRITE_QUANTUM;
+
+  /**
+   * The write statistics of the selectorthread
+   */
+  private volatile WriteStats selectorWriteStats;
+
+  /**
+   * The topics the connections of this server are subscribed to
+   *
+   * @since 1.6.1
+   */
+  private final TopicRegistry topicRegistry = new TopicRegistry(this);
+
+  /**
+   * The tasks which have to be run by the selectorthread
+   */
+  private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
   /**
    * Creates a WebSocketServer that will attempt to listen on port <var>WebSocketImpl.DEFAULT_PORT</var>.
    *
@@ -246,9 +367,9 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     setTcpNoDelay(false);
     setReuseAddr(false);
     iqueue = new LinkedList<>();
+    pausedReads = new ArrayList<>();
 
     decoders = new ArrayList<>(decodercount);
-    buffers = new LinkedBlockingQueue<>();
     for (int i = 0; i < decodercount; i++) {
       WebSocketWorker ex = new WebSocketWorker();
       decoders.add(ex);
@@ -312,6 +433,9 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 
     synchronized (this) {
       if (selectorthread != null && selector != null) {
+        for (SelectorLoop loop : allSelectorLoops()) {
+          loop.wakeup();
+        }
         selector.wakeup();
         selectorthread.join(timeout);
       }
@@ -399,6 +523,237 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     return maxPendingConnections;
   }
 
+  /**
+   * Set the number of selector threads which handle the reads and writes of the accepted
+   * connections.
+   * <p>
+   * By default (0) the selectorthread accepts the connections and also takes care of all their
+   * reads and writes. With a value greater than 0 the selectorthread only accepts new connections
+   * and hands them over to the given number of selector threads, each owning its own {@link
+   * Selector} and the connections registered on it.
+   *
+   * @param selectorThreadCount the number of selector threads, 0 to disable
+   * @throws IllegalArgumentException if the count is negative
+   * @throws IllegalStateException    if the server is already started
+   * @since 1.6.1
+   */
+  public void setSelectorThreadCount(int selectorThreadCount) {
+    if (selectorThreadCount < 0) {
+      throw new IllegalArgumentException("selectorThreadCount < 0");
+    }
+    if (selectorthread != null) {
+      throw new IllegalStateException(
+          "Cannot call setSelectorThreadCount after server is already started!");
+    }
+    this.selectorThreadCount = selectorThreadCount;
+  }
+
+  /**
+   * Returns the number of selector threads which handle the reads and writes of the accepted
+   * connections.
+   *
+   * @return the number of selector threads, 0 if the selectorthread handles everything itself
+   * @see #setSelectorThreadCount(int)
+   * @since 1.6.1
+   */
+  public int getSelectorThreadCount() {
+    return selectorThreadCount;
+  }
+
+  /**
+   * Decode the incoming data on virtual threads instead of the {@link WebSocketWorker}s.
+   * <p>
+   * With virtual threads each connection with pending data gets its own virtual thread, which
+   * decodes the data in order and runs the callbacks like {@link #onOpen(WebSocket,
+   * ClientHandshake)} and {@link #onMessage(WebSocket, String)}. A handler which blocks, e.g. on a
+   * database call, then only stalls its own connection, while with the fixed number of workers it
+   * keeps a worker away from all other connections. The callbacks of a single connection are still
+   * called one after another.
+   *
+   * @param useVirtualThreads true to decode on virtual threads
+   * @throws UnsupportedOperationException if virtual threads are requested, but the runtime does
+   *                                       not support them. Virtual threads require Java 21 or
+   *                                       newer.
+   * @throws IllegalStateException         if the server is already started
+   * @since 1.6.1
+   */
+  public void setUseVirtualThreads(boolean useVirtualThreads) {
+    if (selectorthread != null) {
+      throw new IllegalStateException(
+          "Cannot call setUseVirtualThreads after server is already started!");
+    }
+    if (!useVirtualThreads) {
+      virtualThreadFactory = null;
+      return;
+    }
+    ThreadFactory factory = VirtualThreads.newFactory("WebSocketVirtualWorker-");
+    if (factory == null) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+    virtualThreadFactory = factory;
+  }
+
+  /**
+   * Returns whether the incoming data is decoded on virtual threads.
+   *
+   * @return true, if the data is decoded on virtual threads instead of the workers
+   * @see #setUseVirtualThreads(boolean)
+   * @since 1.6.1
+   */
+  public boolean isUseVirtualThreads() {
+    return virtualThreadFactory != null;
+  }
+
+  /**
+   * Set the number of channels listening on the address of this server.
+   * <p>
+   * With a value greater than 1 the given number of channels are bound to the same address with
+   * the SO_REUSEPORT socket option, so that the operating system spreads the incoming connections
+   * over them. Each additional listener runs its own selector thread which accepts its connections
+   * and handles their reads and writes. If the JVM or the operating system does not support
+   * SO_REUSEPORT, or the server was created from an existing channel, only a single listener is
+   * used.
+   *
+   * @param listenerCount the number of listening channels, at least 1
+   * @throws IllegalArgumentException if the count is smaller than 1
+   * @throws IllegalStateException    if the server is already started
+   * @see #getListenerStats()
+   * @since 1.6.1
+   */
+  public void setListenerCount(int listenerCount) {
+    if (listenerCount < 1) {
+      throw new IllegalArgumentException("listenerCount < 1");
+    }
+    if (selectorthread != null) {
+      throw new IllegalStateException(
+          "Cannot call setListenerCount after server is already started!");
+    }
+    this.listenerCount = listenerCount;
+  }
+
+  /**
+   * Returns the configured number of channels listening on the address of this server.
+   *
+   * @return the number of listening channels
+   * @see #setListenerCount(int)
+   * @since 1.6.1
+   */
+  public int getListenerCount() {
+    return listenerCount;
+  }
+
+  /**
+   * Returns the statistics of every listening channel of this server.
+   *
+   * @return an unmodifiable list with one entry per listener, empty if the server is not started
+   * @see #setListenerCount(int)
+   * @since 1.6.1
+   */
+  public List<ListenerStats> getListenerStats() {
+    return Collections.unmodifiableList(listenerStats);
+  }
+
+  /**
+   * Set the maximum number of bytes written to a single connection per selector pass.
+   * <p>
+   * Without a limit, a connection with a deep outQueue keeps its selector thread busy until the
+   * socket buffer is full, while the other connections of this thread have to wait. With a limit,
+   * the remaining bytes are written in the next selector pass, after the other connections got
+   * their turn. The small frames within the quantum are still written with a single gathering
+   * write.
+   *
+   * @param writeQuantum the maximum number of bytes per connection and pass, 0 for no limit
+   * @throws IllegalArgumentException if the quantum is negative
+   * @see #getWriteStats()
+   * @since 1.6.1
+   */
+  public void setWriteQuantum(int writeQuantum) {
+    if (writeQuantum < 0) {
+      throw new IllegalArgumentException("writeQuantum < 0");
+    }
+    this.writeQuantum = writeQuantum;
+  }
+
+  /**
+   * Returns the maximum number of bytes written to a single connection per selector pass.
+   *
+   * @return the write quantum, 0 if there is no limit
+   * @see #setWriteQuantum(int)
+   * @since 1.6.1
+   */
+  public int getWriteQuantum() {
+    return writeQuantum;
+  }
+
+  /**
+   * Returns the write statistics of every selector thread of this server.
+   *
+   * @return an unmodifiable list with one entry per selector thread, empty if the server is not
+   * started
+   * @see #setWriteQuantum(int)
+   * @since 1.6.1
+   */
+  public List<WriteStats> getWriteStats() {
+    WriteStats primary = selectorWriteStats;
+    if (primary == null) {
+      return Collections.emptyList();
+    }
+    List<WriteStats> stats = new ArrayList<>();
+    stats.add(primary);
+    for (SelectorLoop loop : allSelectorLoops()) {
+      stats.add(loop.loopWriteStats);
+    }
+    return Collections.unmodifiableList(stats);
+  }
+
+  /**
+   * Returns the registry of the topics the connections of this server can subscribe to.
+   *
+   * @return the topic registry of this server
+   * @since 1.6.1
+   */
+  public TopicRegistry getTopicRegistry() {
+    return topicRegistry;
+  }
+
+  /**
+   * Set the pool the buffers for the reads of this server are leased from.
+   * <p>
+   * Every read leases a buffer with the size of {@link #getReceiveBufferSize()} (or 64 KiB if not
+   * set), which is given back as soon as the data is decoded. If the pool is exhausted, reading
+   * from the affected connection is paused for a moment instead of stalling the selector. By
+   * default a {@link SlabByteBufferPool} with a limit of 16 MiB of direct memory is used, which is
+   * allocated as needed. A {@link DefaultSSLWebSocketServerFactory} without a pool of its own
+   * leases the TLS buffers from this pool as well. If no pool is set and a subclass overrides the
+   * deprecated {@link #createBuffer()}, the buffers are created by that method instead.
+   *
+   * @param bufferPool the pool to use
+   * @throws IllegalArgumentException if the pool is null
+   * @throws IllegalStateException    if the server is already started
+   * @since 1.6.1
+   */
+  public void setByteBufferPool(ByteBufferPool bufferPool) {
+    if (bufferPool == null) {
+      throw new IllegalArgumentException("bufferPool must not be null");
+    }
+    if (selectorthread != null) {
+      throw new IllegalStateException(
+          "Cannot call setByteBufferPool after server is already started!");
+    }
+    this.bufferPool = bufferPool;
+  }
+
+  /**
+   * Returns the pool the buffers for the reads of this server are leased from.
+   *
+   * @return the pool, or null if the server is not started and no pool was set
+   * @see #setByteBufferPool(ByteBufferPool)
+   * @since 1.6.1
+   */
+  public ByteBufferPool getByteBufferPool() {
+    return bufferPool;
+  }
+
   // Runnable IMPLEMENTATION /////////////////////////////////////////////////
   public void run() {
     if (!doEnsureSingleThread()) {
@@ -411,50 +766,17 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
       int shutdownCount = 5;
       int selectTimeout = 0;
       while (!selectorthread.isInterrupted() && shutdownCount != 0) {
-        SelectionKey key = null;
-        try {
-          if (isclosed.get()) {
-            selectTimeout = 5;
-          }
-          int keyCount = selector.select(selectTimeout);
-          if (keyCount == 0 && isclosed.get()) {
-            shutdownCount--;
-          }
-          Set<SelectionKey> keys = selector.selectedKeys();
-          Iterator<SelectionKey> i = keys.iterator();
-
-          while (i.hasNext()) {
-            key = i.next();
-
-            if (!key.isValid()) {
-              continue;
-            }
-
-            if (key.isAcceptable()) {
-              doAccept(key, i);
-              continue;
-            }
-
-            if (key.isReadable() && !doRead(key, i)) {
-              continue;
-            }
-
-            if (key.isWritable()) {
-              doWrite(key);
-            }
-          }
-          doAdditionalRead();
-        } catch (CancelledKeyException e) {
-          // an other thread may cancel the key
-        } catch (ClosedByInterruptException e) {
-          return; // do the same stuff as when InterruptedException is thrown
-        } catch (WrappedIOException ex) {
-          handleIOException(key, ex.getConnection(), ex.getIOException());
-        } catch (IOException ex) {
-          handleIOException(key, null, ex);
-        } catch (InterruptedException e) {
-          // FIXME controlled shutdown (e.g. take care of buffermanagement)
-          Thread.currentThread().interrupt();
+        doRunTasks(selectorTasks);
+        if (isclosed.get()) {
+          selectTimeout = 5;
+        }
+        int keyCount = doSelect(selector, iqueue, pausedReads, selectorWriteStats,
+            selectTimeout);
+        if (keyCount < 0) {
+          return;
+        }
+        if (keyCount == 0 && isclosed.get()) {
+          shutdownCount--;
         }
       }
     } catch (RuntimeException e) {
@@ -465,18 +787,146 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     }
   }
 
+  /**
+   * Execute a single select on the given selector and process all the selected keys
+   *
+   * @param sel           the selector to select on
+   * @param iqueue        the connections of this selector which require an additional read
+   * @param pausedReads   the keys of this selector whose reads are paused
+   * @param writeStats    the write statistics of the selecting thread
+   * @param selectTimeout the timeout for the select operation
+   * @return the number of selected keys or -1, if the selecting thread got interrupted
+   */
+  private int doSelect(Selector sel, List<WebSocketImpl> iqueue, List<SelectionKey> pausedReads,
+      WriteStats writeStats, int selectTimeout) {
+    SelectionKey key = null;
+    int keyCount = 0;
+    try {
+      int timeout = selectTimeout;
+      if (!pausedReads.isEmpty() || !iqueue.isEmpty()) {
+        // retry the reads which could not get a buffer
+        timeout = timeout == 0 ? BUFFER_RETRY_TIMEOUT : Math.min(timeout, BUFFER_RETRY_TIMEOUT);
+      }
+      keyCount = sel.select(timeout);
+      doResumeReads(pausedReads);
+      Set<SelectionKey> keys = sel.selectedKeys();
+      Iterator<SelectionKey> i = keys.iterator();
+
+      while (i.hasNext()) {
+        key = i.next();
+
+        if (!key.isValid()) {
+          continue;
+        }
+
+        if (key.isAcceptable()) {
+          doAccept(key, i);
+          continue;
+        }
+
+        if (key.isReadable() && !doRead(key, i, iqueue, pausedReads)) {
+          continue;
+        }
+
+        if (key.isWritable()) {
+          doWrite(key, writeStats);
+        }
+      }
+      doAdditionalRead(iqueue);
+    } catch (CancelledKeyException e) {
+      // an other thread may cancel the key
+    } catch (ClosedByInterruptException e) {
+      return -1; // do the same stuff as when InterruptedException is thrown
+    } catch (WrappedIOException ex) {
+      handleIOException(key, ex.getConnection(), ex.getIOException());
+    } catch (IOException ex) {
+      handleIOException(key, null, ex);
+    } catch (InterruptedException e) {
+      // FIXME controlled shutdown (e.g. take care of buffermanagement)
+      Thread.currentThread().interrupt();
+    }
+    return keyCount;
+  }
+
+  /**
+   * Run all tasks which got handed over to the selecting thread since the last select
+   *
+   * @param tasks the tasks of the selecting thread
+   */
+  private void doRunTasks(Queue<Runnable> tasks) {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.error("Exception in selector task", e);
+        onError(null, e);
+      }
+    }
+  }
+
+  /**
+   * Run a task on the thread handling the given selector. If this thread is not running, the task
+   * is run by the calling thread.
+   *
+   * @param sel  the selector
+   * @param task the task to run
+   */
+  void execute(Selector sel, Runnable task) {
+    Queue<Runnable> tasks = null;
+    if (sel == selector) {
+      tasks = selectorTasks;
+    } else {
+      for (SelectorLoop loop : allSelectorLoops()) {
+        if (loop.loopSelector == sel) {
+          tasks = loop.loopTasks;
+          break;
+        }
+      }
+    }
+    if (tasks == null || isclosed.get() || !sel.isOpen()) {
+      task.run();
+      return;
+    }
+    tasks.add(task);
+    sel.wakeup();
+  }
+
+  /**
+   * Resume the reads which got paused since no buffer was available
+   *
+   * @param pausedReads the keys whose reads are paused
+   */
+  private void doResumeReads(List<SelectionKey> pausedReads) {
+    for (SelectionKey pausedKey : pausedReads) {
+      try {
+        pausedKey.interestOps(pausedKey.interestOps() | SelectionKey.OP_READ);
+      } catch (CancelledKeyException e) {
+        // the connection got closed in the meantime
+      }
+    }
+    pausedReads.clear();
+  }
+
   /**
    * Do an additional read
    *
+   * @param iqueue the connections which require an additional read
    * @throws InterruptedException thrown by taking a buffer
    * @throws IOException          if an error happened during read
    */
-  private void doAdditionalRead() throws InterruptedException, IOException {
+  private void doAdditionalRead(List<WebSocketImpl> iqueue)
+      throws InterruptedException, IOException {
     WebSocketImpl conn;
     while (!iqueue.isEmpty()) {
-      conn = iqueue.remove(0);
+      conn = iqueue.get(0);
       WrappedByteChannel c = ((WrappedByteChannel) conn.getChannel());
       ByteBuffer buf = takeBuffer();
+      if (buf == null) {
+        // retry with the next select
+        return;
+      }
+      iqueue.remove(0);
       try {
         if (SocketChannelIOHelper.readMore(buf, conn, c)) {
           iqueue.add(conn);
@@ -504,53 +954,91 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
    */
   private void doAccept(SelectionKey key, Iterator<SelectionKey> i)
       throws IOException, InterruptedException {
+    ListenerStats stats = (ListenerStats) key.attachment();
     if (!onConnect(key)) {
+      stats.incrementRejectedConnections();
       key.cancel();
       return;
     }
 
-    SocketChannel channel = server.accept();
+    SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
     if (channel == null) {
       return;
     }
+    stats.incrementAcceptedConnections();
     channel.configureBlocking(false);
     Socket socket = channel.socket();
     socket.setTcpNoDelay(isTcpNoDelay());
     socket.setKeepAlive(true);
+    if (key.selector() == selector && !selectorLoops.isEmpty()) {
+      i.remove();
+      selectorLoops.get(selectorLoopInvokes++ % selectorLoops.size()).queue(channel);
+      return;
+    }
+    if (doRegister(channel, key.selector())) {
+      i.remove();
+    }
+  }
+
+  /**
+   * Create the websocket for a freshly accepted channel and register it on the given selector
+   *
+   * @param channel the accepted channel
+   * @param sel     the selector which handles the reads and writes of the channel
+   * @return true, if the registration was successful, or false if there was an error
+   * @throws InterruptedException thrown by allocating the buffers
+   * @throws IOException          if the channel could not be registered
+   */
+  private boolean doRegister(SocketChannel channel, Selector sel)
+      throws IOException, InterruptedException {
     WebSocketImpl w = wsf.createWebSocket(this, drafts);
-    w.setSelectionKey(channel.register(selector, SelectionKey.OP_READ, w));
+    w.setMaxOutboundBytes(getMaxOutboundBytes());
+    w.setBackpressurePolicy(getBackpressurePolicy());
+    w.setMaxHandshakeSize(getMaxHandshakeSize());
+    w.setMaxHandshakeFields(getMaxHandshakeFields());
+    w.setSelectionKey(channel.register(sel, SelectionKey.OP_READ, w));
     try {
       w.setChannel(wsf.wrapChannel(channel, w.getSelectionKey()));
-      i.remove();
       allocateBuffers(w);
+      return true;
     } catch (IOException ex) {
       if (w.getSelectionKey() != null) {
         w.getSelectionKey().cancel();
       }
 
       handleIOException(w.getSelectionKey(), null, ex);
+      return false;
     }
   }
 
   /**
    * Execute a read operation
    *
-   * @param key the selectionkey to read off
-   * @param i   the iterator for the selection keys
+   * @param key         the selectionkey to read off
+   * @param i           the iterator for the selection keys
+   * @param iqueue      the connections which require an additional read
+   * @param pausedReads the keys whose reads are paused
    * @return true, if the read was successful, or false if there was an error
-   * @throws InterruptedException thrown by taking a buffer
+   * @throws InterruptedException thrown by queuing the buffer
    * @throws IOException          if an error happened during read
    */
-  private boolean doRead(SelectionKey key, Iterator<SelectionKey> i)
-      throws InterruptedException, WrappedIOException {
+  private boolean doRead(SelectionKey key, Iterator<SelectionKey> i, List<WebSocketImpl> iqueue,
+      List<SelectionKey> pausedReads) throws InterruptedException, WrappedIOException {
     WebSocketImpl conn = (WebSocketImpl) key.attachment();
-    ByteBuffer buf = takeBuffer();
     if (conn.getChannel() == null) {
       key.cancel();
 
       handleIOException(key, conn, new IOException());
       return false;
     }
+    ByteBuffer buf = takeBuffer();
+    if (buf == null) {
+      // the pool is exhausted, pause reading from this connection until the next select
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+      pausedReads.add(key);
+      i.remove();
+      return true;
+    }
     try {
       if (SocketChannelIOHelper.read(buf, conn, conn.getChannel())) {
         if (buf.hasRemaining()) {
@@ -578,13 +1066,27 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
    * Execute a write operation
    *
    * @param key the selectionkey to write on
+   * @param writeStats the write statistics of the writing thread
    * @throws IOException if an error happened during batch
    */
-  private void doWrite(SelectionKey key) throws WrappedIOException {
+  private void doWrite(SelectionKey key, WriteStats writeStats) throws WrappedIOException {
     WebSocketImpl conn = (WebSocketImpl) key.attachment();
+    int quantum = writeQuantum;
+    long before = writeStats.bytesWritten.get();
     try {
-      if (SocketChannelIOHelper.batch(conn, conn.getChannel()) && key.isValid()) {
-        key.interestOps(SelectionKey.OP_READ);
+      boolean flushed = SocketChannelIOHelper.batch(conn, conn.getChannel(), quantum,
+          writeStats.bytesWritten);
+      // the remaining bytes of a deferred write are written in the next pass, since OP_WRITE stays
+      writeStats.incrementWrites(
+          !flushed && quantum > 0 && writeStats.bytesWritten.get() - before >= quantum);
+      if (flushed && key.isValid()) {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (!conn.outQueue.isEmpty() || (conn.getChannel() instanceof WrappedByteChannel
+            && ((WrappedByteChannel) conn.getChannel()).isNeedWrite())) {
+          // a frame got queued or a TLS task completed after the batch, its write demand must not
+          // be lost
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
       }
     } catch (IOException e) {
       throw new WrappedIOException(conn, e);
@@ -610,16 +1112,40 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
         socket.setReceiveBufferSize(receiveBufferSize);
       }
       socket.setReuseAddress(isReuseAddr());
+      boolean reusePort = false;
       // Socket may be already bound, if an existing channel was passed to constructor.
       // In this case we cannot modify backlog size from pure Java code, so leave it as is.
       if (!socket.isBound()) {
+        reusePort = listenerCount > 1 && setReusePort(server);
         socket.bind(address, getMaxPendingConnections());
       }
+      if (bufferPool == null && isCreateBufferOverridden()) {
+        bufferPool = new CreateBufferPool(2 * decoders.size() + 1);
+      } else if (bufferPool == null) {
+        int bufferSize = getReadBufferSize();
+        bufferPool = new SlabByteBufferPool(bufferSize, Math.max(DEFAULT_BUFFER_POOL_SIZE,
+            (long) bufferSize * (2 * decoders.size() + 1)));
+      }
+      // the buffers created by a subclass may not fit the TLS buffers
+      if (!(bufferPool instanceof CreateBufferPool)
+          && wsf instanceof DefaultSSLWebSocketServerFactory
+          && ((DefaultSSLWebSocketServerFactory) wsf).getByteBufferPool() == null) {
+        ((DefaultSSLWebSocketServerFactory) wsf).setByteBufferPool(bufferPool);
+      }
       selector = Selector.open();
-      server.register(selector, server.validOps());
+      selectorWriteStats = new WriteStats(selectorthread.getName());
+      ListenerStats stats = new ListenerStats(0, (InetSocketAddress) server.getLocalAddress());
+      server.register(selector, server.validOps(), stats);
+      doSetupSelectorLoops();
+      doSetupListenerLoops(reusePort, stats);
       startConnectionLostTimer();
-      for (WebSocketWorker ex : decoders) {
-        ex.start();
+      if (virtualThreadFactory == null) {
+        for (WebSocketWorker ex : decoders) {
+          ex.start();
+        }
+      }
+      for (SelectorLoop loop : allSelectorLoops()) {
+        loop.start();
       }
       onStart();
     } catch (IOException ex) {
@@ -630,14 +1156,144 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
   }
 
   /**
-   * The websocket server can only be started once
+   * Open the selectors for the configured number of selector threads
    *
-   * @return true, if the server can be started, false if already a thread is running
+   * @throws IOException if a selector could not be opened
    */
-  private boolean doEnsureSingleThread() {
-    synchronized (this) {
-      if (selectorthread != null) {
-        throw new IllegalStateException(getClass().getName() + " can only be started once.");
+  private void doSetupSelectorLoops() throws IOException {
+    if (selectorThreadCount == 0) {
+      return;
+    }
+    List<SelectorLoop> loops = new ArrayList<>(selectorThreadCount);
+    try {
+      for (int i = 0; i < selectorThreadCount; i++) {
+        loops.add(new SelectorLoop(Selector.open()));
+      }
+    } catch (IOException e) {
+      for (SelectorLoop loop : loops) {
+        loop.closeSelector();
+      }
+      throw e;
+    }
+    selectorLoops = loops;
+  }
+
+  /**
+   * Bind the additional listening channels, each with its own selector loop
+   *
+   * @param reusePort    whether SO_REUSEPORT could be enabled on the listener of the
+   *                     selectorthread
+   * @param primaryStats the statistics of the listener of the selectorthread
+   * @throws IOException if a listener could not be bound
+   */
+  private void doSetupListenerLoops(boolean reusePort, ListenerStats primaryStats)
+      throws IOException {
+    List<ListenerStats> stats = new ArrayList<>(listenerCount);
+    stats.add(primaryStats);
+    if (listenerCount > 1 && !reusePort) {
+      log.warn("SO_REUSEPORT is not available, using a single listener instead of {}",
+          listenerCount);
+    }
+    if (!reusePort) {
+      listenerStats = stats;
+      return;
+    }
+    InetSocketAddress bindAddress = new InetSocketAddress(address.getAddress(),
+        server.socket().getLocalPort());
+    List<SelectorLoop> loops = new ArrayList<>(listenerCount - 1);
+    try {
+      for (int i = 1; i < listenerCount; i++) {
+        ServerSocketChannel listener = ServerSocketChannel.open();
+        SelectorLoop loop = new SelectorLoop(Selector.open(), listener);
+        loops.add(loop);
+        listener.configureBlocking(false);
+        ServerSocket socket = listener.socket();
+        int receiveBufferSize = getReceiveBufferSize();
+        if (receiveBufferSize > 0) {
+          socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        socket.setReuseAddress(isReuseAddr());
+        setReusePort(listener);
+        socket.bind(bindAddress, getMaxPendingConnections());
+        ListenerStats listenerStat = new ListenerStats(i,
+            (InetSocketAddress) listener.getLocalAddress());
+        listener.register(loop.loopSelector, listener.validOps(), listenerStat);
+        stats.add(listenerStat);
+      }
+    } catch (IOException e) {
+      for (SelectorLoop loop : loops) {
+        loop.closeSelector();
+      }
+      throw e;
+    }
+    listenerLoops = loops;
+    listenerStats = stats;
+  }
+
+  /**
+   * Enable SO_REUSEPORT on the given channel, if the JVM supports this option
+   *
+   * @param channel the channel which is not yet bound
+   * @return true, if the option is enabled
+   * @throws IOException if the option could not be set
+   */
+  @SuppressWarnings("unchecked")
+  private static boolean setReusePort(ServerSocketChannel channel) throws IOException {
+    // StandardSocketOptions.SO_REUSEPORT only exists since Java 9
+    for (SocketOption<?> option : channel.supportedOptions()) {
+      if ("SO_REUSEPORT".equals(option.name()) && option.type() == Boolean.class) {
+        channel.setOption((SocketOption<Boolean>) option, Boolean.TRUE);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get all selector loops, the ones handling the handed over connections as well as the ones
+   * owning an additional listener
+   *
+   * @return all selector loops of this server
+   */
+  private List<SelectorLoop> allSelectorLoops() {
+    List<SelectorLoop> loops = new ArrayList<>(selectorLoops);
+    loops.addAll(listenerLoops);
+    return loops;
+  }
+
+  /**
+   * Let the selector loops finish their remaining work and wait for them to terminate
+   */
+  private void doStopSelectorLoops() {
+    List<SelectorLoop> loops = allSelectorLoops();
+    for (SelectorLoop loop : loops) {
+      if (isclosed.get()) {
+        loop.wakeup();
+      } else {
+        loop.interrupt();
+      }
+    }
+    try {
+      for (SelectorLoop loop : loops) {
+        loop.join();
+      }
+    } catch (InterruptedException e) {
+      for (SelectorLoop loop : loops) {
+        loop.interrupt();
+      }
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The websocket server can only be started once
+   *
+   * @return true, if the server can be started, false if already a thread is running
+   */
+  private boolean doEnsureSingleThread() {
+    synchronized (this) {
+      if (selectorthread != null) {
+        throw new IllegalStateException(getClass().getName() + " can only be started once.");
       }
       selectorthread = Thread.currentThread();
       if (isclosed.get()) {
@@ -651,6 +1307,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
    * Clean up everything after a shutdown
    */
   private void doServerShutdown() {
+    doStopSelectorLoops();
     stopConnectionLostTimer();
     if (decoders != null) {
       for (WebSocketWorker w : decoders) {
@@ -675,41 +1332,192 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     }
   }
 
+  /**
+   * Called as soon as a new connection got registered. This default implementation does nothing.
+   *
+   * @param c the new connection
+   * @throws InterruptedException may be thrown by an implementation
+   * @deprecated the buffers for the reads are leased from the {@link #getByteBufferPool() buffer
+   * pool}, buffers allocated here are not used. Provide a {@link ByteBufferPool} with {@link
+   * #setByteBufferPool(ByteBufferPool)} to control the allocation instead.
+   */
+  @Deprecated
   protected void allocateBuffers(WebSocket c) throws InterruptedException {
-    if (queuesize.get() >= 2 * decoders.size() + 1) {
-      return;
-    }
-    queuesize.incrementAndGet();
-    buffers.put(createBuffer());
+    // buffers are leased from the buffer pool for every read
   }
 
+  /**
+   * Called as soon as a connection got closed. This default implementation does nothing.
+   *
+   * @param c the closed connection
+   * @throws InterruptedException may be thrown by an implementation
+   * @deprecated the buffers for the reads are returned to the {@link #getByteBufferPool() buffer
+   * pool} after every read, see {@link #allocateBuffers(WebSocket)}
+   */
+  @Deprecated
   protected void releaseBuffers(WebSocket c) throws InterruptedException {
-    // queuesize.decrementAndGet();
-    // takeBuffer();
+    // buffers are leased from the buffer pool for every read
   }
 
+  /**
+   * Create a heap buffer with the size of the buffers used for every read
+   *
+   * @return the new buffer
+   * @deprecated the buffers for the reads are leased from the {@link #getByteBufferPool() buffer
+   * pool}. This method is only used if a subclass overrides it and no pool is set, to create up to
+   * 2 * {@link #getWorkers() workers} + 1 buffers. Provide a {@link ByteBufferPool} with {@link
+   * #setByteBufferPool(ByteBufferPool)} to control the allocation instead.
+   */
+  @Deprecated
   public ByteBuffer createBuffer() {
+    return ByteBuffer.allocate(getReadBufferSize());
+  }
+
+  /**
+   * Returns whether a subclass overrides {@link #createBuffer()}
+   *
+   * @return true, if the buffers should be created by {@link #createBuffer()}
+   */
+  private boolean isCreateBufferOverridden() {
+    try {
+      return getClass().getMethod("createBuffer").getDeclaringClass() != WebSocketServer.class;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Get the size of the buffers used for every read
+   *
+   * @return the receive buffer size if set, otherwise the default size
+   */
+  private int getReadBufferSize() {
     int receiveBufferSize = getReceiveBufferSize();
-    return ByteBuffer.allocate(receiveBufferSize > 0 ? receiveBufferSize : DEFAULT_READ_BUFFER_SIZE);
+    return receiveBufferSize > 0 ? receiveBufferSize : DEFAULT_READ_BUFFER_SIZE;
   }
 
+  /**
+   * Schedule the connection for decoding, after a buffer was added to its inQueue.
+   * <p>
+   * A connection which is already scheduled is left alone, since its worker decodes the new buffer
+   * as well. With {@link #setUseVirtualThreads(boolean) virtual threads} a new virtual thread
+   * decodes the buffers of the connection. Otherwise the connection is queued on the worker which
+   * decoded it last, if that worker is idle, or on any idle worker. If all workers are busy, the
+   * connection stays with its last worker and may be stolen by the next worker running out of
+   * work.
+   *
+   * @param ws the connection with a new buffer to decode
+   * @throws InterruptedException thrown by queuing the connection
+   */
   protected void queue(WebSocketImpl ws) throws InterruptedException {
-    if (ws.getWorkerThread() == null) {
-      ws.setWorkerThread(decoders.get(queueinvokes % decoders.size()));
-      queueinvokes++;
+    if (!scheduled.add(ws)) {
+      return;
     }
-    ws.getWorkerThread().put(ws);
+    if (virtualThreadFactory != null) {
+      virtualThreadFactory.newThread(new VirtualWorker(ws)).start();
+      return;
+    }
+    WebSocketWorker worker = ws.getWorkerThread();
+    if (worker == null || !worker.idle) {
+      WebSocketWorker idle = findIdleWorker();
+      if (idle != null) {
+        worker = idle;
+      } else if (worker == null) {
+        worker = decoders.get(queueinvokes % decoders.size());
+        queueinvokes++;
+      }
+    }
+    worker.put(ws);
   }
 
-  private ByteBuffer takeBuffer() throws InterruptedException {
-    return buffers.take();
+  /**
+   * Find a worker which waits for work
+   *
+   * @return an idle worker or null, if all workers are busy
+   */
+  private WebSocketWorker findIdleWorker() {
+    for (WebSocketWorker worker : decoders) {
+      if (worker.idle) {
+        return worker;
+      }
+    }
+    return null;
   }
 
-  private void pushBuffer(ByteBuffer buf) throws InterruptedException {
-    if (buffers.size() > queuesize.intValue()) {
-      return;
+  /**
+   * Returns whether the current thread is the selectorthread, a selector loop or a listener loop of
+   * this server. The workers only decode, so they may wait for the selectors to write.
+   *
+   * @return true, if the current thread must not block
+   * @since 1.6.1
+   */
+  @Override
+  protected boolean isEventLoopThread() {
+    Thread current = Thread.currentThread();
+    return current == selectorthread || selectorLoops.contains(current)
+        || listenerLoops.contains(current);
+  }
+
+  /**
+   * Returns the workers which decode the incoming data of this server.
+   *
+   * @return an unmodifiable list of the workers, to read their queue depths
+   * @see WebSocketWorker#getQueueDepth()
+   * @since 1.6.1
+   */
+  public List<WebSocketWorker> getWorkers() {
+    return Collections.unmodifiableList(decoders);
+  }
+
+  /**
+   * Lease a buffer for a read
+   *
+   * @return the buffer or null, if the pool is exhausted
+   */
+  private ByteBuffer takeBuffer() {
+    return bufferPool.acquire(getReadBufferSize());
+  }
+
+  private void pushBuffer(ByteBuffer buf) {
+    bufferPool.release(buf);
+  }
+
+  /**
+   * call ws.decode on the byteBuffer and release the buffer afterwards
+   *
+   * @param ws  the Websocket
+   * @param buf the buffer to decode to
+   */
+  private void doDecode(WebSocketImpl ws, ByteBuffer buf) {
+    try {
+      ws.decode(buf);
+    } catch (Exception e) {
+      log.error("Error while reading from remote connection", e);
+    } finally {
+      pushBuffer(buf);
+    }
+  }
+
+  /**
+   * Handle an error which escaped the decoding of a connection
+   *
+   * @param ws the connection which was decoded, may be null
+   * @param e  the error
+   */
+  private void handleDecodeError(WebSocketImpl ws, Throwable e) {
+    if (e instanceof VirtualMachineError || e instanceof ThreadDeath
+        || e instanceof LinkageError) {
+      log.error("Got fatal error in worker thread {}", Thread.currentThread().getName());
+      Exception exception = new Exception(e);
+      handleFatal(ws, exception);
+    } else {
+      log.error("Uncaught exception in thread {}: {}", Thread.currentThread().getName(), e);
+      if (ws != null) {
+        Exception exception = new Exception(e);
+        onWebsocketError(ws, exception);
+        ws.close();
+      }
     }
-    buffers.put(buf);
   }
 
   private void handleIOException(SelectionKey key, WebSocket conn, IOException ex) {
@@ -753,6 +1561,9 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
         w.interrupt();
       }
     }
+    for (SelectorLoop loop : allSelectorLoops()) {
+      loop.interrupt();
+    }
     if (selectorthread != null) {
       selectorthread.interrupt();
     }
@@ -769,16 +1580,23 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     onMessage(conn, blob);
   }
 
+  @Override
+  public final void onWebsocketMessage(WebSocket conn, CompositeByteBuffer message) {
+    onMessage(conn, message);
+  }
+
   @Override
   public final void onWebsocketOpen(WebSocket conn, Handshakedata handshake) {
     if (addConnection(conn)) {
+      startConnectionLostDetection(conn);
       onOpen(conn, (ClientHandshake) handshake);
     }
   }
 
   @Override
   public final void onWebsocketClose(WebSocket conn, int code, String reason, boolean remote) {
-    selector.wakeup();
+    wakeup((WebSocketImpl) conn);
+    topicRegistry.unsubscribeAll(conn);
     try {
       if (removeConnection(conn)) {
         onClose(conn, code, reason, remote);
@@ -853,7 +1671,22 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
       // the thread which cancels key is responsible for possible cleanup
       conn.outQueue.clear();
     }
-    selector.wakeup();
+    wakeup(conn);
+  }
+
+  /**
+   * Wake up the selector which handles the given connection
+   *
+   * @param conn the connection
+   */
+  private void wakeup(WebSocketImpl conn) {
+    SelectionKey connKey = conn.getSelectionKey();
+    if (connKey != null) {
+      connKey.selector().wakeup();
+    }
+    if (connKey == null || connKey.selector() != selector) {
+      selector.wakeup();
+    }
   }
 
   @Override
@@ -977,6 +1810,21 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
   public void onMessage(WebSocket conn, ByteBuffer message) {
   }
 
+  /**
+   * Callback for binary messages received from the remote host in several fragments. Overwrite it
+   * to read the fragments without copying them, e.g. with {@link CompositeByteBuffer#writeTo}.
+   * <p>
+   * By default the fragments are copied into one buffer, which is passed to {@link
+   * #onMessage(WebSocket, ByteBuffer)}.
+   *
+   * @param conn    The <code>WebSocket</code> instance this event is occurring on.
+   * @param message The fragments of the binary message that was received.
+   * @since 1.6.1
+   **/
+  public void onMessage(WebSocket conn, CompositeByteBuffer message) {
+    onMessage(conn, message.toByteBuffer());
+  }
+
   /**
    * Send a text to all connected endpoints
    *
@@ -1027,7 +1875,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     if (data == null || clients == null) {
       throw new IllegalArgumentException();
     }
-    doBroadcast(data, clients);
+    doBroadcast(new PreparedMessage(data), clients);
   }
 
   /**
@@ -1040,38 +1888,49 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     if (text == null || clients == null) {
       throw new IllegalArgumentException();
     }
-    doBroadcast(text, clients);
+    doBroadcast(new PreparedMessage(text), clients);
   }
 
   /**
-   * Private method to cache all the frames to improve memory footprint and conversion time
+   * Send a prepared message to all connected endpoints
    *
-   * @param data    the data to broadcast
-   * @param clients the clients to send the message to
+   * @param message the message to send to the endpoints
+   * @since 1.6.1
    */
-  private void doBroadcast(Object data, Collection<WebSocket> clients) {
-    String strData = null;
-    if (data instanceof String) {
-      strData = (String) data;
-    }
-    ByteBuffer byteData = null;
-    if (data instanceof ByteBuffer) {
-      byteData = (ByteBuffer) data;
-    }
-    if (strData == null && byteData == null) {
-      return;
+  public void broadcast(PreparedMessage message) {
+    broadcast(message, connections);
+  }
+
+  /**
+   * Send a prepared message to a specific collection of websocket connections
+   *
+   * @param message the message to send to the endpoints
+   * @param clients a collection of endpoints to whom the message has to be send
+   * @since 1.6.1
+   */
+  public void broadcast(PreparedMessage message, Collection<WebSocket> clients) {
+    if (message == null || clients == null) {
+      throw new IllegalArgumentException();
     }
-    Map<Draft, List<Framedata>> draftFrames = new HashMap<>();
+    doBroadcast(message, clients);
+  }
+
+  /**
+   * Private method to send the message to all clients. The wire bytes of the message are only
+   * created once per draft, if the draft allows to share them.
+   *
+   * @param message the message to broadcast
+   * @param clients the clients to send the message to
+   */
+  private void doBroadcast(PreparedMessage message, Collection<WebSocket> clients) {
     List<WebSocket> clientCopy;
     synchronized (clients) {
       clientCopy = new ArrayList<>(clients);
     }
     for (WebSocket client : clientCopy) {
       if (client != null) {
-        Draft draft = client.getDraft();
-        fillFrames(draft, draftFrames, strData, byteData);
         try {
-          client.sendFrame(draftFrames.get(draft));
+          client.send(message);
         } catch (WebsocketNotConnectedException e) {
           //Ignore this exception in this case
         }
@@ -1080,38 +1939,213 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
   }
 
   /**
-   * Fills the draftFrames with new data for the broadcast
+   * A pool of a limited number of buffers created by {@link #createBuffer()}, for subclasses which
+   * still override it
+   */
+  private class CreateBufferPool implements ByteBufferPool {
+
+    /**
+     * The maximum number of buffers to create
+     */
+    private final int maxBuffers;
+
+    private final Queue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger createdBuffers = new AtomicInteger();
+
+    CreateBufferPool(int maxBuffers) {
+      this.maxBuffers = maxBuffers;
+    }
+
+    @Override
+    public ByteBuffer acquire(int minCapacity) {
+      ByteBuffer buffer = idleBuffers.poll();
+      if (buffer == null) {
+        if (createdBuffers.incrementAndGet() > maxBuffers) {
+          createdBuffers.decrementAndGet();
+          return null;
+        }
+        buffer = createBuffer();
+      }
+      buffer.clear();
+      return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+      idleBuffers.offer(buffer);
+    }
+  }
+
+  /**
+   * This class is used to handle the reads and writes of the connections registered on its own
+   * selector. It may also own an additional listener, whose connections it accepts itself.
    *
-   * @param draft       The draft to use
-   * @param draftFrames The list of frames per draft to fill
-   * @param strData       the string data, can be null
-   * @param byteData       the byte buffer data, can be null
+   * @since 1.6.1
    */
-  private void fillFrames(Draft draft, Map<Draft, List<Framedata>> draftFrames, String strData,
-      ByteBuffer byteData) {
-    if (!draftFrames.containsKey(draft)) {
-      List<Framedata> frames = null;
-      if (strData != null) {
-        frames = draft.createFrames(strData, false);
+  private class SelectorLoop extends Thread {
+
+    private final Selector loopSelector;
+
+    /**
+     * The additional listener owned by this selector loop, may be null
+     */
+    private final ServerSocketChannel loopServer;
+
+    /**
+     * The connections of this selector which require an additional read
+     */
+    private final List<WebSocketImpl> loopIqueue = new LinkedList<>();
+
+    /**
+     * The keys of this selector whose reads are paused, since no buffer was available
+     */
+    private final List<SelectionKey> loopPausedReads = new ArrayList<>();
+
+    /**
+     * The accepted channels which still have to be registered on this selector
+     */
+    private final Queue<SocketChannel> queuedChannels = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The tasks which have to be run by this selector loop
+     */
+    private final Queue<Runnable> loopTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The write statistics of this selector loop
+     */
+    private final WriteStats loopWriteStats;
+
+    SelectorLoop(Selector loopSelector) {
+      this(loopSelector, null);
+    }
+
+    SelectorLoop(Selector loopSelector, ServerSocketChannel loopServer) {
+      this.loopSelector = loopSelector;
+      this.loopServer = loopServer;
+      setName("WebSocketSelector-" + getId());
+      setDaemon(WebSocketServer.this.isDaemon());
+      this.loopWriteStats = new WriteStats(getName());
+    }
+
+    /**
+     * Hand over an accepted channel to this selector loop
+     *
+     * @param channel the accepted channel
+     */
+    void queue(SocketChannel channel) {
+      queuedChannels.add(channel);
+      loopSelector.wakeup();
+    }
+
+    void wakeup() {
+      loopSelector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      try {
+        int shutdownCount = 5;
+        int selectTimeout = 0;
+        while (!isInterrupted() && shutdownCount != 0) {
+          doRegisterQueuedChannels();
+          doRunTasks(loopTasks);
+          if (isclosed.get()) {
+            selectTimeout = 5;
+          }
+          int keyCount = doSelect(loopSelector, loopIqueue, loopPausedReads, loopWriteStats,
+              selectTimeout);
+          if (keyCount < 0) {
+            return;
+          }
+          if (keyCount == 0 && isclosed.get()) {
+            shutdownCount--;
+          }
+        }
+      } catch (RuntimeException e) {
+        // should hopefully never occur
+        handleFatal(null, e);
+      } finally {
+        closeSelector();
       }
-      if (byteData != null) {
-        frames = draft.createFrames(byteData, false);
+    }
+
+    /**
+     * Register all channels which got handed over since the last select
+     */
+    private void doRegisterQueuedChannels() {
+      SocketChannel channel;
+      while ((channel = queuedChannels.poll()) != null) {
+        try {
+          doRegister(channel, loopSelector);
+        } catch (IOException e) {
+          log.trace("Connection closed because of exception", e);
+          closeChannel(channel);
+        } catch (InterruptedException e) {
+          closeChannel(channel);
+          Thread.currentThread().interrupt();
+        }
       }
-      if (frames != null) {
-        draftFrames.put(draft, frames);
+    }
+
+    private void closeChannel(SocketChannel channel) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // there is nothing that must be done here
+      }
+    }
+
+    void closeSelector() {
+      SocketChannel channel;
+      while ((channel = queuedChannels.poll()) != null) {
+        closeChannel(channel);
+      }
+      try {
+        loopSelector.close();
+      } catch (IOException e) {
+        log.error("IOException during selector.close", e);
+        onError(null, e);
+      }
+      if (loopServer != null) {
+        try {
+          loopServer.close();
+        } catch (IOException e) {
+          log.error("IOException during server.close", e);
+          onError(null, e);
+        }
       }
     }
   }
 
   /**
    * This class is used to process incoming data
+   * <p>
+   * Every worker has its own queue of scheduled connections. A worker without queued connections
+   * steals from the tail of the queues of the other workers before it waits for work, so a few busy
+   * connections cannot hold back the connections queued behind them while other workers are idle.
    */
   public class WebSocketWorker extends Thread {
 
-    private BlockingQueue<WebSocketImpl> iqueue;
+    private final BlockingDeque<WebSocketImpl> iqueue;
+
+    /**
+     * The number of connections this worker took from the queues of the other workers
+     */
+    private final AtomicLong stolen = new AtomicLong();
+
+    /**
+     * The number of decoded buffers
+     */
+    private final AtomicLong decoded = new AtomicLong();
+
+    /**
+     * Whether this worker waits for work
+     */
+    private volatile boolean idle;
 
     public WebSocketWorker() {
-      iqueue = new LinkedBlockingQueue<>();
+      iqueue = new LinkedBlockingDeque<>();
       setName("WebSocketWorker-" + getId());
       setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
         @Override
@@ -1122,7 +2156,37 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
     }
 
     public void put(WebSocketImpl ws) throws InterruptedException {
-      iqueue.put(ws);
+      iqueue.putLast(ws);
+    }
+
+    /**
+     * Getter for the number of connections waiting in the queue of this worker
+     *
+     * @return the queue depth of this worker
+     * @since 1.6.1
+     */
+    public int getQueueDepth() {
+      return iqueue.size();
+    }
+
+    /**
+     * Getter for the number of connections this worker took from the queues of the other workers
+     *
+     * @return the number of stolen connections
+     * @since 1.6.1
+     */
+    public long getStolenCount() {
+      return stolen.get();
+    }
+
+    /**
+     * Getter for the number of buffers this worker decoded
+     *
+     * @return the number of decoded buffers
+     * @since 1.6.1
+     */
+    public long getDecodedCount() {
+      return decoded.get();
     }
 
     @Override
@@ -1130,43 +2194,117 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
       WebSocketImpl ws = null;
       try {
         while (true) {
-          ByteBuffer buf;
-          ws = iqueue.take();
-          buf = ws.inQueue.poll();
-          assert (buf != null);
-          doDecode(ws, buf);
+          ws = iqueue.pollFirst();
+          if (ws == null) {
+            ws = steal();
+          }
+          if (ws == null) {
+            idle = true;
+            try {
+              // a connection may have been queued elsewhere, before this worker became idle
+              ws = steal();
+              if (ws == null) {
+                ws = iqueue.takeFirst();
+              }
+            } finally {
+              idle = false;
+            }
+          }
+          ws.setWorkerThread(this);
+          doDecodeBatch(ws);
           ws = null;
         }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
-      } catch (VirtualMachineError | ThreadDeath | LinkageError e) {
-        log.error("Got fatal error in worker thread {}", getName());
-        Exception exception = new Exception(e);
-        handleFatal(ws, exception);
       } catch (Throwable e) {
-        log.error("Uncaught exception in thread {}: {}", getName(), e);
-        if (ws != null) {
-          Exception exception = new Exception(e);
-          onWebsocketError(ws, exception);
-          ws.close();
+        handleDecodeError(ws, e);
+      }
+    }
+
+    /**
+     * Take a connection from the tail of the queue of another worker
+     *
+     * @return the stolen connection or null, if the queues of all other workers are empty
+     */
+    private WebSocketImpl steal() {
+      for (WebSocketWorker worker : decoders) {
+        if (worker != this) {
+          WebSocketImpl ws = worker.iqueue.pollLast();
+          if (ws != null) {
+            stolen.incrementAndGet();
+            return ws;
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Decode a limited number of buffers of the connection and queue it again, if it has more
+     *
+     * @param ws the scheduled connection
+     * @throws InterruptedException thrown by queuing the connection
+     */
+    private void doDecodeBatch(WebSocketImpl ws) throws InterruptedException {
+      for (int i = 0; i < DECODE_BATCH_SIZE; i++) {
+        ByteBuffer buf = ws.inQueue.poll();
+        if (buf == null) {
+          break;
+        }
+        doDecode(ws, buf);
+      }
+      if (ws.inQueue.isEmpty()) {
+        scheduled.remove(ws);
+        // a buffer queued after the last poll did not schedule the connection again
+        if (ws.inQueue.isEmpty() || !scheduled.add(ws)) {
+          return;
         }
       }
+      iqueue.putLast(ws);
     }
 
     /**
-     * call ws.decode on the byteBuffer
+     * count the buffer and call ws.decode on it
      *
      * @param ws  the Websocket
      * @param buf the buffer to decode to
-     * @throws InterruptedException thrown by pushBuffer
      */
-    private void doDecode(WebSocketImpl ws, ByteBuffer buf) throws InterruptedException {
+    private void doDecode(WebSocketImpl ws, ByteBuffer buf) {
+      decoded.incrementAndGet();
+      WebSocketServer.this.doDecode(ws, buf);
+    }
+  }
+
+  /**
+   * Decodes the buffers of a single connection on a virtual thread, until its inQueue is empty
+   *
+   * @see #setUseVirtualThreads(boolean)
+   */
+  private class VirtualWorker implements Runnable {
+
+    private final WebSocketImpl ws;
+
+    VirtualWorker(WebSocketImpl ws) {
+      this.ws = ws;
+    }
+
+    @Override
+    public void run() {
       try {
-        ws.decode(buf);
-      } catch (Exception e) {
-        log.error("Error while reading from remote connection", e);
-      } finally {
-        pushBuffer(buf);
+        while (true) {
+          ByteBuffer buf = ws.inQueue.poll();
+          if (buf != null) {
+            doDecode(ws, buf);
+            continue;
+          }
+          scheduled.remove(ws);
+          // a buffer queued after the last poll did not schedule the connection again
+          if (ws.inQueue.isEmpty() || !scheduled.add(ws)) {
+            return;
+          }
+        }
+      } catch (Throwable e) {
+        handleDecodeError(ws, e);
       }
     }
   }
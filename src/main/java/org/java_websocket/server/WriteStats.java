@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write statistics of a single selector thread of a {@link WebSocketServer}
+ * <p>
+ * A write is deferred, if a connection still had queued data after the write quantum was written
+ * and has to wait for the next selector pass. A high share of deferred writes means that a few
+ * connections with deep queues share the selector thread with others.
+ *
+ * @see WebSocketServer#getWriteStats()
+ * @see WebSocketServer#setWriteQuantum(int)
+ * @since 1.6.1
+ */
+public final class WriteStats {
+
+  /**
+   * The name of the selector thread
+   */
+  private final String selectorName;
+
+  /**
+   * The number of writes
+   */
+  private final AtomicLong writes = new AtomicLong();
+
+  /**
+   * The number of writes which were stopped by the write quantum
+   */
+  private final AtomicLong deferredWrites = new AtomicLong();
+
+  /**
+   * The number of written bytes
+   */
+  final AtomicLong bytesWritten = new AtomicLong();
+
+  WriteStats(String selectorName) {
+    this.selectorName = selectorName;
+  }
+
+  void incrementWrites(boolean deferred) {
+    writes.incrementAndGet();
+    if (deferred) {
+      deferredWrites.incrementAndGet();
+    }
+  }
+
+  /**
+   * Getter for the name of the selector thread
+   *
+   * @return the name of the selector thread
+   */
+  public String getSelectorName() {
+    return selectorName;
+  }
+
+  /**
+   * Getter for the number of writes
+   *
+   * @return the number of writes of this selector thread
+   */
+  public long getWrites() {
+    return writes.get();
+  }
+
+  /**
+   * Getter for the number of deferred writes
+   *
+   * @return the number of writes which left queued data for the next selector pass
+   */
+  public long getDeferredWrites() {
+    return deferredWrites.get();
+  }
+
+  /**
+   * Getter for the number of written bytes
+   *
+   * @return the number of bytes written by this selector thread
+   */
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  @Override
+  public String toString() {
+    return "WriteStats{selectorName=" + selectorName + ", writes=" + writes + ", deferredWrites="
+        + deferredWrites + ", bytesWritten=" + bytesWritten + '}';
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for a pool of ByteBuffers which are leased for a single operation, e.g. a read from
+ * the network, and given back afterwards.
+ *
+ * @see SlabByteBufferPool
+ * @since 1.6.1
+ */
+public interface ByteBufferPool {
+
+  /**
+   * Lease a buffer from this pool. This method must not block.
+   *
+   * @param minCapacity the minimum capacity of the buffer
+   * @return a cleared buffer with at least the requested capacity, or null if the pool is
+   * exhausted
+   * @throws IllegalArgumentException if this pool cannot provide buffers of the requested size
+   */
+  ByteBuffer acquire(int minCapacity);
+
+  /**
+   * Give a buffer back to this pool. The buffer must not be used by the caller afterwards.
+   *
+   * @param buffer the buffer previously leased by {@link #acquire(int)}
+   */
+  void release(ByteBuffer buffer);
+}
@@ -62,6 +62,38 @@ public class ByteBufferUtils {
     }
   }
 
+  /**
+   * Transfer a number of bytes from one ByteBuffer to another ByteBuffer, regardless whether the
+   * buffers are backed by an array or not
+   *
+   * @param source the ByteBuffer to copy from
+   * @param dest   the ByteBuffer to copy to
+   * @param length the number of bytes to transfer
+   * @since 1.6.1
+   */
+  public static void transferByteBuffer(ByteBuffer source, ByteBuffer dest, int length) {
+    if (source == null || dest == null) {
+      throw new IllegalArgumentException();
+    }
+    ByteBuffer part = source.duplicate();
+    part.limit(part.position() + length);
+    dest.put(part);
+    source.position(source.position() + length);
+  }
+
+  /**
+   * Get a copy of the remaining bytes of a ByteBuffer without changing its position
+   *
+   * @param buffer the ByteBuffer to copy
+   * @return the remaining bytes
+   * @since 1.6.1
+   */
+  public static byte[] getRemainingBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
   /**
    * Get a ByteBuffer with zero capacity
    *
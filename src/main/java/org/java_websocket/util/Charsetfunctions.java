@@ -26,9 +26,6 @@
 package org.java_websocket.util;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.framing.CloseFrame;
@@ -41,7 +38,25 @@ public class Charsetfunctions {
   private Charsetfunctions() {
   }
 
-  private static final CodingErrorAction codingErrorAction = CodingErrorAction.REPORT;
+  /**
+   * The encoders used by utf8Bytes, which keep their buffers between the calls
+   */
+  private static final ThreadLocal<Utf8Encoder> encoders = new ThreadLocal<Utf8Encoder>() {
+    @Override
+    protected Utf8Encoder initialValue() {
+      return new Utf8Encoder();
+    }
+  };
+
+  /**
+   * The decoders used by stringUtf8, which keep their buffer between the calls
+   */
+  private static final ThreadLocal<Utf8Decoder> decoders = new ThreadLocal<Utf8Decoder>() {
+    @Override
+    protected Utf8Decoder initialValue() {
+      return new Utf8Decoder();
+    }
+  };
 
   /*
    * @return UTF-8 encoding in bytes
@@ -50,6 +65,21 @@ public class Charsetfunctions {
     return s.getBytes(StandardCharsets.UTF_8);
   }
 
+  /**
+   * Encode the text as utf8. A String is encoded directly, any other CharSequence is encoded by an
+   * encoder cached per thread, without converting it into a String first.
+   *
+   * @param text the text
+   * @return UTF-8 encoding in bytes
+   * @since 1.6.1
+   */
+  public static byte[] utf8Bytes(CharSequence text) {
+    if (text instanceof String) {
+      return utf8Bytes((String) text);
+    }
+    return encoders.get().encode(text);
+  }
+
   /*
    * @return ASCII encoding in bytes
    */
@@ -69,19 +99,37 @@ public class Charsetfunctions {
     return stringUtf8(ByteBuffer.wrap(bytes));
   }
 
+  /**
+   * Decode the remaining bytes of the provided ByteBuffer as utf8, without changing its position
+   * <p>
+   * Ascii is detected eight bytes at a time and converted directly, other text is validated and
+   * decoded in a single pass by a decoder cached per thread.
+   *
+   * @param bytes the ByteBuffer
+   * @return the decoded string
+   * @throws InvalidDataException if the bytes are not valid utf8
+   */
   public static String stringUtf8(ByteBuffer bytes) throws InvalidDataException {
-    CharsetDecoder decode = StandardCharsets.UTF_8.newDecoder();
-    decode.onMalformedInput(codingErrorAction);
-    decode.onUnmappableCharacter(codingErrorAction);
-    String s;
+    int ascii = Utf8Decoder.asciiPrefix(bytes);
+    if (ascii == bytes.remaining()) {
+      if (bytes.hasArray()) {
+        return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), ascii,
+            StandardCharsets.ISO_8859_1);
+      }
+      byte[] array = new byte[ascii];
+      bytes.duplicate().get(array);
+      return new String(array, StandardCharsets.ISO_8859_1);
+    }
+    Utf8Decoder decoder = decoders.get();
     try {
-      bytes.mark();
-      s = decode.decode(bytes).toString();
-      bytes.reset();
-    } catch (CharacterCodingException e) {
-      throw new InvalidDataException(CloseFrame.NO_UTF8, e);
+      if (!decoder.decode(bytes) || !decoder.isComplete()) {
+        throw new InvalidDataException(CloseFrame.NO_UTF8,
+            "Received text is no valid utf8 string!");
+      }
+      return decoder.getString();
+    } finally {
+      decoder.reset();
     }
-    return s;
   }
 
   /**
@@ -151,4 +199,41 @@ public class Charsetfunctions {
     return isValidUTF8(data, 0);
   }
 
+  /**
+   * State of {@link #validateUTF8(ByteBuffer, int)} after a complete utf8 sequence
+   *
+   * @since 1.6.1
+   */
+  public static final int UTF8_ACCEPT = 0;
+
+  /**
+   * State of {@link #validateUTF8(ByteBuffer, int)} after an invalid utf8 sequence
+   *
+   * @since 1.6.1
+   */
+  public static final int UTF8_REJECT = 1;
+
+  /**
+   * Validate the remaining bytes of the provided ByteBuffer as the continuation of an utf8 encoded
+   * string, which may be split at any byte. The position of the buffer is not changed.
+   * <p>
+   * Start with {@link #UTF8_ACCEPT} and pass the returned state along with the next part. The
+   * string is valid, if the state after the last part is {@link #UTF8_ACCEPT}.
+   *
+   * @param data  the ByteBuffer
+   * @param state the state returned for the previous part
+   * @return the state after the bytes, {@link #UTF8_REJECT} if they are not valid utf8
+   * @since 1.6.1
+   */
+  public static int validateUTF8(ByteBuffer data, int state) {
+    int i = data.position();
+    if (state == UTF8_ACCEPT) {
+      i += Utf8Decoder.asciiPrefix(data);
+    }
+    for (; i < data.limit() && state != UTF8_REJECT; ++i) {
+      state = utf8d[256 + (state << 4) + utf8d[(0xff & data.get(i))]];
+    }
+    return state;
+  }
+
 }
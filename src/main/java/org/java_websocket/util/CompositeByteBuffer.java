@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.List;
+
+/**
+ * A read-only message made of several ByteBuffers, e.g. the fragments of a fragmented message,
+ * which are not copied into one contiguous buffer.
+ * <p>
+ * Every accessor returns new read-only views, so the message can be read multiple times.
+ *
+ * @since 1.6.1
+ */
+public class CompositeByteBuffer {
+
+  /**
+   * The parts of the message
+   */
+  private final ByteBuffer[] buffers;
+
+  /**
+   * The total number of bytes of all parts
+   */
+  private final long remaining;
+
+  /**
+   * Create a message of the remaining bytes of the provided buffers. The buffers must not be
+   * changed afterwards.
+   *
+   * @param buffers the parts of the message in order
+   * @throws IllegalArgumentException if the list is null
+   */
+  public CompositeByteBuffer(List<ByteBuffer> buffers) {
+    if (buffers == null) {
+      throw new IllegalArgumentException("buffers must not be null");
+    }
+    this.buffers = new ByteBuffer[buffers.size()];
+    long total = 0;
+    for (int i = 0; i < this.buffers.length; i++) {
+      this.buffers[i] = buffers.get(i).asReadOnlyBuffer();
+      total += this.buffers[i].remaining();
+    }
+    this.remaining = total;
+  }
+
+  /**
+   * Getter for the size of the message
+   *
+   * @return the total number of bytes
+   */
+  public long remaining() {
+    return remaining;
+  }
+
+  /**
+   * Getter for the number of parts
+   *
+   * @return the number of buffers
+   */
+  public int getBufferCount() {
+    return buffers.length;
+  }
+
+  /**
+   * Getter for a part of the message
+   *
+   * @param index the index of the part
+   * @return a read-only view of the part
+   * @throws IndexOutOfBoundsException if there is no part with this index
+   */
+  public ByteBuffer getBuffer(int index) {
+    return buffers[index].duplicate();
+  }
+
+  /**
+   * Getter for all parts of the message, e.g. for a gathering write
+   *
+   * @return read-only views of the parts in order
+   */
+  public ByteBuffer[] getBuffers() {
+    ByteBuffer[] result = new ByteBuffer[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      result[i] = buffers[i].duplicate();
+    }
+    return result;
+  }
+
+  /**
+   * Write the message to a channel, with as few gathering writes as possible. A channel in blocking
+   * mode, e.g. a FileChannel, writes the whole message. A channel in non-blocking mode, e.g. a
+   * SocketChannel, may write a part of it only, if its send buffer is full. The rest can be written
+   * with {@link #writeTo(GatheringByteChannel, long)} as soon as the channel is writable again,
+   * e.g. after OP_WRITE was selected.
+   *
+   * @param channel the channel to write to
+   * @return the number of bytes written
+   * @throws IOException if the write fails
+   */
+  public long writeTo(GatheringByteChannel channel) throws IOException {
+    return writeTo(channel, 0);
+  }
+
+  /**
+   * Write the message to a channel, starting at a position, e.g. the number of bytes written by a
+   * previous partial write. Returns as soon as the channel does not take more bytes, instead of
+   * waiting until it is writable again.
+   *
+   * @param channel  the channel to write to
+   * @param position the number of bytes of the message to skip
+   * @return the number of bytes written
+   * @throws IOException              if the write fails
+   * @throws IllegalArgumentException if the position is negative or beyond the end of the message
+   */
+  public long writeTo(GatheringByteChannel channel, long position) throws IOException {
+    if (position < 0 || position > remaining) {
+      throw new IllegalArgumentException("position out of range: " + position);
+    }
+    ByteBuffer[] views = getBuffers();
+    int offset = 0;
+    long skip = position;
+    while (offset < views.length && skip >= views[offset].remaining()) {
+      skip -= views[offset].remaining();
+      offset++;
+    }
+    if (offset < views.length) {
+      views[offset].position(views[offset].position() + (int) skip);
+    }
+    long written = 0;
+    while (position + written < remaining) {
+      long count = channel.write(views, offset, views.length - offset);
+      if (count == 0) {
+        // the send buffer of a non-blocking channel is full
+        break;
+      }
+      written += count;
+      while (offset < views.length && !views[offset].hasRemaining()) {
+        offset++;
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Copy the message into one contiguous buffer
+   *
+   * @return a new buffer containing the whole message
+   * @throws IllegalStateException if the message is bigger than Integer.MAX_VALUE
+   */
+  public ByteBuffer toByteBuffer() {
+    if (remaining > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Message is too big for a single buffer");
+    }
+    ByteBuffer result = ByteBuffer.allocate((int) remaining);
+    for (ByteBuffer buffer : buffers) {
+      result.put(buffer.duplicate());
+    }
+    result.flip();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "CompositeByteBuffer{remaining=" + remaining + ", buffers=" + buffers.length + "}";
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ByteBufferPool} handing out direct buffers.
+ * <p>
+ * The buffers are grouped in size classes, each a power of two between {@link #MIN_BUFFER_SIZE}
+ * and the maximum buffer size. The buffers of a size class are sliced from larger direct slabs, so
+ * only a few native allocations are needed. Every thread keeps a small cache of released buffers
+ * per size class, all further buffers go back to a lock-free queue shared by all threads. As
+ * buffers are often released by another thread than the one which acquired them, an exhausted pool
+ * takes the buffers back from the caches of the other threads before giving up.
+ * <p>
+ * The total size of all slabs is limited. As soon as this limit is reached, {@link #acquire(int)}
+ * returns null instead of blocking until a buffer is released.
+ * <p>
+ * The counters of this class allow to detect leaks, e.g. {@link #getLeasedBuffers()} should drop
+ * to 0 as soon as no operation is in progress.
+ *
+ * @since 1.6.1
+ */
+public class SlabByteBufferPool implements ByteBufferPool {
+
+  /**
+   * The smallest size class of this pool
+   */
+  public static final int MIN_BUFFER_SIZE = 4096;
+
+  /**
+   * The preferred size of a slab the buffers are sliced from
+   */
+  public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+  /**
+   * The default number of buffers cached per thread and size class
+   */
+  public static final int DEFAULT_THREAD_CACHE_SIZE = 8;
+
+  /**
+   * The size classes of this pool, ordered by size
+   */
+  private final SizeClass[] sizeClasses;
+
+  /**
+   * The maximum number of bytes this pool may allocate
+   */
+  private final long maxPoolSize;
+
+  /**
+   * The number of buffers cached per thread and size class
+   */
+  private final int threadCacheSize;
+
+  /**
+   * The cache of released buffers of the current thread
+   */
+  private final ThreadLocal<ThreadCache> threadCache;
+
+  /**
+   * The caches of all threads, to take back the buffers in case the pool is exhausted
+   */
+  private final Queue<ThreadCache> threadCaches = new ConcurrentLinkedQueue<>();
+
+  private final AtomicLong allocatedBytes = new AtomicLong();
+  private final AtomicLong acquiredBuffers = new AtomicLong();
+  private final AtomicLong releasedBuffers = new AtomicLong();
+  private final AtomicLong failedAcquires = new AtomicLong();
+  private final AtomicLong foreignReleases = new AtomicLong();
+
+  /**
+   * Create a pool with the default thread cache size
+   *
+   * @param maxBufferSize the maximum size of a single buffer
+   * @param maxPoolSize   the maximum number of bytes this pool may allocate
+   */
+  public SlabByteBufferPool(int maxBufferSize, long maxPoolSize) {
+    this(maxBufferSize, maxPoolSize, DEFAULT_THREAD_CACHE_SIZE);
+  }
+
+  /**
+   * Create a pool
+   *
+   * @param maxBufferSize   the maximum size of a single buffer
+   * @param maxPoolSize     the maximum number of bytes this pool may allocate
+   * @param threadCacheSize the number of buffers cached per thread and size class, 0 to disable
+   *                        the thread caches
+   */
+  public SlabByteBufferPool(int maxBufferSize, long maxPoolSize, int threadCacheSize) {
+    if (maxBufferSize < 1 || maxBufferSize > (1 << 30) || maxPoolSize < maxBufferSize
+        || threadCacheSize < 0) {
+      throw new IllegalArgumentException();
+    }
+    int classCount = 1;
+    for (int size = MIN_BUFFER_SIZE; size < maxBufferSize; size <<= 1) {
+      classCount++;
+    }
+    sizeClasses = new SizeClass[classCount];
+    for (int i = 0; i < classCount; i++) {
+      sizeClasses[i] = new SizeClass(MIN_BUFFER_SIZE << i);
+    }
+    this.maxPoolSize = maxPoolSize;
+    this.threadCacheSize = threadCacheSize;
+    this.threadCache = new ThreadLocal<ThreadCache>() {
+      @Override
+      protected ThreadCache initialValue() {
+        ThreadCache cache = new ThreadCache(Thread.currentThread());
+        threadCaches.add(cache);
+        return cache;
+      }
+    };
+  }
+
+  @Override
+  public ByteBuffer acquire(int minCapacity) {
+    int index = sizeClassIndex(minCapacity);
+    if (index < 0) {
+      throw new IllegalArgumentException(
+          "Requested buffer size " + minCapacity + " exceeds the pool maximum");
+    }
+    ByteBuffer buffer = null;
+    if (threadCacheSize > 0) {
+      buffer = threadCache.get().poll(index);
+    }
+    if (buffer == null) {
+      buffer = sizeClasses[index].free.poll();
+    }
+    if (buffer == null) {
+      buffer = sizeClasses[index].allocate();
+    }
+    if (buffer == null && threadCacheSize > 0) {
+      buffer = steal(index);
+    }
+    if (buffer == null) {
+      failedAcquires.incrementAndGet();
+      return null;
+    }
+    acquiredBuffers.incrementAndGet();
+    return buffer;
+  }
+
+  @Override
+  public void release(ByteBuffer buffer) {
+    if (buffer == null) {
+      return;
+    }
+    int index = buffer.isDirect() ? sizeClassIndex(buffer.capacity()) : -1;
+    if (index < 0 || sizeClasses[index].size != buffer.capacity()) {
+      // not from this pool, simply leave it to the garbage collector
+      foreignReleases.incrementAndGet();
+      return;
+    }
+    releasedBuffers.incrementAndGet();
+    buffer.clear();
+    if (threadCacheSize > 0 && threadCache.get().offer(index, buffer)) {
+      return;
+    }
+    sizeClasses[index].free.add(buffer);
+  }
+
+  /**
+   * Take a buffer back from the cache of any thread
+   *
+   * @param index the index of the size class
+   * @return the buffer or null, if all caches are empty
+   */
+  private ByteBuffer steal(int index) {
+    for (ThreadCache cache : threadCaches) {
+      ByteBuffer buffer = cache.poll(index);
+      if (buffer != null) {
+        return buffer;
+      }
+      if (cache.owner.get() == null && cache.isEmpty()) {
+        threadCaches.remove(cache);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the index of the smallest size class providing the given capacity
+   *
+   * @param capacity the requested capacity
+   * @return the index or -1, if the capacity is larger than the largest size class
+   */
+  private int sizeClassIndex(int capacity) {
+    for (int i = 0; i < sizeClasses.length; i++) {
+      if (capacity <= sizeClasses[i].size) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Getter for the maximum size of a single buffer
+   *
+   * @return the size of the largest size class
+   */
+  public int getMaxBufferSize() {
+    return sizeClasses[sizeClasses.length - 1].size;
+  }
+
+  /**
+   * Getter for the maximum number of bytes this pool may allocate
+   *
+   * @return the limit in bytes
+   */
+  public long getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   * Getter for the number of bytes this pool allocated so far
+   *
+   * @return the size of all slabs in bytes
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  /**
+   * Getter for the number of buffers which are currently leased
+   *
+   * @return the number of acquired buffers which were not yet released
+   */
+  public long getLeasedBuffers() {
+    return acquiredBuffers.get() - releasedBuffers.get();
+  }
+
+  /**
+   * Getter for the number of successful calls of {@link #acquire(int)}
+   *
+   * @return the number of acquired buffers
+   */
+  public long getAcquiredBuffers() {
+    return acquiredBuffers.get();
+  }
+
+  /**
+   * Getter for the number of calls of {@link #acquire(int)} which returned null since the pool was
+   * exhausted
+   *
+   * @return the number of failed acquires
+   */
+  public long getFailedAcquires() {
+    return failedAcquires.get();
+  }
+
+  /**
+   * Getter for the number of buffers passed to {@link #release(ByteBuffer)} which did not belong
+   * to this pool
+   *
+   * @return the number of foreign buffers
+   */
+  public long getForeignReleases() {
+    return foreignReleases.get();
+  }
+
+  @Override
+  public String toString() {
+    return "SlabByteBufferPool{maxBufferSize=" + getMaxBufferSize() + ", maxPoolSize="
+        + maxPoolSize + ", allocatedBytes=" + allocatedBytes + ", leasedBuffers="
+        + getLeasedBuffers() + ", failedAcquires=" + failedAcquires + '}';
+  }
+
+  /**
+   * The released buffers cached by a single thread, one queue per size class
+   */
+  private class ThreadCache {
+
+    private final WeakReference<Thread> owner;
+
+    private final ArrayDeque<ByteBuffer>[] buffers;
+
+    ThreadCache(Thread owner) {
+      this.owner = new WeakReference<>(owner);
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      ArrayDeque<ByteBuffer>[] queues = new ArrayDeque[sizeClasses.length];
+      for (int i = 0; i < queues.length; i++) {
+        queues[i] = new ArrayDeque<>();
+      }
+      this.buffers = queues;
+    }
+
+    synchronized ByteBuffer poll(int index) {
+      return buffers[index].poll();
+    }
+
+    synchronized boolean offer(int index, ByteBuffer buffer) {
+      if (buffers[index].size() >= threadCacheSize) {
+        return false;
+      }
+      buffers[index].push(buffer);
+      return true;
+    }
+
+    synchronized boolean isEmpty() {
+      for (ArrayDeque<ByteBuffer> queue : buffers) {
+        if (!queue.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * All buffers of the same size
+   */
+  private class SizeClass {
+
+    private final int size;
+
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    SizeClass(int size) {
+      this.size = size;
+    }
+
+    /**
+     * Allocate a new slab for this size class, if the pool limit allows it
+     *
+     * @return the first buffer of the new slab or null, if the pool is exhausted
+     */
+    ByteBuffer allocate() {
+      int count;
+      long slabSize;
+      long allocated;
+      do {
+        allocated = allocatedBytes.get();
+        // shrink the slab to the remaining limit of the pool
+        count = (int) Math.min(Math.max(1, DEFAULT_SLAB_SIZE / size),
+            (maxPoolSize - allocated) / size);
+        if (count < 1) {
+          return null;
+        }
+        slabSize = (long) count * size;
+      } while (!allocatedBytes.compareAndSet(allocated, allocated + slabSize));
+      ByteBuffer slab = ByteBuffer.allocateDirect((int) slabSize);
+      ByteBuffer first = null;
+      for (int i = 0; i < count; i++) {
+        slab.limit((i + 1) * size);
+        slab.position(i * size);
+        ByteBuffer buffer = slab.slice();
+        if (first == null) {
+          first = buffer;
+        } else {
+          free.add(buffer);
+        }
+      }
+      return first;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Validates and decodes utf8 in a single pass. The input may be split at any byte, e.g. into the
+ * fragments of a text message, an incomplete character at the end of a part is completed by the
+ * next call of {@link #decode(ByteBuffer)}.
+ * <p>
+ * The decoder and its char buffer are reused for every input, so an instance is meant to be
+ * cached, e.g. per connection or per thread. It is not thread-safe.
+ *
+ * @since 1.6.1
+ */
+public class Utf8Decoder {
+
+  /**
+   * Mask of the high bits of eight bytes, which are only set for bytes outside of ascii
+   */
+  private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+  /**
+   * The maximum capacity of the char buffer kept after a reset
+   */
+  private static final int MAX_RETAINED_CAPACITY = 16384;
+
+  /**
+   * The decoder, which reports malformed input
+   */
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPORT)
+      .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+  /**
+   * The bytes of an incomplete character at the end of the previous part
+   */
+  private final ByteBuffer incomplete = ByteBuffer.allocate(4);
+
+  /**
+   * The decoded chars
+   */
+  private CharBuffer chars = CharBuffer.allocate(0);
+
+  /**
+   * Attribute, if invalid input was decoded
+   */
+  private boolean malformed;
+
+  /**
+   * Decode the remaining bytes of the provided ByteBuffer and append them to the decoded chars.
+   * The position of the buffer is not changed.
+   *
+   * @param data the next part of the input
+   * @return false, if the input is not valid utf8
+   */
+  public boolean decode(ByteBuffer data) {
+    if (malformed) {
+      return false;
+    }
+    // a character completed by the first byte may result in two chars
+    ensureCapacity(data.remaining() + 1);
+    ByteBuffer in = data.duplicate();
+    while (incomplete.position() > 0 && in.hasRemaining()) {
+      incomplete.put(in.get());
+      incomplete.flip();
+      boolean valid = decodeAvailable(incomplete);
+      incomplete.compact();
+      if (!valid) {
+        return false;
+      }
+    }
+    if (incomplete.position() > 0) {
+      return true;
+    }
+    if (!decodeAvailable(in)) {
+      return false;
+    }
+    // the decoder stops in front of an incomplete character
+    incomplete.put(in);
+    return true;
+  }
+
+  private boolean decodeAvailable(ByteBuffer in) {
+    CoderResult result = decoder.decode(in, chars, false);
+    while (result.isOverflow()) {
+      ensureCapacity(in.remaining() + 1);
+      result = decoder.decode(in, chars, false);
+    }
+    malformed = result.isError();
+    return !malformed;
+  }
+
+  /**
+   * Check if the input decoded so far ends with a complete character
+   *
+   * @return true, if the input is valid utf8 on its own
+   */
+  public boolean isComplete() {
+    return !malformed && incomplete.position() == 0;
+  }
+
+  /**
+   * Getter for the number of decoded chars
+   *
+   * @return the length of the decoded string
+   */
+  public int length() {
+    return chars.position();
+  }
+
+  /**
+   * Getter for the decoded string
+   *
+   * @return the chars decoded so far
+   */
+  public String getString() {
+    return new String(chars.array(), 0, chars.position());
+  }
+
+  /**
+   * Reset the decoder for a new input
+   */
+  public void reset() {
+    decoder.reset();
+    incomplete.clear();
+    malformed = false;
+    if (chars.capacity() > MAX_RETAINED_CAPACITY) {
+      chars = CharBuffer.allocate(0);
+    } else {
+      chars.clear();
+    }
+  }
+
+  /**
+   * Count the ascii bytes at the position of a ByteBuffer, eight bytes at a time
+   *
+   * @param data the ByteBuffer
+   * @return the number of ascii bytes before the first other byte
+   */
+  static int asciiPrefix(ByteBuffer data) {
+    int i = data.position();
+    int limit = data.limit();
+    while (i + 8 <= limit && (data.getLong(i) & NON_ASCII_MASK) == 0) {
+      i += 8;
+    }
+    while (i < limit && data.get(i) >= 0) {
+      i++;
+    }
+    return i - data.position();
+  }
+
+  private void ensureCapacity(int additional) {
+    if (chars.remaining() < additional) {
+      int capacity = Math.max(chars.position() + additional, chars.capacity() * 2);
+      CharBuffer grown = CharBuffer.allocate(capacity);
+      chars.flip();
+      grown.put(chars);
+      chars = grown;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.java_websocket.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes any CharSequence as utf8 without converting it into a String first. The chars are
+ * copied in chunks into a reused buffer and encoded into a reused byte buffer, so only the
+ * resulting array is allocated.
+ * <p>
+ * Like {@link String#getBytes(java.nio.charset.Charset)} an unpaired surrogate is replaced by
+ * '?'. The encoder is not thread-safe.
+ */
+final class Utf8Encoder {
+
+  /**
+   * The number of chars copied from the input at once
+   */
+  private static final int CHUNK_SIZE = 1024;
+
+  /**
+   * The maximum capacity of the byte buffer kept after an encoding
+   */
+  private static final int MAX_RETAINED_CAPACITY = 16384;
+
+  /**
+   * The encoder, which replaces malformed input
+   */
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  /**
+   * The current chunk of the input
+   */
+  private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+  /**
+   * The encoded bytes
+   */
+  private ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+
+  /**
+   * Encode the text as utf8
+   *
+   * @param text the text
+   * @return the encoded bytes
+   */
+  byte[] encode(CharSequence text) {
+    encoder.reset();
+    chars.clear();
+    bytes.clear();
+    int length = text.length();
+    int start = 0;
+    do {
+      // the chunk may start with the high surrogate left over from the previous one
+      int end = Math.min(length, start + chars.remaining());
+      getChars(text, start, end);
+      start = end;
+      chars.flip();
+      while (encoder.encode(chars, bytes, start == length).isOverflow()) {
+        grow();
+      }
+      chars.compact();
+    } while (start < length);
+    while (encoder.flush(bytes).isOverflow()) {
+      grow();
+    }
+    bytes.flip();
+    byte[] result = new byte[bytes.remaining()];
+    bytes.get(result);
+    if (bytes.capacity() > MAX_RETAINED_CAPACITY) {
+      bytes = ByteBuffer.allocate(CHUNK_SIZE);
+    }
+    return result;
+  }
+
+  /**
+   * Copy the chars of the text into the chunk, in bulk if the type of the text allows it
+   */
+  private void getChars(CharSequence text, int start, int end) {
+    char[] dst = chars.array();
+    int offset = chars.arrayOffset() + chars.position();
+    if (text instanceof String) {
+      ((String) text).getChars(start, end, dst, offset);
+    } else if (text instanceof StringBuilder) {
+      ((StringBuilder) text).getChars(start, end, dst, offset);
+    } else if (text instanceof StringBuffer) {
+      ((StringBuffer) text).getChars(start, end, dst, offset);
+    } else {
+      for (int i = start; i < end; i++) {
+        dst[offset++] = text.charAt(i);
+      }
+    }
+    chars.position(chars.position() + end - start);
+  }
+
+  private void grow() {
+    ByteBuffer grown = ByteBuffer.allocate(bytes.capacity() * 2);
+    bytes.flip();
+    grown.put(bytes);
+    bytes = grown;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.ByteBuffer;
+import org.java_websocket.exceptions.LimitExceededException;
+import org.java_websocket.util.Charsetfunctions;
+import org.junit.jupiter.api.Test;
+
+public class HandshakeReaderTest {
+
+  private static final String HEADER = "GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n"
+      + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n\r\n";
+
+  @Test
+  public void testReadAtOnce() throws LimitExceededException {
+    HandshakeReader reader = new HandshakeReader(1024, 10);
+    ByteBuffer buf = ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER + "frames"));
+    ByteBuffer header = reader.read(buf);
+    assertNotNull(header);
+    assertEquals(HEADER, Charsetfunctions.stringAscii(header.array(),
+        header.arrayOffset() + header.position(), header.remaining()));
+    // the header is not copied
+    assertEquals(buf.array(), header.array());
+    assertEquals(HEADER.length(), buf.position());
+    assertEquals("frames", Charsetfunctions.stringAscii(buf.array(), buf.position(),
+        buf.remaining()));
+  }
+
+  @Test
+  public void testReadSplit() throws LimitExceededException {
+    HandshakeReader reader = new HandshakeReader(1024, 10);
+    byte[] bytes = Charsetfunctions.asciiBytes(HEADER + "frames");
+    ByteBuffer header = null;
+    int i = 0;
+    while (header == null) {
+      ByteBuffer buf = ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i));
+      header = reader.read(buf);
+      if (header == null) {
+        assertEquals(0, buf.remaining());
+      } else {
+        assertEquals(HEADER.length(), buf.position());
+      }
+      i += 7;
+    }
+    assertEquals(HEADER, Charsetfunctions.stringAscii(header.array(), header.position(),
+        header.remaining()));
+    // the reader is ready for the next header
+    assertNotNull(reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER))));
+  }
+
+  @Test
+  public void testLineEnd() throws LimitExceededException {
+    HandshakeReader reader = new HandshakeReader(1024, 10);
+    // only CRLF ends a line
+    assertNull(reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes("GET\n\n\r\r\n"))));
+    assertNull(reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes("Host: a\r"))));
+    ByteBuffer header = reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes("\n\r\n")));
+    assertNotNull(header);
+    assertEquals(19, header.remaining());
+  }
+
+  @Test
+  public void testSizeLimit() throws LimitExceededException {
+    HandshakeReader reader = new HandshakeReader(HEADER.length(), 10);
+    assertNotNull(reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER + "frames"))));
+    reader = new HandshakeReader(HEADER.length() - 1, 10);
+    assertNull(reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER.substring(0, 10)))));
+    try {
+      reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER.substring(10))));
+      fail("Should fail");
+    } catch (LimitExceededException e) {
+      assertEquals(HEADER.length() - 1, e.getLimit());
+    }
+  }
+
+  @Test
+  public void testFieldLimit() throws LimitExceededException {
+    HandshakeReader reader = new HandshakeReader(1024, 4);
+    assertNotNull(reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER))));
+    reader = new HandshakeReader(1024, 3);
+    try {
+      reader.read(ByteBuffer.wrap(Charsetfunctions.asciiBytes(HEADER)));
+      fail("Should fail");
+    } catch (LimitExceededException e) {
+      assertEquals(3, e.getLimit());
+    }
+  }
+}
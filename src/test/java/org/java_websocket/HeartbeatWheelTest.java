@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.java_websocket.util.SocketUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class HeartbeatWheelTest {
+
+  @Test
+  public void testConstructor() {
+    try {
+      new HeartbeatWheel(0, TimeUnit.MILLISECONDS, 16, true);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      new HeartbeatWheel(10, TimeUnit.MILLISECONDS, 0, true);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  public void testSchedule() throws Exception {
+    HeartbeatWheel wheel = new HeartbeatWheel(10, TimeUnit.MILLISECONDS, 8, true);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicLong ran = new AtomicLong();
+    final AtomicBoolean cancelledRan = new AtomicBoolean(false);
+    long start = System.nanoTime();
+    // longer than a revolution of the wheel
+    wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        ran.set(System.nanoTime());
+        latch.countDown();
+      }
+    }, TimeUnit.MILLISECONDS.toNanos(200));
+    HeartbeatWheel.Timeout cancelled = wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        cancelledRan.set(true);
+      }
+    }, TimeUnit.MILLISECONDS.toNanos(50));
+    cancelled.cancel();
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(ran.get() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    assertFalse(cancelledRan.get());
+    wheel.stop();
+    assertTrue(wheel.isStopped());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  public void testThreadNames() throws Exception {
+    final String[] names = new String[2];
+    final CountDownLatch latch = new CountDownLatch(2);
+    HeartbeatWheel[] wheels = new HeartbeatWheel[2];
+    for (int i = 0; i < wheels.length; i++) {
+      final int index = i;
+      wheels[i] = new HeartbeatWheel(10, TimeUnit.MILLISECONDS, 8, true);
+      wheels[i].schedule(new Runnable() {
+        @Override
+        public void run() {
+          names[index] = Thread.currentThread().getName();
+          latch.countDown();
+        }
+      }, 0);
+    }
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(names[0].startsWith("WebSocketConnectionLostChecker-"));
+    assertTrue(names[1].startsWith("WebSocketConnectionLostChecker-"));
+    assertNotEquals(names[0], names[1]);
+    for (HeartbeatWheel wheel : wheels) {
+      wheel.stop();
+    }
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testReadIdleTimeout() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch closed = new CountDownLatch(1);
+    final AtomicLong closeCode = new AtomicLong();
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.setReadIdleTimeout(1);
+    assertEquals(1, server.getReadIdleTimeout());
+    server.start();
+    serverStarted.await();
+
+    HeartbeatWheel wheel = new HeartbeatWheel(true);
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+        closeCode.set(code);
+        closed.countDown();
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    client.setHeartbeatWheel(wheel);
+    assertTrue(client.connectBlocking());
+    // the pings of the client do not count as data
+    assertTrue(closed.await(10, TimeUnit.SECONDS));
+    assertEquals(CloseFrame.GOING_AWAY, closeCode.get());
+    server.stop();
+    wheel.stop();
+  }
+}
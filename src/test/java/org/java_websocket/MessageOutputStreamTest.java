@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.java_websocket.util.SocketUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class MessageOutputStreamTest {
+
+  @Test
+  public void testConstructor() throws Exception {
+    WebSocketClient conn = createClient(new URI("ws://localhost:1"));
+    try {
+      new MessageOutputStream(null, Opcode.BINARY);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      new MessageOutputStream(conn, Opcode.PING);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      new MessageOutputStream(conn, Opcode.TEXT, 0);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    assertEquals(Opcode.TEXT, new MessageOutputStream(conn, Opcode.TEXT).getOpcode());
+  }
+
+  @Test
+  public void testNotConnected() throws Exception {
+    MessageOutputStream out = new MessageOutputStream(createClient(new URI("ws://localhost:1")),
+        Opcode.BINARY);
+    out.write(new byte[10]);
+    try {
+      out.close();
+      fail("Should fail");
+    } catch (IOException e) {
+      // OK
+    }
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testStreamedMessage() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch received = new CountDownLatch(1);
+    final AtomicInteger fragments = new AtomicInteger();
+    final ByteBuffer message = ByteBuffer.allocate(100000);
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+      }
+
+      @Override
+      public boolean onWebsocketMessageStart(WebSocket conn, Opcode opcode) {
+        return opcode == Opcode.BINARY;
+      }
+
+      @Override
+      public void onWebsocketMessageFragment(WebSocket conn, ByteBuffer fragment) {
+        fragments.incrementAndGet();
+        message.put(fragment);
+      }
+
+      @Override
+      public void onWebsocketMessageEnd(WebSocket conn) {
+        received.countDown();
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    WebSocketClient client = createClient(new URI("ws://localhost:" + port));
+    assertTrue(client.connectBlocking());
+    byte[] data = new byte[100000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    MessageOutputStream out = new MessageOutputStream(client, Opcode.BINARY, 16384);
+    out.write(data, 0, 50000);
+    out.flush();
+    out.write(data, 50000, 50000);
+    out.close();
+    // a closed stream does not send anything anymore
+    out.close();
+    try {
+      out.write(1);
+      fail("Should fail");
+    } catch (IOException e) {
+      // OK
+    }
+    assertTrue(received.await(10, TimeUnit.SECONDS));
+    // 4 fragments until the flush, 3 full ones and the last one with the remaining bytes
+    assertEquals(8, fragments.get());
+    assertArrayEquals(data, message.array());
+    client.closeBlocking();
+    server.stop();
+  }
+
+  private static WebSocketClient createClient(URI uri) {
+    return new WebSocketClient(uri) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+  }
+}
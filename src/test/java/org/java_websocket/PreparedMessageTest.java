@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.enums.Role;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.HandshakeImpl1Client;
+import org.java_websocket.util.Charsetfunctions;
+import org.junit.jupiter.api.Test;
+
+public class PreparedMessageTest {
+
+  @Test
+  public void testConstructor() {
+    assertThrows(IllegalArgumentException.class, () -> new PreparedMessage((String) null));
+    assertThrows(IllegalArgumentException.class, () -> new PreparedMessage((ByteBuffer) null));
+    assertThrows(IllegalArgumentException.class, () -> new PreparedMessage((byte[]) null));
+    assertTrue(new PreparedMessage("text").isText());
+    assertFalse(new PreparedMessage(new byte[]{1, 2, 3}).isText());
+  }
+
+  @Test
+  public void testEncodedFramesShared() throws Exception {
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    Draft_6455 otherServer = new Draft_6455();
+    otherServer.setParseMode(Role.SERVER);
+    PreparedMessage message = new PreparedMessage("Hello World");
+
+    ByteBuffer first = message.getEncodedFrames(server);
+    ByteBuffer second = message.getEncodedFrames(otherServer);
+    assertTrue(first.isReadOnly());
+    assertNotSame(first, second);
+    assertEquals(first, second);
+
+    List<Framedata> frames = client.translateFrame(first);
+    assertEquals(1, frames.size());
+    assertEquals(Opcode.TEXT, frames.get(0).getOpcode());
+    assertEquals("Hello World", Charsetfunctions.stringUtf8(frames.get(0).getPayloadData()));
+    // the shared bytes are not consumed by reading a view
+    assertEquals(first.capacity(), second.remaining());
+  }
+
+  @Test
+  public void testDirect() {
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    PreparedMessage message = new PreparedMessage("Hello World");
+    assertFalse(message.isDirect());
+    assertFalse(message.getEncodedFrames(server).isDirect());
+
+    PreparedMessage direct = new PreparedMessage("Hello World");
+    direct.setDirect(true);
+    assertTrue(direct.isDirect());
+    assertTrue(direct.getEncodedFrames(server).isDirect());
+    assertEquals(message.getEncodedFrames(server), direct.getEncodedFrames(server));
+  }
+
+  @Test
+  public void testEncodedFramesNotShared() {
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    PreparedMessage message = new PreparedMessage(new byte[]{1, 2, 3});
+    assertNull(message.getEncodedFrames(client));
+    List<Framedata> frames = message.createFrames(true);
+    assertEquals(1, frames.size());
+    assertEquals(Opcode.BINARY, frames.get(0).getOpcode());
+    assertTrue(frames.get(0).getTransfereMasked());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), frames.get(0).getPayloadData());
+  }
+
+  @Test
+  public void testCompressedFramesShared() throws Exception {
+    HandshakeImpl1Client handshake = new HandshakeImpl1Client();
+    handshake.put("Sec-WebSocket-Version", "13");
+    handshake.put("Sec-WebSocket-Extensions", "permessage-deflate; server_no_context_takeover");
+    Draft_6455 server = new Draft_6455(new PerMessageDeflateExtension());
+    server.setParseMode(Role.SERVER);
+    server.acceptHandshakeAsServer(handshake);
+    Draft_6455 otherServer = new Draft_6455(new PerMessageDeflateExtension());
+    otherServer.setParseMode(Role.SERVER);
+    otherServer.acceptHandshakeAsServer(handshake);
+    assertTrue(server.isFrameEncodingShareable());
+    assertEquals(server, otherServer);
+
+    PreparedMessage message = new PreparedMessage(
+        "This is a highly compressable text, This is a highly compressable text");
+    ByteBuffer first = message.getEncodedFrames(server);
+    assertEquals(first, message.getEncodedFrames(otherServer));
+    assertEquals(first, message.getEncodedFrames(server));
+    // the message is compressed with a copy, the extensions of the connections are not used
+    assertEquals(1.0, ((PerMessageDeflateExtension) server.getExtension()).getCompressionRatio());
+    assertEquals(1.0,
+        ((PerMessageDeflateExtension) otherServer.getExtension()).getCompressionRatio());
+
+    Draft_6455 contextTakeover = new Draft_6455(new PerMessageDeflateExtension());
+    contextTakeover.setParseMode(Role.SERVER);
+    handshake.put("Sec-WebSocket-Extensions", "permessage-deflate");
+    contextTakeover.acceptHandshakeAsServer(handshake);
+    assertFalse(contextTakeover.isFrameEncodingShareable());
+    assertNull(message.getEncodedFrames(contextTakeover));
+  }
+}
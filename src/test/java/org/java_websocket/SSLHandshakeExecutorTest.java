@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class SSLHandshakeExecutorTest {
+
+  @Test
+  public void testConstructor() {
+    try {
+      new SSLHandshakeExecutor(0, 16);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      new SSLHandshakeExecutor(1, 0);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    SSLHandshakeExecutor executor = new SSLHandshakeExecutor();
+    assertEquals(Integer.MAX_VALUE, executor.getMaxHandshakes());
+    executor.shutdown();
+  }
+
+  @Test
+  public void testAdmission() {
+    SSLHandshakeExecutor executor = new SSLHandshakeExecutor(1, 2);
+    assertTrue(executor.beginTasks());
+    assertTrue(executor.beginTasks());
+    assertFalse(executor.beginTasks());
+    assertEquals(2, executor.getActiveHandshakes());
+    assertEquals(1, executor.getRejectedHandshakes());
+    executor.endTasks();
+    assertTrue(executor.beginTasks());
+    executor.endTasks();
+    executor.endTasks();
+    assertEquals(0, executor.getActiveHandshakes());
+    executor.endHandshake(System.nanoTime(), false);
+    executor.endHandshake(System.nanoTime(), true);
+    executor.endHandshake(System.nanoTime(), true);
+    assertEquals(2, executor.getCompletedHandshakes());
+    assertEquals(1, executor.getFailedHandshakes());
+    executor.shutdown();
+  }
+
+  @Test
+  public void testHandshakeTime() {
+    SSLHandshakeExecutor executor = new SSLHandshakeExecutor(1, 4);
+    assertEquals(0, executor.getAverageHandshakeTime(TimeUnit.MILLISECONDS));
+    executor.endHandshake(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(100), true);
+    executor.endHandshake(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(300), true);
+    long average = executor.getAverageHandshakeTime(TimeUnit.MILLISECONDS);
+    assertTrue(average >= 200 && average < 1000);
+    assertTrue(executor.getMaxHandshakeTime(TimeUnit.MILLISECONDS) >= 300);
+    executor.shutdown();
+  }
+
+  @Test
+  @Timeout(5)
+  public void testExecute() throws InterruptedException {
+    SSLHandshakeExecutor executor = new SSLHandshakeExecutor(1, 1);
+    final CountDownLatch block = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(3);
+    final Thread caller = Thread.currentThread();
+    final AtomicBoolean ranOnCaller = new AtomicBoolean(false);
+    Runnable blocking = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          block.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      }
+    };
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        if (Thread.currentThread() == caller) {
+          ranOnCaller.set(true);
+        }
+        done.countDown();
+      }
+    };
+    executor.execute(blocking);
+    executor.execute(task);
+    // The tasks are queued beyond the maximum number of handshakes, never run on the caller
+    executor.execute(task);
+    assertEquals(2, executor.getQueuedTasks());
+    assertEquals(3, done.getCount());
+    block.countDown();
+    done.await();
+    assertFalse(ranOnCaller.get());
+    executor.shutdown();
+    try {
+      executor.execute(task);
+      fail("Should fail");
+    } catch (RejectedExecutionException e) {
+      // OK
+    }
+  }
+}
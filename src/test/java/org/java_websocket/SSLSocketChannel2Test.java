@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.java_websocket.util.SSLContextUtil;
+import org.java_websocket.util.SlabByteBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class SSLSocketChannel2Test {
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testPartialWritesWithBufferPool() throws Exception {
+    SSLContext context = SSLContextUtil.getContext();
+    final ServerSocketChannel server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    final int port = server.socket().getLocalPort();
+    final AtomicReference<Object> received = new AtomicReference<Object>();
+    final Socket socket = context.getSocketFactory()
+        .createSocket(InetAddress.getLoopbackAddress(), port);
+    Thread client = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          socket.setSoTimeout(10000);
+          OutputStream out = socket.getOutputStream();
+          out.write("hello".getBytes(StandardCharsets.UTF_8));
+          out.flush();
+          InputStream in = socket.getInputStream();
+          byte[] reply = new byte[5];
+          int read = 0;
+          while (read < reply.length) {
+            int n = in.read(reply, read, reply.length - read);
+            if (n == -1) {
+              break;
+            }
+            read += n;
+          }
+          received.set(new String(reply, 0, read, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+          received.set(e);
+        }
+      }
+    });
+    client.start();
+
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    SocketChannel throttled = new ThrottledChannel(server.accept(), 64);
+    throttled.configureBlocking(false);
+    SSLEngine engine = context.createSSLEngine();
+    engine.setUseClientMode(false);
+    // every write of the socket is partial, so the handshake ends with unwritten bytes
+    SSLSocketChannel2 channel = new SSLSocketChannel2(throttled, engine, exec,
+        null, new SlabByteBufferPool(64 * 1024, 4 * 1024 * 1024));
+    ByteBuffer request = ByteBuffer.allocate(5);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (request.hasRemaining() && System.nanoTime() < deadline) {
+      if (channel.isNeedWrite()) {
+        channel.writeMore();
+      }
+      if (channel.read(request) == -1) {
+        break;
+      }
+      Thread.sleep(1);
+    }
+    request.flip();
+    assertEquals("hello", StandardCharsets.UTF_8.decode(request).toString());
+    channel.write(ByteBuffer.wrap("world".getBytes(StandardCharsets.UTF_8)));
+    while (channel.isNeedWrite() && System.nanoTime() < deadline) {
+      channel.writeMore();
+    }
+    client.join(TimeUnit.SECONDS.toMillis(10));
+    assertEquals("world", received.get());
+    channel.close();
+    socket.close();
+    server.close();
+    exec.shutdown();
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testIdleConnectionsHoldNoHandshakeSlot() throws Exception {
+    SSLContext context = SSLContextUtil.getContext();
+    ServerSocketChannel server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    SSLHandshakeExecutor exec = new SSLHandshakeExecutor(1, 1);
+    List<SocketChannel> idle = new ArrayList<SocketChannel>();
+    List<SSLSocketChannel2> channels = new ArrayList<SSLSocketChannel2>();
+    // the connections never send a client hello, they must not lock out other clients
+    for (int i = 0; i < 3; i++) {
+      idle.add(SocketChannel.open(server.getLocalAddress()));
+      SocketChannel accepted = server.accept();
+      accepted.configureBlocking(false);
+      SSLEngine engine = context.createSSLEngine();
+      engine.setUseClientMode(false);
+      channels.add(new SSLSocketChannel2(accepted, engine, exec, null));
+    }
+    assertEquals(0, exec.getActiveHandshakes());
+
+    final Socket socket = context.getSocketFactory()
+        .createSocket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+    Thread client = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          socket.setSoTimeout(10000);
+          OutputStream out = socket.getOutputStream();
+          out.write("hello".getBytes(StandardCharsets.UTF_8));
+          out.flush();
+        } catch (IOException e) {
+          // the server does not receive the message then
+        }
+      }
+    });
+    client.start();
+    SocketChannel accepted = server.accept();
+    accepted.configureBlocking(false);
+    SSLEngine engine = context.createSSLEngine();
+    engine.setUseClientMode(false);
+    SSLSocketChannel2 channel = new SSLSocketChannel2(accepted, engine, exec, null);
+    ByteBuffer request = ByteBuffer.allocate(5);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (request.hasRemaining() && System.nanoTime() < deadline) {
+      if (channel.isNeedWrite()) {
+        channel.writeMore();
+      }
+      if (channel.read(request) == -1) {
+        break;
+      }
+      Thread.sleep(1);
+    }
+    request.flip();
+    assertEquals("hello", StandardCharsets.UTF_8.decode(request).toString());
+    assertEquals(0, exec.getActiveHandshakes());
+    assertEquals(0, exec.getRejectedHandshakes());
+    assertEquals(1, exec.getCompletedHandshakes());
+    client.join(TimeUnit.SECONDS.toMillis(10));
+    channel.close();
+    for (SSLSocketChannel2 c : channels) {
+      c.close();
+    }
+    for (SocketChannel c : idle) {
+      c.close();
+    }
+    socket.close();
+    server.close();
+    exec.shutdown();
+  }
+
+  /**
+   * A channel which writes at most a few bytes at once
+   */
+  private static class ThrottledChannel extends SocketChannel {
+
+    private final SocketChannel channel;
+    private final int maxWrite;
+
+    ThrottledChannel(SocketChannel channel, int maxWrite) {
+      super(channel.provider());
+      this.channel = channel;
+      this.maxWrite = maxWrite;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      if (src.remaining() <= maxWrite) {
+        return channel.write(src);
+      }
+      ByteBuffer slice = src.duplicate();
+      slice.limit(slice.position() + maxWrite);
+      int written = channel.write(slice);
+      src.position(src.position() + written);
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      long written = 0;
+      for (int i = offset; i < offset + length; i++) {
+        written += write(srcs[i]);
+        if (srcs[i].hasRemaining()) {
+          break;
+        }
+      }
+      return written;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      return channel.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      return channel.read(dsts, offset, length);
+    }
+
+    @Override
+    public SocketChannel bind(SocketAddress local) throws IOException {
+      channel.bind(local);
+      return this;
+    }
+
+    @Override
+    public <T> SocketChannel setOption(SocketOption<T> name, T value) throws IOException {
+      channel.setOption(name, value);
+      return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) throws IOException {
+      return channel.getOption(name);
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+      return channel.supportedOptions();
+    }
+
+    @Override
+    public SocketChannel shutdownInput() throws IOException {
+      channel.shutdownInput();
+      return this;
+    }
+
+    @Override
+    public SocketChannel shutdownOutput() throws IOException {
+      channel.shutdownOutput();
+      return this;
+    }
+
+    @Override
+    public Socket socket() {
+      return channel.socket();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return channel.isConnected();
+    }
+
+    @Override
+    public boolean isConnectionPending() {
+      return channel.isConnectionPending();
+    }
+
+    @Override
+    public boolean connect(SocketAddress remote) throws IOException {
+      return channel.connect(remote);
+    }
+
+    @Override
+    public boolean finishConnect() throws IOException {
+      return channel.finishConnect();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() throws IOException {
+      return channel.getRemoteAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() throws IOException {
+      return channel.getLocalAddress();
+    }
+
+    @Override
+    protected void implCloseSelectableChannel() throws IOException {
+      channel.close();
+    }
+
+    @Override
+    protected void implConfigureBlocking(boolean block) throws IOException {
+      channel.configureBlocking(block);
+    }
+  }
+}
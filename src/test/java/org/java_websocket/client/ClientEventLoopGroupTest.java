@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.java_websocket.WebSocket;
+import org.java_websocket.enums.ReadyState;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.java_websocket.util.SocketUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class ClientEventLoopGroupTest {
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testEcho() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        conn.send(message);
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    int clientCount = 20;
+    int messageCount = 10;
+    final CountDownLatch echoes = new CountDownLatch(clientCount * messageCount);
+    final CountDownLatch closes = new CountDownLatch(clientCount);
+    final AtomicInteger foreignCallbacks = new AtomicInteger();
+    ClientEventLoopGroup group = new ClientEventLoopGroup(2, true);
+    List<WebSocketClient> clients = new ArrayList<>();
+    for (int i = 0; i < clientCount; i++) {
+      WebSocketClient client = new WebSocketClient(URI.create("ws://localhost:" + port)) {
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+          checkThread();
+        }
+
+        @Override
+        public void onMessage(String message) {
+          checkThread();
+          echoes.countDown();
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+          checkThread();
+          closes.countDown();
+        }
+
+        // the clients should not start threads of their own, the event loops run the callbacks
+        private void checkThread() {
+          if (!Thread.currentThread().getName().startsWith("WebSocketClientEventLoop-")) {
+            foreignCallbacks.incrementAndGet();
+          }
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+      };
+      client.setEventLoopGroup(group);
+      assertTrue(client.connectBlocking());
+      clients.add(client);
+    }
+    for (int i = 0; i < messageCount; i++) {
+      for (WebSocketClient client : clients) {
+        client.send("message " + i);
+      }
+    }
+    assertTrue(echoes.await(10, TimeUnit.SECONDS));
+    for (WebSocketClient client : clients) {
+      client.close();
+    }
+    assertTrue(closes.await(10, TimeUnit.SECONDS));
+    for (WebSocketClient client : clients) {
+      assertEquals(ReadyState.CLOSED, client.getReadyState());
+    }
+    assertEquals(0, foreignCallbacks.get());
+    group.shutdown();
+    server.stop();
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  public void testConnectRefused() throws Exception {
+    final CountDownLatch closed = new CountDownLatch(1);
+    final int[] closeCode = new int[1];
+    ClientEventLoopGroup group = new ClientEventLoopGroup(1, true);
+    WebSocketClient client = new WebSocketClient(
+        URI.create("ws://localhost:" + SocketUtil.getAvailablePort())) {
+      @Override
+      public void onOpen(ServerHandshake handshake) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+        closeCode[0] = code;
+        closed.countDown();
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    client.setEventLoopGroup(group);
+    assertFalse(client.connectBlocking());
+    closed.await();
+    assertEquals(CloseFrame.NEVER_CONNECTED, closeCode[0]);
+    group.shutdown();
+    assertTrue(group.isShutdown());
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testWithoutDnsResolver() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    ClientEventLoopGroup group = new ClientEventLoopGroup(1, true);
+    WebSocketClient client = new WebSocketClient(URI.create("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshake) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    client.setEventLoopGroup(group);
+    // the unresolved address is resolved by the group instead
+    client.setDnsResolver(null);
+    assertTrue(client.connectBlocking());
+    client.closeBlocking();
+    group.shutdown();
+    server.stop();
+  }
+
+  @Test
+  public void testProxyNotSupported() throws Exception {
+    ClientEventLoopGroup group = new ClientEventLoopGroup(1, true);
+    WebSocketClient client = new WebSocketClient(URI.create("ws://localhost:8887")) {
+      @Override
+      public void onOpen(ServerHandshake handshake) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    client.setEventLoopGroup(group);
+    client.setProxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress("localhost", 8888)));
+    try {
+      client.connect();
+      fail("Should fail");
+    } catch (IllegalStateException e) {
+      // OK
+    }
+    group.shutdown();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.java_websocket.util.SocketUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class WebSocketClientPoolTest {
+
+  @Test
+  public void testCachingDnsResolver() throws Exception {
+    final AtomicInteger lookups = new AtomicInteger();
+    CachingDnsResolver resolver = new CachingDnsResolver(new DnsResolver() {
+      @Override
+      public InetAddress resolve(URI uri) throws UnknownHostException {
+        lookups.incrementAndGet();
+        return InetAddress.getLoopbackAddress();
+      }
+    }, 1, TimeUnit.MINUTES);
+    URI uri = URI.create("ws://example.org:8887");
+    assertSame(InetAddress.getLoopbackAddress(), resolver.resolve(uri));
+    assertSame(InetAddress.getLoopbackAddress(), resolver.resolve(uri));
+    assertEquals(1, lookups.get());
+    resolver.clear();
+    resolver.resolve(uri);
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void testCachingDnsResolverMaxSize() throws Exception {
+    final AtomicInteger lookups = new AtomicInteger();
+    DnsResolver delegate = new DnsResolver() {
+      @Override
+      public InetAddress resolve(URI uri) throws UnknownHostException {
+        lookups.incrementAndGet();
+        return InetAddress.getLoopbackAddress();
+      }
+    };
+    try {
+      new CachingDnsResolver(delegate, 1, TimeUnit.MINUTES, 0);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    CachingDnsResolver resolver = new CachingDnsResolver(delegate, 1, TimeUnit.MINUTES, 2);
+    assertEquals(2, resolver.getMaxSize());
+    resolver.resolve(URI.create("ws://first.example.org"));
+    Thread.sleep(1);
+    resolver.resolve(URI.create("ws://second.example.org"));
+    resolver.resolve(URI.create("ws://third.example.org"));
+    assertEquals(2, resolver.size());
+    // the address which expires first was removed
+    resolver.resolve(URI.create("ws://second.example.org"));
+    assertEquals(3, lookups.get());
+    resolver.resolve(URI.create("ws://first.example.org"));
+    assertEquals(4, lookups.get());
+
+    // expired addresses are removed before the others
+    CachingDnsResolver expiring = new CachingDnsResolver(delegate, 0, TimeUnit.MINUTES, 2);
+    expiring.resolve(URI.create("ws://first.example.org"));
+    expiring.resolve(URI.create("ws://second.example.org"));
+    expiring.resolve(URI.create("ws://third.example.org"));
+    assertEquals(1, expiring.size());
+  }
+
+  @Test
+  public void testSetReconnectDelay() throws Exception {
+    WebSocketClientPool pool = new WebSocketClientPool(1);
+    try {
+      pool.setReconnectDelay(0, 1, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      pool.setReconnectDelay(2, 1, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    pool.close();
+    try {
+      pool.add(new TestClient(URI.create("ws://localhost:8887")));
+      fail("Should fail");
+    } catch (IllegalStateException e) {
+      // OK
+    }
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testReconnect() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    WebSocketClientPool pool = new WebSocketClientPool(1);
+    pool.setReconnectDelay(50, 200, TimeUnit.MILLISECONDS);
+    final CountDownLatch opened = new CountDownLatch(2);
+    WebSocketClient client = new TestClient(URI.create("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+        opened.countDown();
+      }
+    };
+    pool.add(client);
+    assertEquals(1, pool.getClients().size());
+    assertTrue(client.connectBlocking());
+    // the server closes the connection, so the pool reconnects the client
+    for (WebSocket conn : server.getConnections()) {
+      conn.close();
+    }
+    assertTrue(opened.await(10, TimeUnit.SECONDS));
+    pool.close();
+    server.stop();
+  }
+
+  private static class TestClient extends WebSocketClient {
+
+    TestClient(URI serverUri) {
+      super(serverUri);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshakedata) {
+    }
+
+    @Override
+    public void onMessage(String message) {
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(Exception ex) {
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.java_websocket.util.SocketUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class WriteCoalescingTest {
+
+  @Test
+  public void testWriteCoalescingLimit() {
+    WebSocketClient client = new TestClient(URI.create("ws://localhost:8887"));
+    assertEquals(16384, client.getWriteCoalescingLimit());
+    try {
+      client.setWriteCoalescingLimit(-1);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    client.setWriteCoalescingLimit(0);
+    assertEquals(0, client.getWriteCoalescingLimit());
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testMessageOrder() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final int messageCount = 10000;
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch received = new CountDownLatch(messageCount);
+    final AtomicInteger outOfOrder = new AtomicInteger();
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      private int next = 0;
+
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        if (Integer.parseInt(message) != next++) {
+          outOfOrder.incrementAndGet();
+        }
+        received.countDown();
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    WebSocketClient client = new TestClient(URI.create("ws://localhost:" + port));
+    // smaller than some of the frames, so they are written directly
+    client.setWriteCoalescingLimit(8);
+    assertTrue(client.connectBlocking());
+    for (int i = 0; i < messageCount; i++) {
+      client.send(Integer.toString(i));
+    }
+    assertTrue(received.await(10, TimeUnit.SECONDS));
+    assertEquals(0, outOfOrder.get());
+    client.closeBlocking();
+    server.stop();
+  }
+
+  private static class TestClient extends WebSocketClient {
+
+    TestClient(URI serverUri) {
+      super(serverUri);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshakedata) {
+    }
+
+    @Override
+    public void onMessage(String message) {
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(Exception ex) {
+    }
+  }
+}
@@ -25,23 +25,38 @@
 
 package org.java_websocket.drafts;
 
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketImpl;
 import org.java_websocket.enums.CloseHandshakeType;
 import org.java_websocket.enums.HandshakeState;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.enums.Role;
+import org.java_websocket.exceptions.IncompleteHandshakeException;
+import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.exceptions.InvalidHandshakeException;
 import org.java_websocket.extensions.DefaultExtension;
 import org.java_websocket.extensions.IExtension;
 import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.ContinuousFrame;
 import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
 import org.java_websocket.framing.TextFrame;
+import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.HandshakeImpl1Client;
 import org.java_websocket.handshake.HandshakeImpl1Server;
+import org.java_websocket.handshake.Handshakedata;
 import org.java_websocket.protocols.IProtocol;
 import org.java_websocket.protocols.Protocol;
 import org.java_websocket.util.Charsetfunctions;
+import org.java_websocket.util.CompositeByteBuffer;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -510,6 +525,49 @@ public class Draft_6455Test {
   }
 
 
+  @Test
+  public void translateHandshake() throws Exception {
+    Draft_6455 draft_6455 = new Draft_6455();
+    draft_6455.setParseMode(Role.SERVER);
+    ByteBuffer buf = ByteBuffer.wrap(Charsetfunctions.asciiBytes("GET /chat HTTP/1.1\r\n"
+        + "Host: localhost\r\nupgrade:websocket\r\nX-Custom:   a:b \r\nx-custom: c\r\n"
+        + "Empty:\r\n\r\nframes"));
+    Handshakedata handshake = draft_6455.translateHandshake(buf);
+    assertTrue(handshake instanceof ClientHandshake);
+    assertEquals("/chat", ((ClientHandshake) handshake).getResourceDescriptor());
+    assertEquals("localhost", handshake.getFieldValue("host"));
+    assertEquals("websocket", handshake.getFieldValue("Upgrade"));
+    // only leading spaces are removed, repeated fields are joined
+    assertEquals("a:b ; c", handshake.getFieldValue("X-CUSTOM"));
+    assertEquals("", handshake.getFieldValue("Empty"));
+    assertTrue(handshake.hasFieldValue("Empty"));
+    assertFalse(handshake.hasFieldValue("Origin"));
+    // names keep the case they were received with first and are iterated sorted
+    Iterator<String> names = handshake.iterateHttpFields();
+    assertEquals("Empty", names.next());
+    assertEquals("Host", names.next());
+    assertEquals("upgrade", names.next());
+    assertEquals("X-Custom", names.next());
+    assertFalse(names.hasNext());
+    assertEquals("frames", Charsetfunctions.stringAscii(buf.array(), buf.position(),
+        buf.remaining()));
+
+    buf = ByteBuffer.wrap(Charsetfunctions.asciiBytes("GET / HTTP/1.1\r\nHost: localhost\r\n"));
+    try {
+      draft_6455.translateHandshake(buf);
+      fail("IncompleteHandshakeException should be thrown");
+    } catch (IncompleteHandshakeException e) {
+      // OK
+    }
+    buf = ByteBuffer.wrap(Charsetfunctions.asciiBytes("GET / HTTP/1.1\r\nHost\r\n\r\n"));
+    try {
+      draft_6455.translateHandshake(buf);
+      fail("InvalidHandshakeException should be thrown");
+    } catch (InvalidHandshakeException e) {
+      // OK
+    }
+  }
+
   @Test
   public void createFramesBinary() throws Exception {
     Draft_6455 draft_6455 = new Draft_6455();
@@ -544,8 +602,299 @@ public class Draft_6455Test {
     createdFrame = draft_6455.createFrames("Test0", true);
     assertEquals(1, createdFrame.size());
     assertEquals(curframe, createdFrame.get(0));
+    createdFrame = draft_6455.createFrames(new StringBuilder("Test0"), true);
+    assertEquals(1, createdFrame.size());
+    assertEquals(curframe, createdFrame.get(0));
+    // an unpaired surrogate is replaced like by String.getBytes
+    createdFrame = draft_6455.createFrames("Test\ud800", false);
+    assertEquals(1, createdFrame.size());
+    assertEquals(ByteBuffer.wrap(Charsetfunctions.utf8Bytes("Test?")),
+        createdFrame.get(0).getPayloadData());
   }
 
+  @Test
+  public void translateMaskedFrames() throws Exception {
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    int[] lengths = {0, 1, 3, 4, 5, 7, 8, 9, 12, 15, 16, 17, 125, 126, 127, 65535, 65536, 70001};
+    for (int length : lengths) {
+      byte[] data = new byte[length];
+      for (int i = 0; i < length; i++) {
+        data[i] = (byte) (i * 31);
+      }
+      BinaryFrame frame = new BinaryFrame();
+      frame.setPayload(ByteBuffer.wrap(data));
+      ByteBuffer encoded = client.createBinaryFrame(frame);
+      List<Framedata> frames = server.translateFrame(encoded);
+      assertEquals(1, frames.size());
+      assertFalse(encoded.hasRemaining());
+      ByteBuffer payload = frames.get(0).getPayloadData();
+      byte[] decoded = new byte[payload.remaining()];
+      payload.get(decoded);
+      assertArrayEquals(data, decoded, "payload of length " + length);
+    }
+  }
+
+  @Test
+  public void translateFramePayloadView() throws Exception {
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(Charsetfunctions.utf8Bytes("Test0")));
+    ByteBuffer encoded = client.createBinaryFrame(frame);
+    encoded = (ByteBuffer) ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip();
+    FramedataImpl1 decoded = (FramedataImpl1) server.translateFrame(encoded).get(0);
+    // the payload is unmasked in place
+    assertTrue(decoded.isPayloadView());
+    assertTrue(decoded.getPayloadData().isDirect());
+    assertEquals("Test0", Charsetfunctions.stringUtf8(decoded.getPayloadData()));
+    decoded.retainPayload();
+    assertFalse(decoded.isPayloadView());
+    encoded.clear();
+    encoded.put(new byte[encoded.remaining()]);
+    assertEquals("Test0", Charsetfunctions.stringUtf8(decoded.getPayloadData()));
+  }
+
+  @Test
+  public void translateFrameReadOnly() throws Exception {
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(Charsetfunctions.utf8Bytes("Test0")));
+    ByteBuffer encoded = client.createBinaryFrame(frame).asReadOnlyBuffer();
+    FramedataImpl1 decoded = (FramedataImpl1) server.translateFrame(encoded).get(0);
+    assertFalse(decoded.isPayloadView());
+    assertEquals("Test0", Charsetfunctions.stringUtf8(decoded.getPayloadData()));
+  }
+
+  @Test
+  public void translateMultipleFrames() throws Exception {
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    ByteBuffer encoded = ByteBuffer.allocate(64);
+    for (int i = 0; i < 3; i++) {
+      TextFrame frame = new TextFrame();
+      frame.setPayload(ByteBuffer.wrap(Charsetfunctions.utf8Bytes("Test" + i)));
+      encoded.put(client.createBinaryFrame(frame));
+    }
+    encoded.flip();
+    List<Framedata> frames = server.translateFrame(encoded);
+    assertEquals(3, frames.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals("Test" + i, Charsetfunctions.stringUtf8(frames.get(i).getPayloadData()));
+    }
+  }
+
+  @Test
+  public void createBinaryFrameBuffers() throws Exception {
+    Draft_6455 client = new Draft_6455();
+    client.setParseMode(Role.CLIENT);
+    Draft_6455 server = new Draft_6455();
+    server.setParseMode(Role.SERVER);
+    int[] lengths = {0, 5, 125, 126, 65535, 65536};
+    for (int length : lengths) {
+      byte[] data = new byte[length];
+      for (int i = 0; i < length; i++) {
+        data[i] = (byte) i;
+      }
+      BinaryFrame frame = new BinaryFrame();
+      ByteBuffer payload = ByteBuffer.wrap(data);
+      frame.setPayload(payload);
+      List<ByteBuffer> buffers = new ArrayList<>();
+      server.createBinaryFrame(frame, buffers);
+      assertEquals(length == 0 ? 1 : 2, buffers.size());
+      // the payload is not copied and not consumed
+      assertEquals(0, payload.position());
+      assertEquals(server.createBinaryFrame(frame), concat(buffers));
+      ByteBuffer encoded = concat(buffers);
+      List<Framedata> frames = client.translateFrame(encoded);
+      assertEquals(1, frames.size());
+      assertEquals(ByteBuffer.wrap(data), frames.get(0).getPayloadData());
+    }
+    // masked frames are copied into a single buffer
+    BinaryFrame frame = new BinaryFrame();
+    frame.setPayload(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+    List<ByteBuffer> buffers = new ArrayList<>();
+    client.createBinaryFrame(frame, buffers);
+    assertEquals(1, buffers.size());
+    assertEquals(frame.getPayloadData(),
+        server.translateFrame(buffers.get(0)).get(0).getPayloadData());
+  }
+
+  @Test
+  public void processFrameStreaming() throws Exception {
+    StreamingAdapter listener = new StreamingAdapter(true);
+    Draft_6455 draft = new Draft_6455();
+    WebSocketImpl conn = new WebSocketImpl(listener, draft);
+    // the euro sign split between two fragments
+    draft.processFrame(conn, fragment(new TextFrame(), new byte[]{'a', (byte) 0xe2}, false));
+    draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{(byte) 0x82}, false));
+    draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{(byte) 0xac}, true));
+    assertEquals(Opcode.TEXT, listener.opcode);
+    assertEquals(3, listener.fragments.size());
+    assertEquals("a\u20ac", Charsetfunctions.stringUtf8(concat(listener.fragments)));
+    assertEquals(1, listener.ended);
+    assertEquals(0, listener.messages);
+
+    draft.processFrame(conn, fragment(new BinaryFrame(), new byte[]{1, 2}, false));
+    draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{3}, true));
+    assertEquals(Opcode.BINARY, listener.opcode);
+    assertEquals(5, listener.fragments.size());
+    assertEquals(2, listener.ended);
+
+    draft.processFrame(conn, fragment(new TextFrame(), new byte[]{'a', (byte) 0xe2}, false));
+    try {
+      draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{'b'}, true));
+      fail("InvalidDataException should be thrown");
+    } catch (InvalidDataException e) {
+      assertEquals(CloseFrame.NO_UTF8, e.getCloseCode());
+    }
+    assertEquals(6, listener.fragments.size());
+    assertEquals(2, listener.ended);
+  }
+
+  @Test
+  public void processFrameNotStreaming() throws Exception {
+    StreamingAdapter listener = new StreamingAdapter(false);
+    Draft_6455 draft = new Draft_6455();
+    WebSocketImpl conn = new WebSocketImpl(listener, draft);
+    draft.processFrame(conn, fragment(new BinaryFrame(), new byte[]{1, 2}, false));
+    draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{3}, true));
+    assertEquals(Opcode.BINARY, listener.opcode);
+    assertEquals(0, listener.fragments.size());
+    assertEquals(0, listener.ended);
+    assertEquals(1, listener.messages);
+    assertEquals(2, listener.composite.getBufferCount());
+    assertEquals(3, listener.composite.remaining());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), listener.composite.toByteBuffer());
+
+    // the euro sign split between two fragments
+    draft.processFrame(conn, fragment(new TextFrame(), new byte[]{'a', (byte) 0xe2}, false));
+    draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{(byte) 0x82}, false));
+    draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{(byte) 0xac}, true));
+    assertEquals(Opcode.TEXT, listener.opcode);
+    assertEquals(2, listener.messages);
+    assertEquals("a\u20ac", listener.text);
+
+    draft.processFrame(conn, fragment(new TextFrame(), new byte[]{'a', (byte) 0xe2}, false));
+    try {
+      draft.processFrame(conn, fragment(new ContinuousFrame(), new byte[]{'b'}, true));
+      fail("InvalidDataException should be thrown");
+    } catch (InvalidDataException e) {
+      assertEquals(CloseFrame.NO_UTF8, e.getCloseCode());
+    }
+    assertEquals(2, listener.messages);
+  }
+
+  private static Framedata fragment(FramedataImpl1 frame, byte[] payload, boolean fin) {
+    frame.setPayload(ByteBuffer.wrap(payload));
+    frame.setFin(fin);
+    return frame;
+  }
+
+  private static ByteBuffer concat(List<ByteBuffer> buffers) {
+    int size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    ByteBuffer result = ByteBuffer.allocate(size);
+    for (ByteBuffer buffer : buffers) {
+      result.put(buffer.duplicate());
+    }
+    result.flip();
+    return result;
+  }
+
+
+  private static class StreamingAdapter extends WebSocketAdapter {
+
+    private final boolean streaming;
+    private final List<ByteBuffer> fragments = new ArrayList<>();
+    private Opcode opcode;
+    private int ended;
+    private int messages;
+    private CompositeByteBuffer composite;
+    private String text;
+
+    StreamingAdapter(boolean streaming) {
+      this.streaming = streaming;
+    }
+
+    @Override
+    public boolean onWebsocketMessageStart(WebSocket conn, Opcode opcode) {
+      this.opcode = opcode;
+      return streaming;
+    }
+
+    @Override
+    public void onWebsocketMessageFragment(WebSocket conn, ByteBuffer fragment) {
+      fragments.add(fragment);
+    }
+
+    @Override
+    public void onWebsocketMessageEnd(WebSocket conn) {
+      ended++;
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, String message) {
+      text = message;
+      messages++;
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, ByteBuffer blob) {
+      messages++;
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, CompositeByteBuffer message) {
+      composite = message;
+      super.onWebsocketMessage(conn, message);
+    }
+
+    @Override
+    public void onWebsocketOpen(WebSocket conn, Handshakedata d) {
+    }
+
+    @Override
+    public void onWebsocketClose(WebSocket ws, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onWebsocketClosing(WebSocket ws, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onWebsocketCloseInitiated(WebSocket ws, int code, String reason) {
+    }
+
+    @Override
+    public void onWebsocketError(WebSocket conn, Exception ex) {
+    }
+
+    @Override
+    public void onWriteDemand(WebSocket conn) {
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress(WebSocket conn) {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress(WebSocket conn) {
+      return null;
+    }
+  }
 
   private static class TestExtension extends DefaultExtension {
 
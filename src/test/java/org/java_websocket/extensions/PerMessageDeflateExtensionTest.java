@@ -2,10 +2,15 @@ package org.java_websocket.extensions;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Random;
 import java.util.zip.Deflater;
 
+import org.java_websocket.enums.Opcode;
 import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.permessage_deflate.AdaptiveCompressionPolicy;
+import org.java_websocket.extensions.permessage_deflate.CompressorPool;
 import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.BinaryFrame;
 import org.java_websocket.framing.ContinuousFrame;
 import org.java_websocket.framing.TextFrame;
 import org.junit.jupiter.api.Test;
@@ -317,4 +322,239 @@ public class PerMessageDeflateExtensionTest {
     assertEquals(64, deflateExtension.getThreshold());
     assertEquals(Deflater.DEFAULT_COMPRESSION, deflateExtension.getCompressionLevel());
   }
+
+  @Test
+  public void testNoContextTakeoverUsesPool() throws InvalidDataException {
+    CompressorPool pool = new CompressorPool(1);
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension();
+    deflateExtension.setCompressorPool(pool);
+    assertTrue(deflateExtension.acceptProvidedExtensionAsServer(
+        "permessage-deflate; client_no_context_takeover; server_no_context_takeover"));
+    deflateExtension.setThreshold(0);
+    byte[] message = "This is a highly compressable text".getBytes();
+    for (int i = 0; i < 3; i++) {
+      TextFrame frame = new TextFrame();
+      frame.setPayload(ByteBuffer.wrap(message));
+      deflateExtension.encodeFrame(frame);
+      assertTrue(frame.isRSV1());
+      deflateExtension.decodeFrame(frame);
+      assertArrayEquals(message, frame.getPayloadData().array());
+      // the compressor and decompressor are returned after every message
+      assertEquals(1, pool.getIdleDeflaters());
+      assertEquals(1, pool.getIdleInflaters());
+    }
+    assertSame(pool, ((PerMessageDeflateExtension) deflateExtension.copyInstance())
+        .getCompressorPool());
+  }
+
+  @Test
+  public void testGrownBufferReleasesPooledBuffer() throws InvalidDataException {
+    CompressorPool pool = new CompressorPool(1);
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension();
+    deflateExtension.setCompressorPool(pool);
+    deflateExtension.setThreshold(0);
+    // inflates to much more than the pooled buffer holds
+    byte[] message = new byte[4 * CompressorPool.BUFFER_SIZE];
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(message));
+    deflateExtension.encodeFrame(frame);
+    assertTrue(frame.isRSV1());
+    assertTrue(frame.getPayloadData().remaining() * 4 < CompressorPool.BUFFER_SIZE);
+    assertEquals(0, pool.getIdleBuffers());
+    deflateExtension.decodeFrame(frame);
+    assertArrayEquals(message, frame.getPayloadData().array());
+    assertEquals(1, pool.getIdleBuffers());
+  }
+
+  @Test
+  public void testMaxFragmentSize() {
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension(
+        Deflater.DEFAULT_COMPRESSION, CompressorPool.BUFFER_SIZE + 1);
+    deflateExtension.setThreshold(0);
+    // the small compressed payload must not size the output buffer
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(new byte[4 * CompressorPool.BUFFER_SIZE]));
+    deflateExtension.encodeFrame(frame);
+    try {
+      deflateExtension.decodeFrame(frame);
+      fail("Should fail");
+    } catch (InvalidDataException e) {
+      // OK
+    }
+  }
+
+  @Test
+  public void testResetReleasesPooledCompressors() throws InvalidDataException {
+    CompressorPool pool = new CompressorPool(1);
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension();
+    deflateExtension.setCompressorPool(pool);
+    assertTrue(deflateExtension.acceptProvidedExtensionAsServer(
+        "permessage-deflate; client_no_context_takeover; server_no_context_takeover"));
+    deflateExtension.setThreshold(0);
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap("This is a highly compressable text".getBytes()));
+    frame.setFin(false);
+    deflateExtension.encodeFrame(frame);
+    deflateExtension.decodeFrame(frame);
+    // the connection is closed in the middle of the message
+    assertEquals(0, pool.getIdleDeflaters());
+    assertEquals(0, pool.getIdleInflaters());
+    deflateExtension.reset();
+    assertEquals(1, pool.getIdleDeflaters());
+    assertEquals(1, pool.getIdleInflaters());
+  }
+
+  @Test
+  public void testFragmentedMessage() throws InvalidDataException {
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension();
+    deflateExtension.setThreshold(0);
+    byte[] message = new byte[100000];
+    for (int i = 0; i < message.length; i++) {
+      message[i] = (byte) (i % 13);
+    }
+    TextFrame first = new TextFrame();
+    first.setPayload(ByteBuffer.wrap(Arrays.copyOfRange(message, 0, 60000)));
+    first.setFin(false);
+    ContinuousFrame last = new ContinuousFrame();
+    last.setPayload(ByteBuffer.wrap(Arrays.copyOfRange(message, 60000, message.length)));
+    last.setFin(true);
+    deflateExtension.encodeFrame(first);
+    deflateExtension.encodeFrame(last);
+    assertTrue(first.isRSV1());
+    deflateExtension.decodeFrame(first);
+    deflateExtension.decodeFrame(last);
+    assertArrayEquals(Arrays.copyOfRange(message, 0, 60000), first.getPayloadData().array());
+    assertArrayEquals(Arrays.copyOfRange(message, 60000, message.length),
+        last.getPayloadData().array());
+  }
+
+  @Test
+  public void testCompressorPool() {
+    try {
+      new CompressorPool(-1);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      new PerMessageDeflateExtension().setCompressorPool(null);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    assertEquals(CompressorPool.DEFAULT_MAX_IDLE, CompressorPool.getDefault().getMaxIdle());
+  }
+
+  @Test
+  public void testAdaptiveCompressionSkipsIncompressible() throws InvalidDataException {
+    AdaptiveCompressionPolicy policy = new AdaptiveCompressionPolicy();
+    policy.setProbeInterval(4);
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension();
+    deflateExtension.setAdaptiveCompressionPolicy(policy);
+    Random random = new Random(42);
+    byte[] message = new byte[1024];
+    for (int i = 0; i < 8; i++) {
+      random.nextBytes(message);
+      BinaryFrame frame = new BinaryFrame();
+      frame.setPayload(ByteBuffer.wrap(message.clone()));
+      deflateExtension.encodeFrame(frame);
+      // the first message and every fourth message are sampled
+      assertEquals(i % 4 == 0, frame.isRSV1());
+    }
+    assertEquals(2, deflateExtension.getCompressedMessages());
+    assertEquals(6, deflateExtension.getSkippedMessages());
+    assertEquals(6, policy.getSkippedMessages());
+    assertTrue(deflateExtension.getCompressionRatio(Opcode.BINARY) > 1);
+    assertTrue(Double.isNaN(deflateExtension.getCompressionRatio(Opcode.TEXT)));
+
+    // text messages are sampled separately
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(new byte[1024]));
+    deflateExtension.encodeFrame(frame);
+    assertTrue(frame.isRSV1());
+  }
+
+  @Test
+  public void testAdaptiveCompressionLowersLevel() throws InvalidDataException {
+    AdaptiveCompressionPolicy policy = new AdaptiveCompressionPolicy();
+    // every compression exceeds the budget
+    policy.setMaxNanosPerByte(Double.MIN_VALUE);
+    PerMessageDeflateExtension deflateExtension =
+        new PerMessageDeflateExtension(Deflater.BEST_COMPRESSION);
+    deflateExtension.setThreshold(0);
+    deflateExtension.setAdaptiveCompressionPolicy(policy);
+    PerMessageDeflateExtension inflateExtension = new PerMessageDeflateExtension();
+    byte[] message = "This is a highly compressable text".getBytes();
+    for (int i = 0; i < 200; i++) {
+      TextFrame frame = new TextFrame();
+      frame.setPayload(ByteBuffer.wrap(message));
+      deflateExtension.encodeFrame(frame);
+      inflateExtension.decodeFrame(frame);
+      assertArrayEquals(message, frame.getPayloadData().array());
+    }
+    assertEquals(Deflater.BEST_SPEED, deflateExtension.getCurrentCompressionLevel());
+    assertEquals(Deflater.BEST_COMPRESSION - Deflater.BEST_SPEED, policy.getLevelDecreases());
+    assertSame(policy, ((PerMessageDeflateExtension) deflateExtension.copyInstance())
+        .getAdaptiveCompressionPolicy());
+  }
+
+  @Test
+  public void testAdaptiveCompressionPolicy() {
+    AdaptiveCompressionPolicy policy = new AdaptiveCompressionPolicy();
+    try {
+      policy.setSkipRatio(0);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      policy.setProbeInterval(0);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      policy.setMaxNanosPerByte(-1);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      policy.setMinLevel(10);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    assertEquals(Deflater.DEFAULT_COMPRESSION,
+        new PerMessageDeflateExtension().getCurrentCompressionLevel());
+  }
+
+  @Test
+  public void testIsEncodingShareable() {
+    PerMessageDeflateExtension deflateExtension = new PerMessageDeflateExtension();
+    assertTrue(deflateExtension.acceptProvidedExtensionAsServer("permessage-deflate"));
+    assertFalse(deflateExtension.isEncodingShareable());
+    deflateExtension = new PerMessageDeflateExtension();
+    assertTrue(deflateExtension
+        .acceptProvidedExtensionAsServer("permessage-deflate; server_no_context_takeover"));
+    assertTrue(deflateExtension.isEncodingShareable());
+    deflateExtension.setAdaptiveCompressionPolicy(new AdaptiveCompressionPolicy());
+    assertFalse(deflateExtension.isEncodingShareable());
+  }
+
+  @Test
+  public void testEquals() {
+    PerMessageDeflateExtension first = new PerMessageDeflateExtension();
+    PerMessageDeflateExtension second = new PerMessageDeflateExtension();
+    assertTrue(first.acceptProvidedExtensionAsServer(
+        "permessage-deflate; server_no_context_takeover"));
+    assertTrue(second.acceptProvidedExtensionAsServer(
+        "permessage-deflate; server_no_context_takeover"));
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    second.setThreshold(0);
+    assertNotEquals(first, second);
+    assertNotEquals(first, new PerMessageDeflateExtension());
+    assertNotEquals(first, new DefaultExtension());
+  }
 }
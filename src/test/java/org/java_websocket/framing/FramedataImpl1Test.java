@@ -101,4 +101,29 @@ public class FramedataImpl1Test {
     assertArrayEquals( "firstsecond".getBytes(),
         frame0.getPayloadData().array(), "Payload must be equal");
   }
+
+  @Test
+  public void testPayloadView() {
+    FramedataImpl1 frame = FramedataImpl1.get(Opcode.BINARY);
+    ByteBuffer buffer = ByteBuffer.wrap("view".getBytes());
+    frame.setPayloadView(buffer);
+    assertTrue(frame.isPayloadView(), "Payload must be a view");
+    assertSame(buffer, frame.getPayloadData());
+    frame.retainPayload();
+    assertFalse(frame.isPayloadView(), "Payload must not be a view");
+    assertNotSame(buffer, frame.getPayloadData());
+    buffer.put(0, (byte) 'x');
+    assertEquals(ByteBuffer.wrap("view".getBytes()), frame.getPayloadData());
+    frame.setPayloadView(buffer);
+    frame.setPayload(buffer);
+    assertFalse(frame.isPayloadView(), "Payload must not be a view");
+  }
+
+  @Test
+  public void testPayloadViewCloseFrame() {
+    FramedataImpl1 frame = FramedataImpl1.get(Opcode.CLOSING);
+    frame.setPayloadView(ByteBuffer.wrap(new byte[]{3, -24}));
+    // a close frame keeps the code instead of the payload
+    assertFalse(frame.isPayloadView(), "Payload must not be a view");
+  }
 }
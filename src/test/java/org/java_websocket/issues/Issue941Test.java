@@ -30,6 +30,7 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.framing.Framedata;
@@ -39,6 +40,7 @@ import org.java_websocket.handshake.ServerHandshake;
 import org.java_websocket.server.WebSocketServer;
 import org.java_websocket.util.SocketUtil;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
@@ -46,9 +48,11 @@ public class Issue941Test {
 
   private CountDownLatch pingLatch = new CountDownLatch(1);
   private CountDownLatch pongLatch = new CountDownLatch(1);
+  private CountDownLatch serverStarted = new CountDownLatch(1);
   private byte[] pingBuffer, receivedPingBuffer, pongBuffer;
 
   @Test
+  @Timeout(value = 15, unit = TimeUnit.SECONDS)
   public void testIssue() throws Exception {
     int port = SocketUtil.getAvailablePort();
     WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
@@ -102,6 +106,7 @@ public class Issue941Test {
 
       @Override
       public void onStart() {
+        serverStarted.countDown();
       }
 
       @Override
@@ -113,6 +118,7 @@ public class Issue941Test {
     };
 
     server.start();
+    serverStarted.await();
     client.connectBlocking();
     client.setConnectionLostTimeout(1);
     pingLatch.await();
@@ -76,4 +76,43 @@ public class DaemonThreadTest {
 
     server.stop();
   }
+
+  @Test
+  @Timeout(1000)
+  public void test_SelectorThreadsAreDaemon() throws InterruptedException {
+
+    Set<Thread> threadSet1 = Thread.getAllStackTraces().keySet();
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(SocketUtil.getAvailablePort())) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {}
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {}
+      @Override
+      public void onMessage(WebSocket conn, String message) {}
+      @Override
+      public void onError(WebSocket conn, Exception ex) {}
+      @Override
+      public void onStart() {serverStarted.countDown();}
+    };
+    server.setSelectorThreadCount(2);
+    server.setDaemon(true);
+    // run the server on a thread, which is not a daemon itself
+    Thread serverThread = new Thread(server);
+    serverThread.setDaemon(false);
+    serverThread.start();
+    serverStarted.await();
+
+    Set<Thread> threadSet2 = Thread.getAllStackTraces().keySet();
+    threadSet2.removeAll(threadSet1);
+    threadSet2.remove(serverThread);
+
+    assertFalse(threadSet2.isEmpty(), "new threads created (no new threads indicates issue in test)");
+
+    for (Thread t : threadSet2)
+      assertTrue(t.isDaemon(), t.getName());
+
+    server.stop();
+  }
 }
@@ -2,23 +2,36 @@ package org.java_websocket.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SocketChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import javax.net.ssl.SSLContext;
 import org.java_websocket.WebSocket;
 import org.java_websocket.WebSocketAdapter;
 import org.java_websocket.WebSocketImpl;
+import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.drafts.Draft;
 import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.Handshakedata;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.util.SSLContextUtil;
+import org.java_websocket.util.SlabByteBufferPool;
+import org.java_websocket.util.SocketUtil;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class DefaultSSLWebSocketServerFactoryTest {
@@ -81,6 +94,82 @@ public class DefaultSSLWebSocketServerFactoryTest {
     channel.close();
   }
 
+  @Test
+  @Timeout(15000)
+  public void testByteBufferPool() throws Exception {
+    SSLContext sslContext = SSLContextUtil.getContext();
+    DefaultSSLWebSocketServerFactory webSocketServerFactory = new DefaultSSLWebSocketServerFactory(
+        sslContext);
+    assertNull(webSocketServerFactory.getByteBufferPool());
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch messageReceived = new CountDownLatch(1);
+    int port = SocketUtil.getAvailablePort();
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port)) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        conn.send(message);
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+        ex.printStackTrace();
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    SlabByteBufferPool bufferPool = new SlabByteBufferPool(64 * 1024, 4 * 1024 * 1024);
+    server.setByteBufferPool(bufferPool);
+    server.setWebSocketFactory(webSocketServerFactory);
+    server.start();
+    serverStarted.await();
+    assertSame(bufferPool, webSocketServerFactory.getByteBufferPool());
+
+    char[] chars = new char[100000];
+    Arrays.fill(chars, 'a');
+    final String message = new String(chars);
+    WebSocketClient client = new WebSocketClient(new URI("wss://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String received) {
+        if (message.equals(received)) {
+          messageReceived.countDown();
+        }
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    client.setSocketFactory(sslContext.getSocketFactory());
+    client.connectBlocking();
+    client.send(message);
+    messageReceived.await();
+    Thread.sleep(100);
+    // the TLS buffers of the idle connection were given back
+    assertEquals(0, bufferPool.getLeasedBuffers());
+    client.closeBlocking();
+    server.stop();
+    assertEquals(0, bufferPool.getLeasedBuffers());
+  }
+
   @Test
   public void testClose() {
     DefaultWebSocketServerFactory webSocketServerFactory = new DefaultWebSocketServerFactory();
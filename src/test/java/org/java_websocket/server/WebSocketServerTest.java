@@ -29,18 +29,34 @@ package org.java_websocket.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.drafts.Draft;
 import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.BackpressurePolicy;
+import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.util.SlabByteBufferPool;
 import org.java_websocket.util.SocketUtil;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -196,6 +212,833 @@ public class WebSocketServerTest {
     }
   }
 
+  @Test
+  public void testSelectorThreadCount() throws InterruptedException {
+    MyWebSocketServer server = new MyWebSocketServer(SocketUtil.getAvailablePort());
+    assertEquals(0, server.getSelectorThreadCount());
+    server.setSelectorThreadCount(4);
+    assertEquals(4, server.getSelectorThreadCount());
+    try {
+      server.setSelectorThreadCount(-1);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    assertEquals(4, server.getSelectorThreadCount());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  public void testSelectorThreads() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    int clientCount = 6;
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch echoed = new CountDownLatch(clientCount);
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        conn.send(message);
+      }
+    };
+    server.setSelectorThreadCount(2);
+    server.start();
+    serverStarted.await();
+    try {
+      server.setSelectorThreadCount(1);
+      fail("Should fail");
+    } catch (IllegalStateException e) {
+      // OK
+    }
+
+    List<WebSocketClient> clients = new ArrayList<>();
+    for (int i = 0; i < clientCount; i++) {
+      final String text = "client" + i;
+      WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+          send(text);
+        }
+
+        @Override
+        public void onMessage(String message) {
+          if (text.equals(message)) {
+            echoed.countDown();
+          }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+      };
+      clients.add(client);
+      client.connectBlocking();
+    }
+    echoed.await();
+    assertEquals(clientCount, server.getConnections().size());
+    for (WebSocketClient client : clients) {
+      client.closeBlocking();
+    }
+    server.stop();
+  }
+
+  @Test
+  public void testListenerCount() throws InterruptedException {
+    MyWebSocketServer server = new MyWebSocketServer(SocketUtil.getAvailablePort());
+    assertEquals(1, server.getListenerCount());
+    assertTrue(server.getListenerStats().isEmpty());
+    server.setListenerCount(3);
+    assertEquals(3, server.getListenerCount());
+    try {
+      server.setListenerCount(0);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    assertEquals(3, server.getListenerCount());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  public void testListeners() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    int clientCount = 8;
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch echoed = new CountDownLatch(clientCount);
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        conn.send(message);
+      }
+    };
+    server.setListenerCount(3);
+    server.start();
+    serverStarted.await();
+    List<ListenerStats> stats = server.getListenerStats();
+    // SO_REUSEPORT is not available on every platform
+    assertTrue(stats.size() == 3 || stats.size() == 1);
+    for (int i = 0; i < stats.size(); i++) {
+      assertEquals(i, stats.get(i).getIndex());
+      assertEquals(port, stats.get(i).getLocalAddress().getPort());
+    }
+
+    List<WebSocketClient> clients = new ArrayList<>();
+    for (int i = 0; i < clientCount; i++) {
+      final String text = "client" + i;
+      WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+          send(text);
+        }
+
+        @Override
+        public void onMessage(String message) {
+          if (text.equals(message)) {
+            echoed.countDown();
+          }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+      };
+      clients.add(client);
+      client.connectBlocking();
+    }
+    echoed.await();
+    long accepted = 0;
+    for (ListenerStats stat : server.getListenerStats()) {
+      accepted += stat.getAcceptedConnections();
+      assertEquals(0, stat.getRejectedConnections());
+    }
+    assertEquals(clientCount, accepted);
+    for (WebSocketClient client : clients) {
+      client.closeBlocking();
+    }
+    server.stop();
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  public void testTopicRegistry() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    int clientCount = 6;
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch subscribed = new CountDownLatch(clientCount);
+    final CountDownLatch published = new CountDownLatch(clientCount / 2);
+    final CountDownLatch unsubscribed = new CountDownLatch(clientCount);
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        getTopicRegistry().subscribe(conn, message);
+        subscribed.countDown();
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        if (getTopicRegistry().getTopics(conn).isEmpty()) {
+          unsubscribed.countDown();
+        }
+      }
+    };
+    server.setSelectorThreadCount(2);
+    server.start();
+    serverStarted.await();
+
+    List<WebSocketClient> clients = new ArrayList<>();
+    for (int i = 0; i < clientCount; i++) {
+      final String topic = i % 2 == 0 ? "even" : "odd";
+      WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+          send(topic);
+        }
+
+        @Override
+        public void onMessage(String message) {
+          assertEquals("even", topic);
+          assertEquals("news", message);
+          published.countDown();
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+      };
+      clients.add(client);
+      client.connectBlocking();
+    }
+    subscribed.await();
+    TopicRegistry registry = server.getTopicRegistry();
+    assertEquals(new HashSet<>(Arrays.asList("even", "odd")), registry.getTopics());
+    assertEquals(clientCount / 2, registry.getSubscriberCount("even"));
+    server.getTopicRegistry().publish("even", "news");
+    published.await();
+    for (WebSocketClient client : clients) {
+      client.closeBlocking();
+    }
+    unsubscribed.await();
+    assertTrue(registry.getTopics().isEmpty());
+    assertEquals(0, registry.getSubscriberCount("even"));
+    server.stop();
+  }
+
+  @Test
+  public void testMaxOutboundBytes() throws InterruptedException {
+    MyWebSocketServer server = new MyWebSocketServer(SocketUtil.getAvailablePort());
+    assertEquals(0, server.getMaxOutboundBytes());
+    assertEquals(BackpressurePolicy.BLOCK, server.getBackpressurePolicy());
+    try {
+      server.setMaxOutboundBytes(-1);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    try {
+      server.setBackpressurePolicy(null);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    server.setMaxOutboundBytes(1024);
+    server.setBackpressurePolicy(BackpressurePolicy.DROP_OLDEST);
+    assertEquals(1024, server.getMaxOutboundBytes());
+    assertEquals(BackpressurePolicy.DROP_OLDEST, server.getBackpressurePolicy());
+  }
+
+  @Test
+  public void testGetWorkers() throws InterruptedException {
+    MyWebSocketServer server = new MyWebSocketServer(SocketUtil.getAvailablePort());
+    assertFalse(server.getWorkers().isEmpty());
+    for (WebSocketServer.WebSocketWorker worker : server.getWorkers()) {
+      assertEquals(0, worker.getQueueDepth());
+      assertEquals(0, worker.getStolenCount());
+      assertEquals(0, worker.getDecodedCount());
+    }
+    try {
+      server.getWorkers().clear();
+      fail("Should fail");
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+  }
+
+  @Test
+  @Timeout(value = 30, unit = TimeUnit.SECONDS)
+  public void testWorkStealing() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    final int hotCount = 300;
+    final int lightClients = 8;
+    final int lightCount = 20;
+    final CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch hotStarted = new CountDownLatch(1);
+    final CountDownLatch hotReceived = new CountDownLatch(hotCount);
+    final CountDownLatch lightReceived = new CountDownLatch(lightClients * lightCount);
+    final AtomicInteger outOfOrder = new AtomicInteger();
+    final Map<String, Integer> next = new ConcurrentHashMap<>();
+    WebSocketServer server = new WebSocketServer(new InetSocketAddress(port), 2) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+      }
+
+      @Override
+      public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        String resource = conn.getResourceDescriptor();
+        int index = Integer.parseInt(message.substring(0, message.indexOf(':')));
+        Integer expected = next.get(resource);
+        if (index != (expected == null ? 0 : expected)) {
+          outOfOrder.incrementAndGet();
+        }
+        next.put(resource, index + 1);
+        try {
+          // slow enough that the buffers of the hot connection pile up in its inQueue
+          Thread.sleep(resource.equals("/hot") ? 2 : 1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (resource.equals("/hot")) {
+          hotStarted.countDown();
+          hotReceived.countDown();
+        } else {
+          lightReceived.countDown();
+        }
+      }
+
+      @Override
+      public void onError(WebSocket conn, Exception ex) {
+      }
+
+      @Override
+      public void onStart() {
+        serverStarted.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    WebSocketClient hot = new TestClient(new URI("ws://localhost:" + port + "/hot"));
+    assertTrue(hot.connectBlocking());
+    List<WebSocketClient> lights = new ArrayList<>();
+    for (int i = 0; i < lightClients; i++) {
+      WebSocketClient light = new TestClient(new URI("ws://localhost:" + port + "/light" + i));
+      assertTrue(light.connectBlocking());
+      lights.add(light);
+    }
+    // far more than DECODE_BATCH_SIZE reads, so the hot connection is queued again many times
+    char[] padding = new char[32 * 1024];
+    Arrays.fill(padding, 'x');
+    String hotPayload = new String(padding);
+    for (int i = 0; i < hotCount; i++) {
+      hot.send(i + ":" + hotPayload);
+    }
+    hotStarted.await();
+    for (int j = 0; j < lightCount; j++) {
+      for (WebSocketClient light : lights) {
+        light.send(j + ":light");
+      }
+      Thread.sleep(5);
+    }
+    assertTrue(lightReceived.await(20, TimeUnit.SECONDS));
+    // the light connections were served while the hot connection still had work
+    assertTrue(hotReceived.getCount() > 0, "light connections waited for the hot connection");
+    assertTrue(hotReceived.await(20, TimeUnit.SECONDS));
+    assertEquals(0, outOfOrder.get());
+    assertEquals(hotCount, (int) next.get("/hot"));
+    long stolen = 0;
+    for (WebSocketServer.WebSocketWorker worker : server.getWorkers()) {
+      stolen += worker.getStolenCount();
+    }
+    assertTrue(stolen > 0, "no connection was stolen");
+    hot.closeBlocking();
+    for (WebSocketClient light : lights) {
+      light.closeBlocking();
+    }
+    server.stop();
+  }
+
+  @Test
+  public void testUseVirtualThreads() throws InterruptedException {
+    MyWebSocketServer server = new MyWebSocketServer(SocketUtil.getAvailablePort());
+    assertFalse(server.isUseVirtualThreads());
+    try {
+      server.setUseVirtualThreads(true);
+      assertTrue(server.isUseVirtualThreads());
+    } catch (UnsupportedOperationException e) {
+      // OK, virtual threads require Java 21
+      assertFalse(server.isUseVirtualThreads());
+    }
+    server.setUseVirtualThreads(false);
+    assertFalse(server.isUseVirtualThreads());
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testUseVirtualThreadsDecode() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch received = new CountDownLatch(1);
+    final Thread[] decoder = new Thread[1];
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        decoder[0] = Thread.currentThread();
+        received.countDown();
+      }
+    };
+    boolean virtual;
+    try {
+      server.setUseVirtualThreads(true);
+      virtual = true;
+    } catch (UnsupportedOperationException e) {
+      // OK, virtual threads require Java 21, the workers decode the data instead
+      virtual = false;
+    }
+    server.start();
+    serverStarted.await();
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    assertTrue(client.connectBlocking());
+    client.send("hello");
+    assertTrue(received.await(10, TimeUnit.SECONDS));
+    if (virtual) {
+      assertTrue(decoder[0].getName().startsWith("WebSocketVirtualWorker-"));
+      assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(decoder[0]));
+    } else {
+      assertTrue(decoder[0] instanceof WebSocketServer.WebSocketWorker);
+    }
+    client.closeBlocking();
+    server.stop();
+  }
+
+  @Test
+  public void testWriteQuantum() throws InterruptedException {
+    MyWebSocketServer server = new MyWebSocketServer(SocketUtil.getAvailablePort());
+    assertEquals(256 * 1024, server.getWriteQuantum());
+    assertTrue(server.getWriteStats().isEmpty());
+    try {
+      server.setWriteQuantum(-1);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    server.setWriteQuantum(0);
+    assertEquals(0, server.getWriteQuantum());
+    server.setWriteQuantum(4096);
+    assertEquals(4096, server.getWriteQuantum());
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testWriteQuantumInterleavesConnections() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch opened = new CountDownLatch(2);
+    final Map<String, WebSocket> connections = new ConcurrentHashMap<>();
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        connections.put(handshake.getResourceDescriptor(), conn);
+        opened.countDown();
+      }
+    };
+    server.setSelectorThreadCount(1);
+    server.setWriteQuantum(4096);
+    server.start();
+    serverStarted.await();
+
+    final int size = 1024 * 1024;
+    final CountDownLatch bigReceived = new CountDownLatch(1);
+    final CountDownLatch smallReceived = new CountDownLatch(1);
+    final boolean[] smallFirst = new boolean[1];
+    final int[] bigSize = new int[1];
+    WebSocketClient big = new WebSocketClient(new URI("ws://localhost:" + port + "/big")) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onMessage(ByteBuffer bytes) {
+        bigSize[0] = bytes.remaining();
+        bigReceived.countDown();
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    WebSocketClient small = new WebSocketClient(new URI("ws://localhost:" + port + "/small")) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+        smallFirst[0] = bigReceived.getCount() == 1;
+        smallReceived.countDown();
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    assertTrue(big.connectBlocking());
+    assertTrue(small.connectBlocking());
+    opened.await();
+    // queue both messages within one pass of the selector thread, which handles both connections
+    final WebSocket bigConn = connections.get("/big");
+    final WebSocket smallConn = connections.get("/small");
+    server.execute(((WebSocketImpl) bigConn).getSelectionKey().selector(), new Runnable() {
+      @Override
+      public void run() {
+        bigConn.send(new byte[size]);
+        smallConn.send("small");
+      }
+    });
+    assertTrue(smallReceived.await(10, TimeUnit.SECONDS));
+    assertTrue(bigReceived.await(10, TimeUnit.SECONDS));
+    assertEquals(size, bigSize[0]);
+    // the big message took many passes, the small one did not wait for them
+    assertTrue(smallFirst[0]);
+    long deferred = 0;
+    for (WriteStats stats : server.getWriteStats()) {
+      deferred += stats.getDeferredWrites();
+    }
+    assertTrue(deferred >= size / 4096 / 2, "deferred writes: " + deferred);
+    big.closeBlocking();
+    small.closeBlocking();
+    server.stop();
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testSendCopiesPayload() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch opened = new CountDownLatch(1);
+    final WebSocket[] connection = new WebSocket[1];
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        connection[0] = conn;
+        opened.countDown();
+      }
+    };
+    server.start();
+    serverStarted.await();
+
+    final CountDownLatch received = new CountDownLatch(2);
+    final List<ByteBuffer> messages = Collections.synchronizedList(new ArrayList<ByteBuffer>());
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onMessage(ByteBuffer bytes) {
+        messages.add(bytes);
+        received.countDown();
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    assertTrue(client.connectBlocking());
+    opened.await();
+    final WebSocket conn = connection[0];
+    // the selector thread writes the messages only after the task has modified the arrays
+    server.execute(((WebSocketImpl) conn).getSelectionKey().selector(), new Runnable() {
+      @Override
+      public void run() {
+        byte[] copied = new byte[1000];
+        Arrays.fill(copied, (byte) 1);
+        conn.send(copied);
+        Arrays.fill(copied, (byte) 2);
+        byte[] shared = new byte[1000];
+        Arrays.fill(shared, (byte) 1);
+        conn.sendShared(ByteBuffer.wrap(shared));
+        Arrays.fill(shared, (byte) 2);
+      }
+    });
+    assertTrue(received.await(10, TimeUnit.SECONDS));
+    byte[] expected = new byte[1000];
+    Arrays.fill(expected, (byte) 1);
+    assertEquals(ByteBuffer.wrap(expected), messages.get(0));
+    Arrays.fill(expected, (byte) 2);
+    assertEquals(ByteBuffer.wrap(expected), messages.get(1));
+    client.closeBlocking();
+    server.stop();
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testBackpressureDropNewest() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch unwritable = new CountDownLatch(1);
+    final CountDownLatch sent = new CountDownLatch(1);
+    final long maxOutboundBytes = 1024 * 1024;
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onOpen(final WebSocket conn, ClientHandshake handshake) {
+        new Thread() {
+          @Override
+          public void run() {
+            // far more than the socket buffers and the budget can take
+            for (int i = 0; i < 1000; i++) {
+              conn.send(new byte[64 * 1024]);
+            }
+            sent.countDown();
+          }
+        }.start();
+      }
+
+      @Override
+      public void onWebsocketWritabilityChanged(WebSocket conn, boolean writable) {
+        if (!writable) {
+          unwritable.countDown();
+        }
+      }
+    };
+    server.setMaxOutboundBytes(maxOutboundBytes);
+    server.setBackpressurePolicy(BackpressurePolicy.DROP_NEWEST);
+    server.start();
+    serverStarted.await();
+
+    // a client which never reads
+    try (Socket socket = new Socket("localhost", port)) {
+      socket.getOutputStream().write(("GET / HTTP/1.1\r\nHost: localhost\r\n"
+          + "Upgrade: websocket\r\nConnection: Upgrade\r\n"
+          + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+          + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes());
+      unwritable.await();
+      sent.await();
+      WebSocket conn = server.getConnections().iterator().next();
+      assertTrue(conn.isOpen());
+      assertFalse(conn.isWritable());
+    }
+    server.stop();
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testBackpressureBlockPublish() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch subscribed = new CountDownLatch(1);
+    final CountDownLatch published = new CountDownLatch(1);
+    final CountDownLatch received = new CountDownLatch(1);
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn,
+          Draft draft, ClientHandshake request) throws InvalidDataException {
+        if ("/slow".equals(request.getResourceDescriptor())) {
+          // hold the selector loop until the messages are published, so they are queued before
+          // the selector loop writes to the connection for the first time
+          final CountDownLatch held = new CountDownLatch(1);
+          execute(((WebSocketImpl) conn).getSelectionKey().selector(), new Runnable() {
+            @Override
+            public void run() {
+              held.countDown();
+              try {
+                published.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          });
+          try {
+            held.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+      }
+
+      @Override
+      public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        getTopicRegistry().subscribe(conn, handshake.getResourceDescriptor());
+        if ("/slow".equals(handshake.getResourceDescriptor())) {
+          // far more than the socket buffers and the budget can take
+          for (int i = 0; i < 200; i++) {
+            getTopicRegistry().publish("/slow", new byte[64 * 1024]);
+          }
+          published.countDown();
+        } else {
+          subscribed.countDown();
+        }
+      }
+    };
+    server.setSelectorThreadCount(1);
+    server.setMaxOutboundBytes(64 * 1024);
+    server.setBackpressurePolicy(BackpressurePolicy.BLOCK);
+    server.start();
+    serverStarted.await();
+
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port + "/fast")) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+      }
+
+      @Override
+      public void onMessage(String message) {
+        assertEquals("news", message);
+        received.countDown();
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    assertTrue(client.connectBlocking());
+    subscribed.await();
+    // a subscriber which never reads
+    try (Socket socket = new Socket("localhost", port)) {
+      socket.getOutputStream().write(("GET /slow HTTP/1.1\r\nHost: localhost\r\n"
+          + "Upgrade: websocket\r\nConnection: Upgrade\r\n"
+          + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+          + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes());
+      published.await();
+      // both connections are handled by the same selector loop
+      server.getTopicRegistry().publish("/fast", "news");
+      received.await();
+    }
+    client.closeBlocking();
+    server.stop();
+  }
+
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testIsEventLoopThread() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch decoded = new CountDownLatch(1);
+    final CountDownLatch executed = new CountDownLatch(1);
+    final boolean[] eventLoopThread = new boolean[2];
+    final MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(final WebSocket conn, String message) {
+        // a worker may wait for the budget, the selector writing the connection may not
+        eventLoopThread[0] = isEventLoopThread();
+        decoded.countDown();
+        execute(((WebSocketImpl) conn).getSelectionKey().selector(), new Runnable() {
+          @Override
+          public void run() {
+            eventLoopThread[1] = isEventLoopThread();
+            executed.countDown();
+          }
+        });
+      }
+    };
+    server.start();
+    serverStarted.await();
+    assertFalse(server.isEventLoopThread());
+
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+        send("message");
+      }
+
+      @Override
+      public void onMessage(String message) {
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    assertTrue(client.connectBlocking());
+    decoded.await();
+    executed.await();
+    assertFalse(eventLoopThread[0]);
+    assertTrue(eventLoopThread[1]);
+    client.closeBlocking();
+    server.stop();
+  }
+
+  private static class TestClient extends WebSocketClient {
+
+    TestClient(URI serverUri) {
+      super(serverUri);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshakedata) {
+    }
+
+    @Override
+    public void onMessage(String message) {
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(Exception ex) {
+    }
+  }
+
   private static class MyWebSocketServer extends WebSocketServer {
 
     private CountDownLatch serverLatch = null;
@@ -239,5 +1082,121 @@ public class WebSocketServerTest {
       }
     }
   }
-}
+  @Test
+  @Timeout(30)
+  public void testByteBufferPool() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    int clientCount = 4;
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch echoed = new CountDownLatch(clientCount * 10);
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        conn.send(message);
+      }
+    };
+    try {
+      server.setByteBufferPool(null);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    // a single buffer for all connections, every further read has to wait
+    SlabByteBufferPool pool = new SlabByteBufferPool(65536, 65536);
+    server.setByteBufferPool(pool);
+    server.start();
+    serverStarted.await();
+    assertSame(pool, server.getByteBufferPool());
+    try {
+      server.setByteBufferPool(pool);
+      fail("Should fail");
+    } catch (IllegalStateException e) {
+      // OK
+    }
+
+    List<WebSocketClient> clients = new ArrayList<>();
+    for (int i = 0; i < clientCount; i++) {
+      WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+          for (int j = 0; j < 10; j++) {
+            send("message" + j);
+          }
+        }
+
+        @Override
+        public void onMessage(String message) {
+          echoed.countDown();
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+      };
+      clients.add(client);
+      client.connectBlocking();
+    }
+    assertTrue(echoed.await(20, TimeUnit.SECONDS));
+    for (WebSocketClient client : clients) {
+      client.closeBlocking();
+    }
+    server.stop();
+  }
 
+  @Test
+  @Timeout(value = 20, unit = TimeUnit.SECONDS)
+  public void testCreateBufferOverridden() throws Exception {
+    int port = SocketUtil.getAvailablePort();
+    CountDownLatch serverStarted = new CountDownLatch(1);
+    final CountDownLatch echoed = new CountDownLatch(10);
+    final AtomicInteger createdBuffers = new AtomicInteger();
+    MyWebSocketServer server = new MyWebSocketServer(port, serverStarted) {
+      @Override
+      public void onMessage(WebSocket conn, String message) {
+        conn.send(message);
+      }
+
+      @Override
+      public ByteBuffer createBuffer() {
+        createdBuffers.incrementAndGet();
+        return super.createBuffer();
+      }
+    };
+    server.start();
+    serverStarted.await();
+    assertFalse(server.getByteBufferPool() instanceof SlabByteBufferPool);
+
+    WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port)) {
+      @Override
+      public void onOpen(ServerHandshake handshakedata) {
+        for (int j = 0; j < 10; j++) {
+          send("message" + j);
+        }
+      }
+
+      @Override
+      public void onMessage(String message) {
+        echoed.countDown();
+      }
+
+      @Override
+      public void onClose(int code, String reason, boolean remote) {
+      }
+
+      @Override
+      public void onError(Exception ex) {
+      }
+    };
+    assertTrue(client.connectBlocking());
+    assertTrue(echoed.await(10, TimeUnit.SECONDS));
+    // the buffers are reused, at most 2 * workers + 1 are created
+    assertTrue(createdBuffers.get() > 0);
+    assertTrue(createdBuffers.get() <= 2 * server.getWorkers().size() + 1);
+    client.closeBlocking();
+    server.stop();
+  }
+}
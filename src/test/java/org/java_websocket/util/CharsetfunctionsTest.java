@@ -26,7 +26,10 @@
 package org.java_websocket.util;
 
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -45,6 +48,27 @@ public class CharsetfunctionsTest {
   }
 
 
+  @Test
+  public void testStringUtf8() throws InvalidDataException {
+    ByteBuffer ascii = ByteBuffer.wrap("xx{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+    ascii.position(2);
+    assertEquals("{\"id\":1}", Charsetfunctions.stringUtf8(ascii));
+    assertEquals(2, ascii.position());
+    byte[] text = "J\u00fcrgen \u20ac".getBytes(StandardCharsets.UTF_8);
+    ByteBuffer direct = ByteBuffer.allocateDirect(text.length);
+    direct.put(text).flip();
+    assertEquals("J\u00fcrgen \u20ac", Charsetfunctions.stringUtf8(direct));
+    assertEquals("J\u00fcrgen \u20ac", Charsetfunctions.stringUtf8(text));
+    try {
+      Charsetfunctions.stringUtf8(new byte[]{100, (byte) 0xe2, (byte) 0x82});
+      fail("InvalidDataException should be thrown");
+    } catch (InvalidDataException e) {
+      assertEquals(CloseFrame.NO_UTF8, e.getCloseCode());
+    }
+    // the cached decoder is not affected by the invalid input
+    assertEquals("\u00fc", Charsetfunctions.stringUtf8(new byte[]{(byte) 0xc3, (byte) 0xbc}));
+  }
+
   @Test
   public void testIsValidUTF8off() {
     assertFalse(Charsetfunctions.isValidUTF8(ByteBuffer.wrap(new byte[]{100}), 2));
@@ -60,6 +84,25 @@ public class CharsetfunctionsTest {
     assertTrue(Charsetfunctions.isValidUTF8(ByteBuffer.wrap(new byte[]{100})));
   }
 
+  @Test
+  public void testValidateUTF8() {
+    // the euro sign split between two parts
+    ByteBuffer first = ByteBuffer.wrap(new byte[]{100, (byte) 0xe2, (byte) 0x82});
+    ByteBuffer second = ByteBuffer.wrap(new byte[]{(byte) 0xac, 100});
+    int state = Charsetfunctions.validateUTF8(first, Charsetfunctions.UTF8_ACCEPT);
+    assertNotEquals(Charsetfunctions.UTF8_ACCEPT, state);
+    assertNotEquals(Charsetfunctions.UTF8_REJECT, state);
+    assertEquals(0, first.position());
+    assertEquals(Charsetfunctions.UTF8_ACCEPT, Charsetfunctions.validateUTF8(second, state));
+
+    assertEquals(Charsetfunctions.UTF8_REJECT, Charsetfunctions
+        .validateUTF8(ByteBuffer.wrap(new byte[]{100}), state));
+    ByteBuffer slice = ByteBuffer.wrap(new byte[]{(byte) 128, 100});
+    slice.position(1);
+    assertEquals(Charsetfunctions.UTF8_ACCEPT,
+        Charsetfunctions.validateUTF8(slice, Charsetfunctions.UTF8_ACCEPT));
+  }
+
   @Test
   public void testStringAscii1() {
     assertEquals("oBar",
@@ -77,4 +120,29 @@ public class CharsetfunctionsTest {
     assertArrayEquals(new byte[]{102, 111, 111, 66, 97, 114},
         Charsetfunctions.utf8Bytes("fooBar"));
   }
+
+  @Test
+  public void testUtf8BytesCharSequence() {
+    assertArrayEquals(new byte[0], Charsetfunctions.utf8Bytes(new StringBuilder()));
+    assertArrayEquals(new byte[]{102, 111, 111, 66, 97, 114},
+        Charsetfunctions.utf8Bytes(new StringBuilder("fooBar")));
+    // a surrogate pair split by the chunks, unpaired surrogates and an encoding above the
+    // retained capacity
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1023; i++) {
+      text.append('a');
+    }
+    text.append("\ud83d\ude00 caf\u00e9 \u4e2d\ud800 x\udc00");
+    for (int i = 0; i < 8000; i++) {
+      text.append('\u00e9');
+    }
+    text.append('\ud83d');
+    byte[] expected = text.toString().getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expected, Charsetfunctions.utf8Bytes(text));
+    assertArrayEquals(expected, Charsetfunctions.utf8Bytes(new StringBuffer(text)));
+    assertArrayEquals(expected, Charsetfunctions.utf8Bytes(CharBuffer.wrap(text)));
+    // the encoder is reused
+    assertArrayEquals(new byte[]{102, 111, 111},
+        Charsetfunctions.utf8Bytes(new StringBuilder("foo")));
+  }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+public class CompositeByteBufferTest {
+
+  @Test
+  public void testConstructor() {
+    try {
+      new CompositeByteBuffer(null);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+    CompositeByteBuffer empty = new CompositeByteBuffer(Collections.<ByteBuffer>emptyList());
+    assertEquals(0, empty.remaining());
+    assertEquals(0, empty.getBufferCount());
+    assertEquals(0, empty.toByteBuffer().remaining());
+  }
+
+  @Test
+  public void testViews() {
+    ByteBuffer first = ByteBuffer.wrap(new byte[]{1, 2, 3});
+    first.position(1);
+    CompositeByteBuffer message = new CompositeByteBuffer(
+        Arrays.asList(first, ByteBuffer.wrap(new byte[]{4, 5})));
+    assertEquals(4, message.remaining());
+    assertEquals(2, message.getBufferCount());
+    ByteBuffer[] buffers = message.getBuffers();
+    assertTrue(buffers[0].isReadOnly());
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 3}), buffers[0]);
+    // reading a view does not consume the message
+    buffers[1].get();
+    assertEquals(2, message.getBuffer(1).remaining());
+    ByteBuffer copy = message.toByteBuffer();
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 3, 4, 5}), copy);
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 3, 4, 5}), message.toByteBuffer());
+  }
+
+  @Test
+  public void testWriteTo() throws IOException {
+    File file = File.createTempFile("composite", ".bin");
+    file.deleteOnExit();
+    CompositeByteBuffer message = new CompositeByteBuffer(Arrays.asList(
+        ByteBuffer.wrap(new byte[]{1, 2}), ByteBuffer.allocate(0), ByteBuffer.allocateDirect(3)));
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      FileChannel channel = raf.getChannel();
+      assertEquals(5, message.writeTo(channel));
+      assertEquals(5, channel.size());
+      ByteBuffer read = ByteBuffer.allocate(5);
+      channel.read(read, 0);
+      read.flip();
+      assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 0, 0, 0}), read);
+    }
+  }
+
+  @Test
+  public void testWriteToPartial() throws IOException {
+    CompositeByteBuffer message = new CompositeByteBuffer(Arrays.asList(
+        ByteBuffer.wrap(new byte[]{1, 2, 3}), ByteBuffer.allocate(0),
+        ByteBuffer.wrap(new byte[]{4, 5, 6, 7})));
+    ThrottledChannel channel = new ThrottledChannel(3);
+    // the channel takes 3 bytes, then reports a full send buffer
+    assertEquals(3, message.writeTo(channel));
+    assertEquals(2, channel.writes);
+    long position = 3;
+    while (position < message.remaining()) {
+      position += message.writeTo(channel, position);
+    }
+    assertEquals(7, position);
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7}),
+        ByteBuffer.wrap(channel.out.toByteArray()));
+    assertEquals(0, message.writeTo(channel, 7));
+    try {
+      message.writeTo(channel, 8);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // OK
+    }
+  }
+
+  /**
+   * A non-blocking channel which takes a few bytes, then reports a full send buffer once
+   */
+  private static class ThrottledChannel implements GatheringByteChannel {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final int maxWrite;
+    private boolean full;
+    private int writes;
+
+    ThrottledChannel(int maxWrite) {
+      this.maxWrite = maxWrite;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      writes++;
+      full = !full;
+      if (!full) {
+        return 0;
+      }
+      int written = 0;
+      for (int i = offset; i < offset + length && written < maxWrite; i++) {
+        while (srcs[i].hasRemaining() && written < maxWrite) {
+          out.write(srcs[i].get());
+          written++;
+        }
+      }
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return (int) write(new ByteBuffer[]{src});
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
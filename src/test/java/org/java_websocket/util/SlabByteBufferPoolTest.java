@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit Test for the SlabByteBufferPool class
+ */
+public class SlabByteBufferPoolTest {
+
+  @Test
+  public void testConstructor() {
+    assertThrows(IllegalArgumentException.class, () -> new SlabByteBufferPool(0, 1024));
+    assertThrows(IllegalArgumentException.class, () -> new SlabByteBufferPool(8192, 4096));
+    assertThrows(IllegalArgumentException.class, () -> new SlabByteBufferPool(8192, 8192, -1));
+  }
+
+  @Test
+  public void testAcquire() {
+    SlabByteBufferPool pool = new SlabByteBufferPool(16384, 4 * 1024 * 1024);
+    ByteBuffer buffer = pool.acquire(100);
+    assertNotNull(buffer);
+    assertTrue(buffer.isDirect());
+    assertEquals(SlabByteBufferPool.MIN_BUFFER_SIZE, buffer.capacity());
+    assertEquals(0, buffer.position());
+    assertEquals(buffer.capacity(), buffer.limit());
+    assertEquals(8192, pool.acquire(5000).capacity());
+    assertEquals(16384, pool.acquire(16384).capacity());
+    assertEquals(3, pool.getLeasedBuffers());
+    assertThrows(IllegalArgumentException.class, () -> pool.acquire(16385));
+  }
+
+  @Test
+  public void testRelease() {
+    SlabByteBufferPool pool = new SlabByteBufferPool(4096, 4096, 0);
+    ByteBuffer buffer = pool.acquire(4096);
+    buffer.put((byte) 1);
+    pool.release(buffer);
+    assertEquals(0, pool.getLeasedBuffers());
+    ByteBuffer second = pool.acquire(4096);
+    assertSame(buffer, second);
+    assertEquals(0, second.position());
+    pool.release(ByteBuffer.allocate(4096));
+    assertEquals(1, pool.getForeignReleases());
+    assertEquals(1, pool.getLeasedBuffers());
+  }
+
+  @Test
+  public void testSlabLimit() {
+    SlabByteBufferPool pool = new SlabByteBufferPool(4096, 3 * 4096 + 100, 0);
+    for (int i = 0; i < 3; i++) {
+      assertNotNull(pool.acquire(4096));
+    }
+    assertNull(pool.acquire(4096));
+    assertEquals(3 * 4096, pool.getAllocatedBytes());
+  }
+
+  @Test
+  public void testThreadCache() {
+    SlabByteBufferPool pool = new SlabByteBufferPool(4096, 1024 * 1024);
+    ByteBuffer buffer = pool.acquire(4096);
+    pool.release(buffer);
+    assertSame(buffer, pool.acquire(4096));
+  }
+
+  @Test
+  public void testExhausted() {
+    SlabByteBufferPool pool = new SlabByteBufferPool(4096, 8192, 0);
+    ByteBuffer first = pool.acquire(4096);
+    ByteBuffer second = pool.acquire(4096);
+    assertNotNull(first);
+    assertNotNull(second);
+    assertNull(pool.acquire(4096));
+    assertEquals(1, pool.getFailedAcquires());
+    assertEquals(8192, pool.getAllocatedBytes());
+    pool.release(first);
+    assertSame(first, pool.acquire(4096));
+  }
+
+  @Test
+  public void testConcurrentRelease() throws InterruptedException {
+    final SlabByteBufferPool pool = new SlabByteBufferPool(4096, 4096 * 4, 2);
+    final ByteBuffer[] buffers = new ByteBuffer[4];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = pool.acquire(4096);
+      assertNotNull(buffers[i]);
+    }
+    Thread releaser = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (ByteBuffer buffer : buffers) {
+          pool.release(buffer);
+        }
+      }
+    });
+    releaser.start();
+    releaser.join();
+    // the buffers cached by the releasing thread are taken back as soon as the pool is exhausted
+    for (int i = 0; i < buffers.length; i++) {
+      assertNotNull(pool.acquire(4096));
+    }
+    assertNull(pool.acquire(4096));
+    assertEquals(4, pool.getLeasedBuffers());
+  }
+}
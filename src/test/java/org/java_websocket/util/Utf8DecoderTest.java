@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2010-2020 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class Utf8DecoderTest {
+
+  @Test
+  public void testDecode() {
+    Utf8Decoder decoder = new Utf8Decoder();
+    ByteBuffer data = ByteBuffer.wrap("{\"name\":\"J\u00fcrgen\"}".getBytes(StandardCharsets.UTF_8));
+    assertTrue(decoder.decode(data));
+    assertTrue(decoder.isComplete());
+    assertEquals(0, data.position());
+    assertEquals("{\"name\":\"J\u00fcrgen\"}", decoder.getString());
+    assertEquals(17, decoder.length());
+  }
+
+  @Test
+  public void testDecodeSplit() {
+    // a character outside of the basic multilingual plane split into every byte
+    byte[] bytes = "a\ud83d\ude00b".getBytes(StandardCharsets.UTF_8);
+    Utf8Decoder decoder = new Utf8Decoder();
+    for (int i = 0; i < bytes.length; i++) {
+      assertTrue(decoder.decode(ByteBuffer.wrap(bytes, i, 1)));
+      assertEquals(i == 0 || i >= 4, decoder.isComplete());
+    }
+    assertEquals("a\ud83d\ude00b", decoder.getString());
+
+    decoder.reset();
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    direct.limit(3);
+    assertTrue(decoder.decode(direct));
+    assertFalse(decoder.isComplete());
+    direct.position(3).limit(bytes.length);
+    assertTrue(decoder.decode(direct));
+    assertTrue(decoder.isComplete());
+    assertEquals("a\ud83d\ude00b", decoder.getString());
+  }
+
+  @Test
+  public void testMalformed() {
+    Utf8Decoder decoder = new Utf8Decoder();
+    assertFalse(decoder.decode(ByteBuffer.wrap(new byte[]{100, (byte) 128})));
+    assertFalse(decoder.isComplete());
+    // invalid input stays invalid
+    assertFalse(decoder.decode(ByteBuffer.wrap(new byte[]{100})));
+
+    decoder.reset();
+    assertTrue(decoder.decode(ByteBuffer.wrap(new byte[]{(byte) 0xe2, (byte) 0x82})));
+    assertFalse(decoder.decode(ByteBuffer.wrap(new byte[]{100})));
+
+    decoder.reset();
+    assertTrue(decoder.decode(ByteBuffer.wrap(new byte[]{100})));
+    assertEquals("d", decoder.getString());
+  }
+
+  @Test
+  public void testAsciiPrefix() {
+    byte[] bytes = "0123456789abcdef\u00e9".getBytes(StandardCharsets.UTF_8);
+    assertEquals(16, Utf8Decoder.asciiPrefix(ByteBuffer.wrap(bytes)));
+    ByteBuffer offset = ByteBuffer.wrap(bytes);
+    offset.position(3);
+    assertEquals(13, Utf8Decoder.asciiPrefix(offset));
+    offset.limit(10);
+    assertEquals(7, Utf8Decoder.asciiPrefix(offset));
+  }
+}